@@ -0,0 +1,149 @@
+package org.dcache.benchmarks.cells;
+
+import com.google.common.collect.ImmutableMap;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.Serializable;
+import java.net.InetSocketAddress;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.concurrent.TimeUnit;
+
+import diskCacheV111.util.AccessLatency;
+import diskCacheV111.util.PnfsId;
+import diskCacheV111.util.RetentionPolicy;
+import diskCacheV111.vehicles.DCapProtocolInfo;
+import diskCacheV111.vehicles.GenericStorageInfo;
+import diskCacheV111.vehicles.PoolMgrSelectReadPoolMsg;
+
+import dmg.cells.nucleus.CellAddressCore;
+import dmg.cells.nucleus.CellMessage;
+import dmg.cells.nucleus.SerializationFormat;
+
+import org.dcache.namespace.FileAttribute;
+import org.dcache.util.Checksum;
+import org.dcache.util.ChecksumType;
+import org.dcache.vehicles.FileAttributes;
+import org.dcache.vehicles.PnfsGetFileAttributes;
+
+/**
+ * Measures encoding and decoding of the payload of CellMessages as well
+ * as the raw tunnel encoding of encoded messages, using the vehicles
+ * that dominate the traffic between doors, PoolManager and PnfsManager,
+ * in each of the supported serialization formats.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Dlog=warn")
+public class CellMessageBenchmark
+{
+    @Param({"PoolMgrSelectReadPoolMsg", "PnfsGetFileAttributes"})
+    public String vehicle;
+
+    @Param({"JAVA", "COMPACT"})
+    public SerializationFormat format;
+
+    private CellMessage message;
+    private CellMessage encoded;
+    private byte[] raw;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException
+    {
+        message = new CellMessage(new CellAddressCore("PoolManager"), createVehicle());
+        message.addSourceAddress(new CellAddressCore("dcap-door", "door"));
+        encoded = message.encode(format);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        encoded.writeTo(new DataOutputStream(out));
+        raw = out.toByteArray();
+    }
+
+    private Serializable createVehicle()
+    {
+        FileAttributes attributes = createFileAttributes();
+        switch (vehicle) {
+        case "PoolMgrSelectReadPoolMsg":
+            return new PoolMgrSelectReadPoolMsg(attributes,
+                    new DCapProtocolInfo("DCap", 3, 0, new InetSocketAddress("131.169.214.149", 33115)),
+                    null);
+        case "PnfsGetFileAttributes":
+            PnfsGetFileAttributes msg = new PnfsGetFileAttributes(attributes.getPnfsId(),
+                    EnumSet.allOf(FileAttribute.class));
+            msg.setFileAttributes(attributes);
+            msg.setSucceeded();
+            return msg;
+        default:
+            throw new IllegalArgumentException("Unknown vehicle: " + vehicle);
+        }
+    }
+
+    private static FileAttributes createFileAttributes()
+    {
+        FileAttributes attributes = FileAttributes.of()
+                .pnfsId(new PnfsId("0000D7F4E04B4ACF4C5CA6B2A3F5E1A0A0E4"))
+                .storageInfo(new GenericStorageInfo("osm", "exp:raw"))
+                .storageClass("exp:raw")
+                .hsm("osm")
+                .size(2_147_483_648L)
+                .accessLatency(AccessLatency.NEARLINE)
+                .retentionPolicy(RetentionPolicy.CUSTODIAL)
+                .checksum(new Checksum(ChecksumType.ADLER32, "6bbe0e54"))
+                .locations(Arrays.asList("pool1", "pool2", "pool3"))
+                .flags(ImmutableMap.of("a", "b"))
+                .uid(1000)
+                .gid(1000)
+                .mode(0644)
+                .creationTime(1_500_000_000_000L)
+                .modificationTime(1_500_000_000_000L)
+                .accessTime(1_500_000_000_000L)
+                .build();
+        attributes.setCacheClass(null);
+        return attributes;
+    }
+
+    @Benchmark
+    public CellMessage encode()
+    {
+        return message.encode(format);
+    }
+
+    @Benchmark
+    public CellMessage decode()
+    {
+        return encoded.decode();
+    }
+
+    @Benchmark
+    public byte[] writeTo() throws IOException
+    {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(raw.length);
+        message.encode(format).writeTo(new DataOutputStream(out));
+        return out.toByteArray();
+    }
+
+    @Benchmark
+    public CellMessage createFrom() throws IOException
+    {
+        return CellMessage.createFrom(new DataInputStream(new ByteArrayInputStream(raw))).decode();
+    }
+}
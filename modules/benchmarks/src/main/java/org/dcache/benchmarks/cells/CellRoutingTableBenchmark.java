@@ -0,0 +1,89 @@
+package org.dcache.benchmarks.cells;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import dmg.cells.nucleus.CellAddressCore;
+import dmg.cells.nucleus.CellRoute;
+import dmg.cells.nucleus.CellRoutingTable;
+
+/**
+ * Measures concurrent route lookups in a routing table populated like
+ * that of a satellite domain: many well-known and topic routes learned
+ * from the core domains, a few domain routes and a default route.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Threads(4)
+@Fork(value = 1, jvmArgsAppend = "-Dlog=warn")
+public class CellRoutingTableBenchmark
+{
+    private static final String[] CORE_DOMAINS = {"core0", "core1", "core2"};
+
+    @Param({"100", "5000"})
+    public int routes;
+
+    private CellRoutingTable table;
+    private CellAddressCore[] wellKnown;
+    private CellAddressCore[] topics;
+    private CellAddressCore[] remote;
+
+    @Setup(Level.Trial)
+    public void setUp()
+    {
+        table = new CellRoutingTable();
+        for (String domain : CORE_DOMAINS) {
+            table.add(new CellRoute(domain, "*@" + domain, CellRoute.DOMAIN));
+        }
+        table.add(new CellRoute("", "*@" + CORE_DOMAINS[0], CellRoute.DEFAULT));
+
+        wellKnown = new CellAddressCore[routes];
+        topics = new CellAddressCore[routes];
+        remote = new CellAddressCore[routes];
+        for (int i = 0; i < routes; i++) {
+            for (String domain : CORE_DOMAINS) {
+                table.add(new CellRoute("cell" + i, "*@" + domain, CellRoute.QUEUE));
+                table.add(new CellRoute("topic" + i, "*@" + domain, CellRoute.TOPIC));
+            }
+            wellKnown[i] = new CellAddressCore("cell" + i);
+            topics[i] = new CellAddressCore("topic" + i);
+            remote[i] = new CellAddressCore("cell" + i, CORE_DOMAINS[i % CORE_DOMAINS.length]);
+        }
+    }
+
+    @Benchmark
+    public CellRoute findWellKnown()
+    {
+        return table.find(wellKnown[ThreadLocalRandom.current().nextInt(routes)], true);
+    }
+
+    @Benchmark
+    public CellRoute findDomain()
+    {
+        return table.find(remote[ThreadLocalRandom.current().nextInt(routes)], true);
+    }
+
+    @Benchmark
+    public Set<CellRoute> findTopicRoutes()
+    {
+        return table.findTopicRoutes(topics[ThreadLocalRandom.current().nextInt(routes)]);
+    }
+}
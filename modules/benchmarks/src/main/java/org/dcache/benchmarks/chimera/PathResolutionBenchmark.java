@@ -0,0 +1,105 @@
+package org.dcache.benchmarks.chimera;
+
+import com.zaxxer.hikari.HikariDataSource;
+import liquibase.Liquibase;
+import liquibase.database.Database;
+import liquibase.database.DatabaseFactory;
+import liquibase.database.jvm.JdbcConnection;
+import liquibase.resource.ClassLoaderResourceAccessor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+
+import java.sql.Connection;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.dcache.chimera.FileSystemProvider;
+import org.dcache.chimera.FsFactory;
+import org.dcache.chimera.FsInode;
+import org.dcache.chimera.JdbcFs;
+
+/**
+ * Measures path to inode resolution in Chimera against an embedded H2
+ * database. The namespace consists of a single directory chain of the
+ * given depth with a number of files in the deepest directory.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Dlog=warn")
+public class PathResolutionBenchmark
+{
+    @Param({"3", "12"})
+    public int depth;
+
+    @Param({"1000"})
+    public int files;
+
+    private HikariDataSource dataSource;
+    private FileSystemProvider fs;
+    private String directory;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception
+    {
+        dataSource = FsFactory.getDataSource("jdbc:h2:mem:chimera-benchmark", "sa", "");
+
+        try (Connection conn = dataSource.getConnection()) {
+            conn.setTransactionIsolation(Connection.TRANSACTION_READ_COMMITTED);
+            Database database = DatabaseFactory.getInstance().findCorrectDatabaseImplementation(new JdbcConnection(conn));
+            Liquibase liquibase = new Liquibase("org/dcache/chimera/changelog/changelog-master.xml",
+                                                new ClassLoaderResourceAccessor(), database);
+            liquibase.update("");
+        }
+
+        fs = new JdbcFs(dataSource, new DataSourceTransactionManager(dataSource));
+
+        FsInode inode = fs.path2inode("/");
+        StringBuilder path = new StringBuilder();
+        for (int i = 0; i < depth; i++) {
+            String name = "level" + i;
+            inode = fs.mkdir(inode, name);
+            path.append('/').append(name);
+        }
+        for (int i = 0; i < files; i++) {
+            fs.createFile(inode, "file" + i);
+        }
+        directory = path.toString();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception
+    {
+        try (Connection conn = dataSource.getConnection()) {
+            conn.createStatement().execute("SHUTDOWN;");
+        }
+        dataSource.close();
+        fs.close();
+    }
+
+    @Benchmark
+    public FsInode path2inodeDirectory() throws Exception
+    {
+        return fs.path2inode(directory);
+    }
+
+    @Benchmark
+    public FsInode path2inodeFile() throws Exception
+    {
+        return fs.path2inode(directory + "/file" + ThreadLocalRandom.current().nextInt(files));
+    }
+}
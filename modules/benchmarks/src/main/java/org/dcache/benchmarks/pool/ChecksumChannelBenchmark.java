@@ -0,0 +1,108 @@
+package org.dcache.benchmarks.pool;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.dcache.pool.movers.ChecksumChannel;
+import org.dcache.pool.repository.FileRepositoryChannel;
+import org.dcache.util.Checksum;
+import org.dcache.util.ChecksumType;
+
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+import static org.dcache.util.ByteUnit.KiB;
+import static org.dcache.util.ByteUnit.MiB;
+
+/**
+ * Measures the time to upload a file through a ChecksumChannel computing
+ * one or more digests, i.e. sequential positional writes followed by
+ * ChecksumChannel#getChecksums.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 10, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Dlog=warn")
+public class ChecksumChannelBenchmark
+{
+    @Param({"ADLER32", "MD5_TYPE", "ADLER32,MD5_TYPE"})
+    public String types;
+
+    @Param({"64", "1024"})
+    public int blockSizeKiB;
+
+    @Param({"64"})
+    public int fileSizeMiB;
+
+    private Set<ChecksumType> checksumTypes;
+    private Path file;
+    private ByteBuffer block;
+    private ChecksumChannel channel;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException
+    {
+        checksumTypes = EnumSet.noneOf(ChecksumType.class);
+        for (String type : types.split(",")) {
+            checksumTypes.add(ChecksumType.valueOf(type));
+        }
+        file = Files.createTempFile("ChecksumChannelBenchmark", ".tmp");
+        byte[] data = new byte[KiB.toBytes(blockSizeKiB)];
+        ThreadLocalRandom.current().nextBytes(data);
+        block = ByteBuffer.wrap(data);
+    }
+
+    @Setup(Level.Invocation)
+    public void openChannel() throws IOException
+    {
+        channel = new ChecksumChannel(
+                new FileRepositoryChannel(file, EnumSet.of(READ, WRITE, CREATE, TRUNCATE_EXISTING)),
+                checksumTypes);
+    }
+
+    @TearDown(Level.Invocation)
+    public void closeChannel() throws IOException
+    {
+        channel.close();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException
+    {
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public Set<Checksum> write() throws IOException
+    {
+        long size = MiB.toBytes((long) fileSizeMiB);
+        for (long position = 0; position < size; position += block.capacity()) {
+            block.clear();
+            channel.write(block, position);
+        }
+        return channel.getChecksums();
+    }
+}
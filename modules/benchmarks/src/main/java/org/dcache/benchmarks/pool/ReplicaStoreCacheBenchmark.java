@@ -0,0 +1,120 @@
+package org.dcache.benchmarks.pool;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+import diskCacheV111.util.CacheException;
+import diskCacheV111.util.PnfsId;
+
+import org.dcache.pool.repository.AbstractStateChangeListener;
+import org.dcache.pool.repository.FileStore;
+import org.dcache.pool.repository.FlatFileStore;
+import org.dcache.pool.repository.ReplicaRecord;
+import org.dcache.pool.repository.ReplicaState;
+import org.dcache.pool.repository.ReplicaStoreCache;
+import org.dcache.pool.repository.meta.file.FileMetaDataRepository;
+
+/**
+ * Measures ReplicaStoreCache lookups of already cached records and the
+ * create/remove cycle of new records, backed by the file based meta
+ * data store in a temporary directory.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Dlog=warn")
+public class ReplicaStoreCacheBenchmark
+{
+    @Param({"10000"})
+    public int replicas;
+
+    private Path baseDir;
+    private ReplicaStoreCache cache;
+    private PnfsId[] ids;
+    private final AtomicLong nextId = new AtomicLong();
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException, CacheException
+    {
+        baseDir = Files.createTempDirectory("ReplicaStoreCacheBenchmark");
+        FileStore fileStore = new FlatFileStore(baseDir);
+        cache = new ReplicaStoreCache(new FileMetaDataRepository(fileStore, baseDir, "pool"),
+                                      new AbstractStateChangeListener(), event -> {});
+
+        ids = new PnfsId[replicas];
+        for (int i = 0; i < replicas; i++) {
+            ids[i] = toPnfsId(nextId.getAndIncrement());
+            cache.create(ids[i], EnumSet.of(StandardOpenOption.CREATE));
+        }
+        nextId.set(replicas);
+        cache.close();
+
+        cache = new ReplicaStoreCache(new FileMetaDataRepository(fileStore, baseDir, "pool"),
+                                      new AbstractStateChangeListener(), event -> {});
+        cache.init();
+        for (PnfsId id : ids) {
+            cache.get(id);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException
+    {
+        cache.close();
+        try (Stream<Path> files = Files.walk(baseDir)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    private static PnfsId toPnfsId(long i)
+    {
+        return new PnfsId(String.format("0000%020X", i));
+    }
+
+    @Benchmark
+    public ReplicaRecord get() throws CacheException
+    {
+        return cache.get(ids[ThreadLocalRandom.current().nextInt(ids.length)]);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public ReplicaRecord getContended() throws CacheException
+    {
+        return cache.get(ids[ThreadLocalRandom.current().nextInt(ids.length)]);
+    }
+
+    @Benchmark
+    public ReplicaRecord createAndRemove() throws CacheException
+    {
+        ReplicaRecord record = cache.create(toPnfsId(nextId.getAndIncrement()),
+                                            EnumSet.of(StandardOpenOption.CREATE));
+        record.update(r -> r.setState(ReplicaState.REMOVED));
+        return record;
+    }
+}
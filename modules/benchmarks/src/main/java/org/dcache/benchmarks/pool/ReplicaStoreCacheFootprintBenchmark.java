@@ -0,0 +1,131 @@
+package org.dcache.benchmarks.pool;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import diskCacheV111.util.CacheException;
+import diskCacheV111.util.PnfsId;
+
+import org.dcache.pool.repository.AbstractStateChangeListener;
+import org.dcache.pool.repository.FileStore;
+import org.dcache.pool.repository.FlatFileStore;
+import org.dcache.pool.repository.ReplicaRecord;
+import org.dcache.pool.repository.ReplicaState;
+import org.dcache.pool.repository.ReplicaStoreCache;
+import org.dcache.pool.repository.meta.file.FileMetaDataRepository;
+
+/**
+ * Measures the heap retained per replica after a ReplicaStoreCache has
+ * read every record of a pool, as the repository does when loading. The
+ * heap per replica is reported as the secondary result heapPerReplica.
+ *
+ * With retainRecords set, every record read is kept, as ReplicaStoreCache
+ * did before its replica index became the only state kept for idle
+ * replicas. Comparing both settings shows the heap saved per replica.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Dlog=warn", "-Xmx2g"})
+public class ReplicaStoreCacheFootprintBenchmark
+{
+    @Param({"100000"})
+    public int replicas;
+
+    @Param({"false", "true"})
+    public boolean retainRecords;
+
+    private Path baseDir;
+    private FileStore fileStore;
+
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class Footprint
+    {
+        public long heapPerReplica;
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException, CacheException
+    {
+        baseDir = Files.createTempDirectory("ReplicaStoreCacheFootprintBenchmark");
+        fileStore = new FlatFileStore(baseDir);
+        ReplicaStoreCache cache = newCache();
+        for (int i = 0; i < replicas; i++) {
+            ReplicaRecord record = cache.create(new PnfsId(String.format("0000%020X", i)),
+                                                EnumSet.of(StandardOpenOption.CREATE));
+            record.update(r -> r.setState(ReplicaState.CACHED));
+        }
+        cache.close();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException
+    {
+        try (Stream<Path> files = Files.walk(baseDir)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    private ReplicaStoreCache newCache() throws IOException, CacheException
+    {
+        return new ReplicaStoreCache(new FileMetaDataRepository(fileStore, baseDir, "pool"),
+                                     new AbstractStateChangeListener(), event -> {});
+    }
+
+    private static long usedHeap()
+    {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    @Benchmark
+    public int load(Footprint footprint) throws IOException, CacheException
+    {
+        long before = usedHeap();
+
+        ReplicaStoreCache cache = newCache();
+        cache.init();
+        List<ReplicaRecord> records = new ArrayList<>();
+        for (PnfsId id : cache.index()) {
+            ReplicaRecord record = cache.get(id);
+            if (retainRecords) {
+                records.add(record);
+            }
+        }
+
+        footprint.heapPerReplica = (usedHeap() - before) / replicas;
+
+        int size = cache.getIndex().size() + records.size();
+        cache.close();
+        return size;
+    }
+}
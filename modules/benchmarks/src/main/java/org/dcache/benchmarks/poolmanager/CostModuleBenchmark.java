@@ -0,0 +1,97 @@
+package org.dcache.benchmarks.poolmanager;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+import diskCacheV111.poolManager.CostModuleV1;
+import diskCacheV111.pools.PoolCostInfo;
+import diskCacheV111.pools.PoolV2Mode;
+import diskCacheV111.vehicles.PoolManagerPoolUpMessage;
+
+import dmg.cells.nucleus.CellAddressCore;
+import dmg.cells.nucleus.CellMessage;
+
+import org.dcache.pool.classic.IoQueueManager;
+
+import static org.dcache.util.ByteUnit.GiB;
+
+/**
+ * Measures CostModuleV1#getPoolsPercentilePerformanceCost both with a
+ * valid cached cost cut and with a cost cut invalidated by a pool
+ * heartbeat crossing the threshold before every lookup.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Dlog=warn")
+public class CostModuleBenchmark
+{
+    private static final double FRACTION = 0.95;
+
+    @Param({"100", "1500"})
+    public int pools;
+
+    private CostModuleV1 costModule;
+
+    private CellMessage envelope;
+    private PoolManagerPoolUpMessage idle;
+    private PoolManagerPoolUpMessage busy;
+    private boolean isBusy;
+
+    @Setup(Level.Trial)
+    public void setUp()
+    {
+        costModule = new CostModuleV1();
+        for (int i = 0; i < pools; i++) {
+            String pool = "pool" + i;
+            costModule.messageArrived(buildEnvelope(pool), buildPoolUpMessage(pool, i % 100));
+        }
+        envelope = buildEnvelope("pool0");
+        idle = buildPoolUpMessage("pool0", 0);
+        busy = buildPoolUpMessage("pool0", 100);
+    }
+
+    private static CellMessage buildEnvelope(String pool)
+    {
+        CellMessage envelope = new CellMessage(new CellAddressCore("PoolManager"), null);
+        envelope.addSourceAddress(new CellAddressCore(pool));
+        return envelope;
+    }
+
+    private static PoolManagerPoolUpMessage buildPoolUpMessage(String pool, int activeMovers)
+    {
+        PoolCostInfo cost = new PoolCostInfo(pool, IoQueueManager.DEFAULT_QUEUE);
+        cost.setSpaceUsage(GiB.toBytes(1000L), GiB.toBytes(300L), GiB.toBytes(100L), GiB.toBytes(200L));
+        cost.setQueueSizes(0, 100, 0, 0, 100, 0);
+        cost.addExtendedMoverQueueSizes(IoQueueManager.DEFAULT_QUEUE, activeMovers, 100, 0, 0, 0);
+        return new PoolManagerPoolUpMessage(pool, 0, new PoolV2Mode(PoolV2Mode.ENABLED), cost);
+    }
+
+    @Benchmark
+    public double cachedPercentile()
+    {
+        return costModule.getPoolsPercentilePerformanceCost(FRACTION);
+    }
+
+    @Benchmark
+    public double invalidatedPercentile()
+    {
+        isBusy = !isBusy;
+        costModule.messageArrived(envelope, isBusy ? busy : idle);
+        return costModule.getPoolsPercentilePerformanceCost(FRACTION);
+    }
+}
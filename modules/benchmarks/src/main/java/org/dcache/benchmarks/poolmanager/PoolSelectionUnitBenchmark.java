@@ -0,0 +1,120 @@
+package org.dcache.benchmarks.poolmanager;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import diskCacheV111.poolManager.PoolPreferenceLevel;
+import diskCacheV111.poolManager.PoolSelectionUnit.DirectionType;
+import diskCacheV111.poolManager.PoolSelectionUnitV2;
+import diskCacheV111.pools.PoolV2Mode;
+import diskCacheV111.vehicles.GenericStorageInfo;
+import diskCacheV111.vehicles.StorageInfos;
+
+import dmg.util.CommandException;
+import dmg.util.CommandInterpreter;
+
+import org.dcache.util.Args;
+import org.dcache.vehicles.FileAttributes;
+
+/**
+ * Measures PoolSelectionUnitV2#match for a synthetic site with one read
+ * and one write link per storage class and the pools spread evenly
+ * over the per storage class pool groups.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Dlog=warn")
+public class PoolSelectionUnitBenchmark
+{
+    @Param({"100", "1500"})
+    public int pools;
+
+    @Param({"50"})
+    public int storageClasses;
+
+    private PoolSelectionUnitV2 psu;
+
+    private FileAttributes[] files;
+
+    @Setup(Level.Trial)
+    public void setUp() throws CommandException
+    {
+        psu = new PoolSelectionUnitV2();
+        CommandInterpreter ci = new CommandInterpreter(psu);
+
+        ci.command(new Args("psu create unit -net 0.0.0.0/0.0.0.0"));
+        ci.command(new Args("psu create unit -net 131.169.0.0/255.255.0.0"));
+        ci.command(new Args("psu create ugroup world"));
+        ci.command(new Args("psu addto ugroup world 0.0.0.0/0.0.0.0"));
+        ci.command(new Args("psu addto ugroup world 131.169.0.0/255.255.0.0"));
+
+        for (int i = 0; i < storageClasses; i++) {
+            String sc = "exp" + i + ":raw@osm";
+            ci.command(new Args("psu create unit -store " + sc));
+            ci.command(new Args("psu create ugroup exp" + i));
+            ci.command(new Args("psu addto ugroup exp" + i + " " + sc));
+            ci.command(new Args("psu create pgroup exp" + i + "-pools"));
+            ci.command(new Args("psu create link exp" + i + "-read exp" + i + " world"));
+            ci.command(new Args("psu set link exp" + i + "-read -readpref=20 -writepref=0 -cachepref=20"));
+            ci.command(new Args("psu addto link exp" + i + "-read exp" + i + "-pools"));
+            ci.command(new Args("psu create link exp" + i + "-write exp" + i + " world"));
+            ci.command(new Args("psu set link exp" + i + "-write -readpref=0 -writepref=20 -cachepref=0"));
+            ci.command(new Args("psu addto link exp" + i + "-write exp" + i + "-pools"));
+        }
+
+        for (int i = 0; i < pools; i++) {
+            String pool = "pool" + i;
+            ci.command(new Args("psu create pool " + pool));
+            psu.getPool(pool).setPoolMode(new PoolV2Mode(PoolV2Mode.ENABLED));
+            ci.command(new Args("psu addto pgroup exp" + (i % storageClasses) + "-pools " + pool));
+        }
+        ci.command("psu set allpoolsactive on");
+
+        files = new FileAttributes[storageClasses];
+        for (int i = 0; i < storageClasses; i++) {
+            files[i] = new FileAttributes();
+            StorageInfos.injectInto(GenericStorageInfo.valueOf("exp" + i + ":raw@osm", "*"), files[i]);
+        }
+    }
+
+    private FileAttributes nextFile()
+    {
+        return files[ThreadLocalRandom.current().nextInt(files.length)];
+    }
+
+    @Benchmark
+    public PoolPreferenceLevel[] matchRead()
+    {
+        return psu.match(DirectionType.READ, "131.169.214.149", null, nextFile(), null);
+    }
+
+    @Benchmark
+    public PoolPreferenceLevel[] matchWrite()
+    {
+        return psu.match(DirectionType.WRITE, "131.169.214.149", null, nextFile(), null);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public PoolPreferenceLevel[] matchReadContended()
+    {
+        return psu.match(DirectionType.READ, "131.169.214.149", null, nextFile(), null);
+    }
+}
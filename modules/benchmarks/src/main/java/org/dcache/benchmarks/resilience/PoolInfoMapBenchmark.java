@@ -0,0 +1,194 @@
+package org.dcache.benchmarks.resilience;
+
+import com.google.common.collect.ImmutableMap;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import diskCacheV111.poolManager.CostModuleV1;
+import diskCacheV111.poolManager.PoolMonitorV5;
+import diskCacheV111.poolManager.PoolSelectionUnitV2;
+import diskCacheV111.pools.PoolCostInfo;
+import diskCacheV111.pools.PoolV2Mode;
+import diskCacheV111.vehicles.PoolManagerPoolUpMessage;
+
+import dmg.cells.nucleus.CellAddressCore;
+import dmg.cells.nucleus.CellMessage;
+import dmg.util.CommandException;
+import dmg.util.CommandInterpreter;
+
+import org.dcache.pool.classic.IoQueueManager;
+import org.dcache.resilience.data.PoolInfoMap;
+import org.dcache.resilience.data.StorageUnitConstraints;
+import org.dcache.util.Args;
+
+import static org.dcache.util.ByteUnit.GiB;
+
+/**
+ * Measures the PoolInfoMap lookups made when verifying a resilient file
+ * and selecting locations for it, for a synthetic site with one
+ * resilient pool group and storage unit per twenty pools.  The refresh
+ * group runs the verification while the map is concurrently rebuilt from
+ * the pool monitor, as done by the PoolInfoChangeHandler.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Dlog=warn")
+public class PoolInfoMapBenchmark
+{
+    private static final int POOLS_PER_GROUP = 20;
+    private static final int FILES = 1024;
+    private static final int COPIES = 3;
+
+    @Param({"1000"})
+    public int pools;
+
+    private PoolSelectionUnitV2 psu;
+    private PoolMonitorV5 poolMonitor;
+    private PoolInfoMap poolInfoMap;
+
+    private Integer[] groups;
+    private List<String>[] locations;
+    private Integer[] units;
+
+    private boolean isDisabled;
+
+    @Setup(Level.Trial)
+    @SuppressWarnings("unchecked")
+    public void setUp() throws CommandException
+    {
+        int groupCount = pools / POOLS_PER_GROUP;
+
+        psu = new PoolSelectionUnitV2();
+        CommandInterpreter ci = new CommandInterpreter(psu);
+        for (int i = 0; i < groupCount; i++) {
+            String sc = "exp" + i + ":raw@osm";
+            ci.command(new Args("psu create unit -store " + sc));
+            ci.command(new Args("psu set storage unit -required=" + COPIES
+                                + " -onlyOneCopyPer=hostname " + sc));
+            ci.command(new Args("psu create ugroup exp" + i));
+            ci.command(new Args("psu addto ugroup exp" + i + " " + sc));
+            ci.command(new Args("psu create pgroup exp" + i + "-pools -resilient"));
+            ci.command(new Args("psu create link exp" + i + "-link exp" + i));
+            ci.command(new Args("psu addto link exp" + i + "-link exp" + i + "-pools"));
+        }
+
+        CostModuleV1 costModule = new CostModuleV1();
+        for (int i = 0; i < pools; i++) {
+            String pool = "pool" + i;
+            ci.command(new Args("psu create pool " + pool));
+            psu.getPool(pool).setPoolMode(new PoolV2Mode(PoolV2Mode.ENABLED));
+            ci.command(new Args("psu addto pgroup exp" + (i % groupCount) + "-pools " + pool));
+            costModule.messageArrived(buildEnvelope(pool), buildPoolUpMessage(pool, i));
+        }
+        ci.command("psu set allpoolsactive on");
+
+        poolMonitor = new PoolMonitorV5();
+        poolMonitor.setPoolSelectionUnit(psu);
+        poolMonitor.setCostModule(costModule);
+
+        poolInfoMap = new PoolInfoMap();
+        poolInfoMap.apply(poolInfoMap.compare(poolMonitor));
+
+        groups = new Integer[FILES];
+        locations = new List[FILES];
+        units = new Integer[FILES];
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int f = 0; f < FILES; f++) {
+            int group = random.nextInt(groupCount);
+            String[] copies = new String[COPIES];
+            for (int c = 0; c < COPIES; c++) {
+                copies[c] = "pool" + (group + c * groupCount);
+            }
+            groups[f] = poolInfoMap.getGroupIndex("exp" + group + "-pools");
+            locations[f] = Arrays.asList(copies);
+            units[f] = poolInfoMap.getUnitIndex("exp" + group + ":raw@osm");
+        }
+    }
+
+    private static CellMessage buildEnvelope(String pool)
+    {
+        CellMessage envelope = new CellMessage(new CellAddressCore("PoolManager"), null);
+        envelope.addSourceAddress(new CellAddressCore(pool));
+        return envelope;
+    }
+
+    private static PoolManagerPoolUpMessage buildPoolUpMessage(String pool, int i)
+    {
+        PoolCostInfo cost = new PoolCostInfo(pool, IoQueueManager.DEFAULT_QUEUE);
+        cost.setSpaceUsage(GiB.toBytes(1000L), GiB.toBytes(300L), GiB.toBytes(100L), GiB.toBytes(200L));
+        cost.setQueueSizes(0, 100, 0, 0, 100, 0);
+        PoolManagerPoolUpMessage message =
+                new PoolManagerPoolUpMessage(pool, 0, new PoolV2Mode(PoolV2Mode.ENABLED), cost);
+        message.setTagMap(ImmutableMap.of("hostname", "host" + i / 2));
+        return message;
+    }
+
+    private int verify()
+    {
+        int f = ThreadLocalRandom.current().nextInt(FILES);
+        List<String> copies = locations[f];
+
+        Integer group = poolInfoMap.getResilientPoolGroup(poolInfoMap.getPoolIndex(copies.get(0)));
+        StorageUnitConstraints constraints = poolInfoMap.getStorageUnitConstraints(units[f]);
+        Set<Integer> readable = poolInfoMap.getValidLocations(poolInfoMap.getPoolIndices(copies), false);
+        int countable = poolInfoMap.getCountableLocations(copies);
+        Set<String> members = poolInfoMap.getMemberPools(groups[f], true);
+
+        return group + constraints.getRequired() + readable.size() + countable + members.size();
+    }
+
+    @Benchmark
+    public int verifyFile()
+    {
+        return verify();
+    }
+
+    @Benchmark
+    @Threads(8)
+    public int verifyFileContended()
+    {
+        return verify();
+    }
+
+    @Benchmark
+    @Group("refresh")
+    @GroupThreads(7)
+    public int verifyFileDuringRefresh()
+    {
+        return verify();
+    }
+
+    @Benchmark
+    @Group("refresh")
+    @GroupThreads(1)
+    public void refresh()
+    {
+        isDisabled = !isDisabled;
+        psu.getPool("pool0").setPoolMode(new PoolV2Mode(isDisabled
+                                                        ? PoolV2Mode.DISABLED_RDONLY
+                                                        : PoolV2Mode.ENABLED));
+        poolInfoMap.apply(poolInfoMap.compare(poolMonitor));
+    }
+}
@@ -17,6 +17,9 @@
  */
 package dmg.cells.network;
 
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.io.CountingInputStream;
+import com.google.common.io.CountingOutputStream;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -48,6 +51,8 @@ import dmg.cells.nucleus.CellTunnelInfo;
 import dmg.cells.nucleus.MessageEvent;
 import dmg.cells.nucleus.NoRouteToCellException;
 import dmg.cells.nucleus.RoutedMessageEvent;
+import dmg.cells.nucleus.SerializationException;
+import dmg.cells.nucleus.SerializationFormat;
 import dmg.util.Releases;
 import dmg.util.Releases.BadVersionException;
 import dmg.util.StreamEngine;
@@ -56,10 +61,38 @@ import org.dcache.util.Args;
 import org.dcache.util.NDC;
 import org.dcache.util.Version;
 
+/**
+ * Cell tunnel carrying messages to and from a peer domain over a socket.
+ *
+ * Incoming messages are read by a dedicated thread. Outgoing messages are
+ * placed in a bounded queue and written by a writer task that only runs
+ * while the queue is not empty. The writer drains all queued messages and
+ * writes them with a single flush, so a burst of messages results in few
+ * large writes rather than one system call and one TCP segment per
+ * message. If the peer cannot keep up, the queue fills up and the tunnel's
+ * message thread blocks, which in turn lets the cell's message queue grow
+ * until the usual overload handling kicks in.
+ */
 public class LocationMgrTunnel
     extends CellAdapter
     implements CellTunnel, Runnable
 {
+    /**
+     * Maximum number of messages waiting to be written to the peer.
+     */
+    private static final int OUTBOUND_QUEUE_CAPACITY = 1024;
+
+    /**
+     * Maximum number of messages written with a single flush.
+     */
+    private static final int MAX_FLUSH_BATCH = 256;
+
+    /**
+     * Size of the socket output buffer. Messages written in the same batch
+     * are coalesced in this buffer.
+     */
+    private static final int OUTPUT_BUFFER_SIZE = 64 * 1024;
+
     /**
      * We use a single shared instance of Tunnels to coordinate route
      * creation between tunnels.
@@ -75,32 +108,38 @@ public class LocationMgrTunnel
     private CellDomainInfo  _remoteDomainInfo;
     private boolean _allowForwardingOfRemoteMessages;
 
+    /**
+     * Serialization format of message payloads sent to the peer.
+     */
+    private SerializationFormat _peerFormat = SerializationFormat.JAVA;
+
     private Thread _thread;
     private final Socket _socket;
 
-    private final OutputStream _rawOut;
-    private final InputStream _rawIn;
+    private final CountingOutputStream _rawOut;
+    private final CountingInputStream _rawIn;
 
     private ObjectSource _input;
-    private ObjectSink _output;
+    private OutboundQueue _output;
 
     //
     // some statistics
     //
-    private LongAdder _messagesToTunnel = new LongAdder();
     private LongAdder _messagesToSystem = new LongAdder();
+    private LongAdder _messagesTranscoded = new LongAdder();
 
     public LocationMgrTunnel(String cellName, StreamEngine engine, Args args)
     {
         super(cellName, "System", args);
         _nucleus = getNucleus();
         _socket = engine.getSocket();
-        _rawOut = new BufferedOutputStream(engine.getOutputStream());
-        _rawIn = new BufferedInputStream(engine.getInputStream());
+        _rawOut = new CountingOutputStream(new BufferedOutputStream(engine.getOutputStream(), OUTPUT_BUFFER_SIZE));
+        _rawIn = new CountingInputStream(new BufferedInputStream(engine.getInputStream()));
         CellDomainRole role = args.hasOption("role") ? CellDomainRole.valueOf(
                 args.getOption("role").toUpperCase()) : CellDomainRole.SATELLITE;
         _localDomainInfo = new CellDomainInfo(_nucleus.getCellDomainName(),
-                                              Version.of(LocationMgrTunnel.class).getVersion(), role);
+                                              Version.of(LocationMgrTunnel.class).getVersion(), role,
+                                              CellMessage.getDefaultSerializationFormat());
     }
 
     @Override
@@ -126,6 +165,9 @@ public class LocationMgrTunnel
         _tunnels.remove(this);
         try {
             try {
+                if (_output != null) {
+                    _output.close(2_000);
+                }
                 _socket.shutdownOutput();
                 if (_thread != null) {
                     _thread.join(2_000);
@@ -181,9 +223,19 @@ public class LocationMgrTunnel
                 /* Since dCache 3.0 we use raw encoding of CellMessage.
                  */
                 _input = new RawObjectSource(_rawIn);
-                _output = new RawObjectSink(_rawOut);
+                _output = new OutboundQueue(new RawObjectSink(_rawOut), OUTBOUND_QUEUE_CAPACITY,
+                                            MAX_FLUSH_BATCH, _nucleus, new OutboundFailureHandler());
             }
 
+            /* The compact format relies on both ends having the same classes,
+             * thus it is only used between domains of the same version.
+             */
+            if (_remoteDomainInfo.getSerializationFormat() == SerializationFormat.COMPACT &&
+                    _remoteDomainInfo.getVersion().equals(_localDomainInfo.getVersion())) {
+                _peerFormat = SerializationFormat.COMPACT;
+            }
+            _log.debug("Using {} serialization for messages to peer.", _peerFormat);
+
             _allowForwardingOfRemoteMessages = (_remoteDomainInfo.getRole() != CellDomainRole.CORE);
 
             _log.info("Established connection with {}", _remoteDomainInfo);
@@ -221,27 +273,66 @@ public class LocationMgrTunnel
         if (me instanceof RoutedMessageEvent) {
             CellMessage msg = me.getMessage();
             try {
-                _messagesToTunnel.increment();
-                _output.writeObject(msg);
+                _output.add(transcode(msg));
+            } catch (SerializationException e) {
+                NDC.push(_remoteDomainInfo.toString());
+                try {
+                    _log.warn("Failed to encode message for peer: {}", e.getMessage());
+                    returnToSender(msg, "Message could not be encoded for " + getRemoteDomainName() + ".");
+                } finally {
+                    NDC.pop();
+                }
             } catch (IOException e) {
                 NDC.push(_remoteDomainInfo.toString());
                 try {
                     kill();
                     _log.warn("Error while sending message: {}", e.getMessage());
-                    NoRouteToCellException noRoute =
-                            new NoRouteToCellException(msg, "Communication failure. Message could not be delivered.");
-                    CellMessage envelope = new CellMessage(msg.getSourcePath().revert(), noRoute);
-                    envelope.setLastUOID(msg.getUOID());
-                    _nucleus.sendMessage(envelope, true, true, true);
+                    returnToSender(msg, "Communication failure. Message could not be delivered.");
                 } finally {
                     NDC.pop();
                 }
+            } catch (InterruptedException e) {
+                returnToSender(msg, "Tunnel to " + getRemoteDomainName() + " is shutting down.");
+                Thread.currentThread().interrupt();
             }
         } else {
             super.messageArrived(me);
         }
     }
 
+    private CellMessage transcode(CellMessage msg) throws SerializationException
+    {
+        CellMessage transcoded = transcode(msg, _peerFormat);
+        if (transcoded != msg) {
+            _messagesTranscoded.increment();
+        }
+        return transcoded;
+    }
+
+    /**
+     * Re-encodes the message payload if the peer does not accept the format
+     * in which the message was encoded. Encoded messages nested in the
+     * payload, like the undelivered message of a NoRouteToCellException,
+     * are re-encoded along with it.
+     */
+    @VisibleForTesting
+    static CellMessage transcode(CellMessage msg, SerializationFormat peerFormat)
+            throws SerializationException
+    {
+        if (peerFormat == SerializationFormat.JAVA && msg.getSerializationFormat() != SerializationFormat.JAVA) {
+            return msg.decode().encode(SerializationFormat.JAVA);
+        }
+        return msg;
+    }
+
+    private void returnToSender(CellMessage msg, String reason)
+    {
+        NoRouteToCellException noRoute = new NoRouteToCellException(msg, reason);
+        CellMessage envelope = new CellMessage(msg.getSourcePath().revert(), noRoute);
+        envelope.setLastUOID(msg.getUOID());
+        _nucleus.sendMessage(envelope, true, true, true);
+    }
+
     @Override
     public CellTunnelInfo getCellTunnelInfo()
     {
@@ -266,16 +357,30 @@ public class LocationMgrTunnel
     {
         pw.println("Tunnel        : " + getCellName());
         pw.println("Messages delivered to");
-        pw.println("   Peer       : " + _messagesToTunnel);
+        long messagesToTunnel = (_output == null) ? 0 : _output.getMessagesWritten();
+        pw.println("   Peer       : " + messagesToTunnel);
         pw.println("   Local      : " + _messagesToSystem);
+        pw.println("Transcoded    : " + _messagesTranscoded);
+        pw.println("Bytes sent    : " + _rawOut.getCount());
+        pw.println("Bytes received: " + _rawIn.getCount());
+        pw.println("Outbound queue");
+        pw.println("   Depth      : " + (_output == null ? 0 : _output.size()));
+        long flushes = (_output == null) ? 0 : _output.getFlushes();
+        pw.println("   Flushes    : " + flushes);
+        pw.println("   Max batch  : " + (_output == null ? 0 : _output.getMaxFlushBatch()));
+        if (flushes > 0) {
+            pw.println("   Avg batch  : " + String.format("%.1f", (double) messagesToTunnel / flushes));
+        }
         pw.println("Local domain");
         pw.println("   Name       : " + _localDomainInfo.getCellDomainName());
         pw.println("   Version    : " + _localDomainInfo.getVersion());
         pw.println("   Role       : " + _localDomainInfo.getRole());
+        pw.println("   Format     : " + _localDomainInfo.getSerializationFormat());
         pw.println("Peer domain");
         pw.println("   Name       : " + _remoteDomainInfo.getCellDomainName());
         pw.println("   Version    : " + _remoteDomainInfo.getVersion());
         pw.println("   Role       : " + _remoteDomainInfo.getRole());
+        pw.println("   Format     : " + _peerFormat);
     }
 
     /**
@@ -346,12 +451,32 @@ public class LocationMgrTunnel
         CellMessage readObject() throws IOException, ClassNotFoundException;
     }
 
-    private interface ObjectSink
+    /**
+     * Kills the tunnel if a message cannot be written to the peer, and
+     * returns all messages that were not written to their senders.
+     */
+    private class OutboundFailureHandler implements OutboundQueue.FailureHandler
     {
-        void writeObject(CellMessage message) throws IOException;
+        @Override
+        public void failed(IOException e)
+        {
+            NDC.push(_remoteDomainInfo.toString());
+            try {
+                kill();
+                _log.warn("Error while sending message: {}", e.getMessage());
+            } finally {
+                NDC.pop();
+            }
+        }
+
+        @Override
+        public void undelivered(CellMessage message)
+        {
+            returnToSender(message, "Communication failure. Message could not be delivered.");
+        }
     }
 
-    private static class RawObjectSink implements ObjectSink
+    private static class RawObjectSink implements OutboundQueue.ObjectSink
     {
         private final DataOutputStream out;
 
@@ -364,6 +489,11 @@ public class LocationMgrTunnel
         public void writeObject(CellMessage message) throws IOException
         {
             message.writeTo(out);
+        }
+
+        @Override
+        public void flush() throws IOException
+        {
             out.flush();
         }
     }
@@ -0,0 +1,213 @@
+/* dCache - http://www.dcache.org/
+ *
+ * Copyright (C) 2018 Deutsches Elektronen-Synchrotron
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dmg.cells.network;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+import dmg.cells.nucleus.CellMessage;
+
+/**
+ * Queue of messages to be written to the peer of a tunnel.
+ *
+ * Messages are written by a task submitted to a cached thread pool
+ * whenever the queue becomes non-empty. At most one such task is active
+ * at any time, and it terminates once the queue has been drained. The
+ * task writes all queued messages, up to a limit, before flushing the
+ * sink.
+ *
+ * If writing fails, the queue is closed and every message that was not
+ * written is handed back to the FailureHandler, including messages that
+ * are added concurrently with the failure.
+ */
+class OutboundQueue implements Runnable
+{
+    /**
+     * Destination of the messages.
+     */
+    interface ObjectSink
+    {
+        void writeObject(CellMessage message) throws IOException;
+
+        void flush() throws IOException;
+    }
+
+    /**
+     * Callback for failures to write to the sink.
+     */
+    interface FailureHandler
+    {
+        /**
+         * Called once, when writing to the sink fails.
+         */
+        void failed(IOException e);
+
+        /**
+         * Called for each message that could not be written, after
+         * {@link #failed} has been called.
+         */
+        void undelivered(CellMessage message);
+    }
+
+    private final BlockingQueue<CellMessage> _queue;
+    private final int _maxBatch;
+    private final AtomicBoolean _scheduled = new AtomicBoolean();
+    private final ExecutorService _executor;
+    private final ObjectSink _sink;
+    private final FailureHandler _failureHandler;
+    private volatile boolean _closed;
+
+    private final LongAdder _messagesWritten = new LongAdder();
+    private final LongAdder _flushes = new LongAdder();
+    private final LongAccumulator _maxFlushBatch = new LongAccumulator(Math::max, 0);
+
+    /**
+     * @param sink where messages are written to
+     * @param capacity maximum number of messages waiting to be written
+     * @param maxBatch maximum number of messages written with a single flush
+     * @param threadFactory factory for the thread writing the messages
+     * @param failureHandler called if writing fails
+     */
+    OutboundQueue(ObjectSink sink, int capacity, int maxBatch, ThreadFactory threadFactory,
+                  FailureHandler failureHandler)
+    {
+        _queue = new ArrayBlockingQueue<>(capacity);
+        _maxBatch = maxBatch;
+        _executor = Executors.newCachedThreadPool(threadFactory);
+        _sink = sink;
+        _failureHandler = failureHandler;
+    }
+
+    int size()
+    {
+        return _queue.size();
+    }
+
+    long getMessagesWritten()
+    {
+        return _messagesWritten.sum();
+    }
+
+    long getFlushes()
+    {
+        return _flushes.sum();
+    }
+
+    long getMaxFlushBatch()
+    {
+        return _maxFlushBatch.get();
+    }
+
+    /**
+     * Queues a message for delivery to the peer. Blocks while the queue
+     * is full.
+     *
+     * @throws IOException if the queue is closed
+     */
+    void add(CellMessage message) throws IOException, InterruptedException
+    {
+        while (!_queue.offer(message, 1, TimeUnit.SECONDS)) {
+            if (_closed) {
+                throw new IOException("Tunnel is closed");
+            }
+        }
+        if (_closed && _queue.remove(message)) {
+            throw new IOException("Tunnel is closed");
+        }
+        if (_scheduled.compareAndSet(false, true)) {
+            try {
+                _executor.execute(this);
+            } catch (RejectedExecutionException e) {
+                _scheduled.set(false);
+                if (_queue.remove(message)) {
+                    throw new IOException("Tunnel is closed");
+                }
+            }
+        }
+    }
+
+    /**
+     * Stops accepting messages and waits for queued messages to be
+     * written to the peer.
+     */
+    synchronized void close(long timeout) throws InterruptedException
+    {
+        _closed = true;
+        long deadline = System.currentTimeMillis() + timeout;
+        long remaining = timeout;
+        while (_scheduled.get() && remaining > 0) {
+            wait(remaining);
+            remaining = deadline - System.currentTimeMillis();
+        }
+        _executor.shutdown();
+    }
+
+    @Override
+    public void run()
+    {
+        List<CellMessage> batch = new ArrayList<>(_maxBatch);
+        try {
+            do {
+                int count;
+                while ((count = _queue.drainTo(batch, _maxBatch)) > 0) {
+                    for (CellMessage message : batch) {
+                        _sink.writeObject(message);
+                    }
+                    _sink.flush();
+                    batch.clear();
+                    _messagesWritten.add(count);
+                    _flushes.increment();
+                    _maxFlushBatch.accumulate(count);
+                }
+                _scheduled.set(false);
+            } while (!_queue.isEmpty() && _scheduled.compareAndSet(false, true));
+        } catch (IOException e) {
+            _closed = true;
+            _failureHandler.failed(e);
+
+            /* A concurrent add may have queued a message after the drain
+             * below, but failed to schedule a writer because this task
+             * was still scheduled. Thus the queue is checked again after
+             * clearing the flag, as in the loop above.
+             */
+            do {
+                _queue.drainTo(batch);
+                for (CellMessage message : batch) {
+                    _failureHandler.undelivered(message);
+                }
+                batch.clear();
+                _scheduled.set(false);
+            } while (!_queue.isEmpty() && _scheduled.compareAndSet(false, true));
+        } finally {
+            synchronized (this) {
+                notifyAll();
+            }
+        }
+    }
+}
@@ -80,6 +80,8 @@ public class CellAdapter
             LoggerFactory.getLogger(CellAdapter.class);
     public static final String MAX_MESSAGE_THREADS = "cell.max-message-threads";
     public static final String MAX_MESSAGES_QUEUED = "cell.max-messages-queued";
+    public static final String MIN_MESSAGE_THREADS = "cell.min-message-threads";
+    public static final String TARGET_MESSAGE_QUEUE_TIME = "cell.target-message-queue-time";
 
     private final CellVersion _version = new CellVersion(Version.of(this));
 
@@ -191,6 +193,12 @@ public class CellAdapter
         if (!Strings.isNullOrEmpty(_args.getOption(MAX_MESSAGES_QUEUED))) {
             _nucleus.setMaximumPoolSize(_args.getIntOption(MAX_MESSAGES_QUEUED));
         }
+        if (!Strings.isNullOrEmpty(_args.getOption(TARGET_MESSAGE_QUEUE_TIME))) {
+            int min = Strings.isNullOrEmpty(_args.getOption(MIN_MESSAGE_THREADS))
+                      ? 1 : _args.getIntOption(MIN_MESSAGE_THREADS);
+            _nucleus.setAdaptiveMessageThreads(min, Math.max(min, _nucleus.getMaximumPoolSize()),
+                                               _args.getLongOption(TARGET_MESSAGE_QUEUE_TIME));
+        }
 
         addCommandListener(new FilterShell(_nucleus.getLoggingThresholds()));
         addCommandListener(_commandInterpreter.new HelpCommands());
@@ -696,6 +704,72 @@ public class CellAdapter
         }
     }
 
+    @Command(name = "show message statistics",
+             hint = "display message queue and handler times",
+             description = "Shows histograms of the time messages spent waiting for a message " +
+                     "thread and the time spent processing them, by message type. Queue times " +
+                     "are in milliseconds and handler times in microseconds.")
+    public class ShowMessageStatisticsCommand implements Callable<String>
+    {
+        @Option(name = "reset", usage = "Clear the statistics after displaying them.")
+        boolean reset;
+
+        @Override
+        public String call()
+        {
+            StringBuilder sb = new StringBuilder();
+            sb.append("Message threads : ").append(_nucleus.getMaximumPoolSize());
+            if (_nucleus.isAdaptiveMessageThreads()) {
+                sb.append(" (adaptive)");
+            }
+            sb.append("\n\n").append(_nucleus.getMessageStatistics());
+            if (reset) {
+                _nucleus.resetMessageStatistics();
+            }
+            return sb.toString();
+        }
+    }
+
+    @Command(name = "set message threads",
+             hint = "configure the number of message threads",
+             description = "Sets the number of threads processing messages for this cell. With " +
+                     "a target queue time, the number of threads is adjusted every few seconds " +
+                     "within the given limits so that the mean time messages wait for a thread " +
+                     "stays below the target. Adaptive sizing must only be used for cells that " +
+                     "are able to process messages concurrently.")
+    public class SetMessageThreadsCommand implements Callable<String>
+    {
+        @Argument(required = false, metaVar = "threads",
+                  usage = "Fixed number of message threads. Disables adaptive sizing.")
+        Integer threads;
+
+        @Option(name = "min", usage = "Minimum number of threads for adaptive sizing.")
+        int min = 1;
+
+        @Option(name = "max", usage = "Maximum number of threads for adaptive sizing.")
+        Integer max;
+
+        @Option(name = "target-queue-time", metaVar = "ms",
+                usage = "Target queue time for adaptive sizing.")
+        Long target;
+
+        @Override
+        public String call() throws IllegalArgumentException
+        {
+            if (threads != null) {
+                _nucleus.disableAdaptiveMessageThreads();
+                _nucleus.setMaximumPoolSize(threads);
+                return "Using " + threads + " message threads.";
+            }
+            if (target == null || max == null) {
+                throw new IllegalArgumentException("Either the number of threads or the maximum " +
+                                                   "and the target queue time must be specified.");
+            }
+            _nucleus.setAdaptiveMessageThreads(min, max, target);
+            return "Using between " + min + " and " + max + " message threads.";
+        }
+    }
+
     @Command(name = "dump pinboard", hint = "write pinboard to file",
              description = "Writes the pinboard log to FILE on the local file system of the service.")
     public class DumpPinboardCommand implements Callable<String>
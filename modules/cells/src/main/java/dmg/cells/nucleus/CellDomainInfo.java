@@ -31,11 +31,24 @@ public class CellDomainInfo implements Serializable
     private final String _version;
     private CellDomainRole _role;
 
+    /**
+     * Name of the serialization format the domain prefers to receive. Kept
+     * as a string so older releases can deserialize the domain info; null
+     * for domains predating format negotiation.
+     */
+    private final String _serializationFormat;
+
     public CellDomainInfo(String name, String version, CellDomainRole role)
+    {
+        this(name, version, role, SerializationFormat.JAVA);
+    }
+
+    public CellDomainInfo(String name, String version, CellDomainRole role, SerializationFormat format)
     {
         _domainName = checkNotNull(name);
         _version = checkNotNull(version);
         _role = checkNotNull(role);
+        _serializationFormat = format.name();
     }
 
     public String getVersion()
@@ -58,6 +71,23 @@ public class CellDomainInfo implements Serializable
         return _role;
     }
 
+    /**
+     * Returns the serialization format the domain prefers to receive.
+     * Domains that predate format negotiation only understand
+     * {@link SerializationFormat#JAVA}.
+     */
+    public SerializationFormat getSerializationFormat()
+    {
+        if (_serializationFormat != null) {
+            try {
+                return SerializationFormat.valueOf(_serializationFormat);
+            } catch (IllegalArgumentException ignored) {
+                // Format introduced by a later release
+            }
+        }
+        return SerializationFormat.JAVA;
+    }
+
     public String toString()
     {
         return _domainName + ',' + _version + ',' + _role;
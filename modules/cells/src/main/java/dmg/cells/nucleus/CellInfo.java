@@ -24,6 +24,8 @@ public class CellInfo implements Serializable {
   private int    _eventQueueSize;
   private int    _threadCount;
   private long   _expectedQueueTime;
+  private int    _messageThreads;
+  private long   _queueTimeP99;
   private CellVersion _version = new CellVersion() ;
 
   static final  int    INITIAL  =  0;
@@ -49,6 +51,8 @@ public class CellInfo implements Serializable {
      _eventQueueSize = info._eventQueueSize ;
      _expectedQueueTime = info._expectedQueueTime;
      _threadCount    = info._threadCount ;
+     _messageThreads = info._messageThreads ;
+     _queueTimeP99   = info._queueTimeP99 ;
      _version        = info._version ;
   }
 
@@ -64,6 +68,8 @@ public class CellInfo implements Serializable {
   public void setEventQueueSize( int size ){ _eventQueueSize = size ; }
   public void setExpectedQueueTime(long millis) { _expectedQueueTime = millis; }
   public void setThreadCount( int threadCount ){ _threadCount = threadCount ; }
+  public void setMessageThreads( int threads ){ _messageThreads = threads ; }
+  public void setQueueTimeP99( long millis ){ _queueTimeP99 = millis ; }
   public void setState( int state ){
      _state = ( state < 0 ) || ( _state >= _stateNames.length )  ?
               _stateNames.length : state  ;
@@ -99,6 +105,8 @@ public class CellInfo implements Serializable {
   public Date   getCreationTime(){ return _creationTime ; }
   public String getDomainName(){ return _domainName ; }
   public int    getThreadCount(){ return _threadCount ; }
+  public int    getMessageThreads(){ return _messageThreads ; }
+  public long   getQueueTimeP99(){ return _queueTimeP99 ; }
   //
   // and some needfull things
   //
@@ -15,6 +15,7 @@ import java.io.ObjectOutputStream;
 import java.io.Serializable;
 import java.util.Objects;
 
+import static com.google.common.base.Preconditions.checkNotNull;
 import static com.google.common.base.Preconditions.checkState;
 
 /**
@@ -37,6 +38,11 @@ public final class CellMessage implements Cloneable , Serializable {
    */
   private static final float TTL_BUFFER_FRACTION = 0.10f;
 
+  /**
+   * Format used to encode message objects of this domain.
+   */
+  private static volatile SerializationFormat _defaultFormat = SerializationFormat.JAVA;
+
   private CellPath    _source , _destination ;
   private Object      _message ;
   private long        _creationTime ;
@@ -178,13 +184,42 @@ public boolean equals( Object obj ){
         }
     }
 
+    /**
+     * Sets the format used by {@link #encode()}. Encoded messages of any
+     * format can always be decoded.
+     */
+    public static void setDefaultSerializationFormat(SerializationFormat format)
+    {
+        _defaultFormat = checkNotNull(format);
+    }
+
+    public static SerializationFormat getDefaultSerializationFormat()
+    {
+        return _defaultFormat;
+    }
+
+    /**
+     * Returns the format of the encoded message object. The CellMessage must
+     * be in stream mode.
+     */
+    public SerializationFormat getSerializationFormat() throws SerializationException
+    {
+        checkState(_mode == STREAM_MODE);
+        return SerializationFormat.of(_messageStream);
+    }
+
     public CellMessage encode() throws SerializationException
+    {
+        return encode(_defaultFormat);
+    }
+
+    public CellMessage encode(SerializationFormat format) throws SerializationException
     {
         checkState(_mode == ORIGINAL_MODE);
         CellMessage encoded = clone();
         encoded._mode = STREAM_MODE;
         encoded._message = null;
-        encoded._messageStream = encode(_message);
+        encoded._messageStream = encode(_message, format);
         return encoded;
     }
 
@@ -199,10 +234,15 @@ public boolean equals( Object obj ){
     }
 
     protected static byte[] encode(Object message)
+    {
+        return encode(message, SerializationFormat.JAVA);
+    }
+
+    protected static byte[] encode(Object message, SerializationFormat format)
     {
         int initialBufferSize = 256;
         ByteArrayOutputStream array = new ByteArrayOutputStream(initialBufferSize);
-        try (ObjectOutputStream out = new ObjectOutputStream(array)) {
+        try (ObjectOutputStream out = format.createOutputStream(array)) {
             out.writeObject(message);
         } catch (InvalidClassException e) {
             throw new SerializationException("Failed to serialize object: "
@@ -217,7 +257,8 @@ public boolean equals( Object obj ){
 
     protected static Object decode(byte[] messageStream)
     {
-        try (ObjectInputStream stream = new ObjectInputStream(new ByteArrayInputStream(messageStream))) {
+        SerializationFormat format = SerializationFormat.of(messageStream);
+        try (ObjectInputStream stream = format.createInputStream(new ByteArrayInputStream(messageStream))) {
             return stream.readObject();
         } catch (ClassNotFoundException e) {
             throw new SerializationException("Failed to deserialize object: The class could not be found. Is there a software version mismatch in your installation?", e);
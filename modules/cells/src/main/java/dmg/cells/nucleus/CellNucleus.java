@@ -1,5 +1,6 @@
 package dmg.cells.nucleus;
 
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Throwables;
 import com.google.common.collect.Iterables;
 import com.google.common.util.concurrent.Futures;
@@ -49,6 +50,8 @@ import dmg.util.Pinboard;
 import dmg.util.logback.FilterThresholdSet;
 import dmg.util.logback.RootFilterThresholds;
 
+import org.dcache.commons.stats.LatencyHistogram;
+import org.dcache.commons.stats.LatencyHistograms;
 import org.dcache.util.BoundedCachedExecutor;
 import org.dcache.util.BoundedExecutor;
 
@@ -112,6 +115,13 @@ public class CellNucleus implements ThreadFactory
 
     private static final int PINBOARD_DEFAULT_SIZE = 200;
 
+    /**
+     * Length in milliseconds of the interval over which the recent queue
+     * time is measured. In adaptive mode the number of message threads is
+     * adjusted at the end of each interval.
+     */
+    private static final long MESSAGE_STATISTICS_INTERVAL = 2000;
+
     private static CellGlue __cellGlue;
     private final  String    _cellName;
     private final  String    _cellType;
@@ -129,6 +139,34 @@ public class CellNucleus implements ThreadFactory
     private final BoundedExecutor _messageExecutor;
     private final AtomicInteger _eventQueueSize = new AtomicInteger();
 
+    /**
+     * Time messages spent in the queue (in milliseconds) and in the message
+     * handler (in microseconds), by message type.
+     */
+    private final LatencyHistograms<Class<?>> _queueTimes = new LatencyHistograms<>("Queue time");
+    private final LatencyHistograms<Class<?>> _handlerTimes = new LatencyHistograms<>("Handler time");
+
+    /**
+     * Queue time of messages delivered in the current interval.
+     */
+    private final LatencyHistogram _intervalQueueTime = new LatencyHistogram("Queue time");
+
+    /**
+     * 99th percentile of the queue time in the last completed interval.
+     */
+    private volatile long _queueTimeP99;
+
+    private Future<?> _messageStatisticsTask;
+
+    /**
+     * Limits and target queue time for adaptive sizing of the message thread
+     * pool. Guarded by this.
+     */
+    private boolean _adaptiveMessageThreads;
+    private int _minMessageThreads;
+    private int _maxMessageThreads;
+    private long _targetQueueTime;
+
     /**
      * Timer for periodic low-priority maintenance tasks. Shared among
      * all cell instances. Since a Timer is single-threaded,
@@ -346,6 +384,8 @@ public class CellNucleus implements ThreadFactory
             info.setExpectedQueueTime((eventQueueSize == 0) ? 0 : _lastQueueTime);
             info.setState(_state.externalState);
             info.setThreadCount(_threads.activeCount());
+            info.setMessageThreads(_messageExecutor.getMaximumPoolSize());
+            info.setQueueTimeP99(_queueTimeP99);
         } catch(Exception e) {
             info.setEventQueueSize(0);
             info.setState(0);
@@ -394,6 +434,106 @@ public class CellNucleus implements ThreadFactory
         return _messageExecutor.getMaximumQueueSize();
     }
 
+    /**
+     * Enables adaptive sizing of the message thread pool. Every few seconds
+     * the number of message threads is increased if the mean queue time
+     * of the messages delivered in that interval exceeds the target queue
+     * time, and decreased if it is well below the target.
+     *
+     * Only suitable for cells that can process messages concurrently.
+     *
+     * @param min minimum number of message threads
+     * @param max maximum number of message threads
+     * @param targetQueueTime queue time in milliseconds to aim for
+     */
+    public synchronized void setAdaptiveMessageThreads(int min, int max, long targetQueueTime)
+    {
+        checkArgument(min > 0, "Minimum number of threads must be positive");
+        checkArgument(max >= min, "Maximum number of threads must not be less than the minimum");
+        checkArgument(targetQueueTime > 0, "Target queue time must be positive");
+        _minMessageThreads = min;
+        _maxMessageThreads = max;
+        _targetQueueTime = targetQueueTime;
+        int size = _messageExecutor.getMaximumPoolSize();
+        _messageExecutor.setMaximumPoolSize(Math.max(min, Math.min(max, size)));
+        _adaptiveMessageThreads = true;
+    }
+
+    /**
+     * Disables adaptive sizing of the message thread pool. The current
+     * number of message threads is retained.
+     */
+    public synchronized void disableAdaptiveMessageThreads()
+    {
+        _adaptiveMessageThreads = false;
+    }
+
+    public synchronized boolean isAdaptiveMessageThreads()
+    {
+        return _adaptiveMessageThreads;
+    }
+
+    /**
+     * Publishes the queue time of the interval that just ended, starts a
+     * new interval and, in adaptive mode, adjusts the number of message
+     * threads.
+     */
+    private synchronized void endMessageStatisticsInterval()
+    {
+        long messages = _intervalQueueTime.getCount();
+        double meanQueueTime = _intervalQueueTime.getMean();
+        _queueTimeP99 = _intervalQueueTime.getPercentile(99);
+        _intervalQueueTime.reset();
+
+        if (_adaptiveMessageThreads) {
+            int size = _messageExecutor.getMaximumPoolSize();
+            int newSize = adjustMessageThreads(size, _minMessageThreads, _maxMessageThreads, _targetQueueTime,
+                                               messages, meanQueueTime, getEventQueueSize() == 0);
+            if (newSize != size) {
+                LOGGER.debug("Changing number of message threads from {} to {}.", size, newSize);
+                _messageExecutor.setMaximumPoolSize(newSize);
+            }
+        }
+    }
+
+    /**
+     * Returns the number of message threads to use in the next interval.
+     * Grows by a quarter if the mean queue time exceeds the target, and
+     * shrinks by one if it is below a quarter of the target or if no
+     * messages were delivered and none are queued.
+     *
+     * @param size current number of message threads
+     * @param messages number of messages delivered in the last interval
+     * @param meanQueueTime mean queue time in milliseconds of these messages
+     * @param idle whether no messages are queued
+     */
+    @VisibleForTesting
+    static int adjustMessageThreads(int size, int min, int max, long targetQueueTime,
+                                    long messages, double meanQueueTime, boolean idle)
+    {
+        if (messages > 0 && meanQueueTime > targetQueueTime) {
+            return Math.min(max, size + Math.max(1, size / 4));
+        }
+        if (messages == 0 ? idle : meanQueueTime < targetQueueTime / 4.0) {
+            return Math.max(min, size - 1);
+        }
+        return size;
+    }
+
+    /**
+     * Returns tables of the queue and handler time histograms by message type.
+     */
+    public String getMessageStatistics()
+    {
+        return _queueTimes.toString("ms") + "\n\n" + _handlerTimes.toString("us");
+    }
+
+    public void resetMessageStatistics()
+    {
+        _queueTimes.reset();
+        _handlerTimes.reset();
+    }
+
     public void  sendMessage(CellMessage msg, boolean locally, boolean remotely, boolean shouldAddSource)
         throws SerializationException
     {
@@ -917,6 +1057,10 @@ public class CellNucleus implements ThreadFactory
             checkState(_state == State.PRE_STARTUP);
             _timeoutTask = _timer.scheduleWithFixedDelay(wrapLoggingContext(this::executeMaintenanceTasks),
                                                          20, 20, TimeUnit.SECONDS);
+            _messageStatisticsTask =
+                    _timer.scheduleWithFixedDelay(wrapLoggingContext(this::endMessageStatisticsInterval),
+                                                  MESSAGE_STATISTICS_INTERVAL, MESSAGE_STATISTICS_INTERVAL,
+                                                  TimeUnit.MILLISECONDS);
             StartEvent event = new StartEvent(new CellPath(_cellName), 0);
             try {
                 EventLogger.prepareSetupBegin(_cell, event);
@@ -963,6 +1107,10 @@ public class CellNucleus implements ThreadFactory
                 _lifeCycleMonitor.leave();
             }
 
+            if (_messageStatisticsTask != null) {
+                _messageStatisticsTask.cancel(false);
+            }
+
             /* Stop executing deferred tasks.
              */
             if (_timeoutTask != null) {
@@ -1196,10 +1344,15 @@ public class CellNucleus implements ThreadFactory
         public void run()
         {
             try (CDC ignored = CDC.reset(CellNucleus.this)) {
+                Class<?> type = messageType(_event);
+                long start = System.nanoTime();
                 try {
                     EventLogger.queueEnd(_event);
-                    _lastQueueTime = _event.getMessage().getLocalAge();
+                    long queueTime = _event.getMessage().getLocalAge();
+                    _lastQueueTime = queueTime;
                     _eventQueueSize.decrementAndGet();
+                    _queueTimes.update(type, queueTime);
+                    _intervalQueueTime.update(queueTime);
 
                     if (_event instanceof RoutedMessageEvent) {
                         _cell.messageArrived(_event);
@@ -1221,6 +1374,8 @@ public class CellNucleus implements ThreadFactory
                 } catch (Throwable e) {
                     Thread t = Thread.currentThread();
                     t.getUncaughtExceptionHandler().uncaughtException(t, e);
+                } finally {
+                    _handlerTimes.update(type, TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start));
                 }
             }
         }
@@ -1232,6 +1387,20 @@ public class CellNucleus implements ThreadFactory
         }
     }
 
+    /**
+     * Returns the type of message used for the message statistics. Messages
+     * routed through this cell are not decoded and are all accounted for
+     * as RoutedMessageEvent.
+     */
+    private static Class<?> messageType(MessageEvent event)
+    {
+        if (event instanceof RoutedMessageEvent) {
+            return RoutedMessageEvent.class;
+        }
+        Object message = event.getMessage().getMessageObject();
+        return (message == null) ? Void.class : message.getClass();
+    }
+
     private class CellEventTask implements Runnable
     {
         private final CellEvent _event;
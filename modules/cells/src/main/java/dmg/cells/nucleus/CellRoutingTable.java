@@ -1,44 +1,50 @@
 package dmg.cells.nucleus;
 
-import com.google.common.collect.ArrayListMultimap;
-import com.google.common.collect.LinkedHashMultimap;
-import com.google.common.collect.ListMultimap;
-import com.google.common.collect.SetMultimap;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Iterables;
 import com.google.common.math.IntMath;
 
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.HashMap;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
-import java.util.Optional;
-import java.util.Random;
 import java.util.Set;
-import java.util.concurrent.CopyOnWriteArraySet;
-import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.function.Consumer;
+import java.util.function.Predicate;
 
 import org.dcache.util.ColumnWriter;
 
-import static java.util.stream.Collectors.toList;
+import static com.google.common.collect.ImmutableList.toImmutableList;
+import static com.google.common.collect.ImmutableSet.toImmutableSet;
 
+/**
+ * Routing table of a cell domain.
+ *
+ * Routes change rarely compared to how often they are looked up. The
+ * routes for each destination are therefore held in immutable collections
+ * that are replaced whenever a route to that destination is added or
+ * removed. Lookups are plain concurrent hash map reads and do not acquire
+ * any locks. Modifications are serialized.
+ */
 public class CellRoutingTable implements Serializable
 {
     private static final long serialVersionUID = -1456280129622980563L;
 
-    private final ListMultimap<String, CellRoute> _queue = ArrayListMultimap.create();
-    private final SetMultimap<String, CellRoute> _domain = LinkedHashMultimap.create();
-    private final SetMultimap<String, CellRoute> _exact = LinkedHashMultimap.create();
-    private final Map<String, CopyOnWriteArraySet<CellRoute>> _topic = new HashMap<>();
-    private final AtomicReference<CellRoute> _dumpster = new AtomicReference<>();
-    private final List<CellRoute> _default = new ArrayList<>();
-    private final Random _random = new Random();
+    private final ConcurrentMap<String, QueueRoutes> _queue = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, ImmutableSet<CellRoute>> _domain = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, ImmutableSet<CellRoute>> _exact = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, ImmutableSet<CellRoute>> _topic = new ConcurrentHashMap<>();
+    private volatile ImmutableList<CellRoute> _default = ImmutableList.of();
+    private volatile CellRoute _dumpster;
 
-    public void add(CellRoute route)
+    public synchronized void add(CellRoute route)
             throws IllegalArgumentException
     {
         String dest;
@@ -46,53 +52,45 @@ public class CellRoutingTable implements Serializable
         case CellRoute.EXACT:
         case CellRoute.ALIAS:
             dest = route.getCellName() + '@' + route.getDomainName();
-            synchronized (_exact) {
-                if (!_exact.put(dest, route)) {
-                    throw new IllegalArgumentException("Duplicated route entry for : " + dest);
-                }
+            if (!add(_exact, dest, route)) {
+                throw new IllegalArgumentException("Duplicated route entry for : " + dest);
             }
             break;
         case CellRoute.QUEUE:
             dest = route.getCellName();
-            synchronized (_queue) {
-                if (_queue.containsEntry(dest, route)) {
-                    throw new IllegalArgumentException("Duplicated route entry for : " + dest);
-                }
-                _queue.put(dest, route);
+            QueueRoutes routes = _queue.getOrDefault(dest, QueueRoutes.EMPTY);
+            if (routes.all.contains(route)) {
+                throw new IllegalArgumentException("Duplicated route entry for : " + dest);
             }
+            _queue.put(dest, routes.with(route));
             break;
         case CellRoute.TOPIC:
             dest = route.getCellName();
-            synchronized (_topic) {
-                if (!_topic.computeIfAbsent(dest, key -> new CopyOnWriteArraySet()).add(route)) {
-                    throw new IllegalArgumentException("Duplicated route entry for : " + dest);
-                }
+            if (!add(_topic, dest, route)) {
+                throw new IllegalArgumentException("Duplicated route entry for : " + dest);
             }
             break;
         case CellRoute.DOMAIN:
             dest = route.getDomainName();
-            synchronized (_domain) {
-                if (!_domain.put(dest, route)) {
-                    throw new IllegalArgumentException("Duplicated route entry for : " + dest);
-                }
+            if (!add(_domain, dest, route)) {
+                throw new IllegalArgumentException("Duplicated route entry for : " + dest);
             }
             break;
         case CellRoute.DEFAULT:
-            synchronized (_default) {
-                if (!_default.contains(route)) {
-                    _default.add(route);
-                }
+            if (!_default.contains(route)) {
+                _default = ImmutableList.<CellRoute>builder().addAll(_default).add(route).build();
             }
             break;
         case CellRoute.DUMPSTER:
-            if (!_dumpster.compareAndSet(null, route)) {
+            if (_dumpster != null) {
                 throw new IllegalArgumentException("Duplicated route entry for dumpster");
             }
+            _dumpster = route;
             break;
         }
     }
 
-    public void delete(CellRoute route)
+    public synchronized void delete(CellRoute route)
             throws IllegalArgumentException
     {
         String dest;
@@ -100,102 +98,116 @@ public class CellRoutingTable implements Serializable
         case CellRoute.EXACT:
         case CellRoute.ALIAS:
             dest = route.getCellName() + '@' + route.getDomainName();
-            synchronized (_exact) {
-                if (!_exact.remove(dest, route)) {
-                    throw new IllegalArgumentException("Route entry not found for : " + dest);
-                }
+            if (!remove(_exact, dest, route)) {
+                throw new IllegalArgumentException("Route entry not found for : " + dest);
             }
             break;
         case CellRoute.QUEUE:
             dest = route.getCellName();
-            synchronized (_queue) {
-                if (!_queue.remove(dest, route)) {
-                    throw new IllegalArgumentException("Route entry not found for : " + dest);
-                }
+            QueueRoutes routes = _queue.get(dest);
+            if (routes == null || !routes.all.contains(route)) {
+                throw new IllegalArgumentException("Route entry not found for : " + dest);
             }
+            replace(dest, routes.without(route::equals));
             break;
         case CellRoute.TOPIC:
             dest = route.getCellName();
-            synchronized (_topic) {
-                Set<CellRoute> routes = _topic.get(dest);
-                if (!routes.remove(route)) {
-                    throw new IllegalArgumentException("Route entry not found for : " + dest);
-                }
-                if (routes.isEmpty()) {
-                    _topic.remove(dest);
-                }
+            if (!remove(_topic, dest, route)) {
+                throw new IllegalArgumentException("Route entry not found for : " + dest);
             }
             break;
         case CellRoute.DOMAIN:
             dest = route.getDomainName();
-            synchronized (_domain) {
-                if (!_domain.remove(dest, route)) {
-                    throw new IllegalArgumentException("Route entry not found for : " + dest);
-                }
+            if (!remove(_domain, dest, route)) {
+                throw new IllegalArgumentException("Route entry not found for : " + dest);
             }
             break;
         case CellRoute.DEFAULT:
-            synchronized (_default) {
-                if (!_default.remove(route)) {
-                    throw new IllegalArgumentException("Route entry not found for default");
-                }
+            if (!_default.contains(route)) {
+                throw new IllegalArgumentException("Route entry not found for default");
             }
+            _default = _default.stream().filter(r -> !r.equals(route)).collect(toImmutableList());
             break;
         case CellRoute.DUMPSTER:
-            CellRoute currentDumpster = _dumpster.get();
-            if (!Objects.equals(currentDumpster, route) || !_dumpster.compareAndSet(currentDumpster, null)) {
+            if (!Objects.equals(_dumpster, route)) {
                 throw new IllegalArgumentException("Route entry not found dumpster");
             }
+            _dumpster = null;
             break;
         }
     }
 
-    public Collection<CellRoute> delete(CellAddressCore target)
+    public synchronized Collection<CellRoute> delete(CellAddressCore target)
     {
         Collection<CellRoute> deleted = new ArrayList<>();
 
         String addr = target.toString();
-        synchronized (_exact) {
-            delete(_exact.values(), addr, deleted);
+        Predicate<CellRoute> isTarget = route -> route.getTargetName().equals(addr);
+        delete(_exact, isTarget, deleted);
+        for (Map.Entry<String, QueueRoutes> entry : _queue.entrySet()) {
+            QueueRoutes routes = entry.getValue();
+            if (routes.all.stream().anyMatch(isTarget)) {
+                routes.all.stream().filter(isTarget).forEach(deleted::add);
+                replace(entry.getKey(), routes.without(isTarget));
+            }
         }
-        synchronized (_queue) {
-            delete(_queue.values(), addr, deleted);
+        delete(_domain, isTarget, deleted);
+        delete(_topic, isTarget, deleted);
+        if (_default.stream().anyMatch(isTarget)) {
+            _default.stream().filter(isTarget).forEach(deleted::add);
+            _default = _default.stream().filter(isTarget.negate()).collect(toImmutableList());
         }
-        synchronized (_domain) {
-            delete(_domain.values(), addr, deleted);
+        return deleted;
+    }
+
+    private static boolean add(ConcurrentMap<String, ImmutableSet<CellRoute>> map, String dest, CellRoute route)
+    {
+        ImmutableSet<CellRoute> routes = map.getOrDefault(dest, ImmutableSet.of());
+        if (routes.contains(route)) {
+            return false;
         }
-        synchronized (_topic) {
-            /* We cannot use the regular delete method because a CopyOnWriteArraySet iterator
-             * doesn't allow manipulating operations. We trade expensive deletion for not having
-             * to copy the set of topic routes in findTopicRoutes.
-             */
-            Iterator<CopyOnWriteArraySet<CellRoute>> iterator = _topic.values().iterator();
-            while (iterator.hasNext()) {
-                Set<CellRoute> routes = iterator.next();
-                List<CellRoute> toRemove =
-                        routes.stream().filter(route -> route.getTargetName().equals(addr)).collect(toList());
-                routes.removeAll(toRemove);
-                if (routes.isEmpty()) {
-                    iterator.remove();
-                }
-                deleted.addAll(toRemove);
+        map.put(dest, ImmutableSet.<CellRoute>builder().addAll(routes).add(route).build());
+        return true;
+    }
+
+    private static boolean remove(ConcurrentMap<String, ImmutableSet<CellRoute>> map, String dest, CellRoute route)
+    {
+        ImmutableSet<CellRoute> routes = map.get(dest);
+        if (routes == null || !routes.contains(route)) {
+            return false;
+        }
+        replace(map, dest, routes.stream().filter(r -> !r.equals(route)).collect(toImmutableSet()));
+        return true;
+    }
+
+    private static void delete(ConcurrentMap<String, ImmutableSet<CellRoute>> map,
+                               Predicate<CellRoute> predicate, Collection<CellRoute> deleted)
+    {
+        for (Map.Entry<String, ImmutableSet<CellRoute>> entry : map.entrySet()) {
+            ImmutableSet<CellRoute> routes = entry.getValue();
+            if (routes.stream().anyMatch(predicate)) {
+                routes.stream().filter(predicate).forEach(deleted::add);
+                replace(map, entry.getKey(), routes.stream().filter(predicate.negate()).collect(toImmutableSet()));
             }
         }
-        synchronized (_default) {
-            delete(_default, addr, deleted);
+    }
+
+    private static void replace(ConcurrentMap<String, ImmutableSet<CellRoute>> map, String dest,
+                                ImmutableSet<CellRoute> routes)
+    {
+        if (routes.isEmpty()) {
+            map.remove(dest);
+        } else {
+            map.put(dest, routes);
         }
-        return deleted;
     }
 
-    private void delete(Collection<CellRoute> values, String addr, Collection<CellRoute> deleted)
+    private void replace(String dest, QueueRoutes routes)
     {
-        Iterator<CellRoute> iterator = values.iterator();
-        while (iterator.hasNext()) {
-            CellRoute route = iterator.next();
-            if (route.getTargetName().equals(addr)) {
-                iterator.remove();
-                deleted.add(route);
-            }
+        if (routes.isEmpty()) {
+            _queue.remove(dest);
+        } else {
+            _queue.put(dest, routes);
         }
     }
 
@@ -203,39 +215,39 @@ public class CellRoutingTable implements Serializable
     {
         String cellName = addr.getCellName();
         String domainName = addr.getCellDomainName();
-        Optional<CellRoute> route;
-        synchronized (_exact) {
-            route = _exact.get(cellName + '@' + domainName).stream().findFirst();
-        }
-        if (route.isPresent()) {
-            return route.get();
+        CellRoute route = first(_exact.get(cellName + '@' + domainName));
+        if (route != null) {
+            return route;
         }
         if (domainName.equals("local")) {
             //
             // this is not really local but wellknown
             // we checked for local before we called this.
             //
-            synchronized (_queue) {
-                List<CellRoute> routes = _queue.get(cellName);
-                if (!allowRemote) {
-                    CellRoute[] localRoutes =
-                            routes.stream().filter(r -> !r.getTarget().isDomainAddress()).toArray(CellRoute[]::new);
-                    return (localRoutes.length > 0) ? localRoutes[_random.nextInt(localRoutes.length)] : null;
-                } else if (!routes.isEmpty()) {
-                    return routes.get(_random.nextInt(routes.size()));
-                }
+            QueueRoutes routes = _queue.get(cellName);
+            if (!allowRemote) {
+                return (routes == null) ? null : random(routes.local);
+            } else if (routes != null) {
+                return random(routes.all);
             }
         } else {
-            synchronized (_domain) {
-                route = _domain.get(domainName).stream().findFirst();
-            }
-            if (route.isPresent()) {
-                return route.get();
+            route = first(_domain.get(domainName));
+            if (route != null) {
+                return route;
             }
         }
-        synchronized (_default) {
-            return _default.isEmpty() ? null : _default.get(IntMath.mod(addr.hashCode(), _default.size()));
-        }
+        List<CellRoute> defaultRoutes = _default;
+        return defaultRoutes.isEmpty() ? null : defaultRoutes.get(IntMath.mod(addr.hashCode(), defaultRoutes.size()));
+    }
+
+    private static CellRoute first(Set<CellRoute> routes)
+    {
+        return (routes == null) ? null : Iterables.getFirst(routes, null);
+    }
+
+    private static CellRoute random(List<CellRoute> routes)
+    {
+        return routes.isEmpty() ? null : routes.get(ThreadLocalRandom.current().nextInt(routes.size()));
     }
 
     public Set<CellRoute> findTopicRoutes(CellAddressCore addr)
@@ -245,10 +257,7 @@ public class CellRoutingTable implements Serializable
         if (!domainName.equals("local")) {
             return Collections.emptySet();
         }
-        CopyOnWriteArraySet<CellRoute> routes;
-        synchronized (_topic) {
-            routes = _topic.get(cellName);
-        }
+        Set<CellRoute> routes = _topic.get(cellName);
         return (routes != null) ? routes : Collections.emptySet();
     }
 
@@ -267,57 +276,68 @@ public class CellRoutingTable implements Serializable
                         .value("gateway", route.getTargetName())
                         .value("type", route.getRouteTypeName());
 
-        synchronized (_topic) {
-            _topic.values().forEach(routes -> routes.forEach(append));
-        }
-        synchronized (_exact) {
-            _exact.values().forEach(append);
-        }
-        synchronized (_queue) {
-            _queue.values().forEach(append);
-        }
-        synchronized (_domain) {
-            _domain.values().forEach(append);
-        }
-        synchronized (_default) {
-            _default.forEach(append);
-        }
-        CellRoute dumpsterRoute = _dumpster.get();
-        if (dumpsterRoute != null) {
-            append.accept(dumpsterRoute);
-        }
+        forEach(append);
         return writer.toString();
     }
 
     public CellRoute[] getRoutingList()
     {
         List<CellRoute> routes = new ArrayList<>();
-        synchronized (_topic) {
-            _topic.values().forEach(routes::addAll);
-        }
-        synchronized (_exact) {
-            routes.addAll(_exact.values());
-        }
-        synchronized (_queue) {
-            routes.addAll(_queue.values());
-        }
-        synchronized (_domain) {
-            routes.addAll(_domain.values());
-        }
-        synchronized (_default) {
-            routes.addAll(_default);
-        }
-        CellRoute dumpsterRoute = _dumpster.get();
+        forEach(routes::add);
+        return routes.toArray(new CellRoute[routes.size()]);
+    }
+
+    private void forEach(Consumer<CellRoute> action)
+    {
+        _topic.values().forEach(routes -> routes.forEach(action));
+        _exact.values().forEach(routes -> routes.forEach(action));
+        _queue.values().forEach(routes -> routes.all.forEach(action));
+        _domain.values().forEach(routes -> routes.forEach(action));
+        _default.forEach(action);
+        CellRoute dumpsterRoute = _dumpster;
         if (dumpsterRoute != null) {
-            routes.add(dumpsterRoute);
+            action.accept(dumpsterRoute);
         }
-        return routes.toArray(new CellRoute[routes.size()]);
     }
 
     public boolean hasDefaultRoute()
     {
-        synchronized (_default) {
-            return !_default.isEmpty();
+        return !_default.isEmpty();
+    }
+
+    /**
+     * Immutable list of well-known routes for a cell name. The routes to
+     * cells in this domain, i.e. the routes not leading to a tunnel, are
+     * kept separately as lookups may be restricted to those.
+     */
+    private static class QueueRoutes implements Serializable
+    {
+        private static final long serialVersionUID = 3521907322567632813L;
+
+        static final QueueRoutes EMPTY = new QueueRoutes(ImmutableList.of());
+
+        final ImmutableList<CellRoute> all;
+        final ImmutableList<CellRoute> local;
+
+        QueueRoutes(ImmutableList<CellRoute> all)
+        {
+            this.all = all;
+            this.local = all.stream().filter(r -> !r.getTarget().isDomainAddress()).collect(toImmutableList());
+        }
+
+        QueueRoutes with(CellRoute route)
+        {
+            return new QueueRoutes(ImmutableList.<CellRoute>builder().addAll(all).add(route).build());
+        }
+
+        QueueRoutes without(Predicate<CellRoute> predicate)
+        {
+            return new QueueRoutes(all.stream().filter(predicate.negate()).collect(toImmutableList()));
+        }
+
+        boolean isEmpty()
+        {
+            return all.isEmpty();
         }
     }
 }
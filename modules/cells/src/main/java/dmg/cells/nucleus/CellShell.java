@@ -1039,6 +1039,8 @@ public class CellShell extends CommandInterpreter
                         generalInfo.row().value("name", "State").value("value", info.getStateName());
                         generalInfo.row().value("name", "Queue length").value("value", info.getEventQueueSize());
                         generalInfo.row().value("name", "Queue time").value("value", info.getExpectedQueueTime() + " ms");
+                        generalInfo.row().value("name", "Queue time (p99)").value("value", info.getQueueTimeP99() + " ms");
+                        generalInfo.row().value("name", "Message threads").value("value", info.getMessageThreads());
                         CellVersion version = info.getCellVersion();
                         if (version != null) {
                             generalInfo.row().value("name", "Version").value("value", version);
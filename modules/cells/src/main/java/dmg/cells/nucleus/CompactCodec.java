@@ -0,0 +1,47 @@
+/* dCache - http://www.dcache.org/
+ *
+ * Copyright (C) 2018 Deutsches Elektronen-Synchrotron
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dmg.cells.nucleus;
+
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+
+/**
+ * Hand written encoding of a message object for the
+ * {@link SerializationFormat#COMPACT} format.
+ *
+ * Codecs are discovered through {@link java.util.ServiceLoader} and apply
+ * to instances of exactly the type returned by {@link #getType}; instances
+ * of subclasses fall back to regular serialization. Nested objects may be
+ * written with {@link ObjectOutput#writeObject}, in which case they are
+ * subject to codecs of their own.
+ *
+ * Since the encoding is only ever exchanged between domains running the
+ * same release, it need not be versioned.
+ */
+public interface CompactCodec<T>
+{
+    /**
+     * Returns the type encoded by this codec.
+     */
+    Class<T> getType();
+
+    void write(ObjectOutput out, T object) throws IOException;
+
+    T read(ObjectInput in) throws IOException, ClassNotFoundException;
+}
@@ -0,0 +1,72 @@
+/* dCache - http://www.dcache.org/
+ *
+ * Copyright (C) 2018 Deutsches Elektronen-Synchrotron
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dmg.cells.nucleus;
+
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.InvalidClassException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.io.ObjectStreamException;
+
+/**
+ * Stand-in for an object encoded by a {@link CompactCodec}. Only ever
+ * written to a {@link CompactObjectOutputStream}; on deserialization the
+ * envelope resolves to the decoded object.
+ */
+final class CompactEnvelope implements Externalizable
+{
+    private static final long serialVersionUID = 7005212858165470449L;
+
+    private CompactCodec<Object> _codec;
+    private Object _object;
+
+    public CompactEnvelope()
+    {
+    }
+
+    CompactEnvelope(CompactCodec<Object> codec, Object object)
+    {
+        _codec = codec;
+        _object = object;
+    }
+
+    @Override
+    public void writeExternal(ObjectOutput out) throws IOException
+    {
+        out.writeObject(_codec.getType());
+        _codec.write(out, _object);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void readExternal(ObjectInput in) throws IOException, ClassNotFoundException
+    {
+        Class<?> type = (Class<?>) in.readObject();
+        _codec = (CompactCodec<Object>) CompactObjectOutputStream.CODECS.get(type);
+        if (_codec == null) {
+            throw new InvalidClassException(type.getName(), "No compact codec for class");
+        }
+        _object = _codec.read(in);
+    }
+
+    private Object readResolve() throws ObjectStreamException
+    {
+        return _object;
+    }
+}
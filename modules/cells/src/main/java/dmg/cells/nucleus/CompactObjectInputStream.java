@@ -0,0 +1,63 @@
+/* dCache - http://www.dcache.org/
+ *
+ * Copyright (C) 2018 Deutsches Elektronen-Synchrotron
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dmg.cells.nucleus;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InvalidClassException;
+import java.io.ObjectInputStream;
+import java.io.ObjectStreamClass;
+import java.io.StreamCorruptedException;
+
+/**
+ * Object input stream for the {@link SerializationFormat#COMPACT} format.
+ *
+ * @see CompactObjectOutputStream
+ */
+class CompactObjectInputStream extends ObjectInputStream
+{
+    CompactObjectInputStream(InputStream in) throws IOException
+    {
+        super(in);
+    }
+
+    @Override
+    protected void readStreamHeader() throws IOException
+    {
+        short magic = readShort();
+        short version = readShort();
+        if (magic != CompactObjectOutputStream.STREAM_MAGIC) {
+            throw new StreamCorruptedException(String.format("invalid stream header: %04X", magic));
+        }
+        if (version != CompactObjectOutputStream.STREAM_VERSION) {
+            throw new StreamCorruptedException("unsupported compact stream version: " + version);
+        }
+    }
+
+    @Override
+    protected ObjectStreamClass readClassDescriptor() throws IOException, ClassNotFoundException
+    {
+        String name = readUTF();
+        long fingerprint = readLong();
+        Class<?> type = Class.forName(name, false, CompactObjectInputStream.class.getClassLoader());
+        if (CompactObjectOutputStream.fingerprint(type) != fingerprint) {
+            throw new InvalidClassException(name, "serialized form differs from local class");
+        }
+        return ObjectStreamClass.lookupAny(type);
+    }
+}
@@ -0,0 +1,115 @@
+/* dCache - http://www.dcache.org/
+ *
+ * Copyright (C) 2018 Deutsches Elektronen-Synchrotron
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dmg.cells.nucleus;
+
+import com.google.common.collect.ImmutableMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.io.ObjectStreamField;
+import java.io.OutputStream;
+import java.util.Map;
+import java.util.Objects;
+import java.util.ServiceLoader;
+
+/**
+ * Object output stream for the {@link SerializationFormat#COMPACT} format.
+ *
+ * Class descriptors are reduced to the class name and a fingerprint of
+ * the serialized form of the class, and objects with a registered
+ * {@link CompactCodec} are replaced by a {@link CompactEnvelope} holding
+ * their hand written encoding.
+ */
+class CompactObjectOutputStream extends ObjectOutputStream
+{
+    private static final Logger LOGGER = LoggerFactory.getLogger(CompactObjectOutputStream.class);
+
+    static final short STREAM_MAGIC = (short) 0xDC5E;
+    static final short STREAM_VERSION = 1;
+
+    /**
+     * Fingerprint of the serialized form of a class: the serialVersionUID
+     * combined with the names and types of the serializable fields. Since
+     * most dCache classes declare a fixed serialVersionUID, the field
+     * layout is needed to detect incompatible peers.
+     */
+    private static final ClassValue<Long> FINGERPRINTS = new ClassValue<Long>()
+    {
+        @Override
+        protected Long computeValue(Class<?> type)
+        {
+            ObjectStreamClass desc = ObjectStreamClass.lookupAny(type);
+            long fingerprint = desc.getSerialVersionUID();
+            for (ObjectStreamField field : desc.getFields()) {
+                fingerprint = 31 * fingerprint + field.getName().hashCode();
+                fingerprint = 31 * fingerprint + field.getTypeCode();
+                fingerprint = 31 * fingerprint + Objects.hashCode(field.getTypeString());
+            }
+            return fingerprint;
+        }
+    };
+
+    static final Map<Class<?>, CompactCodec<?>> CODECS = loadCodecs();
+
+    CompactObjectOutputStream(OutputStream out) throws IOException
+    {
+        super(out);
+        enableReplaceObject(true);
+    }
+
+    private static Map<Class<?>, CompactCodec<?>> loadCodecs()
+    {
+        ImmutableMap.Builder<Class<?>, CompactCodec<?>> codecs = ImmutableMap.builder();
+        for (CompactCodec<?> codec : ServiceLoader.load(CompactCodec.class, CompactCodec.class.getClassLoader())) {
+            LOGGER.debug("Using {} for {}", codec.getClass().getName(), codec.getType().getName());
+            codecs.put(codec.getType(), codec);
+        }
+        return codecs.build();
+    }
+
+    static long fingerprint(Class<?> type)
+    {
+        return FINGERPRINTS.get(type);
+    }
+
+    @Override
+    protected void writeStreamHeader() throws IOException
+    {
+        writeShort(STREAM_MAGIC);
+        writeShort(STREAM_VERSION);
+    }
+
+    @Override
+    protected void writeClassDescriptor(ObjectStreamClass desc) throws IOException
+    {
+        Class<?> type = desc.forClass();
+        writeUTF(type.getName());
+        writeLong(fingerprint(type));
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    protected Object replaceObject(Object obj) throws IOException
+    {
+        CompactCodec<Object> codec = (CompactCodec<Object>) CODECS.get(obj.getClass());
+        return (codec == null) ? obj : new CompactEnvelope(codec, obj);
+    }
+}
@@ -2,6 +2,8 @@ package dmg.cells.nucleus;
 
 import javax.annotation.Nullable;
 
+import java.io.IOException;
+import java.io.ObjectOutputStream;
 import java.io.Serializable;
 
 public class NoRouteToCellException extends Exception
@@ -20,6 +22,33 @@ public class NoRouteToCellException extends Exception
         _path = envelope.getDestinationPath();
     }
 
+    /**
+     * The undelivered message is kept encoded. Peers that only accept Java
+     * serialization cannot decode it if it was encoded in another format.
+     * Unless the exception itself is written in the compact format, the
+     * message is therefore re-encoded with Java serialization.
+     */
+    private void writeObject(ObjectOutputStream stream) throws IOException
+    {
+        CellMessage envelope = _envelope;
+        if (envelope != null && !(stream instanceof CompactObjectOutputStream) &&
+                envelope.getSerializationFormat() != SerializationFormat.JAVA) {
+            try {
+                envelope = envelope.decode().encode(SerializationFormat.JAVA);
+            } catch (SerializationException e) {
+                /* The exception is still delivered, just without the
+                 * undelivered message.
+                 */
+                envelope = null;
+            }
+        }
+        ObjectOutputStream.PutField fields = stream.putFields();
+        fields.put("_uoid", _uoid);
+        fields.put("_path", _path);
+        fields.put("_envelope", envelope);
+        stream.writeFields();
+    }
+
     @Override
     public String toString()
     {
@@ -0,0 +1,104 @@
+/* dCache - http://www.dcache.org/
+ *
+ * Copyright (C) 2018 Deutsches Elektronen-Synchrotron
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dmg.cells.nucleus;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamConstants;
+import java.io.OutputStream;
+
+/**
+ * Encoding of the payload of a CellMessage in stream mode.
+ *
+ * All formats are self describing: the first byte of an encoded payload
+ * identifies the format, so a domain can decode any supported format
+ * regardless of how it encodes messages itself.
+ */
+public enum SerializationFormat
+{
+    /**
+     * Plain Java serialization. Understood by all releases and used
+     * whenever the peer cannot be assumed to run identical code.
+     */
+    JAVA
+    {
+        @Override
+        ObjectOutputStream createOutputStream(OutputStream out) throws IOException
+        {
+            return new ObjectOutputStream(out);
+        }
+
+        @Override
+        ObjectInputStream createInputStream(InputStream in) throws IOException
+        {
+            return new ObjectInputStream(in);
+        }
+    },
+
+    /**
+     * Java serialization with abbreviated class descriptors and hand
+     * written encodings of the most frequent vehicles (see
+     * {@link CompactCodec}). Requires both ends to run the same code.
+     */
+    COMPACT
+    {
+        @Override
+        ObjectOutputStream createOutputStream(OutputStream out) throws IOException
+        {
+            return new CompactObjectOutputStream(out);
+        }
+
+        @Override
+        ObjectInputStream createInputStream(InputStream in) throws IOException
+        {
+            return new CompactObjectInputStream(in);
+        }
+    };
+
+    abstract ObjectOutputStream createOutputStream(OutputStream out) throws IOException;
+
+    abstract ObjectInputStream createInputStream(InputStream in) throws IOException;
+
+    /**
+     * Returns the format of an encoded payload.
+     *
+     * @throws SerializationException if the payload is not in a known format
+     */
+    public static SerializationFormat of(byte[] stream) throws SerializationException
+    {
+        if (stream.length > 0) {
+            switch (stream[0]) {
+            case (byte) (ObjectStreamConstants.STREAM_MAGIC >>> 8):
+                return JAVA;
+            case (byte) (CompactObjectOutputStream.STREAM_MAGIC >>> 8):
+                return COMPACT;
+            }
+        }
+        throw new SerializationException("Failed to deserialize object: Unknown serialization format.");
+    }
+
+    /**
+     * Returns the format with the given name. The name is case insensitive.
+     */
+    public static SerializationFormat fromString(String name)
+    {
+        return valueOf(name.toUpperCase());
+    }
+}
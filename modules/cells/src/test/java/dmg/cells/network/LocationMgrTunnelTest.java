@@ -0,0 +1,74 @@
+package dmg.cells.network;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.Serializable;
+import java.lang.reflect.Field;
+
+import dmg.cells.nucleus.CellMessage;
+import dmg.cells.nucleus.CellPath;
+import dmg.cells.nucleus.NoRouteToCellException;
+import dmg.cells.nucleus.SerializationFormat;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+
+public class LocationMgrTunnelTest
+{
+    private static CellMessage undeliverable(CellMessage message)
+    {
+        NoRouteToCellException e = new NoRouteToCellException(message, "no route");
+        CellMessage reply = new CellMessage(new CellPath("sender"), e);
+        return reply.encode(SerializationFormat.COMPACT);
+    }
+
+    private static CellMessage sendOverTunnel(CellMessage message) throws Exception
+    {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        message.writeTo(new DataOutputStream(out));
+        return CellMessage.createFrom(new DataInputStream(new ByteArrayInputStream(out.toByteArray())));
+    }
+
+    private static CellMessage envelopeOf(NoRouteToCellException e) throws Exception
+    {
+        Field field = NoRouteToCellException.class.getDeclaredField("_envelope");
+        field.setAccessible(true);
+        return (CellMessage) field.get(e);
+    }
+
+    @Test
+    public void shouldTranscodeNestedMessageForJavaPeer() throws Exception
+    {
+        CellMessage undelivered = new CellMessage(new CellPath("foo", "bar"), "payload")
+                .encode(SerializationFormat.COMPACT);
+
+        CellMessage sent = LocationMgrTunnel.transcode(undeliverable(undelivered), SerializationFormat.JAVA);
+
+        assertThat(sent.getSerializationFormat(), is(SerializationFormat.JAVA));
+        NoRouteToCellException received =
+                (NoRouteToCellException) sendOverTunnel(sent).decode().getMessageObject();
+        assertThat(envelopeOf(received).getSerializationFormat(), is(SerializationFormat.JAVA));
+        assertThat(received.getMessageObject(), is((Serializable) "payload"));
+        assertThat(received.getUOID(), is(undelivered.getUOID()));
+    }
+
+    @Test
+    public void shouldNotTranscodeForCompactPeer() throws Exception
+    {
+        CellMessage undelivered = new CellMessage(new CellPath("foo", "bar"), "payload")
+                .encode(SerializationFormat.COMPACT);
+        CellMessage reply = undeliverable(undelivered);
+
+        CellMessage sent = LocationMgrTunnel.transcode(reply, SerializationFormat.COMPACT);
+
+        assertThat(sent, is(sameInstance(reply)));
+        NoRouteToCellException received =
+                (NoRouteToCellException) sendOverTunnel(sent).decode().getMessageObject();
+        assertThat(envelopeOf(received).getSerializationFormat(), is(SerializationFormat.COMPACT));
+        assertThat(received.getMessageObject(), is((Serializable) "payload"));
+    }
+}
@@ -0,0 +1,207 @@
+package dmg.cells.network;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import dmg.cells.nucleus.CellMessage;
+import dmg.cells.nucleus.CellPath;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class OutboundQueueTest
+{
+    private final List<CellMessage> written = new CopyOnWriteArrayList<>();
+    private final List<CellMessage> undelivered = new CopyOnWriteArrayList<>();
+    private final AtomicInteger failures = new AtomicInteger();
+    private final CountDownLatch failed = new CountDownLatch(1);
+
+    private OutboundQueue queue;
+
+    private final OutboundQueue.FailureHandler handler = new OutboundQueue.FailureHandler()
+    {
+        @Override
+        public void failed(IOException e)
+        {
+            failures.incrementAndGet();
+        }
+
+        @Override
+        public void undelivered(CellMessage message)
+        {
+            undelivered.add(message);
+            failed.countDown();
+        }
+    };
+
+    @After
+    public void tearDown() throws InterruptedException
+    {
+        if (queue != null) {
+            queue.close(1000);
+        }
+    }
+
+    private static List<CellMessage> messages(int count)
+    {
+        List<CellMessage> messages = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            messages.add(new CellMessage(new CellPath("destination"), "message " + i));
+        }
+        return messages;
+    }
+
+    @Test
+    public void shouldWriteQueuedMessagesInBatches() throws Exception
+    {
+        CountDownLatch blocked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        queue = new OutboundQueue(new OutboundQueue.ObjectSink()
+        {
+            @Override
+            public void writeObject(CellMessage message) throws IOException
+            {
+                blocked.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    throw new IOException(e);
+                }
+                written.add(message);
+            }
+
+            @Override
+            public void flush()
+            {
+            }
+        }, 100, 10, Thread::new, handler);
+
+        List<CellMessage> messages = messages(31);
+        queue.add(messages.get(0));
+        assertTrue(blocked.await(1, TimeUnit.SECONDS));
+        for (CellMessage message : messages.subList(1, messages.size())) {
+            queue.add(message);
+        }
+        release.countDown();
+        queue.close(1000);
+
+        assertThat(written, is(messages));
+        assertThat(queue.getMessagesWritten(), is(31L));
+        assertThat(queue.getFlushes(), is(4L));
+        assertThat(queue.getMaxFlushBatch(), is(10L));
+        assertThat(queue.size(), is(0));
+        assertThat(undelivered, is(empty()));
+    }
+
+    @Test
+    public void shouldWriteQueuedMessagesBeforeClosing() throws Exception
+    {
+        queue = new OutboundQueue(new OutboundQueue.ObjectSink()
+        {
+            @Override
+            public void writeObject(CellMessage message) throws IOException
+            {
+                try {
+                    Thread.sleep(1);
+                } catch (InterruptedException e) {
+                    throw new IOException(e);
+                }
+                written.add(message);
+            }
+
+            @Override
+            public void flush()
+            {
+            }
+        }, 100, 10, Thread::new, handler);
+
+        List<CellMessage> messages = messages(50);
+        for (CellMessage message : messages) {
+            queue.add(message);
+        }
+        queue.close(5000);
+
+        assertThat(written, is(messages));
+    }
+
+    @Test(expected = IOException.class)
+    public void shouldRejectMessagesAfterClose() throws Exception
+    {
+        queue = new OutboundQueue(new OutboundQueue.ObjectSink()
+        {
+            @Override
+            public void writeObject(CellMessage message)
+            {
+                written.add(message);
+            }
+
+            @Override
+            public void flush()
+            {
+            }
+        }, 100, 10, Thread::new, handler);
+
+        queue.close(1000);
+        queue.add(messages(1).get(0));
+    }
+
+    @Test
+    public void shouldReturnUnwrittenMessagesOnFailure() throws Exception
+    {
+        List<CellMessage> messages = messages(3);
+        CellMessage late = messages(1).get(0);
+        queue = new OutboundQueue(new OutboundQueue.ObjectSink()
+        {
+            @Override
+            public void writeObject(CellMessage message) throws IOException
+            {
+                /* Queue a message while the writer is still scheduled, so
+                 * the sender does not schedule a new writer.
+                 */
+                Thread sender = new Thread(() -> {
+                    try {
+                        queue.add(late);
+                    } catch (IOException | InterruptedException e) {
+                        fail(e.toString());
+                    }
+                });
+                sender.start();
+                try {
+                    sender.join();
+                } catch (InterruptedException e) {
+                    throw new IOException(e);
+                }
+                throw new IOException("Broken pipe");
+            }
+
+            @Override
+            public void flush()
+            {
+            }
+        }, 100, 10, Thread::new, handler);
+
+        queue.add(messages.get(0));
+        assertTrue(failed.await(1, TimeUnit.SECONDS));
+        queue.close(1000);
+
+        assertThat(failures.get(), is(1));
+        assertThat(undelivered, contains(messages.get(0), late));
+        assertThat(queue.size(), is(0));
+
+        try {
+            queue.add(messages.get(1));
+            fail("Closed queue accepted a message");
+        } catch (IOException expected) {
+        }
+    }
+}
@@ -7,6 +7,8 @@ import java.io.ByteArrayOutputStream;
 import java.io.DataInputStream;
 import java.io.DataOutputStream;
 import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
 
 import static org.hamcrest.Matchers.*;
 import static org.junit.Assert.assertThat;
@@ -37,6 +39,53 @@ public class CellMessageTest
         assertThat(decoded.getTtl(), is(message.getTtl()));
     }
 
+    @Test
+    public void shouldDecodeCompactMessages() throws Exception
+    {
+        ArrayList<Object> payload = new ArrayList<>(Arrays.asList("payload", 42L, new CellPath("foo", "bar")));
+        CellMessage message = new CellMessage(new CellPath("foo", "bar"), payload);
+        CellMessage encoded = message.encode(SerializationFormat.COMPACT);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        encoded.writeTo(new DataOutputStream(out));
+        CellMessage decoded = CellMessage.createFrom(new DataInputStream(new ByteArrayInputStream(out.toByteArray()))).decode();
+
+        assertThat(decoded.getUOID(), is(message.getUOID()));
+        assertThat(decoded.getMessageObject(), is((Serializable) payload));
+    }
+
+    @Test
+    public void shouldDetectSerializationFormat() throws Exception
+    {
+        CellMessage message = new CellMessage(new CellPath("foo", "bar"), "payload");
+
+        assertThat(message.encode(SerializationFormat.JAVA).getSerializationFormat(), is(SerializationFormat.JAVA));
+        assertThat(message.encode(SerializationFormat.COMPACT).getSerializationFormat(), is(SerializationFormat.COMPACT));
+    }
+
+    @Test
+    public void shouldEncodeCompactMessagesWithFewerBytes() throws Exception
+    {
+        CellMessage message = new CellMessage(new CellPath("foo", "bar"),
+                                              new CellDomainInfo("dCacheDomain", "5.0.0", CellDomainRole.CORE));
+
+        assertThat(encodedSize(message.encode(SerializationFormat.COMPACT)),
+                   is(lessThan(encodedSize(message.encode(SerializationFormat.JAVA)))));
+    }
+
+    @Test(expected = SerializationException.class)
+    public void shouldRejectUnknownSerializationFormat() throws Exception
+    {
+        SerializationFormat.of(new byte[] { 0x00, 0x01 });
+    }
+
+    private static int encodedSize(CellMessage message) throws Exception
+    {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        message.writeTo(new DataOutputStream(out));
+        return out.size();
+    }
+
     @Test(expected = IllegalStateException.class)
     public void shouldFailToSerializedUnencodedMessages() throws Exception
     {
@@ -0,0 +1,64 @@
+package dmg.cells.nucleus;
+
+import org.junit.Test;
+
+import static dmg.cells.nucleus.CellNucleus.adjustMessageThreads;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+public class CellNucleusTest
+{
+    private static final int MIN = 2;
+    private static final int MAX = 20;
+    private static final long TARGET = 100;
+
+    @Test
+    public void shouldGrowByAQuarterIfQueueTimeExceedsTarget()
+    {
+        assertThat(adjustMessageThreads(8, MIN, MAX, TARGET, 1000, 150, false), is(10));
+    }
+
+    @Test
+    public void shouldGrowByAtLeastOneThread()
+    {
+        assertThat(adjustMessageThreads(2, MIN, MAX, TARGET, 1000, 150, false), is(3));
+    }
+
+    @Test
+    public void shouldNotGrowBeyondMaximum()
+    {
+        assertThat(adjustMessageThreads(18, MIN, MAX, TARGET, 1000, 150, false), is(MAX));
+        assertThat(adjustMessageThreads(MAX, MIN, MAX, TARGET, 1000, 150, false), is(MAX));
+    }
+
+    @Test
+    public void shouldKeepSizeIfQueueTimeIsNearTarget()
+    {
+        assertThat(adjustMessageThreads(8, MIN, MAX, TARGET, 1000, TARGET, false), is(8));
+        assertThat(adjustMessageThreads(8, MIN, MAX, TARGET, 1000, TARGET / 4, false), is(8));
+    }
+
+    @Test
+    public void shouldShrinkByOneIfQueueTimeIsWellBelowTarget()
+    {
+        assertThat(adjustMessageThreads(8, MIN, MAX, TARGET, 1000, 10, false), is(7));
+    }
+
+    @Test
+    public void shouldNotShrinkBelowMinimum()
+    {
+        assertThat(adjustMessageThreads(MIN, MIN, MAX, TARGET, 1000, 0, true), is(MIN));
+    }
+
+    @Test
+    public void shouldShrinkIfIdle()
+    {
+        assertThat(adjustMessageThreads(8, MIN, MAX, TARGET, 0, 0, true), is(7));
+    }
+
+    @Test
+    public void shouldKeepSizeIfNoMessageWasDeliveredButMessagesAreQueued()
+    {
+        assertThat(adjustMessageThreads(8, MIN, MAX, TARGET, 0, 0, false), is(8));
+    }
+}
@@ -0,0 +1,96 @@
+package dmg.cells.nucleus;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.anyOf;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.arrayWithSize;
+import static org.junit.Assert.assertThat;
+
+public class CellRoutingTableTest
+{
+    private CellRoutingTable table;
+
+    @Before
+    public void setUp()
+    {
+        table = new CellRoutingTable();
+    }
+
+    @Test
+    public void shouldFindExactRoute()
+    {
+        CellRoute route = new CellRoute("a@b", "gateway@local", CellRoute.EXACT);
+        table.add(route);
+
+        assertThat(table.find(new CellAddressCore("a", "b"), true), is(route));
+        assertThat(table.find(new CellAddressCore("a", "c"), true), is(nullValue()));
+    }
+
+    @Test
+    public void shouldFindWellKnownRoutes()
+    {
+        CellRoute local = new CellRoute("PoolManager", "PoolManager@dCacheDomain", CellRoute.QUEUE);
+        CellRoute remote = new CellRoute("PoolManager", "*@dCacheDomain", CellRoute.QUEUE);
+        table.add(local);
+        table.add(remote);
+
+        CellAddressCore address = new CellAddressCore("PoolManager");
+        assertThat(table.find(address, false), is(local));
+        assertThat(table.find(address, true), anyOf(is(local), is(remote)));
+
+        table.delete(local);
+        assertThat(table.find(address, false), is(nullValue()));
+        assertThat(table.find(address, true), is(remote));
+    }
+
+    @Test
+    public void shouldFallBackToDomainAndDefaultRoutes()
+    {
+        CellRoute domain = new CellRoute("b", "*@b", CellRoute.DOMAIN);
+        CellRoute defaultRoute = new CellRoute("", "*@core", CellRoute.DEFAULT);
+        table.add(domain);
+        table.add(defaultRoute);
+
+        assertThat(table.find(new CellAddressCore("a", "b"), true), is(domain));
+        assertThat(table.find(new CellAddressCore("a", "c"), true), is(defaultRoute));
+        assertThat(table.hasDefaultRoute(), is(true));
+    }
+
+    @Test
+    public void shouldFindTopicRoutes()
+    {
+        CellRoute route1 = new CellRoute("topic", "a@b", CellRoute.TOPIC);
+        CellRoute route2 = new CellRoute("topic", "c@d", CellRoute.TOPIC);
+        table.add(route1);
+        table.add(route2);
+
+        assertThat(table.findTopicRoutes(new CellAddressCore("topic")), containsInAnyOrder(route1, route2));
+        assertThat(table.findTopicRoutes(new CellAddressCore("other")), is(empty()));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectDuplicateRoutes()
+    {
+        table.add(new CellRoute("a@b", "gateway@local", CellRoute.EXACT));
+        table.add(new CellRoute("a@b", "gateway@local", CellRoute.EXACT));
+    }
+
+    @Test
+    public void shouldDeleteAllRoutesOfTarget()
+    {
+        table.add(new CellRoute("a@b", "*@b", CellRoute.EXACT));
+        table.add(new CellRoute("PoolManager", "*@b", CellRoute.QUEUE));
+        table.add(new CellRoute("topic", "*@b", CellRoute.TOPIC));
+        table.add(new CellRoute("b", "*@b", CellRoute.DOMAIN));
+        table.add(new CellRoute("", "*@c", CellRoute.DEFAULT));
+
+        assertThat(table.delete(new CellAddressCore("*", "b")).size(), is(4));
+        assertThat(table.getRoutingList(), arrayWithSize(1));
+        assertThat(table.findTopicRoutes(new CellAddressCore("topic")), is(empty()));
+    }
+}
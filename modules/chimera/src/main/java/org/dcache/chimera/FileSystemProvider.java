@@ -178,6 +178,13 @@ public interface FileSystemProvider extends Closeable {
     List<FsInode> path2inodes(String path, FsInode startFrom)
         throws ChimeraFsException;
 
+    /**
+     * Returns the inodes with the given ids using a small number of set-based
+     * queries. The stat cache of the returned inodes is pre-filled. Ids that
+     * do not exist are skipped.
+     */
+    List<FsInode> ids2inodes(Collection<String> ids) throws ChimeraFsException;
+
     FsInode inodeOf(FsInode parent, String name, StatCacheOption stat)
             throws ChimeraFsException;
 
@@ -208,6 +215,15 @@ public interface FileSystemProvider extends Closeable {
      */
     Collection<Link> find(FsInode inode) throws ChimeraFsException;
 
+    /**
+     * Bulk variant of {@link #find(FsInode)} that only returns the parent
+     * directories. For files with hard links, one of the parents is
+     * returned. Inodes without a parent are absent from the result.
+     *
+     * @return map from inode number to parent directory
+     */
+    Map<Long, FsInode> getParents(Collection<FsInode> inodes) throws ChimeraFsException;
+
     void setInodeAttributes(FsInode inode, int level, Stat stat)
             throws ChimeraFsException;
 
@@ -251,6 +267,15 @@ public interface FileSystemProvider extends Closeable {
     List<StorageLocatable> getInodeLocations(FsInode inode)
             throws ChimeraFsException;
 
+    /**
+     * Bulk variant of {@link #getInodeLocations(FsInode)}. Inodes without
+     * locations are absent from the result.
+     *
+     * @return map from inode number to locations
+     */
+    Map<Long, List<StorageLocatable>> getInodeLocations(Collection<FsInode> inodes)
+            throws ChimeraFsException;
+
     void addInodeLocation(FsInode inode, int type,
                           String location) throws ChimeraFsException;
 
@@ -263,6 +288,16 @@ public interface FileSystemProvider extends Closeable {
 
     Map<String, byte[]> getAllTags(FsInode inode) throws ChimeraFsException;
 
+    /**
+     * Returns the tags of several inodes. Inodes without tags are absent
+     * from the result.
+     *
+     * @param names names of the tags to fetch, or empty to fetch all tags
+     * @return map from inode number to a map of tag names to values
+     */
+    Map<Long, Map<String, byte[]>> getTags(Collection<FsInode> inodes, Collection<String> names)
+            throws ChimeraFsException;
+
     void createTag(FsInode inode, String name)
             throws ChimeraFsException;
 
@@ -307,6 +342,15 @@ public interface FileSystemProvider extends Closeable {
     InodeStorageInformation getStorageInfo(FsInode inode)
             throws ChimeraFsException;
 
+    /**
+     * Bulk variant of {@link #getStorageInfo(FsInode)}. Inodes without
+     * storage information are absent from the result.
+     *
+     * @return map from inode number to storage information
+     */
+    Map<Long, InodeStorageInformation> getStorageInfo(Collection<FsInode> inodes)
+            throws ChimeraFsException;
+
     void setInodeChecksum(FsInode inode, int type,
                           String checksum) throws ChimeraFsException;
 
@@ -316,6 +360,15 @@ public interface FileSystemProvider extends Closeable {
     Set<Checksum> getInodeChecksums(FsInode inode)
                     throws ChimeraFsException;
 
+    /**
+     * Bulk variant of {@link #getInodeChecksums(FsInode)}. Inodes without
+     * checksums are absent from the result.
+     *
+     * @return map from inode number to checksums
+     */
+    Map<Long, Set<Checksum>> getInodeChecksums(Collection<FsInode> inodes)
+            throws ChimeraFsException;
+
     String getInfo();
 
     /**
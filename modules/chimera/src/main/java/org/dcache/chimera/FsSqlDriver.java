@@ -16,6 +16,7 @@
  */
 package org.dcache.chimera;
 
+import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
 import com.google.common.io.ByteStreams;
 import com.google.common.primitives.Ints;
@@ -28,6 +29,7 @@ import org.springframework.jdbc.LobRetrievalFailureException;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
 import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.jdbc.support.GeneratedKeyHolder;
 import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.jdbc.support.SQLErrorCodeSQLExceptionTranslator;
@@ -115,6 +117,12 @@ public class FsSqlDriver {
     private static final ServiceLoader<DBDriverProvider> ALL_PROVIDERS
             = ServiceLoader.load(DBDriverProvider.class);
 
+    /**
+     * Maximum number of values bound to a single IN clause by the bulk
+     * queries. Well below the limits of all supported databases.
+     */
+    private static final int MAX_IN_LIST_SIZE = 500;
+
     final JdbcTemplate _jdbc;
 
     private final long _root;
@@ -381,6 +389,22 @@ public class FsSqlDriver {
                 rs -> rs.next() ? toStat(rs) : null);
     }
 
+    /**
+     * Returns the stat of the inodes with the given ids. Inodes that do not
+     * exist are absent from the result.
+     *
+     * @param ids ids of the inodes
+     * @return list of stat objects in no particular order
+     */
+    List<Stat> stat(Collection<String> ids) {
+        List<Stat> stats = new ArrayList<>(ids.size());
+        queryInChunks("SELECT * FROM t_inodes WHERE ipnfsid IN (%s)", ids,
+                      rs -> {
+                          stats.add(toStat(rs));
+                      });
+        return stats;
+    }
+
     public Stat stat(FsInode inode) {
         return stat(inode, 0);
     }
@@ -809,6 +833,26 @@ public class FsSqlDriver {
                 (rs,n) -> new Link(new FsInode(provider, rs.getLong("iparent")), rs.getString("iname")));
     }
 
+    /**
+     * Returns the parent directories of several inodes using set-based
+     * queries. For files with hard links, one of the parents is returned.
+     * Inodes without a parent are absent from the result.
+     *
+     * @param inodes
+     * @return map from inode number to parent directory
+     */
+    Map<Long, FsInode> getParents(Collection<FsInode> inodes) {
+        Map<Long, FsInode> parents = new HashMap<>();
+        if (!inodes.isEmpty()) {
+            FileSystemProvider provider = inodes.iterator().next().getFs();
+            queryInChunks("SELECT ichild,iparent FROM t_dirs WHERE ichild IN (%s)",
+                          inumbers(inodes),
+                          rs -> parents.putIfAbsent(rs.getLong("ichild"),
+                                                    new FsInode(provider, rs.getLong("iparent"))));
+        }
+        return parents;
+    }
+
     boolean setInodeAttributes(FsInode inode, int level, Stat stat) {
         return _jdbc.update(con -> generateAttributeUpdateStatement(con, inode, stat, level)) > 0;
     }
@@ -976,6 +1020,30 @@ public class FsSqlDriver {
                            });
     }
 
+    /**
+     *
+     *  returns the 'online' locations of several inodes using set-based queries.
+     *  Inodes without locations are absent from the result.
+     *
+     * @param inodes
+     * @return map from inode number to locations ordered by priority
+     */
+    Map<Long, List<StorageLocatable>> getInodeLocations(Collection<FsInode> inodes) {
+        Map<Long, List<StorageLocatable>> locations = new HashMap<>();
+        queryInChunks("SELECT inumber,itype,ilocation,ipriority,ictime,iatime FROM t_locationinfo " +
+                      "WHERE inumber IN (%s) AND istate=1 ORDER BY ipriority DESC",
+                      inumbers(inodes),
+                      rs -> {
+                          int type = rs.getInt("itype");
+                          long ctime = rs.getTimestamp("ictime").getTime();
+                          long atime = rs.getTimestamp("iatime").getTime();
+                          int priority = rs.getInt("ipriority");
+                          String location = rs.getString("ilocation");
+                          locations.computeIfAbsent(rs.getLong("inumber"), ino -> new ArrayList<>())
+                                  .add(new StorageGenericLocation(type, priority, location, ctime, atime, true));
+                      });
+        return locations;
+    }
 
     /**
      *
@@ -1063,6 +1131,46 @@ public class FsSqlDriver {
         return tags;
     }
 
+    /**
+     * Returns the tags of several inodes using set-based queries. Inodes
+     * without tags are absent from the result.
+     *
+     * @param inodes
+     * @param names names of the tags to return, or empty for all tags
+     * @return map from inode number to a map of tag names to values
+     */
+    Map<Long, Map<String,byte[]>> getTags(Collection<FsInode> inodes, Collection<String> names) {
+        Map<Long, Map<String,byte[]>> tags = new HashMap<>();
+        RowCallbackHandler handler = rs -> {
+            try (InputStream in = rs.getBinaryStream("ivalue")) {
+                byte[] data = new byte[Ints.saturatedCast(rs.getLong("isize"))];
+                // we get null if filed id NULL, e.g not set
+                if (in != null) {
+                    ByteStreams.readFully(in, data);
+                    tags.computeIfAbsent(rs.getLong("inumber"), ino -> new HashMap<>())
+                            .put(rs.getString("itagname"), data);
+                }
+            } catch (IOException e) {
+                throw new LobRetrievalFailureException(e.getMessage(), e);
+            }
+        };
+        String sql = "SELECT t.inumber, t.itagname, i.ivalue, i.isize " +
+                     "FROM t_tags t JOIN t_tags_inodes i ON t.itagid = i.itagid WHERE t.inumber IN (%s)";
+        if (names.isEmpty()) {
+            queryInChunks(sql, inumbers(inodes), handler);
+        } else {
+            String tagNames = String.join(",", Collections.nCopies(names.size(), "?"));
+            for (List<Long> chunk : Iterables.partition(inumbers(inodes), MAX_IN_LIST_SIZE)) {
+                String parameters = String.join(",", Collections.nCopies(chunk.size(), "?"));
+                List<Object> values = new ArrayList<>(chunk);
+                values.addAll(names);
+                _jdbc.query(String.format(sql + " AND t.itagname IN (%s)", parameters, tagNames),
+                            values.toArray(), handler);
+            }
+        }
+        return tags;
+    }
+
     /**
      * creates a new tag for the inode.
      * the inode becomes the tag origin.
@@ -1457,6 +1565,29 @@ public class FsSqlDriver {
         }
     }
 
+    /**
+     * Returns the storage information of several inodes using set-based
+     * queries. Inodes without storage information are absent from the result.
+     *
+     * @param inodes
+     * @return map from inode number to storage information
+     */
+    Map<Long, InodeStorageInformation> getStorageInfo(Collection<FsInode> inodes) {
+        Map<Long, FsInode> byNumber = inodes.stream().collect(Collectors.toMap(FsInode::ino, i -> i, (a, b) -> a));
+        Map<Long, InodeStorageInformation> storageInfo = new HashMap<>();
+        queryInChunks("SELECT inumber, ihsmName, istorageGroup, istorageSubGroup FROM t_storageinfo WHERE inumber IN (%s)",
+                      byNumber.keySet(),
+                      rs -> {
+                          long ino = rs.getLong("inumber");
+                          String hsmName = rs.getString("ihsmName");
+                          String storageGroup = rs.getString("istoragegroup");
+                          String storageSubGroup = rs.getString("istoragesubgroup");
+                          storageInfo.put(ino, new InodeStorageInformation(byNumber.get(ino), hsmName,
+                                                                           storageGroup, storageSubGroup));
+                      });
+        return storageInfo;
+    }
+
     /**
      * add a checksum value of <i>type</i> to an inode
      *
@@ -1490,6 +1621,26 @@ public class FsSqlDriver {
                            });
     }
 
+    /**
+     * Returns the checksums of several inodes using set-based queries.
+     * Inodes without checksums are absent from the result.
+     *
+     * @param inodes
+     * @return map from inode number to checksums
+     */
+    Map<Long, List<Checksum>> getInodeChecksums(Collection<FsInode> inodes) {
+        Map<Long, List<Checksum>> checksums = new HashMap<>();
+        queryInChunks("SELECT inumber, isum, itype FROM t_inodes_checksum WHERE inumber IN (%s)",
+                      inumbers(inodes),
+                      rs -> {
+                          String checksum = rs.getString("isum");
+                          int type = rs.getInt("itype");
+                          checksums.computeIfAbsent(rs.getLong("inumber"), ino -> new ArrayList<>())
+                                  .add(new Checksum(ChecksumType.getChecksumType(type), checksum));
+                      });
+        return checksums;
+    }
+
     /**
      *
      * @param inode
@@ -1838,4 +1989,22 @@ public class FsSqlDriver {
         preparedStatement.setLong(idx++, inode.ino());
         return preparedStatement;
     }
+
+    private static Collection<Long> inumbers(Collection<FsInode> inodes)
+    {
+        return inodes.stream().map(FsInode::ino).distinct().collect(toList());
+    }
+
+    /**
+     * Executes a query once for every chunk of at most MAX_IN_LIST_SIZE values.
+     * The query must contain a single {@code IN (%s)} clause, which is expanded
+     * to the parameter list of the chunk.
+     */
+    private void queryInChunks(String sql, Collection<?> values, RowCallbackHandler handler)
+    {
+        for (List<?> chunk : Iterables.partition(values, MAX_IN_LIST_SIZE)) {
+            String parameters = String.join(",", Collections.nCopies(chunk.size(), "?"));
+            _jdbc.query(String.format(sql, parameters), chunk.toArray(), handler);
+        }
+    }
 }
@@ -17,8 +17,11 @@
 package org.dcache.chimera;
 
 import com.google.common.base.Throwables;
+import com.google.common.base.Splitter;
+import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.CacheLoader;
+import com.google.common.cache.CacheStats;
 import com.google.common.cache.LoadingCache;
 import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import org.slf4j.Logger;
@@ -32,6 +35,8 @@ import org.springframework.transaction.TransactionException;
 import org.springframework.transaction.TransactionStatus;
 import org.springframework.transaction.TransactionSystemException;
 import org.springframework.transaction.support.DefaultTransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import com.hazelcast.core.HazelcastInstance;
 import com.hazelcast.core.Hazelcast;
 import com.hazelcast.core.IMap;
@@ -42,8 +47,10 @@ import java.io.File;
 import java.io.IOException;
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.EnumSet;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
@@ -52,6 +59,7 @@ import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executor;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
 
 import org.dcache.acl.ACE;
 import org.dcache.acl.enums.RsType;
@@ -136,6 +144,68 @@ public class JdbcFs implements FileSystemProvider {
                     }
             , _fsStatUpdateExecutor));
 
+    /**
+     * Key of the directory entry cache.
+     */
+    private static final class DirEntry
+    {
+        private final long parent;
+        private final String name;
+
+        DirEntry(long parent, String name)
+        {
+            this.parent = parent;
+            this.name = name;
+        }
+
+        @Override
+        public boolean equals(Object o)
+        {
+            if (!(o instanceof DirEntry)) {
+                return false;
+            }
+            DirEntry other = (DirEntry) o;
+            return parent == other.parent && name.equals(other.name);
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return 31 * Long.hashCode(parent) + name.hashCode();
+        }
+    }
+
+    /**
+     * Cache of directory entries to inode numbers used to resolve paths
+     * without a database round trip per path element. Only entries of
+     * inodes that are not symbolic links are cached. Since the type of an
+     * inode never changes, entries may only become stale by renaming or
+     * removing them. Such changes made through this instance invalidate the
+     * affected entries; changes made by other instances are picked up when
+     * the entry expires.
+     */
+    private volatile Cache<DirEntry, Long> _dirEntryCache;
+
+    /**
+     * Number of generation counters of directory entries.
+     */
+    private static final int DIR_ENTRY_GENERATIONS = 1024;
+
+    /**
+     * Generation counters of directory entries, striped by entry name. A
+     * counter is incremented whenever an entry with a name of its stripe is
+     * invalidated. An entry read from the database is only kept in the
+     * cache if its counter did not change since before the read, so an
+     * invalidation racing with a lookup always wins.
+     */
+    private final AtomicLongArray _dirEntryGenerations = new AtomicLongArray(DIR_ENTRY_GENERATIONS);
+
+    private long _dirEntryCacheSize;
+
+    private long _dirEntryCacheTimeout = 10;
+
+    private TimeUnit _dirEntryCacheTimeoutUnit = TimeUnit.SECONDS;
+
     private HazelcastInstance hz;
 
     /* The PNFS ID to inode number mapping.
@@ -164,6 +234,8 @@ public class JdbcFs implements FileSystemProvider {
      */
     private static final int MAX_NAME_LEN = 255;
 
+    private static final Splitter PATH_SPLITTER = Splitter.on('/').omitEmptyStrings();
+
     public JdbcFs(DataSource dataSource, PlatformTransactionManager txManager) throws SQLException, ChimeraFsException
     {
         this(dataSource, txManager, 0);
@@ -183,6 +255,108 @@ public class JdbcFs implements FileSystemProvider {
 
         _idCache = hz.getMap("inumber-to-pnfsid");
         _inoCache = hz.getMap("pnfsid-to-inumber");
+
+        _dirEntryCache = buildDirEntryCache();
+    }
+
+    public void setDirectoryEntryCacheSize(long size)
+    {
+        _dirEntryCacheSize = size;
+        _dirEntryCache = buildDirEntryCache();
+    }
+
+    public void setDirectoryEntryCacheTimeout(long timeout)
+    {
+        _dirEntryCacheTimeout = timeout;
+        _dirEntryCache = buildDirEntryCache();
+    }
+
+    public void setDirectoryEntryCacheTimeoutUnit(TimeUnit unit)
+    {
+        _dirEntryCacheTimeoutUnit = unit;
+        _dirEntryCache = buildDirEntryCache();
+    }
+
+    public CacheStats getDirectoryEntryCacheStats()
+    {
+        return _dirEntryCache.stats();
+    }
+
+    private Cache<DirEntry, Long> buildDirEntryCache()
+    {
+        return CacheBuilder.newBuilder()
+                .maximumSize(_dirEntryCacheSize)
+                .expireAfterWrite(_dirEntryCacheTimeout, _dirEntryCacheTimeoutUnit)
+                .recordStats()
+                .build();
+    }
+
+    private static int dirEntryStripe(String name)
+    {
+        int h = name.hashCode();
+        return Math.floorMod(h ^ (h >>> 16), DIR_ENTRY_GENERATIONS);
+    }
+
+    /**
+     * Returns the generation of directory entries with the given name. Must
+     * be called before reading such an entry from the database.
+     */
+    private long getDirEntryGeneration(String name)
+    {
+        return _dirEntryGenerations.get(dirEntryStripe(name));
+    }
+
+    /**
+     * Caches a directory entry read from the database. The entry is
+     * dropped again if it was invalidated since {@code generation} was
+     * obtained, as the entry read may already be stale.
+     */
+    private void cacheDirEntry(long parent, String name, long ino, long generation)
+    {
+        DirEntry entry = new DirEntry(parent, name);
+        _dirEntryCache.put(entry, ino);
+        if (getDirEntryGeneration(name) != generation) {
+            _dirEntryCache.invalidate(entry);
+        }
+    }
+
+    /**
+     * Caches a directory entry unless the inode is a symbolic link.
+     */
+    private void cacheDirEntry(FsInode parent, String name, FsInode inode, long generation)
+            throws ChimeraFsException
+    {
+        if (UnixPermission.getType(inode.statCache().getMode()) != UnixPermission.S_IFLNK) {
+            cacheDirEntry(parent.ino(), name, inode.ino(), generation);
+        }
+    }
+
+    private void invalidate(DirEntry entry)
+    {
+        _dirEntryGenerations.incrementAndGet(dirEntryStripe(entry.name));
+        _dirEntryCache.invalidate(entry);
+    }
+
+    /**
+     * Removes a directory entry from the cache. If called within a
+     * transaction, the entry is removed again once the transaction
+     * completes, as other threads may have read the old entry before
+     * the transaction committed.
+     */
+    private void invalidateDirEntry(FsInode parent, String name)
+    {
+        DirEntry entry = new DirEntry(parent.ino(), name);
+        invalidate(entry);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter()
+            {
+                @Override
+                public void afterCompletion(int status)
+                {
+                    invalidate(entry);
+                }
+            });
+        }
     }
 
     private FsInode getWormID() throws ChimeraFsException {
@@ -264,6 +438,7 @@ public class JdbcFs implements FileSystemProvider {
             try {
                 Stat stat = parent.statCache();
                 int group = (stat.getMode() & UnixPermission.S_ISGID) != 0 ? stat.getGid() : gid;
+                invalidateDirEntry(parent, name);
                 inode = _sqlDriver.createFile(parent, name, uid, group, mode, UnixPermission.S_IFLNK);
                 // link is a regular file where content is a reference
                 _sqlDriver.setInodeIo(inode, true);
@@ -296,6 +471,7 @@ public class JdbcFs implements FileSystemProvider {
 
         return inTransaction(status -> {
             try {
+                invalidateDirEntry(parent, name);
                 _sqlDriver.createEntryInParent(parent, name, inode);
                 _sqlDriver.incNlink(inode);
                 _sqlDriver.incNlink(parent);
@@ -400,6 +576,7 @@ public class JdbcFs implements FileSystemProvider {
                 }
 
                 int gid = (parentStat.getMode() & UnixPermission.S_ISGID) != 0 ? parentStat.getGid() : group;
+                invalidateDirEntry(parent, name);
                 FsInode inode = _sqlDriver.createFile(parent, name, owner, gid, mode, type);
                 _sqlDriver.copyAcl(parent, inode, RsType.FILE,
                                    EnumSet.of(INHERIT_ONLY_ACE, DIRECTORY_INHERIT_ACE, FILE_INHERIT_ACE),
@@ -440,6 +617,7 @@ public class JdbcFs implements FileSystemProvider {
                 }
                 Stat stat = parent.statCache();
                 int gid = (stat.getMode() & UnixPermission.S_ISGID) != 0 ? stat.getGid() : group;
+                invalidateDirEntry(parent, name);
                 FsInode inode = _sqlDriver.createFileWithId(parent, id, name, owner, gid, mode, type);
                 _sqlDriver.copyAcl(parent, inode, RsType.FILE,
                                    EnumSet.of(INHERIT_ONLY_ACE, DIRECTORY_INHERIT_ACE, FILE_INHERIT_ACE),
@@ -484,6 +662,7 @@ public class JdbcFs implements FileSystemProvider {
         inTransaction(status -> {
             FsInode parent = path2inode(parentPath);
             String name = filePath.getName();
+            invalidateDirEntry(parent, name);
             FsInode inode = _sqlDriver.inodeOf(parent, name, STAT);
             if (inode == null || !_sqlDriver.remove(parent, name, inode)) {
                 throw new FileNotFoundHimeraFsException(path);
@@ -495,6 +674,7 @@ public class JdbcFs implements FileSystemProvider {
     @Override
     public void remove(FsInode directory, String name, FsInode inode) throws ChimeraFsException {
         inTransaction(status -> {
+            invalidateDirEntry(directory, name);
             if (!_sqlDriver.remove(directory, name, inode)) {
                 throw new FileNotFoundHimeraFsException(name);
             }
@@ -518,6 +698,9 @@ public class JdbcFs implements FileSystemProvider {
             if (inode.isDirectory() && inode.statCache().getNlink() > 2) {
                 throw new DirNotEmptyHimeraFsException("Directory is not empty");
             }
+            for (Link link : _sqlDriver.find(inode)) {
+                invalidateDirEntry(link.getParent(), link.getName());
+            }
             _sqlDriver.remove(inode);
             return null;
         });
@@ -579,6 +762,7 @@ public class JdbcFs implements FileSystemProvider {
                     perm = mode;
                 }
 
+                invalidateDirEntry(parent, name);
                 FsInode inode = _sqlDriver.mkdir(parent, name, owner, gid, perm);
                 _sqlDriver.copyTags(parent, inode);
                 _sqlDriver.copyAcl(parent, inode, RsType.DIR, EnumSet.of(INHERIT_ONLY_ACE),
@@ -621,6 +805,7 @@ public class JdbcFs implements FileSystemProvider {
                     gid = group;
                     perm = mode;
                 }
+                invalidateDirEntry(parent, name);
                 FsInode inode = _sqlDriver.mkdir(parent, name, owner, gid, perm);
                 _sqlDriver.createTags(inode, owner, gid, perm & 0666, tags);
                 _sqlDriver.writeAcl(inode, RsType.DIR, acl);
@@ -639,6 +824,55 @@ public class JdbcFs implements FileSystemProvider {
 
     @Override
     public FsInode path2inode(String path, FsInode startFrom) throws ChimeraFsException {
+        if (_dirEntryCacheSize <= 0) {
+            return lookupPath(path, startFrom);
+        }
+        List<String> elements = PATH_SPLITTER.splitToList(path);
+        if (elements.contains(".") || elements.contains("..")) {
+            return lookupPath(path, startFrom);
+        }
+
+        /* Resolve as much of the path as possible from the cache.
+         */
+        FsInode inode = startFrom;
+        int i = 0;
+        while (i < elements.size()) {
+            Long ino = _dirEntryCache.getIfPresent(new DirEntry(inode.ino(), elements.get(i)));
+            if (ino == null) {
+                break;
+            }
+            inode = new FsInode(this, ino);
+            i++;
+        }
+        if (i == elements.size()) {
+            return inode;
+        }
+
+        /* Resolve the rest with a database lookup and cache the entries
+         * up to the first symbolic link.
+         */
+        List<String> remaining = elements.subList(i, elements.size());
+        long[] generations = new long[remaining.size()];
+        for (int j = 0; j < generations.length; j++) {
+            generations[j] = getDirEntryGeneration(remaining.get(j));
+        }
+        List<FsInode> inodes = _sqlDriver.path2inodes(inode, String.join("/", remaining));
+        if (inodes.isEmpty()) {
+            throw new FileNotFoundHimeraFsException(path);
+        }
+        for (int j = 0; j < remaining.size() && j + 1 < inodes.size(); j++) {
+            FsInode child = inodes.get(j + 1);
+            if (UnixPermission.getType(child.statCache().getMode()) == UnixPermission.S_IFLNK) {
+                break;
+            }
+            cacheDirEntry(inodes.get(j).ino(), remaining.get(j), child.ino(), generations[j]);
+        }
+        inode = inodes.get(inodes.size() - 1);
+        fillIdCaches(inode);
+        return inode;
+    }
+
+    private FsInode lookupPath(String path, FsInode startFrom) throws ChimeraFsException {
         FsInode inode = _sqlDriver.path2inode(startFrom, path);
         if (inode == null) {
             throw new FileNotFoundHimeraFsException(path);
@@ -693,6 +927,17 @@ public class JdbcFs implements FileSystemProvider {
         }
     }
 
+    @Override
+    public List<FsInode> ids2inodes(Collection<String> ids) throws ChimeraFsException {
+        List<FsInode> inodes = new ArrayList<>(ids.size());
+        for (Stat stat : _sqlDriver.stat(ids)) {
+            _inoCache.put(stat.getId(), stat.getIno());
+            _idCache.put(stat.getIno(), stat.getId());
+            inodes.add(new FsInode(this, stat.getIno(), FsInodeType.INODE, 0, stat));
+        }
+        return inodes;
+    }
+
     @Override
     public List<FsInode> path2inodes(String path) throws ChimeraFsException {
         return path2inodes(path, new RootInode(this, _sqlDriver.getRootInumber()));
@@ -929,11 +1174,36 @@ public class JdbcFs implements FileSystemProvider {
             }
         }
 
-        FsInode inode = _sqlDriver.inodeOf(parent, name, cacheOption);
+        if (_dirEntryCacheSize <= 0 || name.equals(".") || name.equals("..")) {
+            FsInode inode = _sqlDriver.inodeOf(parent, name, cacheOption);
+            if (inode == null) {
+                throw new FileNotFoundHimeraFsException(name);
+            }
+            fillIdCaches(inode);
+            inode.setParent(parent);
+            return inode;
+        }
+
+        long generation = getDirEntryGeneration(name);
+        if (cacheOption == NO_STAT) {
+            Long ino = _dirEntryCache.getIfPresent(new DirEntry(parent.ino(), name));
+            if (ino != null) {
+                FsInode inode = new FsInode(this, ino);
+                inode.setParent(parent);
+                return inode;
+            }
+        }
+
+        /* Caching the entry requires the type of the inode. */
+        FsInode inode = _sqlDriver.inodeOf(parent, name, STAT);
         if (inode == null) {
             throw new FileNotFoundHimeraFsException(name);
         }
         fillIdCaches(inode);
+        cacheDirEntry(parent, name, inode, generation);
+        if (cacheOption == NO_STAT) {
+            inode = new FsInode(this, inode.ino());
+        }
         inode.setParent(parent);
         return inode;
     }
@@ -965,6 +1235,11 @@ public class JdbcFs implements FileSystemProvider {
         return _sqlDriver.find(inode);
     }
 
+    @Override
+    public Map<Long, FsInode> getParents(Collection<FsInode> inodes) throws ChimeraFsException {
+        return _sqlDriver.getParents(inodes);
+    }
+
     @Override
     public void setInodeAttributes(FsInode inode, int level, Stat stat) throws ChimeraFsException {
         inTransaction(status -> {
@@ -1071,6 +1346,8 @@ public class JdbcFs implements FileSystemProvider {
                 throw new NotDirChimeraException(destDir);
             }
 
+            invalidateDirEntry(srcDir, source);
+            invalidateDirEntry(destDir, dest);
             FsInode destInode = _sqlDriver.inodeOf(destDir, dest, STAT);
 
             if (destInode != null) {
@@ -1113,6 +1390,11 @@ public class JdbcFs implements FileSystemProvider {
         return _sqlDriver.getInodeLocations(inode);
     }
 
+    @Override
+    public Map<Long, List<StorageLocatable>> getInodeLocations(Collection<FsInode> inodes) throws ChimeraFsException {
+        return _sqlDriver.getInodeLocations(inodes);
+    }
+
     @Override
     public void addInodeLocation(FsInode inode, int type, String location) throws ChimeraFsException {
         inTransaction(status -> {
@@ -1156,6 +1438,12 @@ public class JdbcFs implements FileSystemProvider {
         return _sqlDriver.getAllTags(inode);
     }
 
+    @Override
+    public Map<Long, Map<String, byte[]>> getTags(Collection<FsInode> inodes, Collection<String> names)
+            throws ChimeraFsException {
+        return _sqlDriver.getTags(inodes, names);
+    }
+
     @Override
     public void createTag(FsInode inode, String name) throws ChimeraFsException {
         this.createTag(inode, name, 0, 0, 0644);
@@ -1267,6 +1555,11 @@ public class JdbcFs implements FileSystemProvider {
         return _sqlDriver.getStorageInfo(inode);
     }
 
+    @Override
+    public Map<Long, InodeStorageInformation> getStorageInfo(Collection<FsInode> inodes) throws ChimeraFsException {
+        return _sqlDriver.getStorageInfo(inodes);
+    }
+
     /*
      * inode checksum handling
      */
@@ -1295,6 +1588,13 @@ public class JdbcFs implements FileSystemProvider {
         return new HashSet<>(_sqlDriver.getInodeChecksums(inode));
     }
 
+    @Override
+    public Map<Long, Set<Checksum>> getInodeChecksums(Collection<FsInode> inodes) throws ChimeraFsException {
+        Map<Long, Set<Checksum>> checksums = new HashMap<>();
+        _sqlDriver.getInodeChecksums(inodes).forEach((ino, list) -> checksums.put(ino, new HashSet<>(list)));
+        return checksums;
+    }
+
     /**
      * Get inode's Access Control List. An empty list is returned if there are no ACL assigned
      * to the <code>inode</code>.
@@ -1380,6 +1680,12 @@ public class JdbcFs implements FileSystemProvider {
             sb.append("rootID    : ").append(e.getMessage()).append('\n');
         }
         sb.append("FsId      : ").append(_fsId).append('\n');
+        CacheStats stats = _dirEntryCache.stats();
+        sb.append("Directory entry cache:\n");
+        sb.append("    Size     : ").append(_dirEntryCache.size()).append('\n');
+        sb.append("    Hits     : ").append(stats.hitCount()).append('\n');
+        sb.append("    Misses   : ").append(stats.missCount()).append('\n');
+        sb.append("    Hit rate : ").append(String.format("%.1f%%", stats.hitRate() * 100)).append('\n');
         return sb.toString();
     }
 
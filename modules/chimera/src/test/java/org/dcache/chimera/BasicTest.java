@@ -14,6 +14,8 @@ import org.slf4j.LoggerFactory;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.CountDownLatch;
 import java.nio.charset.StandardCharsets;
 import java.sql.Connection;
@@ -30,13 +32,16 @@ import org.dcache.acl.enums.AceType;
 import org.dcache.acl.enums.RsType;
 import org.dcache.acl.enums.Who;
 import org.dcache.chimera.posix.Stat;
+import org.dcache.chimera.store.InodeStorageInformation;
 import org.dcache.util.Checksum;
 import org.dcache.util.ChecksumType;
 
 import static org.dcache.chimera.FileSystemProvider.StatCacheOption.NO_STAT;
+import static org.hamcrest.Matchers.contains;
 import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.hasEntry;
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.notNullValue;
 import static org.junit.Assert.*;
 
 public class BasicTest extends ChimeraTestCaseHelper {
@@ -700,6 +705,125 @@ public class BasicTest extends ChimeraTestCaseHelper {
         assertHasChecksum(new Checksum(ChecksumType.getChecksumType(1), sum), fileInode);
     }
 
+    @Test
+    public void testBulkLookup() throws Exception {
+        FsInode base = _rootInode.mkdir("junit");
+        FsInode file1 = base.create("file1", 0, 0, 0644);
+        FsInode file2 = base.create("file2", 0, 0, 0644);
+        _fs.setInodeChecksum(file1, 1, "abc");
+        _fs.addInodeLocation(file1, StorageGenericLocation.DISK, "pool1");
+        _fs.addInodeLocation(file2, StorageGenericLocation.DISK, "pool2");
+        _fs.setStorageInfo(file2, new InodeStorageInformation(file2, "osm", "exp", "raw"));
+        _fs.createTag(base, "OSMTemplate");
+        _fs.setTag(base, "OSMTemplate", "StoreName exp".getBytes(StandardCharsets.UTF_8), 0, 13);
+
+        List<FsInode> inodes = _fs.ids2inodes(Lists.newArrayList(file1.getId(), file2.getId(), "0000DEADBEEF"));
+        assertThat(inodes.size(), is(2));
+        assertThat(inodes.get(0).getStatCache(), is(notNullValue()));
+
+        Map<Long, List<StorageLocatable>> locations = _fs.getInodeLocations(inodes);
+        assertThat(locations.get(file1.ino()).get(0).location(), is("pool1"));
+        assertThat(locations.get(file2.ino()).get(0).location(), is("pool2"));
+
+        Map<Long, Set<Checksum>> checksums = _fs.getInodeChecksums(inodes);
+        assertThat(checksums.get(file1.ino()), contains(new Checksum(ChecksumType.getChecksumType(1), "abc")));
+        assertThat(checksums.containsKey(file2.ino()), is(false));
+
+        Map<Long, InodeStorageInformation> storageInfo = _fs.getStorageInfo(inodes);
+        assertThat(storageInfo.get(file2.ino()).storageGroup(), is("exp"));
+        assertThat(storageInfo.containsKey(file1.ino()), is(false));
+
+        Map<Long, Map<String, byte[]>> tags = _fs.getTags(Collections.singleton(base), Collections.singleton("OSMTemplate"));
+        assertThat(new String(tags.get(base.ino()).get("OSMTemplate"), StandardCharsets.UTF_8), is("StoreName exp"));
+        assertThat(_fs.getTags(Collections.singleton(base), Collections.singleton("other")).isEmpty(), is(true));
+    }
+
+    @Test
+    public void testBulkParentLookup() throws Exception {
+        FsInode base = _rootInode.mkdir("junit");
+        FsInode dir = base.mkdir("dir");
+        FsInode file = dir.create("file", 0, 0, 0644);
+
+        Map<Long, FsInode> parents = _fs.getParents(Lists.newArrayList(dir, file));
+        assertThat(parents.size(), is(2));
+        assertThat(parents.get(dir.ino()), is(base));
+        assertThat(parents.get(file.ino()), is(dir));
+    }
+
+    @Test
+    public void testPathLookupIsNotCachedByDefault() throws Exception {
+        FsInode dir = _rootInode.mkdir("a").mkdir("b");
+        FsInode file = dir.create("c", 0, 0, 0644);
+
+        assertEquals(file, _fs.path2inode("/a/b/c"));
+        assertEquals(file, _fs.path2inode("/a/b/c"));
+        assertEquals(0, ((JdbcFs) _fs).getDirectoryEntryCacheStats().hitCount());
+    }
+
+    @Test
+    public void testPathLookupIsCached() throws Exception {
+        ((JdbcFs) _fs).setDirectoryEntryCacheSize(1000);
+        FsInode dir = _rootInode.mkdir("a").mkdir("b");
+        FsInode file = dir.create("c", 0, 0, 0644);
+
+        assertEquals(file, _fs.path2inode("/a/b/c"));
+        long hits = ((JdbcFs) _fs).getDirectoryEntryCacheStats().hitCount();
+        assertEquals(file, _fs.path2inode("/a/b/c"));
+        assertEquals(hits + 3, ((JdbcFs) _fs).getDirectoryEntryCacheStats().hitCount());
+    }
+
+    @Test
+    public void testPathLookupAfterRename() throws Exception {
+        ((JdbcFs) _fs).setDirectoryEntryCacheSize(1000);
+        FsInode dir = _rootInode.mkdir("a");
+        FsInode file = dir.create("c", 0, 0, 0644);
+        assertEquals(file, _fs.path2inode("/a/c"));
+
+        _fs.rename(file, dir, "c", dir, "d");
+
+        assertEquals(file, _fs.path2inode("/a/d"));
+        try {
+            _fs.path2inode("/a/c");
+            fail("renamed entry still resolvable");
+        } catch (FileNotFoundHimeraFsException e) {
+            // OK
+        }
+    }
+
+    @Test
+    public void testPathLookupAfterRemove() throws Exception {
+        ((JdbcFs) _fs).setDirectoryEntryCacheSize(1000);
+        FsInode dir = _rootInode.mkdir("a");
+        FsInode file = dir.create("c", 0, 0, 0644);
+        assertEquals(file, _fs.path2inode("/a/c"));
+
+        _fs.remove(dir, "c", file);
+        FsInode recreated = dir.create("c", 0, 0, 0644);
+
+        assertEquals(recreated, _fs.path2inode("/a/c"));
+    }
+
+    @Test
+    public void testPathLookupAfterRemoveOfHardLinkedInode() throws Exception {
+        ((JdbcFs) _fs).setDirectoryEntryCacheSize(1000);
+        FsInode dir = _rootInode.mkdir("a");
+        FsInode file = dir.create("c", 0, 0, 0644);
+        _fs.createHLink(dir, file, "d");
+        assertEquals(file, _fs.path2inode("/a/c"));
+        assertEquals(file, _fs.path2inode("/a/d"));
+
+        _fs.remove(file);
+
+        for (String path : new String[] { "/a/c", "/a/d" }) {
+            try {
+                _fs.path2inode(path);
+                fail("removed entry still resolvable: " + path);
+            } catch (FileNotFoundHimeraFsException e) {
+                // OK
+            }
+        }
+    }
+
     @Ignore("Functionality not yet written, but desired")
     @Test
     public void testUpdateChecksumDifferTypes() throws Exception {
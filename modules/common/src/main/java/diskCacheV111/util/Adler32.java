@@ -9,6 +9,7 @@
 
 package diskCacheV111.util;
 
+import java.nio.ByteBuffer;
 import java.security.MessageDigest;
 
 /**
@@ -51,6 +52,10 @@ public class Adler32 extends MessageDigest
        _zipAdler.update( data, offset , size ) ;
    }
    @Override
+   protected void engineUpdate( ByteBuffer input ){
+       _zipAdler.update( input ) ;
+   }
+   @Override
    public int engineGetDigestLength(){ return 4 ; }
 
    private byte [] digestAdlerZip(){
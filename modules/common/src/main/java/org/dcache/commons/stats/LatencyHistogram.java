@@ -0,0 +1,102 @@
+package org.dcache.commons.stats;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histogram of latencies with exponentially growing buckets.
+ *
+ * Bucket 0 counts zero values and bucket i &gt; 0 counts values in the
+ * range [2^(i-1), 2^i). Percentiles are therefore approximations with a
+ * relative error of at most a factor of two, which is sufficient to
+ * tell queueing from service problems at a glance. Updates are lock-free.
+ * This class is thread safe.
+ */
+public class LatencyHistogram
+{
+    private static final int BUCKETS = Long.SIZE;
+
+    private final String name;
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    public LatencyHistogram(String name)
+    {
+        this.name = name;
+    }
+
+    public String getName()
+    {
+        return name;
+    }
+
+    /**
+     * Adds a sample. Negative values, typically caused by backwards time
+     * shifts, are counted as zero.
+     */
+    public void update(long value)
+    {
+        long sample = Math.max(value, 0);
+        buckets.incrementAndGet(Long.SIZE - Long.numberOfLeadingZeros(sample));
+        count.increment();
+        sum.add(sample);
+        max.accumulate(sample);
+    }
+
+    public long getCount()
+    {
+        return count.sum();
+    }
+
+    public long getMax()
+    {
+        return max.get();
+    }
+
+    public double getMean()
+    {
+        long n = count.sum();
+        return (n == 0) ? 0 : (double) sum.sum() / n;
+    }
+
+    /**
+     * Returns an upper bound of the given percentile, or zero if there are
+     * no samples.
+     *
+     * @param percentile a value between 0 and 100
+     */
+    public long getPercentile(double percentile)
+    {
+        long[] counts = new long[BUCKETS];
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] = buckets.get(i);
+            total += counts[i];
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(total * percentile / 100);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts[i];
+            if (seen >= rank && counts[i] > 0) {
+                return Math.min((i == 0) ? 0 : (1L << i) - 1, getMax());
+            }
+        }
+        return getMax();
+    }
+
+    public void reset()
+    {
+        for (int i = 0; i < BUCKETS; i++) {
+            buckets.set(i, 0);
+        }
+        count.reset();
+        sum.reset();
+        max.reset();
+    }
+}
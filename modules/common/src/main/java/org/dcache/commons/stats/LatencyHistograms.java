@@ -0,0 +1,99 @@
+package org.dcache.commons.stats;
+
+import com.google.common.collect.Ordering;
+
+import java.lang.reflect.Method;
+import java.util.Formatter;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.dcache.util.Strings.toStringSignature;
+
+/**
+ * A named collection of LatencyHistogram objects organized as a map with
+ * keys of generic type T. Histograms are created on first use.
+ * This class is thread safe.
+ *
+ * @param <T> the type of the keys
+ */
+public class LatencyHistograms<T>
+{
+    private static final Ordering<LatencyHistogram> ORDERING =
+            Ordering.natural().onResultOf(LatencyHistogram::getName);
+
+    private final String name;
+    private final Map<T, LatencyHistogram> histograms = new ConcurrentHashMap<>();
+
+    public LatencyHistograms(String name)
+    {
+        this.name = name;
+    }
+
+    public String getName()
+    {
+        return name;
+    }
+
+    public LatencyHistogram getHistogram(T key)
+    {
+        return histograms.computeIfAbsent(key, k -> new LatencyHistogram(nameOf(k)));
+    }
+
+    public void update(T key, long value)
+    {
+        getHistogram(key).update(value);
+    }
+
+    public void reset()
+    {
+        histograms.values().forEach(LatencyHistogram::reset);
+    }
+
+    @Override
+    public String toString()
+    {
+        return toString("ms");
+    }
+
+    /**
+     * Returns a table with the sample count, mean, median, 90th and 99th
+     * percentile, and maximum of every histogram.
+     */
+    public String toString(String unitSymbol)
+    {
+        StringBuilder sb = new StringBuilder();
+        try (Formatter formatter = new Formatter(sb)) {
+            formatter.format("%-36s %12s %12s %12s %12s %12s %12s",
+                             name, "Samples",
+                             "mean(" + unitSymbol + ')',
+                             "p50(" + unitSymbol + ')',
+                             "p90(" + unitSymbol + ')',
+                             "p99(" + unitSymbol + ')',
+                             "max(" + unitSymbol + ')');
+            for (LatencyHistogram histogram : ORDERING.sortedCopy(histograms.values())) {
+                String aName = histogram.getName();
+                formatter.format("\n  %-34s %,12d %,12.2f %,12d %,12d %,12d %,12d",
+                                 (aName.length() > 34) ? aName.substring(0, 34) : aName,
+                                 histogram.getCount(),
+                                 histogram.getMean(),
+                                 histogram.getPercentile(50),
+                                 histogram.getPercentile(90),
+                                 histogram.getPercentile(99),
+                                 histogram.getMax());
+            }
+        }
+        return sb.toString();
+    }
+
+    private static String nameOf(Object key)
+    {
+        if (key instanceof Class) {
+            return ((Class<?>) key).getSimpleName();
+        } else if (key instanceof Method) {
+            // use '|' as delimiter to be consistent with the other collections
+            return toStringSignature((Method) key, '|');
+        } else {
+            return key.toString();
+        }
+    }
+}
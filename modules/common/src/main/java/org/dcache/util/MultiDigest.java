@@ -0,0 +1,189 @@
+package org.dcache.util;
+
+import com.google.common.util.concurrent.MoreExecutors;
+
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+import static org.dcache.util.ByteUnit.KiB;
+
+/**
+ * Computes several message digests over the same data.
+ *
+ * If there is more than one digest and enough data, an update is spread
+ * over a pool of worker threads: every digest but one is handed to the
+ * pool while the calling thread updates the remaining one. The digests
+ * share the buffer without copying it. An update returns once every
+ * digest has consumed the data, so the caller may reuse the buffer
+ * afterwards. If a worker has not yet picked up a digest by the time the
+ * calling thread is done, the calling thread updates that digest itself.
+ * Thus a busy worker pool never makes an update slower than updating the
+ * digests one after the other.
+ *
+ * The worker pool is provided by the caller. Without one, the calling
+ * thread updates the digests one after the other.
+ *
+ * This class is not thread safe.
+ */
+public class MultiDigest
+{
+    /**
+     * Updates smaller than this are not worth the hand-off to a worker.
+     */
+    private static final int MIN_PARALLEL_UPDATE = KiB.toBytes(64);
+
+    private final List<MessageDigest> _digests;
+    private final Executor _executor;
+
+    /**
+     * Creates an instance that updates the digests in the calling thread.
+     */
+    public MultiDigest(Collection<MessageDigest> digests)
+    {
+        this(digests, MoreExecutors.directExecutor());
+    }
+
+    public MultiDigest(Collection<MessageDigest> digests, Executor executor)
+    {
+        _digests = new ArrayList<>(digests);
+        _executor = executor;
+    }
+
+    public static MultiDigest of(Collection<ChecksumType> types)
+    {
+        return of(types, MoreExecutors.directExecutor());
+    }
+
+    public static MultiDigest of(Collection<ChecksumType> types, Executor executor)
+    {
+        return new MultiDigest(types.stream()
+                                       .map(ChecksumType::createMessageDigest)
+                                       .collect(Collectors.toList()),
+                               executor);
+    }
+
+    public void add(MessageDigest digest)
+    {
+        _digests.add(digest);
+    }
+
+    public List<MessageDigest> getDigests()
+    {
+        return Collections.unmodifiableList(_digests);
+    }
+
+    public boolean isEmpty()
+    {
+        return _digests.isEmpty();
+    }
+
+    /**
+     * Updates all digests with the remaining bytes of the buffer. Upon
+     * return the position of the buffer equals its limit.
+     */
+    public void update(ByteBuffer buffer)
+    {
+        int size = _digests.size();
+        if (size <= 1 || buffer.remaining() < MIN_PARALLEL_UPDATE) {
+            for (MessageDigest digest : _digests) {
+                digest.update(buffer.duplicate());
+            }
+        } else {
+            List<Update> updates = new ArrayList<>(size - 1);
+            CountDownLatch done = new CountDownLatch(size - 1);
+            for (int i = 1; i < size; i++) {
+                Update update = new Update(_digests.get(i), buffer.duplicate(), done);
+                updates.add(update);
+                try {
+                    _executor.execute(update);
+                } catch (RejectedExecutionException ignored) {
+                    // The calling thread will update the digest below
+                }
+            }
+
+            _digests.get(0).update(buffer.duplicate());
+
+            for (Update update : updates) {
+                update.run();
+            }
+            boolean interrupted = false;
+            while (true) {
+                try {
+                    done.await();
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+            for (Update update : updates) {
+                update.rethrow();
+            }
+        }
+        buffer.position(buffer.limit());
+    }
+
+    /**
+     * Completes the digests and returns the resulting checksums. The
+     * digests are reset.
+     */
+    public Set<Checksum> digest()
+    {
+        return _digests.stream()
+                .map(d -> new Checksum(ChecksumType.getChecksumType(d.getAlgorithm()), d.digest()))
+                .collect(Collectors.toSet());
+    }
+
+    /**
+     * Update of a single digest that is executed exactly once, by either a
+     * worker or the thread calling MultiDigest#update.
+     */
+    private static class Update implements Runnable
+    {
+        private final AtomicBoolean _claimed = new AtomicBoolean();
+        private final MessageDigest _digest;
+        private final ByteBuffer _buffer;
+        private final CountDownLatch _done;
+        private volatile RuntimeException _failure;
+
+        Update(MessageDigest digest, ByteBuffer buffer, CountDownLatch done)
+        {
+            _digest = digest;
+            _buffer = buffer;
+            _done = done;
+        }
+
+        @Override
+        public void run()
+        {
+            if (_claimed.compareAndSet(false, true)) {
+                try {
+                    _digest.update(_buffer);
+                } catch (RuntimeException e) {
+                    _failure = e;
+                } finally {
+                    _done.countDown();
+                }
+            }
+        }
+
+        void rethrow()
+        {
+            if (_failure != null) {
+                throw _failure;
+            }
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package org.dcache.util;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+public class MultiDigestTest
+{
+    private static final EnumSet<ChecksumType> TYPES =
+            EnumSet.of(ChecksumType.ADLER32, ChecksumType.MD5_TYPE);
+
+    private static Checksum[] expected(byte[] data)
+    {
+        return TYPES.stream()
+                .map(ChecksumType::createMessageDigest)
+                .peek(d -> d.update(data))
+                .map(Checksum::new)
+                .toArray(Checksum[]::new);
+    }
+
+    private static byte[] randomData(int size)
+    {
+        byte[] data = new byte[size];
+        new Random(42).nextBytes(data);
+        return data;
+    }
+
+    @Test
+    public void shouldComputeAllDigestsOfSmallBuffer()
+    {
+        byte[] data = randomData(1000);
+        MultiDigest digest = MultiDigest.of(TYPES);
+        ByteBuffer buffer = ByteBuffer.wrap(data);
+
+        digest.update(buffer);
+
+        assertThat(buffer.remaining(), is(0));
+        assertThat(digest.digest(), containsInAnyOrder(expected(data)));
+    }
+
+    @Test
+    public void shouldComputeAllDigestsOfLargeBuffers()
+    {
+        byte[] data = randomData(1024 * 1024);
+        MultiDigest digest = MultiDigest.of(TYPES);
+
+        for (int offset = 0; offset < data.length; offset += 256 * 1024) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(256 * 1024);
+            buffer.put(data, offset, 256 * 1024).flip();
+            digest.update(buffer);
+            assertThat(buffer.remaining(), is(0));
+        }
+
+        assertThat(digest.digest(), containsInAnyOrder(expected(data)));
+    }
+
+    @Test
+    public void shouldComputeAllDigestsOfLargeBuffersWithWorkers()
+    {
+        byte[] data = randomData(1024 * 1024);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            MultiDigest digest = MultiDigest.of(TYPES, executor);
+
+            for (int offset = 0; offset < data.length; offset += 256 * 1024) {
+                ByteBuffer buffer = ByteBuffer.wrap(data, offset, 256 * 1024);
+                digest.update(buffer);
+                assertThat(buffer.remaining(), is(0));
+            }
+
+            assertThat(digest.digest(), containsInAnyOrder(expected(data)));
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void shouldUpdateInCallingThreadWhenExecutorDoesNotRun()
+    {
+        byte[] data = randomData(512 * 1024);
+        Executor idle = r -> {};
+        MultiDigest digest = new MultiDigest(Arrays.asList(TYPES.stream()
+                .map(ChecksumType::createMessageDigest).toArray(MessageDigest[]::new)), idle);
+
+        digest.update(ByteBuffer.wrap(data));
+
+        Set<Checksum> checksums = digest.digest();
+        assertThat(checksums, containsInAnyOrder(expected(data)));
+    }
+}
@@ -1,6 +1,8 @@
 package org.dcache.chimera.namespace;
 
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Sets;
 import org.springframework.web.util.UriComponentsBuilder;
 import org.springframework.web.util.UriUtils;
 
@@ -9,6 +11,7 @@ import java.net.URI;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.StringTokenizer;
 
 import diskCacheV111.util.AccessLatency;
@@ -25,11 +28,18 @@ import org.dcache.chimera.posix.Stat;
 
 public class ChimeraEnstoreStorageInfoExtractor extends ChimeraHsmStorageInfoExtractor {
 
+    private static final Set<String> TAG_NAMES = ImmutableSet.of("OSMTemplate", "storage_group", "file_family");
+
     public ChimeraEnstoreStorageInfoExtractor(AccessLatency defaultAL,
                                               RetentionPolicy defaultRP) {
         super(defaultAL,defaultRP);
     }
 
+    @Override
+    public Set<String> getTagNames() {
+        return Sets.union(super.getTagNames(), TAG_NAMES);
+    }
+
     @Override
     public StorageInfo getFileStorageInfo(ExtendedInode inode) throws CacheException {
         EnstoreStorageInfo info;
@@ -1,12 +1,14 @@
 package org.dcache.chimera.namespace;
 
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.net.URI;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 import diskCacheV111.util.AccessLatency;
 import diskCacheV111.util.CacheException;
@@ -28,6 +30,10 @@ public abstract class ChimeraHsmStorageInfoExtractor implements
     private static final Logger LOGGER =
             LoggerFactory.getLogger(ChimeraHsmStorageInfoExtractor.class);
 
+    private static final Set<String> TAG_NAMES =
+            ImmutableSet.of("AccessLatency", "RetentionPolicy", "WriteToken",
+                            "hsmInstance", "cacheClass", "Path");
+
     /**
      * default access latency for newly created files
      */
@@ -187,6 +193,11 @@ public abstract class ChimeraHsmStorageInfoExtractor implements
         return info;
     }
 
+    @Override
+    public Set<String> getTagNames() {
+        return TAG_NAMES;
+    }
+
     public abstract StorageInfo getFileStorageInfo(ExtendedInode inode) throws CacheException;
     public abstract StorageInfo getDirStorageInfo(ExtendedInode inode) throws CacheException;
 
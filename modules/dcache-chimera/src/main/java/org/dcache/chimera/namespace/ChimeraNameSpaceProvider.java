@@ -105,6 +105,12 @@ public class ChimeraNameSpaceProvider
 
     private static final int INHERIT_MODE = -1;
 
+    /**
+     * Number of directory entries for which attributes are fetched with
+     * bulk queries when listing a directory.
+     */
+    private static final int LIST_BATCH_SIZE = 100;
+
     public static final String TAG_EXPECTED_SIZE = "ExpectedSize";
     public static final String TAG_PATH = "Path";
     public static final String TAG_WRITE_TOKEN = "WriteToken";
@@ -1017,6 +1023,73 @@ public class ChimeraNameSpaceProvider
         }
     }
 
+    @Override
+    public Map<PnfsId, FileAttributes> getFileAttributes(Subject subject, Collection<PnfsId> pnfsIds,
+                                                         Set<FileAttribute> attr)
+        throws CacheException
+    {
+        try {
+            boolean isRoot = Subjects.isRoot(subject);
+            Set<FileAttribute> required = EnumSet.noneOf(FileAttribute.class);
+            if (!isRoot) {
+                required.addAll(_permissionHandler.getRequiredAttributes());
+            }
+            required.addAll(attr);
+
+            List<String> ids = pnfsIds.stream().map(PnfsId::toString).collect(Collectors.toList());
+            List<ExtendedInode> inodes = new ArrayList<>(ids.size());
+            for (FsInode inode : _fs.ids2inodes(ids)) {
+                inodes.add(new ExtendedInode(_fs, inode));
+            }
+            prefetch(inodes, required);
+
+            Map<PnfsId, FileAttributes> result = Maps.newHashMapWithExpectedSize(inodes.size());
+            for (ExtendedInode inode : inodes) {
+                try {
+                    FileAttributes fileAttributes = getFileAttributes(inode, required);
+                    if (isRoot || _permissionHandler.canGetAttributes(subject, fileAttributes, attr) == ACCESS_ALLOWED) {
+                        result.put(inode.getPnfsId(), fileAttributes);
+                    }
+                } catch (FileNotFoundHimeraFsException e) {
+                    /* Not an error; files may be deleted during the lookup.
+                     */
+                }
+            }
+            return result;
+        } catch (IOException e) {
+            throw new CacheException(CacheException.UNEXPECTED_SYSTEM_EXCEPTION,
+                                     e.getMessage());
+        }
+    }
+
+    /**
+     * Fills the caches of the given inodes with the data needed for the given
+     * attributes using set-based queries, thus avoiding a database round trip
+     * per inode and attribute.
+     */
+    private void prefetch(List<ExtendedInode> inodes, Set<FileAttribute> attr)
+            throws ChimeraFsException
+    {
+        if (inodes.isEmpty()) {
+            return;
+        }
+        if (attr.contains(LOCATIONS)) {
+            ExtendedInode.prefetchLocations(_fs, inodes);
+        }
+        if (attr.contains(CHECKSUM)) {
+            ExtendedInode.prefetchChecksums(_fs, inodes);
+        }
+        if (attr.contains(STORAGEINFO) || attr.contains(STORAGECLASS) ||
+                attr.contains(CACHECLASS) || attr.contains(HSM)) {
+            ExtendedInode.prefetchStorageInfo(_fs, inodes);
+        }
+        if (attr.contains(ACCESS_LATENCY) || attr.contains(RETENTION_POLICY) ||
+                attr.contains(STORAGEINFO) || attr.contains(STORAGECLASS) ||
+                attr.contains(CACHECLASS) || attr.contains(HSM)) {
+            ExtendedInode.prefetchDirectoryTags(_fs, inodes, _extractor.getTagNames());
+        }
+    }
+
     @Override
     public FileAttributes setFileAttributes(Subject subject, PnfsId pnfsId,
                                   FileAttributes attr, Set<FileAttribute> acquire)
@@ -1172,30 +1245,34 @@ public class ChimeraNameSpaceProvider
             }
 
             int counter = 0;
+            List<String> names = new ArrayList<>(LIST_BATCH_SIZE);
+            List<ExtendedInode> inodes = new ArrayList<>(LIST_BATCH_SIZE);
             try (DirectoryStreamB<HimeraDirectoryEntry> dirStream = dir
                     .newDirectoryStream()) {
                 for (HimeraDirectoryEntry entry : dirStream) {
-                    try {
-                        String name = entry.getName();
-                        if (!name.equals(".") && !name.equals("..") &&
-                                (pattern == null || pattern.matcher(name)
-                                        .matches()) &&
-                                range.contains(counter++)) {
-                            // FIXME: actually, HimeraDirectoryEntry
-                            // already contains most of attributes
-                            FileAttributes fa =
-                                    attrs.isEmpty()
-                                            ? null
-                                            : getFileAttributes(new ExtendedInode(_fs, entry.getInode()), attrs);
-                            handler.addEntry(name, fa);
+                    String name = entry.getName();
+                    if (!name.equals(".") && !name.equals("..") &&
+                            (pattern == null || pattern.matcher(name)
+                                    .matches()) &&
+                            range.contains(counter++)) {
+                        if (attrs.isEmpty()) {
+                            handler.addEntry(name, null);
+                        } else {
+                            /* The entry already carries the stat of the
+                             * inode and shares the tag cache of the
+                             * directory. Everything else is fetched in
+                             * batches.
+                             */
+                            names.add(name);
+                            inodes.add(new ExtendedInode(dir, entry.getInode()));
+                            if (inodes.size() == LIST_BATCH_SIZE) {
+                                addEntries(names, inodes, attrs, handler);
+                            }
                         }
-                    } catch (FileNotFoundHimeraFsException e) {
-                        /* Not an error; files may be deleted during the
-                         * list operation.
-                         */
                     }
                 }
             }
+            addEntries(names, inodes, attrs, handler);
 
         } catch (FileNotFoundHimeraFsException e) {
             throw new FileNotFoundCacheException("No such file or directory: " + path);
@@ -1205,6 +1282,24 @@ public class ChimeraNameSpaceProvider
         }
     }
 
+    private void addEntries(List<String> names, List<ExtendedInode> inodes,
+                            Set<FileAttribute> attrs, ListHandler handler)
+            throws ChimeraFsException, CacheException
+    {
+        prefetch(inodes, attrs);
+        for (int i = 0; i < inodes.size(); i++) {
+            try {
+                handler.addEntry(names.get(i), getFileAttributes(inodes.get(i), attrs));
+            } catch (FileNotFoundHimeraFsException e) {
+                /* Not an error; files may be deleted during the
+                 * list operation.
+                 */
+            }
+        }
+        names.clear();
+        inodes.clear();
+    }
+
     private ExtendedInode mkdir(Subject subject, ExtendedInode parent, String name, int uid, int gid, int mode)
             throws ChimeraFsException, CacheException
     {
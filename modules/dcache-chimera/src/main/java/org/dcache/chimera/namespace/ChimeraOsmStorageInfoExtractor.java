@@ -1,10 +1,13 @@
 package org.dcache.chimera.namespace;
 
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Sets;
 
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.util.HashMap;
+import java.util.Set;
 import java.util.StringTokenizer;
 
 import diskCacheV111.util.AccessLatency;
@@ -23,11 +26,18 @@ import org.dcache.chimera.store.InodeStorageInformation;
 
 public class ChimeraOsmStorageInfoExtractor extends ChimeraHsmStorageInfoExtractor {
 
+    private static final Set<String> TAG_NAMES = ImmutableSet.of("OSMTemplate", "sGroup");
+
     public ChimeraOsmStorageInfoExtractor(AccessLatency defaultAL,
                                           RetentionPolicy defaultRP) {
         super(defaultAL,defaultRP);
     }
 
+    @Override
+    public Set<String> getTagNames() {
+        return Sets.union(super.getTagNames(), TAG_NAMES);
+    }
+
     @Override
     public StorageInfo getFileStorageInfo(ExtendedInode inode) throws CacheException {
 
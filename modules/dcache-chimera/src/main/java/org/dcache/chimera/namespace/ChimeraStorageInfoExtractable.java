@@ -1,5 +1,7 @@
 package org.dcache.chimera.namespace;
 
+import java.util.Set;
+
 import diskCacheV111.util.AccessLatency;
 import diskCacheV111.util.CacheException;
 import diskCacheV111.util.RetentionPolicy;
@@ -50,6 +52,13 @@ public interface ChimeraStorageInfoExtractable {
      * @throws CacheException if the StorageInfo could not be written
      */
     void setStorageInfo(FsInode inode, StorageInfo storageInfo) throws CacheException;
+
+    /**
+     * Returns the names of the directory tags read by this extractor.
+     *
+     * @return The tag names
+     */
+    Set<String> getTagNames();
 }
 
 
@@ -19,16 +19,23 @@ package org.dcache.chimera.namespace;
 
 import com.google.common.base.Charsets;
 import com.google.common.base.Throwables;
+import com.google.common.collect.ArrayListMultimap;
 import com.google.common.collect.ImmutableCollection;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.ListMultimap;
 import com.google.common.io.ByteSource;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 import diskCacheV111.util.FsPath;
 import diskCacheV111.util.PnfsId;
@@ -56,6 +63,8 @@ import org.dcache.util.Checksum;
 public class ExtendedInode extends FsInode
 {
     private ImmutableMap<String,byte[]> tags;
+    private ImmutableSet<String> prefetchedTagNames = ImmutableSet.of();
+    private ImmutableMap<String,byte[]> prefetchedTags;
     private ImmutableList<Checksum> checksums;
     private ImmutableList<StorageLocatable> locations;
     private ImmutableMap<String, String> flags;
@@ -64,7 +73,7 @@ public class ExtendedInode extends FsInode
     private InodeStorageInformation storageInfo;
     private Optional<ExtendedInode> parent;
 
-    private ExtendedInode(ExtendedInode parent, FsInode inode)
+    ExtendedInode(ExtendedInode parent, FsInode inode)
     {
         this(parent.getFs(), inode);
         this.parent = Optional.of(parent);
@@ -142,6 +151,107 @@ public class ExtendedInode extends FsInode
         return parent.orElse(null);
     }
 
+    /**
+     * Fills the location cache of several inodes using set-based queries.
+     */
+    public static void prefetchLocations(FileSystemProvider fs, Collection<ExtendedInode> inodes)
+            throws ChimeraFsException
+    {
+        Map<Long, List<StorageLocatable>> locations =
+                fs.getInodeLocations(Collections.<FsInode>unmodifiableCollection(inodes));
+        for (ExtendedInode inode : inodes) {
+            inode.locations = ImmutableList.copyOf(locations.getOrDefault(inode.ino(), ImmutableList.of()));
+        }
+    }
+
+    /**
+     * Fills the checksum cache of several inodes using set-based queries.
+     */
+    public static void prefetchChecksums(FileSystemProvider fs, Collection<ExtendedInode> inodes)
+            throws ChimeraFsException
+    {
+        Map<Long, Set<Checksum>> checksums =
+                fs.getInodeChecksums(Collections.<FsInode>unmodifiableCollection(inodes));
+        for (ExtendedInode inode : inodes) {
+            inode.checksums = ImmutableList.copyOf(checksums.getOrDefault(inode.ino(), ImmutableSet.of()));
+        }
+    }
+
+    /**
+     * Fills the storage information cache of several inodes using set-based
+     * queries. Inodes without storage information are left untouched.
+     */
+    public static void prefetchStorageInfo(FileSystemProvider fs, Collection<ExtendedInode> inodes)
+            throws ChimeraFsException
+    {
+        Map<Long, InodeStorageInformation> storageInfo =
+                fs.getStorageInfo(Collections.<FsInode>unmodifiableCollection(inodes));
+        for (ExtendedInode inode : inodes) {
+            InodeStorageInformation info = storageInfo.get(inode.ino());
+            if (info != null) {
+                inode.storageInfo = info;
+            }
+        }
+    }
+
+    /**
+     * Resolves the parent of those non-directory inodes whose parent is not
+     * yet known using set-based queries. Inodes with the same parent share
+     * the parent inode.
+     */
+    private static void prefetchParents(FileSystemProvider fs, Collection<ExtendedInode> inodes)
+            throws ChimeraFsException
+    {
+        List<ExtendedInode> unresolved = new ArrayList<>();
+        for (ExtendedInode inode : inodes) {
+            if (inode.parent == null && !inode.isDirectory()) {
+                unresolved.add(inode);
+            }
+        }
+        if (unresolved.isEmpty()) {
+            return;
+        }
+        Map<Long, FsInode> parents = fs.getParents(Collections.<FsInode>unmodifiableCollection(unresolved));
+        Map<Long, ExtendedInode> shared = new HashMap<>();
+        for (ExtendedInode inode : unresolved) {
+            inode.parent = Optional.ofNullable(parents.get(inode.ino()))
+                    .map(p -> shared.computeIfAbsent(p.ino(), ino -> new ExtendedInode(fs, p)));
+        }
+    }
+
+    /**
+     * Fills the tag cache of the directories of several inodes with the
+     * given tags using set-based queries. The directory of a directory inode
+     * is the inode itself and that of any other inode is its parent.
+     */
+    public static void prefetchDirectoryTags(FileSystemProvider fs, Collection<ExtendedInode> inodes,
+                                             Set<String> names)
+            throws ChimeraFsException
+    {
+        prefetchParents(fs, inodes);
+
+        ListMultimap<Long, ExtendedInode> directories = ArrayListMultimap.create();
+        for (ExtendedInode inode : inodes) {
+            ExtendedInode directory = inode.isDirectory() ? inode : inode.getParent();
+            if (directory != null) {
+                directories.put(directory.ino(), directory);
+            }
+        }
+        if (directories.isEmpty()) {
+            return;
+        }
+        List<FsInode> distinct = new ArrayList<>(directories.keySet().size());
+        for (Long ino : directories.keySet()) {
+            distinct.add(directories.get(ino).get(0));
+        }
+        Map<Long, Map<String, byte[]>> tags = fs.getTags(distinct, names);
+        ImmutableSet<String> tagNames = ImmutableSet.copyOf(names);
+        for (ExtendedInode directory : directories.values()) {
+            directory.prefetchedTagNames = tagNames;
+            directory.prefetchedTags = ImmutableMap.copyOf(tags.getOrDefault(directory.ino(), ImmutableMap.of()));
+        }
+    }
+
     public PnfsId getPnfsId() throws ChimeraFsException
     {
         return new PnfsId(getId());
@@ -158,7 +268,7 @@ public class ExtendedInode extends FsInode
     public ImmutableList<String> getTag(String tag)
     {
         try {
-            byte[] data = getTags().get(tag);
+            byte[] data = prefetchedTagNames.contains(tag) ? prefetchedTags.get(tag) : getTags().get(tag);
             if (data == null || data.length == 0) {
                 return ImmutableList.of();
             }
@@ -1,5 +1,6 @@
 package diskCacheV111.namespace;
 
+import com.google.common.collect.Range;
 import com.google.common.io.Resources;
 import junit.framework.JUnit4TestAdapter;
 import liquibase.Liquibase;
@@ -17,8 +18,13 @@ import java.net.URI;
 import java.net.URL;
 import java.sql.Connection;
 import java.sql.DriverManager;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.EnumSet;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
 
@@ -44,9 +50,11 @@ import org.dcache.chimera.FileNotFoundHimeraFsException;
 import org.dcache.chimera.FileSystemProvider;
 import org.dcache.chimera.FsFactory;
 import org.dcache.chimera.FsInode;
+import org.dcache.chimera.StorageGenericLocation;
 import org.dcache.chimera.UnixPermission;
 import org.dcache.chimera.namespace.ChimeraNameSpaceProvider;
 import org.dcache.chimera.namespace.ChimeraOsmStorageInfoExtractor;
+import org.dcache.chimera.namespace.ExtendedInode;
 import org.dcache.chimera.posix.Stat;
 import org.dcache.namespace.CreateOption;
 import org.dcache.namespace.FileAttribute;
@@ -54,6 +62,7 @@ import org.dcache.namespace.PosixPermissionHandler;
 import org.dcache.util.Checksum;
 import org.dcache.util.ChecksumType;
 import org.dcache.vehicles.FileAttributes;
+import org.dcache.vehicles.PnfsBulkGetFileAttributes;
 import org.dcache.vehicles.PnfsGetFileAttributes;
 import org.dcache.vehicles.PnfsSetFileAttributes;
 
@@ -62,8 +71,17 @@ import static diskCacheV111.util.RetentionPolicy.CUSTODIAL;
 import static org.dcache.namespace.FileAttribute.*;
 import static org.dcache.namespace.FileType.DIR;
 import static org.dcache.namespace.FileType.REGULAR;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsInAnyOrder;
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.notNullValue;
 import static org.junit.Assert.*;
+import static org.mockito.AdditionalAnswers.delegatesTo;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyCollectionOf;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 
 public class PnfsManagerTest
 {
@@ -555,6 +573,82 @@ public class PnfsManagerTest
             CacheException.FILE_NOT_FOUND, message.getReturnCode() );
     }
 
+    @Test
+    public void testBulkGetFileAttributes() throws Exception {
+        FsInode dir = _fs.mkdir("/bulk");
+        FsInode file1 = _fs.createFile(dir, "file1");
+        FsInode file2 = _fs.createFile(dir, "file2");
+        _fs.setInodeChecksum(file1, ChecksumType.ADLER32.getType(), "12345678");
+        PnfsId id1 = new PnfsId(file1.statCache().getId());
+        PnfsId id2 = new PnfsId(file2.statCache().getId());
+        PnfsId missing = new PnfsId(FsInode.generateNewID());
+
+        PnfsBulkGetFileAttributes message =
+                new PnfsBulkGetFileAttributes(Arrays.asList(id1, id2, missing),
+                                              EnumSet.of(PNFSID, CHECKSUM, LOCATIONS, STORAGEINFO));
+        _pnfsManager.getFileAttributes(message);
+
+        assertThat(message.getReturnCode(), is(0));
+        assertThat(message.getFileAttributes().keySet(), containsInAnyOrder(id1, id2));
+        assertThat(message.getFileAttributes().get(id1).getChecksums(),
+                   contains(new Checksum(ChecksumType.ADLER32, "12345678")));
+        assertThat(message.getFileAttributes().get(id2).getChecksums().isEmpty(), is(true));
+        assertThat(message.getFileAttributes().get(id2).getStorageInfo(), is(notNullValue()));
+    }
+
+    @Test
+    public void testBulkGetFileAttributesUsesDirectoryTags() throws Exception {
+        FsInode dir = _fs.path2inode("/pnfs/testRoot");
+        PnfsId id1 = new PnfsId(_fs.createFile(dir, "bulkTags1").statCache().getId());
+        PnfsId id2 = new PnfsId(_fs.createFile(dir, "bulkTags2").statCache().getId());
+
+        PnfsBulkGetFileAttributes message =
+                new PnfsBulkGetFileAttributes(Arrays.asList(id1, id2), EnumSet.of(STORAGECLASS));
+        _pnfsManager.getFileAttributes(message);
+
+        assertThat(message.getReturnCode(), is(0));
+        assertThat(message.getFileAttributes().get(id1).getStorageClass(), is("sql:chimera"));
+        assertThat(message.getFileAttributes().get(id2).getStorageClass(), is("sql:chimera"));
+    }
+
+    @Test
+    public void testPrefetchDirectoryTagsLooksUpParentsInBulk() throws Exception {
+        FsInode dir = _fs.path2inode("/pnfs/testRoot");
+        FileSystemProvider fs = mock(FileSystemProvider.class, delegatesTo(_fs));
+        List<ExtendedInode> inodes = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            PnfsId id = new PnfsId(_fs.createFile(dir, "prefetch" + i).statCache().getId());
+            inodes.add(new ExtendedInode(fs, id, FileSystemProvider.StatCacheOption.STAT));
+        }
+
+        ExtendedInode.prefetchDirectoryTags(fs, inodes, Collections.singleton("OSMTemplate"));
+
+        for (ExtendedInode inode : inodes) {
+            assertThat(inode.getParent().ino(), is(dir.ino()));
+            assertThat(inode.getParent().getTag("OSMTemplate"), contains("StoreName sql"));
+        }
+        verify(fs).getParents(anyCollectionOf(FsInode.class));
+        verify(fs, never()).find(any(FsInode.class));
+        verify(fs, never()).getAllTags(any(FsInode.class));
+    }
+
+    @Test
+    public void testListWithAttributesInBatches() throws Exception {
+        FsInode dir = _fs.mkdir("/listbatch");
+        for (int i = 0; i < 250; i++) {
+            FsInode file = _fs.createFile(dir, "file" + i);
+            _fs.addInodeLocation(file, StorageGenericLocation.DISK, "pool" + i);
+        }
+
+        Map<String, FileAttributes> entries = new HashMap<>();
+        _pnfsManager.getNameSpaceProvider().list(Subjects.ROOT, "/listbatch", null, Range.<Integer>all(),
+                                                 EnumSet.of(LOCATIONS, SIZE), entries::put);
+
+        assertThat(entries.size(), is(250));
+        assertThat(entries.get("file42").getLocations(), contains("pool42"));
+        assertThat(entries.get("file242").getLocations(), contains("pool242"));
+    }
+
     @Test
     public void testStorageInfoNoTags() throws Exception {
 
@@ -80,6 +80,13 @@ public class DCapOutputByteBuffer  {
             put(msgBytes,0,msgBytes.length) ;
         _buffer.flip();
     }
+    public void writeSessionId(int sessionId)
+    {
+        _buffer.clear();
+        _buffer.putInt(sessionId).
+            putInt(0) ;
+        _buffer.flip();
+    }
     public void writeDATA_HEADER()
     {
         _buffer.clear();
@@ -87,6 +94,12 @@ public class DCapOutputByteBuffer  {
             putInt(DCapConstants.IOCMD_DATA) ;
         _buffer.flip();
     }
+    public void writeDATA_BLOCK_SIZE(int size)
+    {
+        _buffer.clear();
+        _buffer.putInt(size) ;
+        _buffer.flip();
+    }
     public void writeDATA_TRAILER()
     {
         _buffer.clear();
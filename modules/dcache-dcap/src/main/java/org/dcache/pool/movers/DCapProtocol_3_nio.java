@@ -57,6 +57,12 @@ public class DCapProtocol_3_nio implements MoverProtocol, ChecksumMover, CellArg
      */
     private static final long MAX_REQUEST_SIZE = MiB.toBytes(8);
 
+    /**
+     * I/O buffers shared by all dcap movers. Buffers are returned to the
+     * pool when a mover finishes.
+     */
+    private static final DirectBufferPool BUFFERS = new DirectBufferPool(MiB.toBytes(64));
+
     private final Map<String,Object> _context;
     private final CellEndpoint     _cell;
 
@@ -98,13 +104,20 @@ public class DCapProtocol_3_nio implements MoverProtocol, ChecksumMover, CellArg
     private void initialiseBuffer(MoverIoBuffer bufferSize) {
         try {
             _bigBuffer = _bigBuffer
-                    == null ? ByteBuffer.allocate(bufferSize.getIoBufferSize()) :
+                    == null ? BUFFERS.acquire(bufferSize.getIoBufferSize()) :
                         _bigBuffer;
         } catch (OutOfMemoryError om) {
             _bigBuffer = ByteBuffer.allocate(KiB.toBytes(32));
         }
     }
 
+    private void releaseBuffer() {
+        if (_bigBuffer != null) {
+            BUFFERS.release(_bigBuffer);
+            _bigBuffer = null;
+        }
+    }
+
     private MoverIoBuffer prepareBufferSize(StorageInfo storage) {
         MoverIoBuffer bufferSize = new MoverIoBuffer(_defaultBufferSize);
         String tmp;
@@ -326,8 +339,6 @@ public class DCapProtocol_3_nio implements MoverProtocol, ChecksumMover, CellArg
 //        gets the buffervalues of the storageInfo keys
         MoverIoBuffer bufferSize = prepareBufferSize(storage);
         _log.info("Client : Buffer Sizes : {}", bufferSize);
-//        allocates the _bigBuffer
-        initialiseBuffer(bufferSize);
 
         SocketChannel socketChannel = null;
         DCapOutputByteBuffer cntOut = new DCapOutputByteBuffer(KiB.toBytes(1));
@@ -358,16 +369,14 @@ public class DCapProtocol_3_nio implements MoverProtocol, ChecksumMover, CellArg
                                    socket.getLocalAddress(), socket.getLocalPort());
             }
             _log.info("Using : Buffer Sizes (send/recv/io) : {}/{}/{}", socket.getSendBufferSize(), socket.getReceiveBufferSize(),
-                      _bigBuffer.capacity());
+                      bufferSize.getIoBufferSize());
             _log.info("Connected to {}", dcapProtocolInfo.getSocketAddress());
 
             //
             // send the sessionId and our (for now) 0 byte security challenge.
             //
-            _bigBuffer.clear();
-            _bigBuffer.putInt(_sessionId).putInt(0);
-            _bigBuffer.flip();
-            socketChannel.write(_bigBuffer);
+            cntOut.writeSessionId(_sessionId);
+            socketChannel.write(cntOut.buffer());
         }else{ // passive connection
             try (Listen listen = factory.acquireListen(bufferSize.getRecvBufferSize())) {
                 InetAddress localAddress = NetworkUtils.
@@ -405,6 +414,9 @@ public class DCapProtocol_3_nio implements MoverProtocol, ChecksumMover, CellArg
         boolean      notDone      = true;
         RequestBlock requestBlock = new RequestBlock();
 
+//        allocates the _bigBuffer
+        initialiseBuffer(bufferSize);
+
         try{
             while(notDone && _io_ok){
 
@@ -455,7 +467,8 @@ public class DCapProtocol_3_nio implements MoverProtocol, ChecksumMover, CellArg
                         //
                         doTheWrite(fileChannel,
                                     cntOut,
-                                    socketChannel);
+                                    socketChannel,
+                                    requestBlock);
                         //
                         //
                         if(_io_ok){
@@ -614,7 +627,8 @@ public class DCapProtocol_3_nio implements MoverProtocol, ChecksumMover, CellArg
                         if(_io_ok) {
                             doTheWrite(fileChannel,
                                     cntOut,
-                                    socketChannel);
+                                    socketChannel,
+                                    requestBlock);
                         }
 
                         if(_io_ok){
@@ -741,6 +755,8 @@ public class DCapProtocol_3_nio implements MoverProtocol, ChecksumMover, CellArg
                 socketChannel.close();
             }catch(Exception xe){}
 
+            releaseBuffer();
+
             dcapProtocolInfo.setBytesTransferred(_bytesTransferred);
 
             _transferTime = System.currentTimeMillis() -
@@ -777,6 +793,12 @@ public class DCapProtocol_3_nio implements MoverProtocol, ChecksumMover, CellArg
         }
 
     }
+    /**
+     * Sends the requested segments of the file. Rather than writing each
+     * segment to the socket on its own, as many segments as fit are read
+     * into the I/O buffer, each preceded by its block size, and the buffer
+     * is sent with a single write.
+     */
     private void doTheReadv(RepositoryChannel fileChannel, DCapOutputByteBuffer cntOut,
                             SocketChannel socketChannel, RequestBlock requestBLock) throws Exception {
 
@@ -786,48 +808,67 @@ public class DCapProtocol_3_nio implements MoverProtocol, ChecksumMover, CellArg
 
         int blocks = requestBLock.nextInt();
         _log.debug("READV: {} to read", blocks);
-        final int maxBuffer = _bigBuffer.capacity() - 4;
-        for(int i = 0; i < blocks; i++) {
 
+        _bigBuffer.clear();
+        try {
+            for (int i = 0; i < blocks && _io_ok; i++) {
 
-            long offset = requestBLock.nextLong();
-            int count = requestBLock.nextInt();
-            int len = count;
+                long offset = requestBLock.nextLong();
+                int count = requestBLock.nextInt();
 
-            _log.debug("READV: offset/len: {}/{}", offset, count);
+                _log.debug("READV: offset/len: {}/{}", offset, count);
 
-            while(count > 0) {
+                while (count > 0) {
 
-                int bytesToRead = maxBuffer > count ? count : maxBuffer;
-                int rc;
-                try{
-                    _bigBuffer.clear().limit(bytesToRead+4);
-                    _bigBuffer.position(4);
-                    rc = fileChannel.read(_bigBuffer, offset + (len - count));
-                    if(rc <= 0) {
-                        break;
+                    if (_bigBuffer.remaining() <= 4) {
+                        sendBuffer(socketChannel);
                     }
-                }catch (ClosedByInterruptException ee) {
-                    // clear interrupted state
-                    Thread.interrupted();
-                    throw new InterruptedException(ee.getMessage());
-                }catch(IOException ee){
-                    _io_ok = false;
-                    break;
-                }
 
-                _bigBuffer.flip();
-                _bigBuffer.putInt(rc).rewind();
-                _log.debug("READV: sending: {} bytes", _bigBuffer.limit());
-                socketChannel.write(_bigBuffer);
+                    int header = _bigBuffer.position();
+                    int bytesToRead = Math.min(count, _bigBuffer.remaining() - 4);
+                    int rc;
+                    try {
+                        _bigBuffer.position(header + 4).limit(header + 4 + bytesToRead);
+                        rc = fileChannel.read(_bigBuffer, offset);
+                    } catch (ClosedByInterruptException ee) {
+                        // clear interrupted state
+                        Thread.interrupted();
+                        throw new InterruptedException(ee.getMessage());
+                    } catch (IOException ee) {
+                        _io_ok = false;
+                        rc = -1;
+                    }
+                    _bigBuffer.limit(_bigBuffer.capacity());
 
-                count -= rc;
-                _bytesTransferred += rc;
+                    if (rc <= 0) {
+                        _bigBuffer.position(header);
+                        break;
+                    }
 
+                    _bigBuffer.putInt(header, rc);
+                    offset += rc;
+                    count -= rc;
+                    _bytesTransferred += rc;
+                }
             }
+        } finally {
+            sendBuffer(socketChannel);
         }
+    }
 
+    /**
+     * Writes the content of the I/O buffer to the socket and clears the
+     * buffer.
+     */
+    private void sendBuffer(SocketChannel socketChannel) throws IOException {
+        _bigBuffer.flip();
+        _log.debug("READV: sending: {} bytes", _bigBuffer.limit());
+        while (_bigBuffer.hasRemaining()) {
+            socketChannel.write(_bigBuffer);
+        }
+        _bigBuffer.clear();
     }
+
     private void scanCloseBlock(RequestBlock requestBlock, StorageInfo storage) {
 
         //
@@ -934,12 +975,12 @@ public class DCapProtocol_3_nio implements MoverProtocol, ChecksumMover, CellArg
     }
     private void doTheWrite(RepositoryChannel          fileChannel,
                              DCapOutputByteBuffer cntOut,
-                             SocketChannel        socketChannel ) throws Exception{
+                             SocketChannel        socketChannel,
+                             RequestBlock         requestBlock) throws Exception{
 
         int     rest;
         int     size, rc;
 
-        RequestBlock requestBlock = new RequestBlock();
         requestBlock.read(socketChannel);
 
         if(requestBlock.getCommandCode() != DCapConstants.IOCMD_DATA) {
@@ -1040,6 +1081,12 @@ public class DCapProtocol_3_nio implements MoverProtocol, ChecksumMover, CellArg
             socketChannel.write(cntOut.buffer());
             return;
         }
+        if (_ioError <= 0L) {
+            doTheTransfer(fileChannel, cntOut, socketChannel, blockSize);
+            cntOut.writeDATA_TRAILER();
+            socketChannel.write(cntOut.buffer());
+            return;
+        }
         long    rest = blockSize;
         int     size, rc;
 
@@ -1084,6 +1131,81 @@ public class DCapProtocol_3_nio implements MoverProtocol, ChecksumMover, CellArg
         socketChannel.write(cntOut.buffer());
 
     }
+    /**
+     * Sends the data blocks of a read using RepositoryChannel#transferTo,
+     * thus the data does not pass through the I/O buffer. The blocks have
+     * the same size as with the buffered read.
+     *
+     * The size of a block is announced before its data is read. Blocks
+     * never extend beyond the end of the file. Should reading the file
+     * fail anyway, the rest of the block is filled with zeros, so the
+     * client still receives the announced number of bytes, and the
+     * failure is reported like a failed buffered read.
+     */
+    private void doTheTransfer(RepositoryChannel     fileChannel,
+                               DCapOutputByteBuffer  cntOut,
+                               SocketChannel         socketChannel,
+                               long                  blockSize) throws Exception{
+
+        long rest = blockSize;
+        long position = fileChannel.position();
+        long fileSize = fileChannel.size();
+        final int maxBuffer = _bigBuffer.capacity() - 4;
+
+        while(! Thread.currentThread().isInterrupted() && rest > 0){
+
+            int size = (int) Math.min(Math.min(rest, maxBuffer), fileSize - position);
+            if (size <= 0) {
+                break;
+            }
+
+            cntOut.writeDATA_BLOCK_SIZE(size);
+            socketChannel.write(cntOut.buffer());
+
+            long sent = 0;
+            try {
+                while (sent < size) {
+                    long rc = fileChannel.transferTo(position + sent, size - sent, socketChannel);
+                    if (rc <= 0) {
+                        break;
+                    }
+                    sent += rc;
+                }
+            } catch (ClosedByInterruptException ee) {
+                // clear interrupted state
+                Thread.interrupted();
+                throw new InterruptedException(ee.getMessage());
+            } catch (IOException ee) {
+                _log.error("IOException in reading data from disk : {}", ee.toString());
+            }
+            if (sent < size) {
+                _io_ok = false;
+                _bytesTransferred += sent;
+                writeZeros(socketChannel, size - sent);
+                break;
+            }
+
+            position += size;
+            rest -= size;
+            _bytesTransferred += size;
+            fileChannel.position(position);
+        }
+    }
+
+    /**
+     * Writes count zero bytes to the socket.
+     */
+    private void writeZeros(SocketChannel socketChannel, long count) throws IOException
+    {
+        ByteBuffer zeros = ByteBuffer.allocate((int) Math.min(count, KiB.toBytes(64)));
+        while (count > 0) {
+            zeros.clear().limit((int) Math.min(count, zeros.capacity()));
+            while (zeros.hasRemaining()) {
+                count -= socketChannel.write(zeros);
+            }
+        }
+    }
+
     @Override
     public long getLastTransferred() { return _lastTransferred; }
     @Override
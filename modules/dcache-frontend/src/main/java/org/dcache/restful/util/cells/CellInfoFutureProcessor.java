@@ -81,6 +81,8 @@ public final class CellInfoFutureProcessor extends
         cellData.setCellClass(received.getCellClass());
         cellData.setEventQueueSize(received.getEventQueueSize());
         cellData.setExpectedQueueTime(received.getExpectedQueueTime());
+        cellData.setMessageThreads(received.getMessageThreads());
+        cellData.setQueueTimeP99(received.getQueueTimeP99());
         cellData.setLabel("Cell Info");
         CellVersion version = received.getCellVersion();
         cellData.setRelease(version.getRelease());
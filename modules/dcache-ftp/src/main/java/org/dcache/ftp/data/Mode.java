@@ -24,10 +24,12 @@ import java.util.Map;
 import java.util.Set;
 import java.util.stream.Collectors;
 
+import org.dcache.pool.movers.DirectBufferPool;
 import org.dcache.pool.repository.RepositoryChannel;
 import org.dcache.util.Strings;
 
 import static org.dcache.util.ByteUnit.KiB;
+import static org.dcache.util.ByteUnit.MiB;
 import static org.dcache.util.Strings.*;
 
 /**
@@ -42,6 +44,16 @@ public abstract class Mode extends AbstractMultiplexerListener
 {
     private static final Logger LOGGER = LoggerFactory.getLogger(Mode.class);
 
+    /**
+     * Direct buffers shared by the transfers of all modes. Buffers are
+     * taken from this pool when needed and returned when the transfer
+     * has finished.
+     */
+    private static final DirectBufferPool BUFFERS = new DirectBufferPool(MiB.toBytes(64));
+
+    /** Size of the buffer used by transferTo and transferFrom. */
+    private static final int TRANSFER_BUFFER_SIZE = KiB.toBytes(64);
+
     protected Role              _role;
     protected Direction         _direction;
     protected RepositoryChannel       _file;
@@ -53,8 +65,18 @@ public abstract class Mode extends AbstractMultiplexerListener
 
     protected   long              _fileSize;
 
-    /** Buffer for transferTo and transferFrom. */
-    private final ByteBuffer        _buffer = ByteBuffer.allocate(KiB.toBytes(8));
+    /**
+     * Buffer for transferTo and transferFrom. The buffer is direct to
+     * avoid the JDK copying the data through a temporary direct buffer
+     * on every socket and file operation. Acquired on first use.
+     */
+    private   ByteBuffer        _buffer;
+
+    /** Buffers acquired from BUFFERS by this mode. */
+    private final List<ByteBuffer> _acquired = new ArrayList<>();
+
+    /** Whether transferTo uses zero-copy mode. */
+    private   boolean           _zeroCopy;
 
     /** The address to connect to for outgoing connections. */
     private   InetSocketAddress     _address;
@@ -164,6 +186,22 @@ public abstract class Mode extends AbstractMultiplexerListener
         _bufferSize = value;
     }
 
+    /**
+     * Enable or disable zero-copy mode for sending data. When enabled,
+     * transferTo lets the kernel copy data directly from the file to
+     * the socket. Disabled by default.
+     */
+    public void setZeroCopy(boolean value)
+    {
+        _zeroCopy = value;
+    }
+
+    /** Returns true if zero-copy mode is enabled for sending data. */
+    public boolean isZeroCopy()
+    {
+        return _zeroCopy;
+    }
+
     /**
      * Sets the number of concurrent connections to use. Only relevant
      * for outgoing connections. Parallelism is not supported by all
@@ -195,38 +233,80 @@ public abstract class Mode extends AbstractMultiplexerListener
         return Collections.unmodifiableCollection(_addresses);
     }
 
+    private ByteBuffer getTransferBuffer()
+    {
+        if (_buffer == null) {
+            _buffer = acquireBuffer(TRANSFER_BUFFER_SIZE);
+        }
+        return _buffer;
+    }
+
+    /**
+     * Returns a direct buffer with the given capacity. The buffer is
+     * owned by this mode until {@link #releaseBuffers} is called.
+     */
+    protected ByteBuffer acquireBuffer(int capacity)
+    {
+        ByteBuffer buffer = BUFFERS.acquire(capacity);
+        _acquired.add(buffer);
+        return buffer;
+    }
+
+    /**
+     * Returns the buffers used by this mode to the shared pool. Must
+     * only be called once the transfer has finished and all channels
+     * have been closed.
+     */
+    public void releaseBuffers()
+    {
+        _acquired.forEach(BUFFERS::release);
+        _acquired.clear();
+        _buffer = null;
+    }
+
     /**
      * Like calling _file.transferTo().
      *
-     * This method behaves similarly to FileChannel.transferTo, except
-     * that it never uses zero-copy mode. FileChannel.transferTo has
-     * been subject to a large number of bugs throughout the history
-     * of Java.
+     * Unless zero-copy mode is enabled, this method behaves similarly
+     * to FileChannel.transferTo, except that it never uses zero-copy
+     * mode. FileChannel.transferTo has been subject to a large number
+     * of bugs throughout the history of Java. In contrast to
+     * FileChannel.transferTo, -1 is returned if position is at or
+     * beyond the end of the file.
      */
     protected long transferTo(long position, long count, SocketChannel socket)
         throws IOException
     {
+        if (_zeroCopy) {
+            long nbytes = _file.transferTo(position, count, socket);
+            if (nbytes == 0 && count > 0 && position >= _file.size()) {
+                return -1;
+            }
+            return nbytes;
+        }
+
         long tr = 0;                        // Total bytes read
         long pos = position;
-        _buffer.clear();
+        ByteBuffer buffer = getTransferBuffer();
+        buffer.clear();
         while (tr < count) {
-            _buffer.limit((int)Math.min((count - tr),
-                                        (long)_buffer.capacity()));
-            int nr = _file.read(_buffer, pos);
+            buffer.limit((int)Math.min((count - tr),
+                                       (long)buffer.capacity()));
+            int nr = _file.read(buffer, pos);
             if (nr < 0 && tr == 0) {
                 return -1;
             }
             if (nr <= 0) {
                 break;
             }
-            _buffer.flip();
-            int nw = socket.write(_buffer);
+            buffer.flip();
+            int nw = socket.write(buffer);
             tr += nw;
             if (nw != nr) {
                 break;
             }
             pos += nw;
-            _buffer.clear();
+            buffer.clear();
         }
         return tr;
     }
@@ -257,26 +337,27 @@ public abstract class Mode extends AbstractMultiplexerListener
     {
         long tw = 0;                    // Total bytes written
         long pos = position;
+        ByteBuffer buffer = getTransferBuffer();
         try {
-            _buffer.clear();
+            buffer.clear();
             while (tw < count) {
-                _buffer.limit((int)Math.min((count - tw),
-                                            (long)_buffer.capacity()));
-                int nr = socket.read(_buffer);
+                buffer.limit((int)Math.min((count - tw),
+                                           (long)buffer.capacity()));
+                int nr = socket.read(buffer);
                 if (nr < 0 && tw == 0) {
                     return -1;
                 }
                 if (nr <= 0) {
                     break;
                 }
-                _buffer.flip();
-                int nw = _file.write(_buffer, pos);
+                buffer.flip();
+                int nw = _file.write(buffer, pos);
                 tw += nw;
                 if (nw != nr) {
                     break;
                 }
                 pos += nw;
-                _buffer.clear();
+                buffer.clear();
             }
             return tw;
         } catch (IOException x) {
@@ -10,6 +10,7 @@ import java.util.concurrent.atomic.LongAdder;
 
 import org.dcache.pool.repository.RepositoryChannel;
 
+import static org.dcache.util.ByteUnit.KiB;
 import static org.dcache.util.Exceptions.messageOrClassName;
 import static org.dcache.util.Strings.describeSize;
 import static org.dcache.util.Strings.toThreeSigFig;
@@ -38,6 +39,12 @@ public class ModeE extends Mode
     public static final int KNOWN_DESCRIPTORS =
         EOF_DESCRIPTOR | EOD_DESCRIPTOR | SENDER_CLOSES_THIS_STREAM_DESCRIPTOR;
 
+    /**
+     * Upper limit of the size of the buffer used by a sender to read
+     * the payload of a block when not in zero-copy mode.
+     */
+    private static final int MAX_DATA_BUFFER_SIZE = KiB.toBytes(256);
+
     /**
      * The chunk size used when sending files.
      *
@@ -83,6 +90,11 @@ public class ModeE extends Mode
      * data channel. The sender repeatedly bites _blockSize bytes of
      * the file and transfers it as a single block. I.e.
      * _currentPosition is incremented by _blockSize bytes at a time.
+     *
+     * In zero-copy mode, the payload of a block is sent with
+     * transferTo once the header has been sent. Otherwise the payload
+     * is read into a direct buffer and sent together with the header
+     * using a gathering write.
      */
     private class Sender extends AbstractMultiplexerListener
     {
@@ -102,17 +114,37 @@ public class ModeE extends Mode
         /** Bytes remaining from current block. */
         protected long          _count;
 
+        /** True if the current block is the last block of this sender. */
+        protected boolean       _lastBlock;
+
         /** True if this sender must send the EOF. */
         protected final boolean       _sendEOF;
 
         /** Buffer for sending the block header. */
         protected final ByteBuffer _header =
-            ByteBuffer.allocate(HEADER_LENGTH);
+            ByteBuffer.allocateDirect(HEADER_LENGTH);
+
+        /**
+         * Buffer holding payload read from the file, but not yet
+         * sent. Null in zero-copy mode.
+         */
+        protected final ByteBuffer _data;
+
+        /** Header and payload buffers for gathering writes. */
+        protected final ByteBuffer[] _buffers;
 
         public Sender(SocketChannel socket) {
             _socket  = socket;
             _state   = PREPARE_BLOCK;
             _sendEOF = (_opened == 1); // First sender sends EOF
+            if (isZeroCopy()) {
+                _data = null;
+                _buffers = null;
+            } else {
+                _data = acquireBuffer(Math.min(_blockSize, MAX_DATA_BUFFER_SIZE));
+                _data.limit(0);
+                _buffers = new ByteBuffer[] { _header, _data };
+            }
         }
 
         @Override
@@ -134,6 +166,35 @@ public class ModeE extends Mode
             }
         }
 
+        /**
+         * Sends whatever is left of the header together with the next
+         * part of the payload using a gathering write. Returns the
+         * number of payload bytes sent.
+         */
+        private long sendGathered() throws IOException, FTPException
+        {
+            if (!_data.hasRemaining() && _count > 0) {
+                _data.clear();
+                _data.limit((int) Math.min(_count, _data.capacity()));
+                if (_file.read(_data, _position) < 0) {
+                    throw new FTPException("Unexpected end of file at offset " + _position);
+                }
+                _data.flip();
+            }
+            int before = _data.remaining();
+            _socket.write(_buffers);
+            return before - _data.remaining();
+        }
+
+        private void sent(long nbytes) throws FTPException
+        {
+            if (nbytes > 0) {
+                _monitor.sentBlock(_position, nbytes);
+                _position  += nbytes;
+                _count     -= nbytes;
+            }
+        }
+
         private void doWrite(Multiplexer multiplexer, SelectionKey key)
                 throws IOException, FTPException
         {
@@ -146,6 +207,7 @@ public class ModeE extends Mode
                 _count            = Math.min(_currentCount, _blockSize);
                 _currentPosition += _count;
                 _currentCount    -= _count;
+                _lastBlock        = (_count == 0);
 
                 /* Prepare header.
                  */
@@ -179,11 +241,16 @@ public class ModeE extends Mode
                 _state = SEND_HEADER;
 
             case SEND_HEADER:
-                /* Send header.
+                /* Send header. Unless in zero-copy mode, the header
+                 * is sent together with the first part of the payload.
                  */
-                _socket.write(_header);
+                if (_data != null) {
+                    sent(sendGathered());
+                } else {
+                    _socket.write(_header);
+                }
 
-                if (_header.position() < _header.limit()) {
+                if (_header.hasRemaining()) {
                     break;
                 }
 
@@ -197,20 +264,31 @@ public class ModeE extends Mode
                  * sent EOF until all connections have been
                  * established.
                  */
-                if (_count == 0) {
+                if (_lastBlock) {
                     close(multiplexer, key, true);
                     _activeDataChannels.decrementAndGet();
                     break;
                 }
+
+                if (_count == 0) {
+                    _state = PREPARE_BLOCK;
+                    break;
+                }
                 _state = SEND_DATA;
 
             case SEND_DATA:
                 /* Send data.
                  */
-                long nbytes = transferTo(_position, _count, _socket);
-                _monitor.sentBlock(_position, nbytes);
-                _position  += nbytes;
-                _count     -= nbytes;
+                long nbytes;
+                if (_data != null) {
+                    nbytes = sendGathered();
+                } else {
+                    nbytes = transferTo(_position, _count, _socket);
+                    if (nbytes < 0) {
+                        throw new FTPException("Unexpected end of file at offset " + _position);
+                    }
+                }
+                sent(nbytes);
                 if (_count == 0) {
                     _state = PREPARE_BLOCK;
                 }
@@ -167,6 +167,17 @@ public class GFtpProtocol_2_nio implements ConnectionMonitor,
      */
     protected Integer _blockSize;
 
+    /**
+     * The chunk size used for mode E unless overridden by _blockSize.
+     */
+    protected int _modeEBlockSize = MODE_E_DEFAULT_BLOCK_SIZE;
+
+    /**
+     * Whether data is sent using zero-copy transfers, i.e. whether the
+     * kernel copies data directly from the file to the socket.
+     */
+    protected boolean _zeroCopy;
+
     /**
      * Whether true passive mode is allowed, i.e. whether clients are
      * allowed to connect directly to the pool. Do not enable this if
@@ -210,7 +221,7 @@ public class GFtpProtocol_2_nio implements ConnectionMonitor,
             return new ModeS(role, fileChannel, this, blockSize);
         case 'E':
             blockSize =
-                    (_blockSize == null) ? MODE_E_DEFAULT_BLOCK_SIZE : _blockSize;
+                    (_blockSize == null) ? _modeEBlockSize : _blockSize;
             return new ModeE(role, fileChannel, this, blockSize);
         case 'X':
             blockSize =
@@ -279,6 +290,7 @@ public class GFtpProtocol_2_nio implements ConnectionMonitor,
              */
             _log.trace("Left event loop and closing channels");
             _multiplexer.close();
+            mode.releaseBuffers();
 
             /* Log some useful information about the transfer.
              */
@@ -382,6 +394,7 @@ public class GFtpProtocol_2_nio implements ConnectionMonitor,
         Mode mode = createMode(gftpProtocolInfo.getMode(), role, fileChannel);
         _mode = mode;
         mode.setBufferSize(bufferSize);
+        mode.setZeroCopy(_zeroCopy);
 
         /* For GFtp/2, the FTP door expects a
          * GFtpTransferStartedMessage when the mover is ready to
@@ -712,5 +725,11 @@ public class GFtpProtocol_2_nio implements ConnectionMonitor,
         if (args.hasOption("gsiftpBlockSize")) {
             _blockSize = args.getIntOption("gsiftpBlockSize");
         }
+
+        if (args.hasOption("ftpModeEBlockSize")) {
+            _modeEBlockSize = args.getIntOption("ftpModeEBlockSize");
+        }
+
+        _zeroCopy = args.getBooleanOption("ftpZeroCopy");
     }
 }
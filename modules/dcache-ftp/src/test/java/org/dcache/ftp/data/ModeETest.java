@@ -0,0 +1,166 @@
+package org.dcache.ftp.data;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.EnumSet;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.dcache.pool.repository.FileRepositoryChannel;
+import org.dcache.pool.repository.RepositoryChannel;
+
+import static org.dcache.util.ByteUnit.KiB;
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+
+public class ModeETest
+{
+    private static final int BLOCK_SIZE = KiB.toBytes(64);
+    private static final int FILE_SIZE = 20 * BLOCK_SIZE + 123;
+
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    private Path source;
+    private Path target;
+    private byte[] content;
+
+    @Before
+    public void setUp() throws IOException
+    {
+        content = new byte[FILE_SIZE];
+        new Random(42).nextBytes(content);
+        source = Files.createTempFile("mode-e-source", null);
+        target = Files.createTempFile("mode-e-target", null);
+        Files.write(source, content);
+    }
+
+    @After
+    public void tearDown() throws IOException
+    {
+        executor.shutdownNow();
+        Files.delete(source);
+        Files.delete(target);
+    }
+
+    @Test
+    public void shouldTransferFileWithGatheringWrites() throws Exception
+    {
+        transfer(false, 1);
+
+        assertThat(Files.readAllBytes(target), is(content));
+    }
+
+    @Test
+    public void shouldTransferFileWithZeroCopy() throws Exception
+    {
+        transfer(true, 1);
+
+        assertThat(Files.readAllBytes(target), is(content));
+    }
+
+    @Test
+    public void shouldTransferFileOverParallelStreamsWithGatheringWrites() throws Exception
+    {
+        transfer(false, 4);
+
+        assertThat(Files.readAllBytes(target), is(content));
+    }
+
+    @Test
+    public void shouldTransferFileOverParallelStreamsWithZeroCopy() throws Exception
+    {
+        transfer(true, 4);
+
+        assertThat(Files.readAllBytes(target), is(content));
+    }
+
+    @Test
+    public void shouldTransferEmptyFile() throws Exception
+    {
+        content = new byte[0];
+        Files.write(source, content);
+
+        transfer(false, 2);
+
+        assertThat(Files.readAllBytes(target), is(content));
+    }
+
+    private void transfer(boolean zeroCopy, int parallelism) throws Exception
+    {
+        AtomicLong sent = new AtomicLong();
+        AtomicLong received = new AtomicLong();
+
+        try (RepositoryChannel in = new FileRepositoryChannel(source, EnumSet.of(StandardOpenOption.READ));
+             RepositoryChannel out = new FileRepositoryChannel(target, EnumSet.of(StandardOpenOption.READ,
+                                                                                  StandardOpenOption.WRITE));
+             ServerSocketChannel server = ServerSocketChannel.open()) {
+            server.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+
+            ModeE receiver = new ModeE(Role.Receiver, out, monitor(received), BLOCK_SIZE);
+            receiver.setPassive(server);
+
+            ModeE sender = new ModeE(Role.Sender, in, monitor(sent), BLOCK_SIZE);
+            sender.setZeroCopy(zeroCopy);
+            sender.setParallelism(parallelism);
+            sender.setActive((InetSocketAddress) server.getLocalAddress());
+
+            Future<?> receiving = executor.submit(run(receiver));
+            Future<?> sending = executor.submit(run(sender));
+            sending.get(10, TimeUnit.SECONDS);
+            receiving.get(10, TimeUnit.SECONDS);
+
+            assertThat(sender.hasCompletedSuccessfully(), is(true));
+            assertThat(receiver.hasCompletedSuccessfully(), is(true));
+        }
+
+        assertThat(sent.get(), is((long) content.length));
+        assertThat(received.get(), is((long) content.length));
+    }
+
+    private static ConnectionMonitor monitor(AtomicLong bytes)
+    {
+        return new ConnectionMonitor()
+        {
+            @Override
+            public void receivedBlock(long position, long size)
+            {
+                bytes.addAndGet(size);
+            }
+
+            @Override
+            public void sentBlock(long position, long size)
+            {
+                bytes.addAndGet(size);
+            }
+        };
+    }
+
+    private static Callable<Void> run(Mode mode)
+    {
+        return () -> {
+            Multiplexer multiplexer = new Multiplexer();
+            try {
+                multiplexer.add(mode);
+                multiplexer.loop();
+            } finally {
+                multiplexer.close();
+                mode.releaseBuffers();
+            }
+            return null;
+        };
+    }
+}
@@ -8,6 +8,9 @@ public class Configuration
     public static final String PROPERTY_NAME_SERVICE_TOPO = "info.service.topo";
     public static final String PROPERTY_NAME_SERVICE_POOLMANAGER = "info.service.poolmanager";
     public static final String PROPERTY_NAME_SERVICE_SPACEMANAGER = "info.service.spacemanager";
+    public static final String PROPERTY_NAME_POOL_COST_MODE = "info.pool-cost.mode";
+
+    public static final String POOL_COST_MODE_SUBSCRIPTION = "subscription";
 
     private Configuration()
     {
@@ -0,0 +1,51 @@
+package org.dcache.services.info.base;
+
+/**
+ * A StateVisitor that produces output which depends only on the content of
+ * a branch and its position within the state tree may reuse the output
+ * produced for a branch when visiting it again, provided the branch has not
+ * changed in the meantime.
+ * <p>
+ * StateComposites are not modified once they are part of the published
+ * state; any change results in a new StateComposite.  For each branch that
+ * {@link #isCacheable} accepts, the StateComposite brackets the normal
+ * call-backs with {@link #startCaching} and {@link #stopCaching} and keeps
+ * the result.  Subsequent visits to the same StateComposite call
+ * {@link #visitCached} instead of visiting the branch.
+ * <p>
+ * Output is cached per key, so different visitors producing the same output
+ * for a branch may share the cached value.
+ */
+public interface CachingStateVisitor extends StateVisitor
+{
+    /**
+     * Whether the output for the branch at this path should be cached.
+     * The visitor must also be prepared to visit every child of the branch.
+     */
+    boolean isCacheable(StatePath path);
+
+    /**
+     * The key under which output of this visitor is cached.
+     */
+    Object getCacheKey();
+
+    /**
+     * Called before visiting a cacheable branch for which there is no
+     * cached output.
+     */
+    void startCaching(StatePath path);
+
+    /**
+     * Called after visiting a cacheable branch.
+     *
+     * @return the output produced since the corresponding
+     * {@link #startCaching} call.
+     */
+    String stopCaching(StatePath path);
+
+    /**
+     * Called instead of visiting a cacheable branch with the output
+     * previously returned by {@link #stopCaching}.
+     */
+    void visitCached(StatePath path, String output);
+}
@@ -9,8 +9,7 @@ import java.util.Collection;
 import java.util.Date;
 import java.util.List;
 import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReadWriteLock;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * This singleton class provides a (best-effort) complete representation of
@@ -36,6 +35,14 @@ import java.util.concurrent.locks.ReentrantReadWriteLock;
  * some synchronous classes also use this to build lists from dCache current
  * state (e.g., to send a message requesting data to each currently known
  * pool).
+ * <p>
+ * Updates never modify the published state.  Instead, applying a
+ * StateTransition builds a new root StateComposite, sharing all unaffected
+ * branches with the previous root, and then publishes it.  Visitors walk
+ * whichever root was current when they started without holding any lock,
+ * so producing a large serialisation does not block updates, nor do
+ * updates block visitors.  Updates are serialised with respect to each
+ * other.
  *
  * @author Paul Millar <paul.millar@desy.de>
  */
@@ -53,16 +60,14 @@ public class State implements StateCaretaker, StateExhibitor, StateObservatory
      * Class member variables...
      */
 
-    /** The root branch of the dCache state */
-    private final StateComposite _state;
+    /** The root branch of the current dCache state */
+    private volatile StateComposite _state;
 
     /** All registered StateWatchers */
     private volatile Collection<StateWatcherInfo> _watchers = new ArrayList<>();
 
-    /** Our read/write lock: we use the fair version to reduce the risk of writers constantly blocking a reader */
-    private final ReadWriteLock _stateRWLock = new ReentrantReadWriteLock(true);
-    private final Lock _stateReadLock = _stateRWLock.readLock();
-    private final Lock _stateWriteLock = _stateRWLock.writeLock();
+    /** Serialises updates; readers do not lock */
+    private final Lock _stateWriteLock = new ReentrantLock();
 
     // TODO: remove this completely. It's only needed to support derived
     // metrics
@@ -149,7 +154,7 @@ public class State implements StateCaretaker, StateExhibitor, StateObservatory
         StateTransition transition = new StateTransition();
 
         try {
-            _stateReadLock.lock();
+            _stateWriteLock.lock();
 
             /**
              * Update our new StateTransition based on the StateUpdate.
@@ -170,17 +175,17 @@ public class State implements StateCaretaker, StateExhibitor, StateObservatory
                 _updateManager.enqueueUpdate(resultingUpdate);
             }
 
+            applyTransition(transition);
         } finally {
-            _stateReadLock.unlock();
+            _stateWriteLock.unlock();
         }
-
-        applyTransition(transition);
     }
 
     /**
      * Apply a StateTransition to dCache state. This is the final step in
      * updating the dCache state where the proposed changes are made
-     * permanent. This requires obtaining a writer-lock on the state.
+     * permanent by publishing a modified copy of the state.  This must be
+     * called with the writer-lock held.
      *
      * @param transition
      *            the StateTransition to apply.
@@ -192,14 +197,9 @@ public class State implements StateCaretaker, StateExhibitor, StateObservatory
                     transition.dumpContents());
         }
 
-        try {
-            _stateWriteLock.lock();
-
-            _state.applyTransition(null, transition);
-
-        } finally {
-            _stateWriteLock.unlock();
-        }
+        StateComposite newState = _state.copy();
+        newState.applyTransition(null, transition);
+        _state = newState;
     }
 
     /**
@@ -371,7 +371,7 @@ public class State implements StateCaretaker, StateExhibitor, StateObservatory
         StateTransition transition = new StateTransition();
 
         try {
-            _stateReadLock.lock();
+            _stateWriteLock.lock();
 
             _state.buildRemovalTransition(null, transition, false);
 
@@ -383,11 +383,10 @@ public class State implements StateCaretaker, StateExhibitor, StateObservatory
                 _updateManager.enqueueUpdate(resultingUpdate);
             }
 
+            applyTransition(transition);
         } finally {
-            _stateReadLock.unlock();
+            _stateWriteLock.unlock();
         }
-
-        applyTransition(transition);
     }
 
     /**
@@ -397,7 +396,8 @@ public class State implements StateCaretaker, StateExhibitor, StateObservatory
      * <p>
      * The data obtained from a single call of <code>visitState()</code> is
      * protected from inconsistencies due to data being updated whilst the
-     * iteration is taking place. No such protection is available for
+     * iteration is taking place: the visitor walks the state as published
+     * when the visit started. No such protection is available for
      * multiple calls to <code>visitState()</code>.
      *
      * @param visitor
@@ -408,30 +408,17 @@ public class State implements StateCaretaker, StateExhibitor, StateObservatory
     {
         LOGGER.trace("visitor {} wishing to visit current state", visitor);
 
-        try {
-            long beforeLock = System.currentTimeMillis();
-
-            LOGGER.trace("visitor {} acquiring read lock", visitor);
-            _stateReadLock.lock();
-
-            long afterLock = System.currentTimeMillis();
+        StateComposite state = _state;
 
-            LOGGER.trace("visitor {} acquired read lock (took {} ms), starting visit.",
-                    visitor, (afterLock - beforeLock) / 1000.0);
+        long beforeVisit = System.currentTimeMillis();
 
-            if (visitor.isVisitable(null)) {
-                _state.acceptVisitor(null, visitor);
-            }
-
-            long afterVisit = System.currentTimeMillis();
-
-            LOGGER.trace("visitor {} completed visit (took {} ms), releasing read lock.",
-                    visitor, (afterVisit - afterLock) / 1000.0);
-        } finally {
-            _stateReadLock.unlock();
+        if (visitor.isVisitable(null)) {
+            state.acceptVisitor(null, visitor);
         }
 
-        LOGGER.trace("visitor {} finished.", visitor);
+        long afterVisit = System.currentTimeMillis();
+
+        LOGGER.trace("visitor {} finished (took {} ms).", visitor, afterVisit - beforeVisit);
     }
 
     /**
@@ -29,6 +29,14 @@ import static com.google.common.base.Preconditions.checkNotNull;
  * children) will expire.  This is an optimisation, allowing a quick determination when
  * a tree should next be purged and, with any subtree, whether it is necessary to purge that
  * subtree.
+ * <p>
+ * Once part of the dCache state, a StateComposite is not modified: applying a
+ * StateTransition replaces each affected StateComposite, from the root down
+ * to the changed StateComponents, by a modified copy and leaves all other
+ * branches shared with the previous state.  The State publishes the new root,
+ * so visitors may walk the previous root without locking.  This also allows
+ * a {@link CachingStateVisitor} to reuse its output for branches that have
+ * not changed.
  *
  * @author Paul Millar <paul.millar@desy.de>
  */
@@ -45,6 +53,9 @@ public class StateComposite implements StateComponent
     private Date _whenIShouldExpire;
     private boolean _isEphemeral;
 
+    /** Output of CachingStateVisitors, by cache key; copy-on-write. */
+    private volatile Map<Object, String> _cachedOutput;
+
     /**
      * The constructor for public use: a StateComposite with a finite lifetime.
      *
@@ -103,6 +114,22 @@ public class StateComposite implements StateComponent
         _metadataRef = persistentMetadata;
     }
 
+    /**
+     * Build a copy of this StateComposite.  The copy shares its children with
+     * the original, but may be modified without affecting the original.
+     * @return the copy.
+     */
+    StateComposite copy()
+    {
+        StateComposite copy = new StateComposite(true);
+        copy._children.putAll(_children);
+        copy._metadataRef = _metadataRef;
+        copy._earliestChildExpiry = _earliestChildExpiry;
+        copy._whenIShouldExpire = _whenIShouldExpire;
+        copy._isEphemeral = _isEphemeral;
+        return copy;
+    }
+
     /**
      * Build an Immortal StateComposite with specific metadata link.
      * This should only be used by the State singleton.
@@ -258,6 +285,47 @@ public class StateComposite implements StateComponent
     public void acceptVisitor(StatePath path, StateVisitor visitor)
     {
         LOGGER.trace("acceptVisitor({})", path);
+
+        if (visitor instanceof CachingStateVisitor) {
+            CachingStateVisitor cachingVisitor = (CachingStateVisitor) visitor;
+            if (cachingVisitor.isCacheable(path)) {
+                acceptCachingVisitor(path, cachingVisitor);
+                return;
+            }
+        }
+
+        visitBranch(path, visitor);
+    }
+
+    /**
+     * Reuse the visitor's output for this branch if available, otherwise
+     * visit the branch and keep the output.  Concurrent visitors may race
+     * to store their output, in which case one of the entries is lost
+     * and simply rebuilt on the next visit.
+     */
+    private void acceptCachingVisitor(StatePath path, CachingStateVisitor visitor)
+    {
+        Object key = visitor.getCacheKey();
+        Map<Object, String> cachedOutput = _cachedOutput;
+        String output = cachedOutput == null ? null : cachedOutput.get(key);
+
+        if (output != null) {
+            visitor.visitCached(path, output);
+            return;
+        }
+
+        visitor.startCaching(path);
+        visitBranch(path, visitor);
+        output = visitor.stopCaching(path);
+
+        Map<Object, String> updatedOutput = cachedOutput == null
+                ? new HashMap<>() : new HashMap<>(cachedOutput);
+        updatedOutput.put(key, output);
+        _cachedOutput = updatedOutput;
+    }
+
+    private void visitBranch(StatePath path, StateVisitor visitor)
+    {
         Map<String,String> branchMetadata = getMetadataInfo();
 
         visitor.visitCompositePreDescend(path, branchMetadata);
@@ -353,6 +421,8 @@ public class StateComposite implements StateComponent
     @Override
     public void applyTransition(StatePath ourPath, StateTransition transition)
     {
+        _cachedOutput = null;
+
         StateChangeSet changeSet = transition.getStateChangeSet(ourPath);
 
         if (changeSet == null) {
@@ -409,7 +479,14 @@ public class StateComposite implements StateComponent
                 continue;
             }
 
-            child.applyTransition(buildChildPath(ourPath, childName), transition);
+            // Published branches are never modified; update a copy instead.
+            if (child instanceof StateComposite) {
+                StateComposite updatedChild = ((StateComposite) child).copy();
+                updatedChild.applyTransition(buildChildPath(ourPath, childName), transition);
+                _children.put(childName, updatedChild);
+            } else {
+                child.applyTransition(buildChildPath(ourPath, childName), transition);
+            }
         }
 
         recalcEarliestChildExpiry();
@@ -441,6 +518,15 @@ public class StateComposite implements StateComponent
     }
 
 
+    /**
+     * @param childName the name of the child.
+     * @return the named child, or null if there is no such child.
+     */
+    StateComponent getChild(String childName)
+    {
+        return _children.get(childName);
+    }
+
     /**
      * Look up persistent metadata reference for child and return it.  If none is
      * available, null is returned.
@@ -475,14 +561,14 @@ public class StateComposite implements StateComponent
          *  If we're added a StateComposite, we must be a little more careful!
          */
         if (newChild instanceof StateComposite) {
-            StateComposite newComposite = (StateComposite) newChild;
-
             /**
              * Copy across all existing children that don't clash.  Those with
              * the same name are updates for those children, so we want to go with
-             * the values under the newComposite.
+             * the values under the newComposite.  The newComposite belongs to
+             * the StateTransition, so we merge into a copy of it.
              */
             if (existingChild instanceof StateComposite) {
+                StateComposite newComposite = ((StateComposite) newChild).copy();
                 StateComposite existingComposite = (StateComposite) existingChild;
 
                 // Copy across the existingComposite's children over to the newComposite
@@ -496,6 +582,7 @@ public class StateComposite implements StateComponent
                 // ... and details of the dates...
                 newComposite.updateEarliestChildExpiryDate(existingComposite.getEarliestChildExpiryDate());
                 newComposite.updateWhenIShouldExpireDate(existingComposite.getExpiryDate());
+                newChild = newComposite;
             }
         }
 
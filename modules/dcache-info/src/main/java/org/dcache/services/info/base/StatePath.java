@@ -421,6 +421,16 @@ public class StatePath
         return new StatePath(_elements.subList(0, _elements.size()-1), _elements.size()-1);
     }
 
+    /**
+     * Return the number of elements in this path; for example, a path
+     * characterised by <tt>aa.bb.cc</tt> has size three.
+     * @return the number of elements.
+     */
+    public int size()
+    {
+        return _elements.size();
+    }
+
     /**
      * Check whether this path contains any branches; i.e., if the number of elements
      * in the path is strictly greater than one.
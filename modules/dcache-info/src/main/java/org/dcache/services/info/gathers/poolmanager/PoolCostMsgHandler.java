@@ -66,7 +66,7 @@ public class PoolCostMsgHandler extends CellMessageHandlerSkel
      * @param metricLifetime the duration metrics should remain
      * @return a StateUpdate that updates the state
      */
-    private StateUpdate buildUpdate(Collection<PoolCostInfo> poolInfos,
+    StateUpdate buildUpdate(Collection<PoolCostInfo> poolInfos,
             long metricLifetime)
     {
         StatePath poolsPath = new StatePath("pools");
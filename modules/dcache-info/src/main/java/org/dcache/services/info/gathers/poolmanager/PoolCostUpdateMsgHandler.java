@@ -0,0 +1,111 @@
+package org.dcache.services.info.gathers.poolmanager;
+
+import com.google.common.collect.Sets;
+
+import java.io.PrintWriter;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import diskCacheV111.pools.PoolCostInfo;
+import diskCacheV111.vehicles.CostModulePoolInfoUpdate;
+
+import dmg.cells.nucleus.CellInfoProvider;
+import dmg.cells.nucleus.CellMessageReceiver;
+import dmg.cells.nucleus.UOID;
+
+import org.dcache.services.info.base.StatePath;
+import org.dcache.services.info.base.StateUpdate;
+import org.dcache.services.info.base.StateUpdateManager;
+import org.dcache.services.info.gathers.MessageMetadataRepository;
+
+/**
+ * Collects the pool cost changes that PoolManager publishes.  This is the
+ * subscription alternative to polling PoolManager with "xcm ls": instead of
+ * receiving the cost information of all pools with every poll, only the
+ * pools whose cost information changed are received, together with the
+ * pools that were removed.  PoolManager publishes the cost information of
+ * all pools once per resync period, so the metrics are given a lifetime of
+ * two and a half resync periods.
+ * <p>
+ * The cost information is processed by PoolCostMsgHandler, so the
+ * resulting state is the same as when polling.
+ */
+public class PoolCostUpdateMsgHandler implements CellMessageReceiver, CellInfoProvider
+{
+    private static final double EXPIRATION_FACTOR = 2.5;
+
+    private static final StatePath POOLS_PATH = new StatePath("pools");
+
+    private final StateUpdateManager _sum;
+    private final PoolCostMsgHandler _poolCost;
+
+    /** The pools whose cost information is in the state. */
+    private Set<String> _pools = new HashSet<>();
+
+    private long _updates;
+    private long _fullUpdates;
+    private long _poolsReceived;
+
+    public PoolCostUpdateMsgHandler(StateUpdateManager sum,
+            MessageMetadataRepository<UOID> msgMetaRepo)
+    {
+        _sum = sum;
+        _poolCost = new PoolCostMsgHandler(sum, msgMetaRepo);
+    }
+
+    public synchronized void messageArrived(CostModulePoolInfoUpdate info)
+    {
+        long lifetime = TimeUnit.MILLISECONDS.toSeconds(
+                (long) (EXPIRATION_FACTOR * info.getResyncPeriod()));
+
+        Set<String> pools = new HashSet<>();
+        for (PoolCostInfo poolInfo : info.poolInfos()) {
+            pools.add(poolInfo.getPoolName());
+        }
+
+        Set<String> removed;
+        if (info.isFullUpdate()) {
+            removed = Sets.difference(_pools, pools);
+            _pools = pools;
+        } else {
+            removed = info.getRemovedPools();
+            _pools.removeAll(removed);
+            _pools.addAll(pools);
+        }
+
+        StateUpdate update = _poolCost.buildUpdate(info.poolInfos(), lifetime);
+
+        /* Purges happen before the updates.  The named queues of a changed
+         * pool are purged, as its update does not mention queues that no
+         * longer exist.
+         */
+        for (String pool : pools) {
+            update.purgeUnder(POOLS_PATH.newChild(pool).newChild("queues").newChild("named-queues"));
+        }
+        for (String pool : removed) {
+            StatePath pathToPool = POOLS_PATH.newChild(pool);
+            update.purgeUnder(pathToPool.newChild("queues"));
+            update.purgeUnder(pathToPool.newChild("space"));
+        }
+
+        _updates++;
+        if (info.isFullUpdate()) {
+            _fullUpdates++;
+        }
+        _poolsReceived += pools.size();
+
+        if (update.count() > 0 || update.countPurges() > 0) {
+            _sum.enqueueUpdate(update);
+        }
+    }
+
+    @Override
+    public synchronized void getInfo(PrintWriter pw)
+    {
+        pw.println("Pool cost subscription:");
+        pw.println("    Updates received : " + _updates + " (" + _fullUpdates + " full)");
+        pw.println("    Pools received   : " + _poolsReceived);
+        pw.println("    Pools known      : " + _pools.size());
+    }
+}
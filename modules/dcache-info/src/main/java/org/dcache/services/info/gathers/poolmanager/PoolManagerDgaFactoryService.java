@@ -21,28 +21,37 @@ import org.dcache.services.info.gathers.Schedulable;
 import org.dcache.services.info.gathers.SingleMessageDga;
 import org.dcache.services.info.gathers.StringListMsgHandler;
 
+import static org.dcache.services.info.Configuration.POOL_COST_MODE_SUBSCRIPTION;
+import static org.dcache.services.info.Configuration.PROPERTY_NAME_POOL_COST_MODE;
 import static org.dcache.services.info.Configuration.PROPERTY_NAME_SERVICE_POOLMANAGER;
 
 /**
- * This DgaFactoryService creates DGAs for monitoring the PoolManager.
+ * This DgaFactoryService creates DGAs for monitoring the PoolManager.  The
+ * pool costs are not polled if the info service subscribes to the pool cost
+ * changes published by PoolManager, as the PoolCostUpdateMsgHandler then
+ * provides the same information.
  *
  * @author Paul Millar <paul.millar@desy.de>
  */
 public class PoolManagerDgaFactoryService implements DgaFactoryService, EnvironmentAware
 {
     private String poolmanager;
+    private boolean isSubscribed;
 
     @Override
     public Set<Schedulable> createDgas(StateExhibitor exhibitor, MessageSender sender,
             StateUpdateManager sum, MessageMetadataRepository<UOID> msgMetaRepo)
     {
-        return new DgaFactory(poolmanager, exhibitor, sender, sum, msgMetaRepo).get();
+        return new DgaFactory(poolmanager, exhibitor, sender, sum, msgMetaRepo,
+                isSubscribed).get();
     }
 
     @Override
     public void setEnvironment(Map<String, Object> environment)
     {
         poolmanager = Environments.getValue(environment, PROPERTY_NAME_SERVICE_POOLMANAGER);
+        isSubscribed = POOL_COST_MODE_SUBSCRIPTION.equals(
+                Environments.getValue(environment, PROPERTY_NAME_POOL_COST_MODE));
     }
 
 
@@ -64,7 +73,8 @@ public class PoolManagerDgaFactoryService implements DgaFactoryService, Environm
         private final String _poolmanager;
 
         DgaFactory(String poolmanager, StateExhibitor exhibitor, MessageSender sender,
-                StateUpdateManager sum, MessageMetadataRepository<UOID> msgMetaRepo)
+                StateUpdateManager sum, MessageMetadataRepository<UOID> msgMetaRepo,
+                boolean isPoolCostSubscribed)
         {
             _poolmanager = poolmanager;
             _exhibitor = exhibitor;
@@ -77,8 +87,10 @@ public class PoolManagerDgaFactoryService implements DgaFactoryService, Environm
             addListCommandAsDga("units", "psux ls unit");
             addListCommandAsDga("unitgroups", "psux ls ugroup");
 
-            addSingleMessageDga("xcm ls",
-            		new PoolCostMsgHandler(_sum, _msgMetaRepo));
+            if (!isPoolCostSubscribed) {
+                addSingleMessageDga("xcm ls",
+                        new PoolCostMsgHandler(_sum, _msgMetaRepo));
+            }
 
             addSingleMessageDga("psux ls link -x -resolve",
                     new LinkInfoMsgHandler(_sum, _msgMetaRepo));
@@ -6,9 +6,12 @@ import org.springframework.beans.factory.annotation.Required;
 
 import java.io.IOException;
 import java.io.StringWriter;
+import java.util.ArrayDeque;
+import java.util.Deque;
 import java.util.Map;
 
 import org.dcache.services.info.base.BooleanStateValue;
+import org.dcache.services.info.base.CachingStateVisitor;
 import org.dcache.services.info.base.FloatingPointStateValue;
 import org.dcache.services.info.base.IntegerStateValue;
 import org.dcache.services.info.base.StateExhibitor;
@@ -19,16 +22,31 @@ import static com.google.common.base.Throwables.propagate;
 
 /**
  * Serialise state into a json object.
+ * <p>
+ * The json for the individual items of a list (such as a single pool) is
+ * cached with the branch and reused until that branch changes.  Such a
+ * branch is written by a separate JsonWriter and inserted as a raw value,
+ * indented to match its nesting within the document.
  */
-public class JsonSerialiser extends SubtreeVisitor implements StateSerialiser
+public class JsonSerialiser extends SubtreeVisitor implements StateSerialiser, CachingStateVisitor
 {
     public static final String NAME = "json";
+
+    /** The depth of the branches for which json is cached; e.g., dCache.pools.&lt;pool> */
+    private static final int CACHED_BRANCH_DEPTH = 2;
+
+    private static final String INDENT = "  ";
+
     private StateExhibitor _exhibitor;
 
     private JsonWriter _writer;
     private StringWriter _string;
     private StatePath _top;
 
+    /** The writers of the enclosing document while caching a branch */
+    private final Deque<JsonWriter> _outerWriters = new ArrayDeque<>();
+    private final Deque<StringWriter> _outerStrings = new ArrayDeque<>();
+
     @Required
     public void setStateExhibitor(StateExhibitor exhibitor)
     {
@@ -75,6 +93,71 @@ public class JsonSerialiser extends SubtreeVisitor implements StateSerialiser
         }
     }
 
+    @Override
+    public boolean isCacheable(StatePath path)
+    {
+        return path != null && path.size() == CACHED_BRANCH_DEPTH && isInsideScope(path)
+                && !Objects.equal(_top, path);
+    }
+
+    @Override
+    public Object getCacheKey()
+    {
+        /* Indentation depends on how many ancestors are omitted. */
+        return NAME + ":" + topDepth();
+    }
+
+    @Override
+    public void startCaching(StatePath path)
+    {
+        _outerWriters.push(_writer);
+        _outerStrings.push(_string);
+        _string = new StringWriter();
+        _writer = new JsonWriter(_string);
+        _writer.setIndent(INDENT);
+    }
+
+    @Override
+    public String stopCaching(StatePath path)
+    {
+        String output;
+        try {
+            _writer.close();
+            output = indent(_string.toString(), path.size() - topDepth());
+        } catch (IOException e) {
+            throw propagate(e);
+        } finally {
+            _writer = _outerWriters.pop();
+            _string = _outerStrings.pop();
+        }
+        visitCached(path, output);
+        return output;
+    }
+
+    @Override
+    public void visitCached(StatePath path, String output)
+    {
+        try {
+            _writer.name(path.getLastElement()).jsonValue(output);
+        } catch (IOException e) {
+            propagate(e);
+        }
+    }
+
+    private int topDepth()
+    {
+        return _top == null ? 0 : _top.size();
+    }
+
+    private static String indent(String json, int level)
+    {
+        StringBuilder prefix = new StringBuilder("\n");
+        for (int i = 0; i < level; i++) {
+            prefix.append(INDENT);
+        }
+        return json.replace("\n", prefix);
+    }
+
     @Override
     public void visitCompositePreDescend(StatePath path, Map<String, String> metadata)
     {
@@ -83,7 +166,9 @@ public class JsonSerialiser extends SubtreeVisitor implements StateSerialiser
         }
 
         try {
-            _writer.name(path.getLastElement());
+            if (!isCaching(path)) {
+                _writer.name(path.getLastElement());
+            }
             _writer.beginObject();
         } catch (IOException e) {
             propagate(e);
@@ -104,6 +189,15 @@ public class JsonSerialiser extends SubtreeVisitor implements StateSerialiser
         }
     }
 
+    /**
+     * Whether the branch at path is the one being written by a separate
+     * JsonWriter, as an unnamed top-level value.
+     */
+    private boolean isCaching(StatePath path)
+    {
+        return !_outerWriters.isEmpty() && isCacheable(path);
+    }
+
     @Override
     public String getName()
     {
@@ -121,6 +215,8 @@ public class JsonSerialiser extends SubtreeVisitor implements StateSerialiser
     {
         _top = start;
 
+        _outerWriters.clear();
+        _outerStrings.clear();
         _string = new StringWriter();
         _writer = new JsonWriter(_string);
         _writer.setIndent("  ");
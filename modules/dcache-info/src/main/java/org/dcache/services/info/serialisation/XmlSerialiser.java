@@ -2,10 +2,13 @@ package org.dcache.services.info.serialisation;
 
 import org.springframework.beans.factory.annotation.Required;
 
+import java.util.ArrayDeque;
 import java.util.Date;
+import java.util.Deque;
 import java.util.Map;
 
 import org.dcache.services.info.base.BooleanStateValue;
+import org.dcache.services.info.base.CachingStateVisitor;
 import org.dcache.services.info.base.FloatingPointStateValue;
 import org.dcache.services.info.base.IntegerStateValue;
 import org.dcache.services.info.base.State;
@@ -20,15 +23,22 @@ import org.dcache.services.info.base.StringStateValue;
  * For the most part, this is a simple mapping with some support for handling
  * branch-nodes with a known special parent branch differently.
  * <p>
+ * The XML for a branch depends only on its content and its position, so the
+ * XML for the individual items of a list (such as a single pool) is cached
+ * with the branch and reused until that branch changes.
+ * <p>
  * NB, instances of this Class are not thread-safe: the caller is responsible for
  * ensuring no concurrent calls to serialise().
  *
  * @author Paul Millar <paul.millar@desy.de>
  */
-public class XmlSerialiser extends SubtreeVisitor implements StateSerialiser
+public class XmlSerialiser extends SubtreeVisitor implements StateSerialiser, CachingStateVisitor
 {
     public static final String NAME = "xml";
 
+    /** The depth of the branches for which XML is cached; e.g., dCache.pools.&lt;pool> */
+    private static final int CACHED_BRANCH_DEPTH = 2;
+
     /** The types used within the XML structure */
     private static final String _newline = "\n";
 
@@ -44,6 +54,9 @@ public class XmlSerialiser extends SubtreeVisitor implements StateSerialiser
     private String _lastBranchIdName;
     private boolean _haveLastBranch;
 
+    /** Offsets into _out where the XML for the branches being cached starts */
+    private final Deque<Integer> _cacheStart = new ArrayDeque<>();
+
     private StateExhibitor _exhibitor;
 
     @Required
@@ -83,6 +96,7 @@ public class XmlSerialiser extends SubtreeVisitor implements StateSerialiser
     public String serialise(StatePath start)
     {
         _out = new StringBuilder();
+        _cacheStart.clear();
         _isTopBranch = true;
         _haveLastBranch = false;
         _indentationLevel = 0;
@@ -119,6 +133,38 @@ public class XmlSerialiser extends SubtreeVisitor implements StateSerialiser
         return NAME;
     }
 
+    @Override
+    public boolean isCacheable(StatePath path)
+    {
+        return path != null && path.size() == CACHED_BRANCH_DEPTH && isInsideScope(path);
+    }
+
+    @Override
+    public Object getCacheKey()
+    {
+        return NAME;
+    }
+
+    @Override
+    public void startCaching(StatePath path)
+    {
+        emitLastBeginElement(false);
+        _cacheStart.push(_out.length());
+    }
+
+    @Override
+    public String stopCaching(StatePath path)
+    {
+        return _out.substring(_cacheStart.pop());
+    }
+
+    @Override
+    public void visitCached(StatePath path, String output)
+    {
+        emitLastBeginElement(false);
+        _out.append(output);
+    }
+
     /* Deal with branch movement */
     @Override
     public void visitCompositePreDescend(StatePath path, Map<String,String> metadata)
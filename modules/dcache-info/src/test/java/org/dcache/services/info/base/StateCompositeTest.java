@@ -968,6 +968,19 @@ public class StateCompositeTest extends InfoBaseTestHelper {
         assertNotSame( "_rootComposite hashCode same as _mortal hashCode", _rootComposite.hashCode(), _immortalComposite.hashCode());
     }
 
+    @Test
+    public void testApplyTransitionCopiesChangedBranches() throws MetricStatePathException {
+        StateComposite immortalComposite = _immortalComposite;
+        StateComposite mortalComposite = _mortalComposite;
+
+        addMetric( BRANCH_IMMORTAL_PATH.newChild( "test-child"), new StringStateValue("foo", 10));
+
+        assertNotSame( "changed branch not copied", immortalComposite, _immortalComposite);
+        assertEquals( "original branch modified", "StateComposite <#> {0}", immortalComposite.toString());
+        assertEquals( "copied branch not updated", "StateComposite <#> {1}", _immortalComposite.toString());
+        assertSame( "unchanged branch not shared", mortalComposite, _mortalComposite);
+    }
+
     @Test
     public void testImmortalChildMakingMortalCompositeImmortal() throws MetricStatePathException {
         // Add a yet-to-expire metric to root composite.
@@ -1593,6 +1606,17 @@ public class StateCompositeTest extends InfoBaseTestHelper {
         StateTransition transition = new StateTransition();
         _rootComposite.buildTransition( null, metricPath, metricValue, transition);
         _rootComposite.applyTransition( null, transition);
+        updateBranches();
+    }
+
+    /**
+     * Applying a transition replaces the affected branches with modified copies, so
+     * update our references to the branches of the root StateComposite.
+     */
+    private void updateBranches() {
+        _ephemeralComposite = (StateComposite) _rootComposite.getChild( BRANCH_EPHEMERAL_NAME);
+        _mortalComposite = (StateComposite) _rootComposite.getChild( BRANCH_MORTAL_NAME);
+        _immortalComposite = (StateComposite) _rootComposite.getChild( BRANCH_IMMORTAL_NAME);
     }
 
 
@@ -0,0 +1,119 @@
+package org.dcache.services.info.gathers.poolmanager;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import diskCacheV111.pools.PoolCostInfo;
+import diskCacheV111.vehicles.CostModulePoolInfoUpdate;
+
+import org.dcache.services.info.base.IntegerStateValue;
+import org.dcache.services.info.base.QueuingStateUpdateManager;
+import org.dcache.services.info.base.StatePath;
+import org.dcache.services.info.base.StateUpdate;
+import org.dcache.services.info.gathers.MessageMetadataRepository;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+
+public class PoolCostUpdateMsgHandlerTests
+{
+    private static final long RESYNC_PERIOD = TimeUnit.MINUTES.toMillis(5);
+
+    private QueuingStateUpdateManager _sum;
+    private PoolCostUpdateMsgHandler _handler;
+
+    @Before
+    @SuppressWarnings("unchecked")
+    public void setUp()
+    {
+        _sum = new QueuingStateUpdateManager();
+        _handler = new PoolCostUpdateMsgHandler(_sum, mock(MessageMetadataRepository.class));
+    }
+
+    private static PoolCostInfo buildPoolCostInfo(String pool, long free)
+    {
+        PoolCostInfo cost = new PoolCostInfo(pool, "regular");
+        cost.setSpaceUsage(1000, free, 100, 200);
+        cost.setQueueSizes(0, 100, 0, 0, 100, 0);
+        cost.setP2pServerQueueSizes(0, 10, 0);
+        cost.setP2pClientQueueSizes(0, 10, 0);
+        cost.addExtendedMoverQueueSizes("regular", 1, 100, 0, 1, 0);
+        return cost;
+    }
+
+    private static CostModulePoolInfoUpdate buildUpdate(boolean isFull, PoolCostInfo... infos)
+    {
+        CostModulePoolInfoUpdate update = new CostModulePoolInfoUpdate(isFull, RESYNC_PERIOD);
+        for (PoolCostInfo info : infos) {
+            update.addPoolCostInfo(info.getPoolName(), info);
+        }
+        return update;
+    }
+
+    @Test
+    public void shouldApplyFullUpdate()
+    {
+        _handler.messageArrived(buildUpdate(true,
+                buildPoolCostInfo("pool1", 300), buildPoolCostInfo("pool2", 300)));
+
+        assertEquals(1, _sum.countPendingUpdates());
+        StateUpdate update = _sum.getQueue().remove();
+        assertTrue(update.hasUpdate(StatePath.parsePath("pools.pool1.space.free"), new IntegerStateValue(300)));
+        assertTrue(update.hasUpdate(StatePath.parsePath("pools.pool2.space.total"), new IntegerStateValue(1000)));
+        assertTrue(update.hasUpdate(StatePath.parsePath("pools.pool2.queues.named-queues.regular.active"),
+                new IntegerStateValue(1)));
+    }
+
+    @Test
+    public void shouldOnlyApplyChangedPools()
+    {
+        _handler.messageArrived(buildUpdate(true,
+                buildPoolCostInfo("pool1", 300), buildPoolCostInfo("pool2", 300)));
+        _sum.getQueue().clear();
+
+        _handler.messageArrived(buildUpdate(false, buildPoolCostInfo("pool1", 200)));
+
+        StateUpdate update = _sum.getQueue().remove();
+        assertTrue(update.hasUpdate(StatePath.parsePath("pools.pool1.space.free"), new IntegerStateValue(200)));
+        assertTrue(update.hasPurge(StatePath.parsePath("pools.pool1.queues.named-queues")));
+        assertFalse(update.hasUpdate(StatePath.parsePath("pools.pool2.space.free"), new IntegerStateValue(300)));
+        assertFalse(update.hasPurge(StatePath.parsePath("pools.pool2.space")));
+    }
+
+    @Test
+    public void shouldPurgeRemovedPool()
+    {
+        _handler.messageArrived(buildUpdate(true,
+                buildPoolCostInfo("pool1", 300), buildPoolCostInfo("pool2", 300)));
+        _sum.getQueue().clear();
+
+        CostModulePoolInfoUpdate delta = buildUpdate(false);
+        delta.addRemovedPools(Collections.singleton("pool2"));
+        _handler.messageArrived(delta);
+
+        StateUpdate update = _sum.getQueue().remove();
+        assertTrue(update.hasPurge(StatePath.parsePath("pools.pool2.space")));
+        assertTrue(update.hasPurge(StatePath.parsePath("pools.pool2.queues")));
+        assertFalse(update.hasPurge(StatePath.parsePath("pools.pool1.space")));
+        assertEquals(0, update.count());
+    }
+
+    @Test
+    public void shouldPurgePoolMissingFromFullUpdate()
+    {
+        _handler.messageArrived(buildUpdate(true,
+                buildPoolCostInfo("pool1", 300), buildPoolCostInfo("pool2", 300)));
+        _sum.getQueue().clear();
+
+        _handler.messageArrived(buildUpdate(true, buildPoolCostInfo("pool1", 300)));
+
+        StateUpdate update = _sum.getQueue().remove();
+        assertTrue(update.hasPurge(StatePath.parsePath("pools.pool2.space")));
+        assertTrue(update.hasUpdate(StatePath.parsePath("pools.pool1.space.free"), new IntegerStateValue(300)));
+    }
+}
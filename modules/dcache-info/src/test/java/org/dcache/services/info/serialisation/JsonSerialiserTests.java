@@ -0,0 +1,75 @@
+package org.dcache.services.info.serialisation;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import org.dcache.services.info.base.State;
+import org.dcache.services.info.base.StatePath;
+import org.dcache.services.info.base.StateUpdate;
+import org.dcache.services.info.base.StringStateValue;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class JsonSerialiserTests {
+
+    State _state;
+    JsonSerialiser _serialiser;
+    JsonSerialiser _uncachedSerialiser;
+
+    @Before
+    public void setUp() {
+        _state = new State();
+        updateState( "pools.pool-1.state", "enabled");
+        updateState( "pools.pool-1.space.total", "100");
+        updateState( "pools.pool-2.state", "enabled");
+        updateState( "domains.dCacheDomain.cells.PoolManager.version", "5.1");
+
+        _serialiser = new JsonSerialiser();
+        _serialiser.setStateExhibitor( _state);
+        _uncachedSerialiser = new JsonSerialiser() {
+            @Override
+            public boolean isCacheable( StatePath path) {
+                return false;
+            }
+        };
+        _uncachedSerialiser.setStateExhibitor( _state);
+    }
+
+    @Test
+    public void testCachedBranchesMatchUncachedOutput() {
+        String first = _serialiser.serialise();
+        String second = _serialiser.serialise();
+
+        assertEquals( _uncachedSerialiser.serialise(), first);
+        assertEquals( first, second);
+    }
+
+    @Test
+    public void testCachedBranchesMatchUncachedSubtreeOutput() {
+        _serialiser.serialise();
+
+        for (String path : new String[] {"pools", "pools.pool-1", "domains.dCacheDomain.cells"}) {
+            StatePath start = StatePath.parsePath( path);
+            assertEquals( _uncachedSerialiser.serialise( start), _serialiser.serialise( start));
+            assertEquals( _uncachedSerialiser.serialise( start), _serialiser.serialise( start));
+        }
+    }
+
+    @Test
+    public void testCachedBranchUpdatedOnChange() {
+        _serialiser.serialise();
+
+        updateState( "pools.pool-1.state", "disabled");
+        String result = _serialiser.serialise();
+
+        assertEquals( _uncachedSerialiser.serialise(), result);
+        assertTrue( result.contains( "\"disabled\""));
+    }
+
+    private void updateState( String path, String value) {
+        StateUpdate update = new StateUpdate();
+        update.appendUpdate( StatePath.parsePath( path), new StringStateValue( value, true));
+        _state.processUpdate( update);
+    }
+}
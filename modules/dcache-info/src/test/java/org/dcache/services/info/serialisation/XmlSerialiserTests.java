@@ -19,9 +19,14 @@ import org.xml.sax.helpers.XMLReaderFactory;
 import java.io.IOException;
 import java.io.StringReader;
 
+import org.dcache.services.info.base.State;
 import org.dcache.services.info.base.StatePath;
+import org.dcache.services.info.base.StateUpdate;
+import org.dcache.services.info.base.StringStateValue;
 import org.dcache.services.info.base.TestStateExhibitor;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 public class XmlSerialiserTests {
@@ -135,6 +140,55 @@ public class XmlSerialiserTests {
         assertXmlValidates( RNC_DCACHE_DOMAIN, result);
     }
 
+    @Test
+    public void testCachedBranchesMatchUncachedOutput() {
+        State state = new State();
+        updateState( state, "pools.pool-1.state", "enabled");
+        updateState( state, "pools.pool-2.state", "enabled");
+
+        XmlSerialiser serialiser = new XmlSerialiser();
+        serialiser.setStateExhibitor( state);
+        XmlSerialiser uncachedSerialiser = new XmlSerialiser() {
+            @Override
+            public boolean isCacheable( StatePath path) {
+                return false;
+            }
+        };
+        uncachedSerialiser.setStateExhibitor( state);
+
+        String first = serialiser.serialise();
+        String second = serialiser.serialise();
+
+        assertEquals( uncachedSerialiser.serialise(), first);
+        assertEquals( first, second);
+        assertEquals( uncachedSerialiser.serialise( StatePath.parsePath( "pools.pool-1")),
+                serialiser.serialise( StatePath.parsePath( "pools.pool-1")));
+    }
+
+    @Test
+    public void testCachedBranchUpdatedOnChange() {
+        State state = new State();
+        updateState( state, "pools.pool-1.state", "enabled");
+        updateState( state, "pools.pool-2.state", "enabled");
+
+        XmlSerialiser serialiser = new XmlSerialiser();
+        serialiser.setStateExhibitor( state);
+        serialiser.serialise();
+
+        updateState( state, "pools.pool-1.state", "disabled");
+        String result = serialiser.serialise();
+
+        assertTrue( result.contains( ">disabled<"));
+        assertTrue( result.contains( ">enabled<"));
+        assertEquals( result.indexOf( ">enabled<"), result.lastIndexOf( ">enabled<"));
+    }
+
+    private static void updateState( State state, String path, String value) {
+        StateUpdate update = new StateUpdate();
+        update.appendUpdate( StatePath.parsePath( path), new StringStateValue( value, true));
+        state.processUpdate( update);
+    }
+
     private void assertXmlValidates( String rncGrammar, String xmlData) {
         Validator validator = createValidator( rncGrammar);
         XMLReader reader = createValidatingXmlReader( validator);
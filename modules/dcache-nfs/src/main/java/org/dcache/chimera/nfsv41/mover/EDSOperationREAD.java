@@ -58,18 +58,24 @@ public class EDSOperationREAD extends AbstractNFSv4Operation {
             }
             mover.attachSession(context.getSession());
 
-            ByteBuffer bb = BUFFERS.get();
-            bb.clear().limit(count);
             RepositoryChannel fc = mover.getMoverChannel();
-
-            bb.rewind();
-            int bytesRead = fc.read(bb, offset);
+            int bytesRead;
+            ByteBuffer bb = mover.readMapped(offset, count);
+            if (bb != null) {
+                bytesRead = bb.remaining();
+            } else {
+                bb = BUFFERS.get();
+                bb.clear().limit(count);
+
+                bb.rewind();
+                bytesRead = fc.read(bb, offset);
+                bb.flip();
+            }
 
             res.status = nfsstat.NFS_OK;
             res.resok4 = new READ4resok();
-            bb.flip();
             res.resok4.data = bb;
-            if( bytesRead == -1 || offset + bytesRead == fc.size() ) {
+            if( bytesRead == -1 || offset + bytesRead >= fc.size() ) {
                 res.resok4.eof = true;
             }
 
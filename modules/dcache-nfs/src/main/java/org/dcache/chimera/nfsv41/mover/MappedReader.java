@@ -0,0 +1,175 @@
+/* dCache - http://www.dcache.org/
+ *
+ * Copyright (C) 2018 Deutsches Elektronen-Synchrotron
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.dcache.chimera.nfsv41.mover;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.util.concurrent.Executor;
+
+import org.dcache.pool.repository.FileRepositoryChannel;
+
+import static org.dcache.util.ByteUnit.MiB;
+
+/**
+ * Serves reads of a replica from memory mapped windows of the file.
+ *
+ * The buffers returned by {@link #read} are slices of the mapping, thus the
+ * data is copied from the page cache straight into the RPC reply rather than
+ * first being read into an intermediate buffer.
+ *
+ * When a client reads sequentially past the middle of a window, the
+ * following window is mapped and its pages are loaded in the background,
+ * so that the data is in the page cache by the time the client asks for it.
+ *
+ * Windows are only mapped for sequential reads, thus at most two windows
+ * of a replica are mapped at any time. Other reads, and reads for which
+ * the file cannot be mapped, are left to the caller.
+ *
+ * Mappings are released when garbage collected. Until then, the disk
+ * space of a replica that is deleted while being read remains in use.
+ */
+class MappedReader
+{
+    private static final Logger LOGGER = LoggerFactory.getLogger(MappedReader.class);
+
+    static final long WINDOW_SIZE = MiB.toBytes(16L);
+
+    private final FileRepositoryChannel _channel;
+    private final long _size;
+    private final Executor _readAhead;
+
+    /**
+     * Most recently used window and the window following it, if read
+     * ahead. Guarded by this.
+     */
+    private Window _current;
+    private Window _next;
+
+    /**
+     * Offset following the most recent read. Guarded by this.
+     */
+    private long _position;
+
+    /**
+     * @param channel the replica to read
+     * @param readAhead executor loading the pages of the next window
+     */
+    MappedReader(FileRepositoryChannel channel, Executor readAhead) throws IOException
+    {
+        _channel = channel;
+        _size = channel.size();
+        _readAhead = readAhead;
+    }
+
+    /**
+     * Returns a read-only buffer with up to {@code count} bytes of the file
+     * starting at {@code offset}. The buffer is empty if the offset is at or
+     * beyond the end of the file. Returns null if the data is not in a
+     * mapped window and the read does not continue the previous read, or if
+     * the file could not be mapped. The caller is expected to read the data
+     * by other means in that case.
+     */
+    synchronized ByteBuffer read(long offset, int count)
+    {
+        if (offset >= _size) {
+            return ByteBuffer.allocate(0);
+        }
+        long end = Math.min(_size, offset + count);
+        boolean isSequential = offset == _position;
+        _position = end;
+
+        Window window;
+        if (_current != null && _current.contains(offset, end)) {
+            window = _current;
+        } else if (_next != null && _next.contains(offset, end)) {
+            window = _next;
+            _current = _next;
+            _next = null;
+        } else if (isSequential) {
+            long start = offset - offset % WINDOW_SIZE;
+            if (end > start + WINDOW_SIZE) {
+                start = offset;
+            }
+            window = map(start, Math.max(WINDOW_SIZE, end - start));
+            if (window == null) {
+                return null;
+            }
+            _current = window;
+            _next = null;
+        } else {
+            return null;
+        }
+
+        if (_next == null && window.end < _size && end > window.start + (window.end - window.start) / 2) {
+            _next = map(window.end, WINDOW_SIZE);
+            if (_next != null) {
+                MappedByteBuffer pages = _next.buffer;
+                _readAhead.execute(() -> {
+                    try {
+                        pages.load();
+                    } catch (RuntimeException e) {
+                        LOGGER.debug("Read-ahead failed: {}", e.toString());
+                    }
+                });
+            }
+        }
+
+        ByteBuffer data = window.buffer.duplicate();
+        data.limit((int) (end - window.start)).position((int) (offset - window.start));
+        return data.slice();
+    }
+
+    /**
+     * Maps a window of the file, or returns null if mapping fails, e.g.
+     * because the address space or the limit on the number of mappings is
+     * exhausted.
+     */
+    private Window map(long start, long length)
+    {
+        long end = Math.min(_size, start + length);
+        try {
+            return new Window(start, end, _channel.map(start, end - start));
+        } catch (IOException e) {
+            LOGGER.warn("Failed to map {} bytes at offset {}: {}", end - start, start, e.toString());
+            return null;
+        }
+    }
+
+    private static class Window
+    {
+        final long start;
+        final long end;
+        final MappedByteBuffer buffer;
+
+        Window(long start, long end, MappedByteBuffer buffer)
+        {
+            this.start = start;
+            this.end = end;
+            this.buffer = buffer;
+        }
+
+        boolean contains(long lower, long upper)
+        {
+            return start <= lower && upper <= end;
+        }
+    }
+}
@@ -22,7 +22,10 @@ import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
 import java.nio.channels.CompletionHandler;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.Executor;
 
 import diskCacheV111.util.CacheException;
 import diskCacheV111.util.DiskErrorCacheException;
@@ -39,7 +42,9 @@ import org.dcache.nfs.v4.xdr.stateid4;
 import org.dcache.nfs.status.NfsIoException;
 import org.dcache.pool.classic.Cancellable;
 import org.dcache.pool.classic.ChecksumModule;
+import org.dcache.pool.movers.MoverChannel;
 import org.dcache.pool.movers.MoverChannelMover;
+import org.dcache.pool.repository.FileRepositoryChannel;
 import org.dcache.pool.repository.ReplicaDescriptor;
 import org.dcache.vehicles.FileAttributes;
 
@@ -51,6 +56,9 @@ public class NfsMover extends MoverChannelMover<NFS4ProtocolInfo, NfsMover> {
     private final NFS4State _state;
     private final PnfsHandler _namespace;
     private volatile CompletionHandler<Void, Void> _completionHandler;
+    private final boolean _useMappedReads;
+    private final Executor _readAheadExecutor;
+    private volatile MappedReader _mappedReader;
 
     public NfsMover(ReplicaDescriptor handle, PoolIoFileMessage message, CellPath pathToDoor,
             NfsTransferService nfsTransferService, PnfsHandler pnfsHandler, ChecksumModule checksumModule) {
@@ -59,6 +67,8 @@ public class NfsMover extends MoverChannelMover<NFS4ProtocolInfo, NfsMover> {
         org.dcache.chimera.nfs.v4.xdr.stateid4 legacyStateid =  getProtocolInfo().stateId();
         _state = new MoverState(null, new stateid4(legacyStateid.other, legacyStateid.seqid.value));
         _namespace = pnfsHandler;
+        _useMappedReads = nfsTransferService.isMappedRead();
+        _readAheadExecutor = nfsTransferService.getReadAheadExecutor();
     }
 
     public stateid4 getStateId() {
@@ -89,7 +99,18 @@ public class NfsMover extends MoverChannelMover<NFS4ProtocolInfo, NfsMover> {
      */
     public Cancellable enable(final CompletionHandler<Void,Void> completionHandler) throws DiskErrorCacheException, InterruptedIOException {
 
-        open();
+        MoverChannel<NFS4ProtocolInfo> channel = open();
+        if (_useMappedReads && !getIoMode().contains(StandardOpenOption.WRITE)) {
+            try {
+                FileRepositoryChannel fileChannel =
+                        channel.optionallyAs(FileRepositoryChannel.class).orElse(null);
+                if (fileChannel != null) {
+                    _mappedReader = new MappedReader(fileChannel, _readAheadExecutor);
+                }
+            } catch (IOException e) {
+                _log.warn("Failed to prepare memory mapped reads: {}", e.toString());
+            }
+        }
         _completionHandler = completionHandler;
         _nfsIO.add(this);
         return (e) -> disable(null);
@@ -103,6 +124,7 @@ public class NfsMover extends MoverChannelMover<NFS4ProtocolInfo, NfsMover> {
      */
     void disable(Throwable error) {
         _nfsIO.remove(NfsMover.this);
+        _mappedReader = null;
         detachSession();
         try {
             getMoverChannel().close();
@@ -116,6 +138,23 @@ public class NfsMover extends MoverChannelMover<NFS4ProtocolInfo, NfsMover> {
         }
     }
 
+    /**
+     * Returns a buffer with up to {@code count} bytes of the replica starting
+     * at {@code offset} backed by a memory mapping of the file, or null if
+     * this read is not served from a memory mapping.
+     */
+    ByteBuffer readMapped(long offset, int count) {
+        MappedReader reader = _mappedReader;
+        if (reader == null) {
+            return null;
+        }
+        ByteBuffer data = reader.read(offset, count);
+        if (data != null) {
+            getMoverChannel().recordTransferred(data.remaining());
+        }
+        return data;
+    }
+
     /**
      * Attach mover tho the client's NFSv41 session.
      * @param session to attach to
@@ -2,6 +2,7 @@ package org.dcache.chimera.nfsv41.mover;
 
 import com.google.common.collect.Sets;
 import com.google.common.io.Files;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import org.ietf.jgss.GSSException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -21,8 +22,12 @@ import java.nio.charset.StandardCharsets;
 import java.nio.file.OpenOption;
 import java.nio.file.StandardOpenOption;
 import java.util.Collection;
+import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.Callable;
 import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 import diskCacheV111.util.CacheException;
 import diskCacheV111.util.DiskErrorCacheException;
@@ -65,6 +70,9 @@ public class NfsTransferService
         implements MoverFactory, TransferService<NfsMover>, CellCommandListener, CellInfoProvider, CellIdentityAware
 {
     private static final Logger _log = LoggerFactory.getLogger(NfsTransferService.class);
+
+    private static final int READ_AHEAD_THREADS = 4;
+    private static final int READ_AHEAD_QUEUE = 64;
     private NFSv4MoverHandler _nfsIO;
     private boolean _withGss;
     private InetSocketAddress[] _localSocketAddresses;
@@ -77,6 +85,18 @@ public class NfsTransferService
     private int _minTcpPort;
     private int _maxTcpPort;
     private IoStrategy _ioStrategy;
+    private boolean _mappedRead;
+
+    /**
+     * Loads the pages of memory mapped windows ahead of sequential reads.
+     * Read-ahead is merely an optimization, so requests exceeding the
+     * capacity of the queue are dropped.
+     */
+    private final ThreadPoolExecutor _readAheadExecutor =
+            new ThreadPoolExecutor(READ_AHEAD_THREADS, READ_AHEAD_THREADS, 60, TimeUnit.SECONDS,
+                                   new ArrayBlockingQueue<>(READ_AHEAD_QUEUE),
+                                   new ThreadFactoryBuilder().setNameFormat("nfs-read-ahead-%d").build(),
+                                   new ThreadPoolExecutor.DiscardPolicy());
 
     /**
      * file to store TCP port number used by pool.
@@ -198,6 +218,7 @@ public class NfsTransferService
     }
 
     public void shutdown() throws IOException {
+        _readAheadExecutor.shutdownNow();
         _nfsIO.shutdown();
         _nfsIO.getNFSServer().getStateHandler().shutdown();
     }
@@ -251,6 +272,19 @@ public class NfsTransferService
         _withGss = withGss;
     }
 
+    @Required
+    public void setMappedRead(boolean mappedRead) {
+        _mappedRead = mappedRead;
+    }
+
+    public boolean isMappedRead() {
+        return _mappedRead;
+    }
+
+    Executor getReadAheadExecutor() {
+        return _readAheadExecutor;
+    }
+
     private InetSocketAddress[] localSocketAddresses(Collection<InetAddress> addresses, int port) {
         return addresses.stream().map(address -> new InetSocketAddress(address, port)).toArray(InetSocketAddress[]::new);
     }
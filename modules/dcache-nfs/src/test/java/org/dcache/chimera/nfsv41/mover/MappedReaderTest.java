@@ -0,0 +1,144 @@
+package org.dcache.chimera.nfsv41.mover;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+
+import org.dcache.pool.repository.FileRepositoryChannel;
+
+import static org.dcache.util.ByteUnit.MiB;
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class MappedReaderTest
+{
+    private static final long FILE_SIZE = 2 * MappedReader.WINDOW_SIZE + 100;
+    private static final int COUNT = MiB.toBytes(1);
+
+    private final List<Runnable> readAheads = new ArrayList<>();
+
+    private Path file;
+    private FileRepositoryChannel channel;
+
+    @Before
+    public void setUp() throws IOException
+    {
+        file = Files.createTempFile("mapped-reader", null);
+        try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw")) {
+            raf.setLength(FILE_SIZE);
+            for (long offset = 0; offset < FILE_SIZE; offset += COUNT) {
+                raf.seek(offset);
+                raf.writeLong(offset);
+            }
+        }
+        channel = new FileRepositoryChannel(file, EnumSet.of(StandardOpenOption.READ));
+    }
+
+    @After
+    public void tearDown() throws IOException
+    {
+        channel.close();
+        Files.delete(file);
+    }
+
+    @Test
+    public void shouldServeSequentialReadsFromMapping() throws IOException
+    {
+        MappedReader reader = new MappedReader(channel, readAheads::add);
+
+        for (long offset = 0; offset < 4 * COUNT; offset += COUNT) {
+            ByteBuffer data = reader.read(offset, COUNT);
+            assertThat(data.remaining(), is(COUNT));
+            assertThat(data.getLong(), is(offset));
+        }
+        assertThat(readAheads, is(empty()));
+    }
+
+    @Test
+    public void shouldReadAheadWhenPassingMiddleOfWindow() throws IOException
+    {
+        MappedReader reader = new MappedReader(channel, readAheads::add);
+
+        long offset = 0;
+        while (offset + COUNT <= MappedReader.WINDOW_SIZE / 2) {
+            reader.read(offset, COUNT);
+            offset += COUNT;
+        }
+        assertThat(readAheads, is(empty()));
+
+        reader.read(offset, COUNT);
+        assertThat(readAheads, hasSize(1));
+        readAheads.get(0).run();
+
+        ByteBuffer data = reader.read(MappedReader.WINDOW_SIZE, COUNT);
+        assertThat(data.getLong(), is(MappedReader.WINDOW_SIZE));
+    }
+
+    @Test
+    public void shouldLeaveRandomReadsToCaller() throws IOException
+    {
+        MappedReader reader = new MappedReader(channel, readAheads::add);
+        long offset = MappedReader.WINDOW_SIZE + 4 * COUNT;
+
+        assertThat(reader.read(0, COUNT), is(notNullValue()));
+        assertThat(reader.read(offset, COUNT), is(nullValue()));
+
+        ByteBuffer data = reader.read(offset + COUNT, COUNT);
+        assertThat(data, is(notNullValue()));
+        assertThat(data.getLong(), is(offset + COUNT));
+    }
+
+    @Test
+    public void shouldServeReadsWithinMappedWindow() throws IOException
+    {
+        MappedReader reader = new MappedReader(channel, readAheads::add);
+
+        reader.read(0, COUNT);
+        ByteBuffer data = reader.read(3 * COUNT, COUNT);
+
+        assertThat(data, is(notNullValue()));
+        assertThat(data.getLong(), is(3L * COUNT));
+    }
+
+    @Test
+    public void shouldTruncateReadsAtEndOfFile() throws IOException
+    {
+        MappedReader reader = new MappedReader(channel, readAheads::add);
+        long offset = 2 * MappedReader.WINDOW_SIZE - COUNT;
+
+        for (long position = 0; position < offset; position += COUNT) {
+            reader.read(position, COUNT);
+        }
+        reader.read(offset, COUNT);
+
+        ByteBuffer data = reader.read(offset + COUNT, COUNT);
+        assertThat(data.remaining(), is(100));
+        assertThat(data.getLong(), is(offset + COUNT));
+        assertThat(reader.read(FILE_SIZE, COUNT).remaining(), is(0));
+    }
+
+    @Test
+    public void shouldLeaveReadsToCallerIfMappingFails() throws IOException
+    {
+        FileRepositoryChannel failing = mock(FileRepositoryChannel.class);
+        when(failing.size()).thenReturn(FILE_SIZE);
+        when(failing.map(anyLong(), anyLong())).thenThrow(new IOException("Map failed"));
+        MappedReader reader = new MappedReader(failing, readAheads::add);
+
+        assertThat(reader.read(0, COUNT), is(nullValue()));
+        assertThat(reader.read(COUNT, COUNT), is(nullValue()));
+    }
+}
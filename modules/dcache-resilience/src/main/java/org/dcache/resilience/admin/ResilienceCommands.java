@@ -261,6 +261,26 @@ public final class ResilienceCommands implements CellCommandListener {
         }
     }
 
+    @Command(name = "diag scans",
+                    hint = "print pool scan throughput",
+                    description = "Lists the most recent scan of each pool, "
+                                    + "with the number of inumber ranges "
+                                    + "completed, the number of locations "
+                                    + "scanned, the number of files for which "
+                                    + "an operation was registered, and the "
+                                    + "scan rate in locations per second.")
+    class DiagScansCommand extends ResilienceCommand {
+        @Argument(required = false,
+                  usage = "Include only pools matching this regular "
+                                  + "expression.")
+        String pools;
+
+        @Override
+        protected String doCall() throws Exception {
+            return namespaceAccess.getScanInfo(pools);
+        }
+    }
+
     @Command(name = "disable",
                     hint = "turn off replication handling",
                     description = "Prevents messages from being processed by "
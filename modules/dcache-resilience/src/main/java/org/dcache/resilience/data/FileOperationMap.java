@@ -61,17 +61,19 @@ package org.dcache.resilience.data;
 
 import com.google.common.annotations.VisibleForTesting;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Deque;
 import java.util.HashMap;
 import java.util.Iterator;
-import java.util.LinkedList;
+import java.util.List;
 import java.util.Map;
-import java.util.NoSuchElementException;
 import java.util.Queue;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
@@ -86,6 +88,7 @@ import org.dcache.resilience.handlers.PoolTaskCompletionHandler;
 import org.dcache.resilience.util.BrokenFileTask;
 import org.dcache.resilience.util.CacheExceptionUtils;
 import org.dcache.resilience.util.CacheExceptionUtils.FailureType;
+import org.dcache.resilience.util.CheckpointJournal;
 import org.dcache.resilience.util.CheckpointUtils;
 import org.dcache.resilience.util.ForegroundBackgroundAllocator;
 import org.dcache.resilience.util.ForegroundBackgroundAllocator.ForegroundBackgroundAllocation;
@@ -130,9 +133,11 @@ import org.dcache.vehicles.FileAttributes;
  *      is balanced in proportion to the number of waiting operations on each
  *      queue.</p>
  *
- * <p>A periodic checkpointer, if on, writes out selected data from each
- *      operation entry.  In the case of crash and restart of this domain,
- *      the checkpoint file is reloaded into memory.</p>
+ * <p>When checkpointing is on, the addition and removal of each operation
+ *      is recorded in an append-only journal (see {@link CheckpointJournal}),
+ *      which the periodic checkpointer flushes and occasionally compacts.
+ *      In the case of crash and restart of this domain, the journal is
+ *      replayed into memory.</p>
  *
  * <p>Access to the index map is not synchronized, because
  *      it is implemented using a ConcurrentHashMap.  This is the most
@@ -140,8 +145,9 @@ import org.dcache.vehicles.FileAttributes;
  *      place concurrently with any consumer thread removes.  All
  *      updating of operation state or settings in fact is done through
  *      an index read, since the necessary synchronization of those
- *      values is handled inside the operation object.  Only the initial
- *      queueing and cancellation requests require additional synchronization.</p>
+ *      values is handled inside the operation object.  The initial
+ *      queueing and cancellation requests are passed to the consumer through
+ *      lock-free queues.</p>
  *
  * <p>However, since index reads are not blocked, the list and count methods,
  *      which filter against the index (and not the queues), along with
@@ -158,6 +164,11 @@ public class FileOperationMap extends RunnableModule {
 
     private static final String COUNTS_FORMAT = "    %-24s %15s\n";
 
+    /**
+     *  <p>Maximum number of incoming operations queued per scan.</p>
+     */
+    private static final int MAX_INCOMING_BATCH = 10000;
+
     final class Checkpointer implements Runnable {
         long     last;
         long     expiry;
@@ -199,13 +210,14 @@ public class FileOperationMap extends RunnableModule {
         }
 
         /**
-         * Writes out data from the operation map to the checkpoint file.
+         * Flushes or compacts the checkpoint journal.
          */
         @VisibleForTesting
         void save() {
             long start = System.currentTimeMillis();
-            long count = CheckpointUtils.save(path, poolInfoMap,
-                                              index.values().iterator());
+            long count = journal.checkpoint(path, poolInfoMap,
+                                            index.values().iterator(),
+                                            index.size());
             last = System.currentTimeMillis();
             counters.recordCheckpoint(last, last - start, count);
         }
@@ -241,21 +253,29 @@ public class FileOperationMap extends RunnableModule {
             toProcess.clear();
         }
 
+        /**
+         *  <p>At most {@link #MAX_INCOMING_BATCH} operations are moved
+         *      per scan, so that a flood of new operations, such as from
+         *      a large pool going down, does not hold up the processing of
+         *      running ones.  If more remain, another scan follows
+         *      immediately.</p>
+         */
         private void appendIncoming() {
-            synchronized (incoming) {
-                while (true) {
-                    try {
-                        FileOperation operation = incoming.remove();
-                        if (operation.isBackground()) {
-                            background.addLast(operation);
-                        } else {
-                            foreground.addLast(operation);
-                        }
-                    } catch (NoSuchElementException e) {
-                        break;
-                    }
+            for (int i = 0; i < MAX_INCOMING_BATCH; i++) {
+                FileOperation operation = incoming.poll();
+                if (operation == null) {
+                    return;
+                }
+                if (operation.isBackground()) {
+                    background.addLast(operation);
+                } else {
+                    foreground.addLast(operation);
                 }
             }
+
+            if (!incoming.isEmpty()) {
+                signalled.incrementAndGet();
+            }
         }
 
         /**
@@ -291,9 +311,13 @@ public class FileOperationMap extends RunnableModule {
         private void gatherCanceled() {
             Collection<FileMatcher> filters = new ArrayList<>();
 
-            synchronized (cancelFilters) {
-                filters.addAll(cancelFilters);
-                cancelFilters.clear();
+            for (FileMatcher filter = cancelFilters.poll(); filter != null;
+                 filter = cancelFilters.poll()) {
+                filters.add(filter);
+            }
+
+            if (filters.isEmpty()) {
+                return;
             }
 
             cancel(running, filters, toProcess);
@@ -514,36 +538,29 @@ public class FileOperationMap extends RunnableModule {
         }
 
         /**
-         * <p>Dequeues up to the indicated number of operations and submits
-         *      them.</p>
+         * <p>Dequeues up to the indicated number of operations as a batch,
+         *      moves them to running and then submits them.</p>
          */
         private long promoteToRunning(Queue<FileOperation> queue, long limit) {
-            for (int i = 0; i < limit; i++) {
+            int size = (int) Math.max(0, Math.min(limit, queue.size()));
+            List<FileOperation> batch = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
                 FileOperation operation = queue.poll();
-                if (operation == null) {
-                    return limit - i;
-                }
-                submit(operation);
+                operation.setTask(new ResilientFileTask(operation.getPnfsId(),
+                                                        operation.getRetried(),
+                                                        operationHandler));
+                operation.setState(FileOperation.RUNNING);
+                batch.add(operation);
             }
-            return 0;
+            running.addAll(batch);
+            batch.forEach(FileOperation::submit);
+            return limit - size;
         }
 
         private void reset() {
             fgAvailable = 0;
             bgAvailable = 0;
         }
-
-        /**
-         * <p>Task is submitted to an appropriate executor service.</p>
-         */
-        private void submit(FileOperation operation) {
-            operation.setTask(new ResilientFileTask(operation.getPnfsId(),
-                            operation.getRetried(),
-                            operationHandler));
-            operation.setState(FileOperation.RUNNING);
-            running.add(operation);
-            operation.submit();
-        }
     }
 
     /**
@@ -555,11 +572,13 @@ public class FileOperationMap extends RunnableModule {
      *      even with a large copyThreads value, so we have not specified the
      *      constructor parameters.</p>
      */
-    final Map<PnfsId, FileOperation> index = new ConcurrentHashMap<>();
+    final ConcurrentMap<PnfsId, FileOperation> index = new ConcurrentHashMap<>();
 
     /**
      *  <p>These queues are entirely used by the consumer thread. Hence
-     *      there is no need for synchronization on any of them.</p>
+     *      there is no need for synchronization on any of them.  They
+     *      are array-backed, as linked nodes would add considerably to the
+     *      footprint when millions of operations are waiting.</p>
      *
      *  <p>The order for election to run is FIFO.  The operation is
      *      removed from these waiting queues and added to running;
@@ -568,17 +587,19 @@ public class FileOperationMap extends RunnableModule {
      *      is to be done, but to restoring it to the head of the
      *      queue if there is a retriable failure.</p>
      */
-    final Deque<FileOperation> foreground = new LinkedList<>();
-    final Deque<FileOperation> background = new LinkedList<>();
-    final Queue<FileOperation> running    = new LinkedList<>();
+    final Deque<FileOperation> foreground = new ArrayDeque<>();
+    final Deque<FileOperation> background = new ArrayDeque<>();
+    final Queue<FileOperation> running    = new ArrayDeque<>();
 
     /**
      *  <p>Queue of incoming/ready operations.  This buffer is
      *       shared between the handler and consumer threads, to avoid
      *       synchronizing the internal queues.  The incoming operations
-     *       are appended to the latter during the consumer scan.</p>
+     *       are appended to the latter during the consumer scan.
+     *       It is lock-free, so that handler threads never wait on the
+     *       consumer.</p>
      */
-    final Queue<FileOperation> incoming = new LinkedList<>();
+    final Queue<FileOperation> incoming = new ConcurrentLinkedQueue<>();
 
     /**
      *  <p>List of filters for cancelling operations.  This buffer is
@@ -587,7 +608,7 @@ public class FileOperationMap extends RunnableModule {
      *       as it would have to be atomic anyway.  This avoids once again any
      *       extra locking on the internal queues.</p>
      */
-    final Collection<FileMatcher> cancelFilters = new ArrayList<>();
+    final Queue<FileMatcher> cancelFilters = new ConcurrentLinkedQueue<>();
 
     /**
      * <p>For recovery.</p>
@@ -595,6 +616,9 @@ public class FileOperationMap extends RunnableModule {
     @VisibleForTesting
     final Checkpointer checkpointer = new Checkpointer();
 
+    @VisibleForTesting
+    final CheckpointJournal journal = new CheckpointJournal();
+
     /**
      * <p>The consumer thread logic is encapsulated in these two processors.</p>
      */
@@ -668,9 +692,7 @@ public class FileOperationMap extends RunnableModule {
      * <p>The actual scan is conducted by the consumer thread.</p>
      */
     public void cancel(FileMatcher filter) {
-        synchronized (cancelFilters) {
-            cancelFilters.add(filter);
-        }
+        cancelFilters.add(filter);
         signalAll();
     }
 
@@ -962,6 +984,7 @@ public class FileOperationMap extends RunnableModule {
         if (checkpointer.thread != null) {
             checkpointer.thread.interrupt();
         }
+        journal.close();
     }
 
     /**
@@ -1042,18 +1065,28 @@ public class FileOperationMap extends RunnableModule {
     }
 
     private boolean add(PnfsId pnfsId, FileOperation operation) {
-        synchronized (incoming) {
-            FileOperation present = index.get(pnfsId);
-
-            if (present != null) {
-                present.updateOperation(operation);
-                return false;
+        /*
+         *  The operation is journaled while holding the lock of its
+         *  index entry, and before the consumer can see it, so that
+         *  a removal cannot be journaled before the addition.
+         */
+        FileOperation[] present = new FileOperation[1];
+        index.compute(pnfsId, (k, v) -> {
+            if (v != null) {
+                present[0] = v;
+                return v;
             }
+            journal.add(operation, poolInfoMap);
+            return operation;
+        });
 
-            index.put(pnfsId, operation);
-            incoming.add(operation);
+        if (present[0] != null) {
+            present[0].updateOperation(operation);
+            return false;
         }
 
+        incoming.add(operation);
+
         signalAll();
 
         return true;
@@ -1068,15 +1101,19 @@ public class FileOperationMap extends RunnableModule {
         background.clear();
         running.clear();
         cancelFilters.clear();
-        synchronized (incoming) {
-            incoming.clear();
-        }
+        incoming.clear();
         index.clear();
     }
 
     private void remove(PnfsId pnfsId, boolean failed) {
-        FileOperation operation = index.remove(pnfsId);
-
+        FileOperation[] removed = new FileOperation[1];
+        index.computeIfPresent(pnfsId, (k, v) -> {
+            removed[0] = v;
+            journal.remove(pnfsId);
+            return null;
+        });
+
+        FileOperation operation = removed[0];
         if (operation == null) {
             return;
         }
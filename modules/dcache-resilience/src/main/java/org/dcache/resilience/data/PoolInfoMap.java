@@ -134,20 +134,29 @@ import org.dcache.vehicles.FileAttributes;
  *      the {@link MapInitializer} at startup, and
  *      thereafter by the {@link PoolInfoChangeHandler}</p>
  *
- * <p>This class benefits from read-write synchronization, since there will
- *      be many more reads of what is for the most part stable information
- *      (note that the periodically refreshed information is synchronized
- *      within the PoolInformation object itself; hence changes
- *      to those values do not require a write lock; e.g., #updatePoolStatus.)</p>
+ * <p>Since there are many more reads of what is for the most part stable
+ *      information than there are updates, the read methods do not lock.
+ *      Instead, each {@link #apply(PoolInfoDiff)} publishes an immutable
+ *      snapshot of the tables, flattened into arrays indexed by pool, group
+ *      and unit index, through a volatile reference.  A reader dereferences
+ *      the snapshot once and thus sees a consistent view for the duration
+ *      of the call; location selection and verification for thousands
+ *      of files per second then neither contend with one another nor
+ *      with a refresh.  The write lock still serializes
+ *      {@link #compare(PoolMonitor)} against {@link #apply(PoolInfoDiff)}.
+ *      (Note that the periodically refreshed information is synchronized
+ *      within the PoolInformation object itself, which the snapshot shares;
+ *      hence changes to those values do not require a new snapshot;
+ *      e.g., #updatePoolStatus.)</p>
  *
  * <p>Class is not marked final for stubbing/mocking purposes.</p>
  */
 public class PoolInfoMap {
     private static final Logger LOGGER = LoggerFactory.getLogger(
                     PoolInfoMap.class);
-    private final List<String>                   pools              = new NonReindexableList<>();
-    private final List<String>                   groups             = new NonReindexableList<>();
-    private final List<String>                   sunits             = new NonReindexableList<>();
+    private final NonReindexableList<String>     pools              = new NonReindexableList<>();
+    private final NonReindexableList<String>     groups             = new NonReindexableList<>();
+    private final NonReindexableList<String>     sunits             = new NonReindexableList<>();
     private final Map<Integer, ResilienceMarker> markers            = new HashMap<>();
     private final Map<Integer, ResilienceMarker> constraints        = new HashMap<>();
     private final Map<Integer, PoolInformation>  poolInfo           = new HashMap<>();
@@ -160,7 +169,151 @@ public class PoolInfoMap {
     private final Lock          write = lock.writeLock();
     private final Lock          read  = lock.readLock();
 
-    private boolean useRegex = false;
+    private volatile Snapshot snapshot = new Snapshot(this);
+
+    private volatile boolean useRegex = false;
+
+    /**
+     * <p>Immutable view of the tables at the time of the last update.</p>
+     *
+     * <p>Names, markers, constraints and pool information are held in
+     *      arrays, and the relations in lists of sets, all indexed by the
+     *      non-reindexable pool, group or unit index.  Removed entries
+     *      are <code>null</code>.  The lookups preserve the exceptions thrown
+     *      by the underlying {@link NonReindexableList}.</p>
+     */
+    private static final class Snapshot {
+        final String[]                              pools;
+        final String[]                              groups;
+        final String[]                              units;
+        final ImmutableMap<String, Integer>         poolIndices;
+        final ImmutableMap<String, Integer>         groupIndices;
+        final ImmutableMap<String, Integer>         unitIndices;
+        final ResilienceMarker[]                    markers;
+        final ResilienceMarker[]                    constraints;
+        final PoolInformation[]                     poolInfo;
+        final ImmutableList<ImmutableSet<Integer>>  poolGroupToPool;
+        final ImmutableList<ImmutableSet<Integer>>  poolToPoolGroup;
+        final ImmutableList<ImmutableSet<Integer>>  storageToPoolGroup;
+        final ImmutableList<ImmutableSet<Integer>>  poolGroupToStorage;
+
+        /** Called under write lock (or at construction) **/
+        Snapshot(PoolInfoMap map) {
+            pools = names(map.pools);
+            groups = names(map.groups);
+            units = names(map.sunits);
+            poolIndices = indices(pools);
+            groupIndices = indices(groups);
+            unitIndices = indices(units);
+            markers = new ResilienceMarker[groups.length];
+            map.markers.forEach((i, m) -> markers[i] = m);
+            constraints = new ResilienceMarker[units.length];
+            map.constraints.forEach((i, m) -> constraints[i] = m);
+            poolInfo = new PoolInformation[pools.length];
+            map.poolInfo.forEach((i, info) -> poolInfo[i] = info);
+            poolGroupToPool = relation(map.poolGroupToPool, groups.length);
+            poolToPoolGroup = relation(map.poolToPoolGroup, pools.length);
+            storageToPoolGroup = relation(map.storageToPoolGroup, units.length);
+            poolGroupToStorage = relation(map.poolGroupToStorage, groups.length);
+        }
+
+        static <T> T at(T[] array, Integer index) {
+            if (index == null || index < 0 || index >= array.length) {
+                return null;
+            }
+            return array[index];
+        }
+
+        static Integer index(Map<String, Integer> indices, String name) {
+            Integer index = indices.get(name);
+            if (index == null) {
+                throw new NoSuchElementException(String.valueOf(name));
+            }
+            return index;
+        }
+
+        static ImmutableSet<Integer> members(List<ImmutableSet<Integer>> relation,
+                                             Integer index) {
+            if (index == null || index < 0 || index >= relation.size()) {
+                return ImmutableSet.of();
+            }
+            return relation.get(index);
+        }
+
+        static String name(String[] names, int index) {
+            if (index >= names.length) {
+                throw new IndexOutOfBoundsException(index + " >= " + names.length);
+            }
+            String name = names[index];
+            if (name == null) {
+                throw new NoSuchElementException("at index " + index);
+            }
+            return name;
+        }
+
+        private static ImmutableMap<String, Integer> indices(String[] names) {
+            ImmutableMap.Builder<String, Integer> builder = ImmutableMap.builder();
+            for (int i = 0; i < names.length; i++) {
+                if (names[i] != null) {
+                    builder.put(names[i], i);
+                }
+            }
+            return builder.build();
+        }
+
+        private static String[] names(NonReindexableList<String> list) {
+            String[] names = new String[list.nextIndex()];
+            boolean includeNulls = list.isIncludeNulls();
+            list.setIncludeNulls(true);
+            try {
+                for (int i = 0; i < names.length; i++) {
+                    names[i] = list.get(i);
+                }
+            } finally {
+                list.setIncludeNulls(includeNulls);
+            }
+            return names;
+        }
+
+        private static ImmutableList<ImmutableSet<Integer>>
+                        relation(Multimap<Integer, Integer> multimap, int size) {
+            ImmutableList.Builder<ImmutableSet<Integer>> builder
+                            = ImmutableList.builder();
+            for (int i = 0; i < size; i++) {
+                builder.add(ImmutableSet.copyOf(multimap.get(i)));
+            }
+            return builder.build();
+        }
+
+        boolean isPoolViable(Integer pool, boolean writable) {
+            PoolInformation info = at(poolInfo, pool);
+            return info != null && info.isInitialized()
+                            && (writable ? info.canRead() && info.canWrite()
+                                : info.canRead());
+        }
+
+        boolean isResilientGroup(Integer group) {
+            return at(markers, group).isResilient();
+        }
+
+        PoolInformation poolInfo(Integer pool) {
+            return at(poolInfo, pool);
+        }
+
+        Integer poolIndex(String pool) {
+            return index(poolIndices, pool);
+        }
+
+        Stream<String> poolNames() {
+            return Stream.of(pools).filter((p) -> p != null);
+        }
+
+        Set<String> pools(Collection<Integer> indices) {
+            return indices.stream()
+                          .map((i) -> name(pools, i))
+                          .collect(Collectors.toSet());
+        }
+    }
 
     /**
      * <p>Called on a dedicated thread.</p>
@@ -242,6 +395,7 @@ public class PoolInfoMap {
                                     setPoolInfo(p, diff.getModeChanged().get(p),
                                                    diff.getTagsChanged().get(p),
                                                    diff.poolCost.get(p)));
+            publish();
         } finally {
             write.unlock();
         }
@@ -302,49 +456,34 @@ public class PoolInfoMap {
 
 
     public int getCountableLocations(Collection<String> locations) {
-        read.lock();
+        Snapshot snapshot = this.snapshot;
         int countable = 0;
-        try {
-            for (String location : locations) {
-                PoolInformation info = poolInfo.get(getPoolIndex(location));
-                if (info != null && info.isInitialized() && info.isCountable()) {
-                    ++countable;
-                }
+        for (String location : locations) {
+            PoolInformation info = snapshot.poolInfo(snapshot.poolIndex(location));
+            if (info != null && info.isInitialized() && info.isCountable()) {
+                ++countable;
             }
-        } finally {
-            read.unlock();
         }
         return countable;
     }
 
     public String getGroup(Integer group) {
-        read.lock();
-        try {
-            return groups.get(group);
-        } finally {
-            read.unlock();
-        }
+        Snapshot snapshot = this.snapshot;
+        return Snapshot.name(snapshot.groups, group);
     }
 
     public Integer getGroupIndex(String name) {
-        read.lock();
-        try {
-            return groups.indexOf(name);
-        } finally {
-            read.unlock();
-        }
+        Snapshot snapshot = this.snapshot;
+        return Snapshot.index(snapshot.groupIndices, name);
     }
 
     public Set<String> getMemberLocations(Integer gindex,
                                           Collection<String> locations) {
-        read.lock();
-        try {
-            Set<String> pools = getPools(getPoolsOfGroup(gindex));
-            return locations.stream().filter(pools::contains)
-                            .collect(Collectors.toSet());
-        } finally {
-            read.unlock();
-        }
+        Snapshot snapshot = this.snapshot;
+        Set<String> pools = snapshot.pools(Snapshot.members(snapshot.poolGroupToPool,
+                                                            gindex));
+        return locations.stream().filter(pools::contains)
+                        .collect(Collectors.toSet());
     }
 
     /**
@@ -352,23 +491,17 @@ public class PoolInfoMap {
      * @return all pool group pools which qualify.
      */
     public Set<String> getMemberPools(Integer gindex, boolean writable) {
-        read.lock();
-        try {
-            Set<Integer> members = ImmutableSet.copyOf(poolGroupToPool.get(gindex));
-            members = getValidLocations(members, writable);
-            return getPools(members);
-        } finally {
-            read.unlock();
-        }
+        Snapshot snapshot = this.snapshot;
+        return Snapshot.members(snapshot.poolGroupToPool, gindex)
+                       .stream()
+                       .filter((i) -> snapshot.isPoolViable(i, writable))
+                       .map((i) -> Snapshot.name(snapshot.pools, i))
+                       .collect(Collectors.toSet());
     }
 
     public String getPool(Integer pool) {
-        read.lock();
-        try {
-            return pools.get(pool);
-        } finally {
-            read.unlock();
-        }
+        Snapshot snapshot = this.snapshot;
+        return Snapshot.name(snapshot.pools, pool);
     }
 
     public Stream<String> getResilientPoolGroupsFor(String storageUnit) {
@@ -377,55 +510,35 @@ public class PoolInfoMap {
             return Stream.empty();
         }
 
-        read.lock();
-        try {
-            return storageToPoolGroup.get(uindex)
-                                     .stream()
-                                     .filter(this::isResilientGroup)
-                                     .map(this::getGroup)
-                                     .unordered();
-        } finally {
-            read.unlock();
-        }
+        Snapshot snapshot = this.snapshot;
+        return Snapshot.members(snapshot.storageToPoolGroup, uindex)
+                       .stream()
+                       .filter(snapshot::isResilientGroup)
+                       .map((g) -> Snapshot.name(snapshot.groups, g))
+                       .unordered();
     }
 
     public Integer getPoolIndex(String name) {
-        read.lock();
-        try {
-            return pools.indexOf(name);
-        } finally {
-            read.unlock();
-        }
+        Snapshot snapshot = this.snapshot;
+        return snapshot.poolIndex(name);
     }
 
     public Set<Integer> getPoolIndices(Collection<String> locations) {
-        read.lock();
-        try {
-            return locations.stream()
-                            .map(pools::indexOf)
-                            .collect(Collectors.toSet());
-        } finally {
-            read.unlock();
-        }
+        Snapshot snapshot = this.snapshot;
+        return locations.stream()
+                        .map(snapshot::poolIndex)
+                        .collect(Collectors.toSet());
     }
 
     public PoolInformation getPoolInformation(Integer index) {
-        read.lock();
-        try {
-            return poolInfo.get(index);
-        } finally {
-            read.unlock();
-        }
+        Snapshot snapshot = this.snapshot;
+        return snapshot.poolInfo(index);
     }
 
     public PoolManagerPoolInformation getPoolManagerInfo(Integer pool) {
-        read.lock();
-        try {
-            return new PoolManagerPoolInformation(pools.get(pool),
-                                                  poolInfo.get(pool).getCostInfo());
-        } finally {
-            read.unlock();
-        }
+        Snapshot snapshot = this.snapshot;
+        return new PoolManagerPoolInformation(Snapshot.name(snapshot.pools, pool),
+                                              snapshot.poolInfo(pool).getCostInfo());
     }
 
     public PoolStateUpdate getPoolState(String pool) {
@@ -457,77 +570,59 @@ public class PoolInfoMap {
     }
 
     public Set<String> getPools(Collection<Integer> indices) {
-        read.lock();
-        try {
-            return indices.stream().map(pools::get).collect(Collectors.toSet());
-        } finally {
-            read.unlock();
-        }
+        Snapshot snapshot = this.snapshot;
+        return snapshot.pools(indices);
     }
 
     public Collection<Integer> getPoolsOfGroup(Integer group) {
-        read.lock();
-        try {
-            return poolGroupToPool.get(group);
-        } finally {
-            read.unlock();
-        }
+        Snapshot snapshot = this.snapshot;
+        return Snapshot.members(snapshot.poolGroupToPool, group);
     }
 
     public Set<String> getReadableLocations(Collection<String> locations) {
-        read.lock();
-        try {
-            return locations.stream()
-                            .filter((l) -> isPoolViable(getPoolIndex(l), false))
-                            .collect(Collectors.toSet());
-        } finally {
-            read.unlock();
-        }
+        Snapshot snapshot = this.snapshot;
+        return locations.stream()
+                        .filter((l) -> snapshot.isPoolViable(snapshot.poolIndex(l),
+                                                             false))
+                        .collect(Collectors.toSet());
     }
 
     public Integer getResilientPoolGroup(Integer pool) {
-        read.lock();
-        try {
-            Set<Integer> rgroups
-                = poolToPoolGroup.get(pool)
-                                 .stream()
-                                 .filter(this::isResilientGroup)
-                                 .collect(Collectors.toSet());
-
-            if (rgroups.size() == 0) {
-                return null;
-            }
-
-            if (rgroups.size() > 1) {
-                throw new IllegalStateException(String.format(
-                                "Pool map is inconsistent; pool %s belongs to "
-                                                + "more than one resilient "
-                                                + "group: %s.",
-                                pools.get(pool),
-                                rgroups.stream()
-                                       .map(groups::get)
-                                       .collect(Collectors.toSet())));
-            }
+        Snapshot snapshot = this.snapshot;
+        Set<Integer> rgroups
+            = Snapshot.members(snapshot.poolToPoolGroup, pool)
+                      .stream()
+                      .filter(snapshot::isResilientGroup)
+                      .collect(Collectors.toSet());
+
+        if (rgroups.size() == 0) {
+            return null;
+        }
 
-            return rgroups.iterator().next();
-        } finally {
-            read.unlock();
+        if (rgroups.size() > 1) {
+            throw new IllegalStateException(String.format(
+                            "Pool map is inconsistent; pool %s belongs to "
+                                            + "more than one resilient "
+                                            + "group: %s.",
+                            Snapshot.name(snapshot.pools, pool),
+                            rgroups.stream()
+                                   .map((g) -> Snapshot.name(snapshot.groups, g))
+                                   .collect(Collectors.toSet())));
         }
+
+        return rgroups.iterator().next();
     }
 
     public Set<String> getResilientPools() {
-        read.lock();
-        try {
-            return pools.stream()
-                        .filter(this::isResilientPool)
-                        .collect(Collectors.toSet());
-        } finally {
-            read.unlock();
-        }
+        Snapshot snapshot = this.snapshot;
+        return snapshot.poolNames()
+                       .filter(this::isResilientPool)
+                       .collect(Collectors.toSet());
     }
 
     public StorageUnitConstraints getStorageUnitConstraints(Integer unit) {
-        ResilienceMarker marker = constraints.get(unit);
+        Snapshot snapshot = this.snapshot;
+        ResilienceMarker marker = Snapshot.at(snapshot.constraints, unit);
 
         if (marker != null && !(marker instanceof StorageUnitConstraints)) {
             String message = "Index " + unit + " does not correspond "
@@ -558,12 +653,8 @@ public class PoolInfoMap {
             return ImmutableList.of();
         }
 
-        read.lock();
-        try {
-            return poolGroupToStorage.get(gindex);
-        } finally {
-            read.unlock();
-        }
+        Snapshot snapshot = this.snapshot;
+        return Snapshot.members(snapshot.poolGroupToStorage, gindex);
     }
 
     public Map<String, String> getTags(Integer pool) {
@@ -581,42 +672,26 @@ public class PoolInfoMap {
     }
 
     public String getUnit(Integer index) {
-        read.lock();
-        try {
-            return sunits.get(index);
-        } finally {
-            read.unlock();
-        }
+        Snapshot snapshot = this.snapshot;
+        return Snapshot.name(snapshot.units, index);
     }
 
     public Integer getUnitIndex(String name) {
-        read.lock();
-        try {
-            return sunits.indexOf(name);
-        } finally {
-            read.unlock();
-        }
+        Snapshot snapshot = this.snapshot;
+        return Snapshot.index(snapshot.unitIndices, name);
     }
 
     public Set<Integer> getValidLocations(Collection<Integer> locations,
                                           boolean writable) {
-        read.lock();
-        try {
-            return locations.stream()
-                            .filter((i) -> isPoolViable(i, writable))
-                            .collect(Collectors.toSet());
-        } finally {
-            read.unlock();
-        }
+        Snapshot snapshot = this.snapshot;
+        return locations.stream()
+                        .filter((i) -> snapshot.isPoolViable(i, writable))
+                        .collect(Collectors.toSet());
     }
 
     public boolean hasPool(String pool) {
-        read.lock();
-        try {
-            return pools.contains(pool);
-        } finally {
-            read.unlock();
-        }
+        Snapshot snapshot = this.snapshot;
+        return snapshot.poolIndices.containsKey(pool);
     }
 
     public boolean isValidPoolIndex(Integer index) {
@@ -629,24 +704,13 @@ public class PoolInfoMap {
     }
 
     public boolean isPoolViable(Integer pool, boolean writable) {
-        read.lock();
-        try {
-            PoolInformation info = poolInfo.get(pool);
-            return info != null && info.isInitialized()
-                            && (writable ? info.canRead() && info.canWrite()
-                                : info.canRead());
-        } finally {
-            read.unlock();
-        }
+        Snapshot snapshot = this.snapshot;
+        return snapshot.isPoolViable(pool, writable);
     }
 
     public boolean isResilientGroup(Integer gindex) {
-        read.lock();
-        try {
-            return markers.get(gindex).isResilient();
-        } finally {
-            read.unlock();
-        }
+        Snapshot snapshot = this.snapshot;
+        return snapshot.isResilientGroup(gindex);
     }
 
     public boolean isResilientPool(String pool) {
@@ -668,16 +732,12 @@ public class PoolInfoMap {
 
     public String listPoolInfo(PoolInfoFilter poolInfoFilter) {
         final StringBuilder builder = new StringBuilder();
-        read.lock();
-        try {
-            pools.stream()
-                 .map(this::getPoolIndex)
-                 .map(poolInfo::get)
-                 .filter(poolInfoFilter::matches)
-                 .forEach((i) -> builder.append(i).append("\n"));
-        } finally {
-            read.unlock();
-        }
+        Snapshot snapshot = this.snapshot;
+        snapshot.poolNames()
+                .map(snapshot::poolIndex)
+                .map(snapshot::poolInfo)
+                .filter(poolInfoFilter::matches)
+                .forEach((i) -> builder.append(i).append("\n"));
         return builder.toString();
     }
 
@@ -690,15 +750,12 @@ public class PoolInfoMap {
                                    Collection<String> oneCopyPer) {
         constraints.put(sunits.indexOf(group),
                         new StorageUnitConstraints(required, oneCopyPer));
+        publish();
     }
 
     public void updatePoolStatus(PoolStateUpdate update) {
-        read.lock();
-        try {
-            poolInfo.get(pools.indexOf(update.pool)).updateState(update);
-        } finally {
-            read.unlock();
-        }
+        Snapshot snapshot = this.snapshot;
+        snapshot.poolInfo(snapshot.poolIndex(update.pool)).updateState(update);
     }
 
     /**
@@ -713,22 +770,17 @@ public class PoolInfoMap {
      */
     public void verifyConstraints(Integer pgindex)
                     throws IllegalStateException {
-        Collection<Integer> storageGroups;
-        CopyLocationExtractor extractor;
-
-        read.lock();
-        try {
-            storageGroups = poolGroupToStorage.get(pgindex);
-            for (Integer index : storageGroups) {
-                StorageUnitConstraints unitConstraints
-                                = (StorageUnitConstraints) constraints.get(index);
-                int required = unitConstraints.getRequired();
-                extractor = new CopyLocationExtractor(unitConstraints.getOneCopyPer(),
-                                this);
-                verify(pgindex, extractor, required);
-            }
-        } finally {
-            read.unlock();
+        Snapshot snapshot = this.snapshot;
+        for (Integer index : Snapshot.members(snapshot.poolGroupToStorage,
+                                              pgindex)) {
+            StorageUnitConstraints unitConstraints
+                            = (StorageUnitConstraints) Snapshot.at(snapshot.constraints,
+                                                                   index);
+            int required = unitConstraints.getRequired();
+            CopyLocationExtractor extractor
+                            = new CopyLocationExtractor(unitConstraints.getOneCopyPer(),
+                                                        this);
+            verify(snapshot, pgindex, extractor, required);
         }
     }
 
@@ -1056,20 +1108,20 @@ public class PoolInfoMap {
         Integer classCoverage = null;
         Integer specific = null;
 
-        read.lock();
-        try {
-            for (String unit : sunits) {
-                if (unit.equals("*@*")) {
-                    universalCoverage = sunits.indexOf(unit);
-                } else if (unit.equals("*@" + classKey)) {
-                    classCoverage = sunits.indexOf(unit);
-                } else if (useRegex && Pattern.matches(unit, unitKey)) {
-                    specific = sunits.indexOf(unit);
-                    break;
-                }
+        Snapshot snapshot = this.snapshot;
+        for (int i = 0; i < snapshot.units.length; i++) {
+            String unit = snapshot.units[i];
+            if (unit == null) {
+                continue;
+            }
+            if (unit.equals("*@*")) {
+                universalCoverage = i;
+            } else if (unit.equals("*@" + classKey)) {
+                classCoverage = i;
+            } else if (useRegex && Pattern.matches(unit, unitKey)) {
+                specific = i;
+                break;
             }
-        } finally {
-            read.unlock();
         }
 
         if (specific != null) {
@@ -1090,6 +1142,11 @@ public class PoolInfoMap {
         throw new NoSuchElementException(String.valueOf(unitKey));
     }
 
+    /** Called under write lock **/
+    private void publish() {
+        snapshot = new Snapshot(this);
+    }
+
     /** Called under write lock **/
     private void setPoolInfo(String pool,
                              PoolV2Mode mode,
@@ -1107,25 +1164,24 @@ public class PoolInfoMap {
     }
 
     /**
-     * Called under read lock
-     *
+     * @param snapshot  to verify against.
      * @param index     of pool group.
      * @param extractor configured for the specific tag constraints.
      * @param required  specific to this group or storage unit.
      * @throws IllegalStateException upon encountering the first set of
      *                               constraints which cannot be met.
      */
-    private void verify(Integer index,
+    private void verify(Snapshot snapshot,
+                        Integer index,
                         CopyLocationExtractor extractor,
                         int required) throws IllegalStateException {
-        Set<String> members = poolGroupToPool.get(index).stream()
-                                     .map(pools::get)
-                                     .collect(Collectors.toSet());
+        Set<String> members = snapshot.pools(Snapshot.members(snapshot.poolGroupToPool,
+                                                              index));
         for (int i = 0; i < required; i++) {
             Collection<String> candidates
                             = extractor.getCandidateLocations(members);
             if (candidates.isEmpty()) {
-                throw new IllegalStateException(getGroup(index));
+                throw new IllegalStateException(Snapshot.name(snapshot.groups, index));
             }
             String selected = RandomSelectionStrategy.SELECTOR.apply(candidates);
             members.remove(selected);
@@ -69,9 +69,18 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.regex.Pattern;
 
 import diskCacheV111.namespace.NameSpaceProvider;
 import diskCacheV111.util.CacheException;
@@ -90,6 +99,7 @@ import org.dcache.resilience.handlers.PoolOperationHandler;
 import org.dcache.resilience.util.ExceptionMessage;
 import org.dcache.vehicles.FileAttributes;
 
+import static com.google.common.util.concurrent.MoreExecutors.newDirectExecutorService;
 import static org.dcache.util.SqlHelper.tryToClose;
 
 /**
@@ -100,6 +110,13 @@ import static org.dcache.util.SqlHelper.tryToClose;
  *      the {@link FileOperationHandler} to add
  *      an entry in the pnfsid operation tables for each pnfsid.</p>
  *
+ * <p>A pool scan is split into inumber ranges which are queried in
+ *      parallel by a bounded set of workers, each on its own connection.
+ *      This keeps the individual queries and their transactions short.
+ *      The progress of each range is recorded, so that a scan which is
+ *      interrupted or fails is resumed where it left off by the next scan
+ *      of the same type on that pool, unless that scan is forced.</p>
+ *
  * <p>Class is not marked final so that a test version can be
  *      implemented by extension.</p>
  *
@@ -112,8 +129,67 @@ public class LocalNamespaceAccess implements NamespaceAccess {
                                     + "AND l.itype = 1 AND n.iaccess_latency = 1 "
                                     + "AND l.ilocation = ?";
 
+    static final String SQL_GET_INUMBER_BOUNDS_FOR_LOCATION
+                    = "SELECT min(l.inumber), max(l.inumber) "
+                                    + "FROM t_locationinfo l "
+                                    + "WHERE l.itype = 1 AND l.ilocation = ?";
+
+    static final String SQL_GET_ONLINE_FOR_LOCATION_RANGE
+                    = "SELECT n.ipnfsid, l.inumber FROM t_locationinfo l, t_inodes n "
+                                    + "WHERE l.inumber = n.inumber "
+                                    + "AND l.itype = 1 AND n.iaccess_latency = 1 "
+                                    + "AND l.ilocation = ? "
+                                    + "AND l.inumber >= ? AND l.inumber <= ? "
+                                    + "ORDER BY l.inumber";
+
     private static final Logger LOGGER = LoggerFactory.getLogger(LocalNamespaceAccess.class);
 
+    /**
+     * <p>Progress of a pool scan.  For each inumber range, the next
+     *      inumber to be scanned is recorded; the range is complete
+     *      once this exceeds its upper bound.</p>
+     */
+    static final class ScanProgress {
+        final MessageType     type;
+        final long[]          upper;
+        final AtomicLongArray next;
+
+        ScanProgress(MessageType type, long min, long max, int ranges) {
+            this.type = type;
+            long span = max - min + 1;
+            int count = (int) Math.max(1, Math.min(ranges, span));
+            long width = span / count;
+            upper = new long[count];
+            next = new AtomicLongArray(count);
+            for (int i = 0; i < count; i++) {
+                next.set(i, min + i * width);
+                upper[i] = i == count - 1 ? max : min + (i + 1) * width - 1;
+            }
+        }
+
+        /**
+         * <p>Includes locations added since the interrupted scan.</p>
+         */
+        void extendTo(long max) {
+            int last = upper.length - 1;
+            upper[last] = Math.max(upper[last], max);
+        }
+
+        boolean isComplete() {
+            return pending().isEmpty();
+        }
+
+        List<Integer> pending() {
+            List<Integer> pending = new ArrayList<>();
+            for (int i = 0; i < upper.length; i++) {
+                if (next.get(i) <= upper[i]) {
+                    pending.add(i);
+                }
+            }
+            return pending;
+        }
+    }
+
     /**
      * <p>Handler for processing file operations.</p>
      */
@@ -137,6 +213,26 @@ public class LocalNamespaceAccess implements NamespaceAccess {
      */
     private int fetchSize;
 
+    /**
+     * <p>Number of inumber ranges into which a pool scan is split.</p>
+     */
+    private int scanRanges = 1;
+
+    /**
+     * <p>Bounded worker set shared by all pool scans to query the ranges.</p>
+     */
+    private ExecutorService scanWorkers = newDirectExecutorService();
+
+    /**
+     * <p>Progress of interrupted scans, by pool.</p>
+     */
+    private final Map<String, ScanProgress> progress = new ConcurrentHashMap<>();
+
+    /**
+     * <p>The most recent scan of each pool, for throughput reporting.</p>
+     */
+    private final Map<String, ScanSummary> scans = new ConcurrentHashMap<>();
+
     @Override
     public void printInaccessibleFiles(String location,
                                        PoolInfoMap poolInfoMap,
@@ -174,25 +270,57 @@ public class LocalNamespaceAccess implements NamespaceAccess {
                                            PoolMgrSelectReadPoolMsg.getRequiredAttributes());
     }
 
+    @Override
+    public String getScanInfo(String pools) {
+        Pattern pattern = pools == null ? null : Pattern.compile(pools);
+        StringBuilder builder = new StringBuilder();
+        scans.values().stream()
+             .filter(s -> pattern == null
+                             || pattern.matcher(s.getPool()).matches())
+             .sorted((a, b) -> a.getPool().compareTo(b.getPool()))
+             .forEach(s -> builder.append(s).append("\n"));
+        if (builder.length() == 0) {
+            builder.append("NO (MATCHING) SCANS.\n");
+        }
+        return builder.toString();
+    }
+
     /**
      * <p>Called by {@link PoolOperationHandler#handlePoolScan(ScanSummary)}.</p>
      */
     @Override
     public void handlePnfsidsForPool(ScanSummary scan)
                     throws CacheException {
+        String pool = scan.getPool();
+        scans.put(pool, scan);
+
         try {
-            Connection connection = getConnection();
-            try {
-                handleQuery(connection, scan);
-            } catch (SQLException | CacheException e) {
-                throw new IOHimeraFsException(e.getMessage());
-            } finally {
-                tryToClose(connection);
+            long[] bounds = getBounds(pool);
+            ScanProgress previous = progress.remove(pool);
+
+            if (bounds == null) {
+                scan.started(0, false);
+                return;
             }
+
+            ScanProgress current;
+            boolean resumed = previous != null && !scan.isForced()
+                            && previous.type == scan.getType();
+            if (resumed) {
+                previous.extendTo(bounds[1]);
+                current = previous;
+            } else {
+                current = new ScanProgress(scan.getType(), bounds[0],
+                                           bounds[1], scanRanges);
+            }
+
+            handleQuery(scan, current, resumed);
         } catch (IOHimeraFsException e) {
             throw new CacheException(CacheException.RESOURCE,
                                      String.format("Could not handle pnfsids for %s",
-                                                   scan.getPool()), e);
+                                                   pool), e);
+        } finally {
+            scan.ended();
         }
     }
 
@@ -218,6 +346,14 @@ public class LocalNamespaceAccess implements NamespaceAccess {
         this.fetchSize = fetchSize;
     }
 
+    public void setScanRanges(int scanRanges) {
+        this.scanRanges = scanRanges;
+    }
+
+    public void setScanWorkers(ExecutorService scanWorkers) {
+        this.scanWorkers = scanWorkers;
+    }
+
     public void setHandler(FileOperationHandler handler) {
         this.handler = handler;
     }
@@ -235,16 +371,93 @@ public class LocalNamespaceAccess implements NamespaceAccess {
         }
     }
 
+    /**
+     * @return the lowest and highest inumber of the replicas on the pool,
+     *         or <code>null</code> if it has none.
+     */
+    private long[] getBounds(String pool) throws IOHimeraFsException {
+        Connection connection = getConnection();
+        PreparedStatement statement = null;
+        ResultSet resultSet = null;
+
+        try {
+            statement = connection.prepareStatement(SQL_GET_INUMBER_BOUNDS_FOR_LOCATION);
+            statement.setString(1, pool);
+            resultSet = statement.executeQuery();
+            if (!resultSet.next()) {
+                return null;
+            }
+            long min = resultSet.getLong(1);
+            if (resultSet.wasNull()) {
+                return null;
+            }
+            return new long[]{min, resultSet.getLong(2)};
+        } catch (SQLException e) {
+            throw new IOHimeraFsException(e.getMessage());
+        } finally {
+            tryToClose(resultSet);
+            tryToClose(statement);
+            tryToClose(connection);
+        }
+    }
+
     /**
      * <p>The query processes all pnfsids for the given location which
      *      have access latency = ONLINE.  These are sent one-by-one to the
      *      {@link FileOperationHandler} to either create or update a
      *      corresponding entry in the {@link FileOperationMap}.</p>
+     *
+     * <p>Each pending range is queried by a worker.  The calling thread
+     *      waits for all of them; if interrupted, the scan is cancelled.
+     *      Unless all ranges have completed, the progress is kept for the
+     *      next scan.</p>
      */
-    private void handleQuery(Connection connection, ScanSummary scan)
-                    throws SQLException, CacheException {
-        PreparedStatement statement = null;
-        ResultSet resultSet = null;
+    private void handleQuery(ScanSummary scan,
+                             ScanProgress current,
+                             boolean resumed) throws IOHimeraFsException {
+        List<Integer> pending = current.pending();
+        scan.started(pending.size(), resumed);
+
+        List<Future<?>> futures = new ArrayList<>(pending.size());
+        for (int range : pending) {
+            futures.add(scanWorkers.submit(() -> {
+                handleRange(scan, current, range);
+                return null;
+            }));
+        }
+
+        Throwable failure = null;
+
+        try {
+            for (Future<?> future : futures) {
+                try {
+                    future.get();
+                } catch (ExecutionException e) {
+                    if (failure == null) {
+                        failure = e.getCause();
+                        scan.setCancelled(true);
+                    } else {
+                        failure.addSuppressed(e.getCause());
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            scan.setCancelled(true);
+            futures.forEach(f -> f.cancel(true));
+            Thread.currentThread().interrupt();
+        }
+
+        if (!current.isComplete()) {
+            progress.put(scan.getPool(), current);
+        }
+
+        if (failure != null) {
+            throw new IOHimeraFsException(failure.getMessage());
+        }
+    }
+
+    private void handleRange(ScanSummary scan, ScanProgress current, int range)
+                    throws IOHimeraFsException, SQLException {
         String pool = scan.getPool();
         MessageType type = scan.getType();
         boolean action = scan.isNewPool();
@@ -252,9 +465,15 @@ public class LocalNamespaceAccess implements NamespaceAccess {
         Integer storageUnit = scan.getStorageUnit();
         boolean full = scan.isForced();
 
+        Connection connection = getConnection();
+        PreparedStatement statement = null;
+        ResultSet resultSet = null;
+
         try {
-            statement = connection.prepareStatement(SQL_GET_ONLINE_FOR_LOCATION);
+            statement = connection.prepareStatement(SQL_GET_ONLINE_FOR_LOCATION_RANGE);
             statement.setString(1, pool);
+            statement.setLong(2, current.next.get(range));
+            statement.setLong(3, current.upper[range]);
             statement.setFetchSize(fetchSize);
             if (scan.isCancelled()) {
                 return;
@@ -264,6 +483,8 @@ public class LocalNamespaceAccess implements NamespaceAccess {
 
             while (resultSet.next() && !scan.isCancelled()) {
                 PnfsId pnfsId = new PnfsId(resultSet.getString(1));
+                long inumber = resultSet.getLong(2);
+                scan.incrementScanned();
                 FileUpdate data = new FileUpdate(pnfsId, pool, type, action,
                                                  group, full);
                 try {
@@ -275,10 +496,17 @@ public class LocalNamespaceAccess implements NamespaceAccess {
                 } catch (CacheException e) {
                     LOGGER.debug("{}: {}", data, new ExceptionMessage(e));
                 }
+                current.next.set(range, inumber + 1);
+            }
+
+            if (!scan.isCancelled()) {
+                current.next.set(range, current.upper[range] + 1);
+                scan.rangeCompleted();
             }
         } finally {
             tryToClose(resultSet);
             tryToClose(statement);
+            tryToClose(connection);
         }
     }
 
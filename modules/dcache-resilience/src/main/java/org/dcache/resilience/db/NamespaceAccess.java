@@ -110,6 +110,15 @@ public interface NamespaceAccess {
      */
     FileAttributes getRequiredAttributesForStaging(PnfsId pnfsId) throws CacheException;
 
+    /**
+     * <p>Used by the admin command to display the progress and throughput
+     *    of the most recent scan of each pool.</p>
+     *
+     * @param pools regular expression to match pool names,
+     *              <code>null</code> for all.
+     */
+    String getScanInfo(String pools);
+
     /**
      * <p>The workhorse query.
      */
@@ -59,15 +59,26 @@ documents or software obtained from this server.
  */
 package org.dcache.resilience.db;
 
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
 import org.dcache.resilience.data.MessageType;
 
 /**
  * <p>Simple struct to use during pool scan; shared between handlers, task and
  *    namespace access.</p>
+ *
+ * <p>Since the namespace may be scanned by several workers in parallel,
+ *    the counters are atomic.  They also provide the throughput of the scan
+ *    for the admin interface.</p>
  */
 public final class ScanSummary {
     public static final Integer ALL_UNITS = -1;
 
+    private static final String TO_STRING = "%-32s %-20s ranges %s/%s, "
+                    + "scanned %s, files %s, %s s, %s/s%s";
+
     private final String          pool;
     private final MessageType     type;
     private final boolean         newPool;
@@ -75,7 +86,14 @@ public final class ScanSummary {
     private final Integer         storageUnit;
     private final boolean         forced;
 
-    private int     files;
+    private final AtomicInteger files          = new AtomicInteger();
+    private final AtomicLong    scanned        = new AtomicLong();
+    private final AtomicInteger rangesComplete = new AtomicInteger();
+
+    private volatile int     ranges;
+    private volatile long    started;
+    private volatile long    ended;
+    private volatile boolean resumed;
 
     private volatile boolean cancelled  = false;
 
@@ -91,7 +109,6 @@ public final class ScanSummary {
         this.group = group;
         this.storageUnit = storageUnit;
         this.forced = forced;
-        files = 0;
     }
 
     public boolean isNewPool() {
@@ -99,7 +116,7 @@ public final class ScanSummary {
     }
 
     public int getCount() {
-        return files;
+        return files.get();
     }
 
     public Integer getGroup() {
@@ -110,6 +127,10 @@ public final class ScanSummary {
         return pool;
     }
 
+    public long getScanned() {
+        return scanned.get();
+    }
+
     public Integer getStorageUnit() {
         return storageUnit;
     }
@@ -119,7 +140,15 @@ public final class ScanSummary {
     }
 
     public void incrementCount() {
-        ++files;
+        files.incrementAndGet();
+    }
+
+    /**
+     * <p>Records that a location has been read from the namespace,
+     *    whether or not it resulted in an operation.</p>
+     */
+    public void incrementScanned() {
+        scanned.incrementAndGet();
     }
 
     public boolean isCancelled() {
@@ -131,4 +160,44 @@ public final class ScanSummary {
     public void setCancelled(boolean cancelled) {
         this.cancelled = cancelled;
     }
+
+    public void rangeCompleted() {
+        rangesComplete.incrementAndGet();
+    }
+
+    /**
+     * @param ranges  the number of ranges still to be scanned.
+     * @param resumed whether the scan continues an interrupted one.
+     */
+    public void started(int ranges, boolean resumed) {
+        this.ranges = ranges;
+        this.resumed = resumed;
+        started = System.currentTimeMillis();
+    }
+
+    public void ended() {
+        ended = System.currentTimeMillis();
+    }
+
+    @Override
+    public String toString() {
+        long end = ended == 0 ? System.currentTimeMillis() : ended;
+        long elapsed = started == 0 ? 0 : Math.max(end - started, 1);
+        long rate = elapsed == 0 ? 0 :
+                        scanned.get() * TimeUnit.SECONDS.toMillis(1) / elapsed;
+        String state = started == 0 ? " (waiting)" :
+                        ended == 0 ? " (running)" :
+                        cancelled ? " (cancelled)" : "";
+        return String.format(TO_STRING,
+                             pool,
+                             started == 0 ? "" :
+                                String.format("%tF %<tT", started),
+                             rangesComplete.get(),
+                             ranges,
+                             scanned.get(),
+                             files.get(),
+                             TimeUnit.MILLISECONDS.toSeconds(elapsed),
+                             rate,
+                             resumed ? state + " (resumed)" : state);
+    }
 }
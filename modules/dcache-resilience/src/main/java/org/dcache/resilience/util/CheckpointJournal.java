@@ -0,0 +1,436 @@
+/*
+COPYRIGHT STATUS:
+Dec 1st 2001, Fermi National Accelerator Laboratory (FNAL) documents and
+software are sponsored by the U.S. Department of Energy under Contract No.
+DE-AC02-76CH03000. Therefore, the U.S. Government retains a  world-wide
+non-exclusive, royalty-free license to publish or reproduce these documents
+and software for U.S. Government purposes.  All documents and software
+available from this server are protected under the U.S. and Foreign
+Copyright Laws, and FNAL reserves all rights.
+
+Distribution of the software available from this server is free of
+charge subject to the user following the terms of the Fermitools
+Software Legal Information.
+
+Redistribution and/or modification of the software shall be accompanied
+by the Fermitools Software Legal Information  (including the copyright
+notice).
+
+The user is asked to feed back problems, benefits, and/or suggestions
+about the software to the Fermilab Software Providers.
+
+Neither the name of Fermilab, the  URA, nor the names of the contributors
+may be used to endorse or promote products derived from this software
+without specific prior written permission.
+
+DISCLAIMER OF LIABILITY (BSD):
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+"AS IS" AND ANY EXPRESS OR IMPLIED  WARRANTIES, INCLUDING, BUT NOT
+LIMITED TO, THE IMPLIED  WARRANTIES OF MERCHANTABILITY AND FITNESS
+FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL FERMILAB,
+OR THE URA, OR THE U.S. DEPARTMENT of ENERGY, OR CONTRIBUTORS BE LIABLE
+FOR  ANY  DIRECT, INDIRECT,  INCIDENTAL, SPECIAL, EXEMPLARY, OR
+CONSEQUENTIAL DAMAGES  (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT
+OF SUBSTITUTE  GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR
+BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY  OF
+LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT  OF THE USE OF THIS
+SOFTWARE, EVEN IF ADVISED OF THE  POSSIBILITY OF SUCH DAMAGE.
+
+Liabilities of the Government:
+
+This software is provided by URA, independent from its Prime Contract
+with the U.S. Department of Energy. URA is acting independently from
+the Government and in its own private capacity and is not acting on
+behalf of the U.S. Government, nor as its contractor nor its agent.
+Correspondingly, it is understood and agreed that the U.S. Government
+has no connection to this software and in no manner whatsoever shall
+be liable for nor assume any responsibility or obligation for any claim,
+cost, or damages arising out of or resulting from the use of the software
+available from this server.
+
+Export Control:
+
+All documents and software available from this server are subject to U.S.
+export control laws.  Anyone downloading information from this server is
+obligated to secure any necessary Government licenses before exporting
+documents or software obtained from this server.
+ */
+package org.dcache.resilience.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import diskCacheV111.util.PnfsId;
+import org.dcache.resilience.data.FileOperation;
+import org.dcache.resilience.data.PoolInfoMap;
+
+/**
+ * <p>Append-only binary journal of the operations in the file operation
+ *      map, used for checkpointing.</p>
+ *
+ * <p>A record is queued whenever an operation is added to or removed
+ *      from the map, so the checkpoint no longer needs to be rewritten
+ *      in full on each pass.  The threads updating the map only queue
+ *      records; the checkpointer periodically appends the queued records
+ *      to the journal and flushes it.  Only once more records have been
+ *      appended than there are live operations is the journal compacted,
+ *      by writing a snapshot of the live operations to a new file which
+ *      then replaces the journal.  Records queued before or while the
+ *      snapshot is written are appended to the new file after the
+ *      snapshot.</p>
+ *
+ * <p>The records of an operation must be queued in the order in which
+ *      the operation is added to and removed from the map.</p>
+ *
+ * <p>As with the text checkpoint this replaces, the journal is only an
+ *      approximation of state.  Records are not synced to disk, and
+ *      records queued since the last checkpoint are lost in a crash.</p>
+ *
+ * <p>Each record consists of a type byte and the pnfsid; add records are
+ *      followed by the operation count, the pool group and the pool.
+ *      Names are written instead of indices, because the latter are not
+ *      stable across restarts.  See {@link CheckpointUtils} for why the
+ *      pool written is the originating pool.</p>
+ */
+public final class CheckpointJournal {
+    private static final Logger LOGGER
+                    = LoggerFactory.getLogger(CheckpointJournal.class);
+
+    private static final int  MAGIC       = 0x64436a31;
+    private static final byte ADD         = 1;
+    private static final byte REMOVE      = 2;
+    private static final int  BUFFER_SIZE = 64 * 1024;
+
+    /**
+     *  <p>Journals smaller than this are not compacted, so that
+     *      a mostly idle map does not trigger a rewrite on every pass.</p>
+     */
+    private static final long MIN_COMPACTION_RECORDS = 10000;
+
+    /**
+     * <p>A replayed add record.</p>
+     */
+    public static final class Record {
+        private final PnfsId pnfsId;
+        private final int    opCount;
+        private final String group;
+        private final String pool;
+
+        private Record(PnfsId pnfsId, int opCount, String group, String pool) {
+            this.pnfsId = pnfsId;
+            this.opCount = opCount;
+            this.group = group;
+            this.pool = pool;
+        }
+
+        public PnfsId getPnfsId() {
+            return pnfsId;
+        }
+
+        public int getOpCount() {
+            return opCount;
+        }
+
+        public String getGroup() {
+            return group;
+        }
+
+        public String getPool() {
+            return pool;
+        }
+    }
+
+    /**
+     * <p>Reads a journal.  Later records for a pnfsid supersede earlier
+     *      ones; the records of operations which were removed are dropped.
+     *      A truncated record at the end of the file, left by a crash,
+     *      ends the replay.</p>
+     *
+     * @param file to read.
+     * @param records to which the live operations are added, in the order
+     *                in which they were first journaled.
+     * @return false if the file is not a journal.
+     */
+    public static boolean replay(File file, Map<PnfsId, Record> records)
+                    throws IOException {
+        try (DataInputStream in = new DataInputStream(
+                        new BufferedInputStream(new FileInputStream(file),
+                                                BUFFER_SIZE))) {
+            try {
+                if (in.readInt() != MAGIC) {
+                    return false;
+                }
+            } catch (EOFException e) {
+                return false;
+            }
+
+            try {
+                while (true) {
+                    byte type = in.readByte();
+                    PnfsId pnfsId = new PnfsId(in.readUTF());
+                    switch (type) {
+                        case ADD:
+                            int opCount = in.readInt();
+                            String group = in.readUTF();
+                            String pool = in.readUTF();
+                            records.put(pnfsId,
+                                        new Record(pnfsId, opCount, group, pool));
+                            break;
+                        case REMOVE:
+                            records.remove(pnfsId);
+                            break;
+                        default:
+                            LOGGER.error("Corrupt record in checkpoint "
+                                                         + "journal {}; "
+                                                         + "skipping remainder.",
+                                         file);
+                            return true;
+                    }
+                }
+            } catch (EOFException e) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * <p>Convenience variant of {@link #replay(File, Map)}.</p>
+     */
+    public static Map<PnfsId, Record> replay(File file) throws IOException {
+        Map<PnfsId, Record> records = new LinkedHashMap<>();
+        replay(file, records);
+        return records;
+    }
+
+    /**
+     * <p>A record waiting to be appended.</p>
+     */
+    private static final class Pending {
+        private final byte   type;
+        private final PnfsId pnfsId;
+        private final int    opCount;
+        private final String group;
+        private final String pool;
+
+        private Pending(byte type, PnfsId pnfsId, int opCount, String group,
+                        String pool) {
+            this.type = type;
+            this.pnfsId = pnfsId;
+            this.opCount = opCount;
+            this.group = group;
+            this.pool = pool;
+        }
+    }
+
+    private final Queue<Pending> pending = new ConcurrentLinkedQueue<>();
+
+    /**
+     *  <p>Whether records are queued, i.e., whether the journal has
+     *      been opened by a checkpoint.</p>
+     */
+    private volatile boolean open;
+
+    private String           path;
+    private DataOutputStream out;
+
+    /**
+     *  <p>Records appended since the last snapshot.</p>
+     */
+    private long appended;
+
+    /**
+     *  <p>Records written since the last checkpoint.</p>
+     */
+    private long written;
+
+    /**
+     * <p>Queues a record of an operation added to the map.  NOP unless
+     *      the journal has been opened by a checkpoint.  Incomplete records
+     *      are skipped.</p>
+     */
+    public void add(FileOperation operation, PoolInfoMap map) {
+        if (!open) {
+            return;
+        }
+
+        Pending record = toRecord(operation, map);
+        if (record != null) {
+            pending.add(record);
+        }
+    }
+
+    /**
+     * <p>Queues a record of an operation removed from the map.  NOP unless
+     *      the journal has been opened by a checkpoint.</p>
+     */
+    public void remove(PnfsId pnfsId) {
+        if (!open) {
+            return;
+        }
+
+        pending.add(new Pending(REMOVE, pnfsId, 0, null, null));
+    }
+
+    /**
+     * <p>Appends the queued records and flushes the journal, or compacts it
+     *      if it has grown larger than the number of live operations, if it
+     *      has not been opened, or if the path has changed.</p>
+     *
+     * <p>Since we use checkpointing as an approximation, the fact that the
+     *      iterator over the index may be dirty should not matter greatly.</p>
+     *
+     * @param checkpointFilePath of the journal.
+     * @param poolInfoMap for translation of indices to names.
+     * @param iterator over the live operations.
+     * @param live the number of live operations.
+     * @return number of records written since the last checkpoint.
+     */
+    public synchronized long checkpoint(String checkpointFilePath,
+                                        PoolInfoMap poolInfoMap,
+                                        Iterator<FileOperation> iterator,
+                                        long live) {
+        if (out != null && checkpointFilePath.equals(path)
+                        && appended <= Math.max(live, MIN_COMPACTION_RECORDS)) {
+            try {
+                drain();
+                out.flush();
+            } catch (IOException e) {
+                failed(e);
+            }
+            long count = written;
+            written = 0;
+            return count;
+        }
+
+        close();
+
+        File tmp = new File(checkpointFilePath + "-compact");
+        try {
+            out = new DataOutputStream(new BufferedOutputStream(
+                            new FileOutputStream(tmp, false), BUFFER_SIZE));
+            out.writeInt(MAGIC);
+        } catch (IOException e) {
+            LOGGER.error("Unable to save checkpoint file: {}", e.getMessage());
+            close();
+            return 0;
+        }
+
+        path = checkpointFilePath;
+        written = 0;
+
+        /*
+         *  Changes made while the snapshot is written are queued and
+         *  appended after the snapshot.
+         */
+        open = true;
+
+        try {
+            while (iterator.hasNext()) {
+                Pending record = toRecord(iterator.next(), poolInfoMap);
+                if (record != null) {
+                    write(record);
+                }
+            }
+            appended = 0;
+            drain();
+            out.flush();
+            Files.move(tmp.toPath(), new File(checkpointFilePath).toPath(),
+                       StandardCopyOption.REPLACE_EXISTING,
+                       StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            failed(e);
+            return 0;
+        }
+
+        long count = written;
+        written = 0;
+        return count;
+    }
+
+    /**
+     * <p>Closes the journal.  Further updates are ignored until the next
+     *      checkpoint.</p>
+     */
+    public synchronized void close() {
+        open = false;
+        pending.clear();
+
+        if (out == null) {
+            return;
+        }
+
+        try {
+            out.close();
+        } catch (IOException e) {
+            LOGGER.error("Unable to close checkpoint file: {}", e.getMessage());
+        }
+
+        out = null;
+    }
+
+    private void failed(IOException e) {
+        LOGGER.error("Unrecoverable error during save of checkpoint file: {}; "
+                                     + "journaling suspended until next "
+                                     + "checkpoint.", e.getMessage());
+        close();
+    }
+
+    /**
+     *  <p>Appends the queued records.</p>
+     */
+    private void drain() throws IOException {
+        Pending record;
+        while ((record = pending.poll()) != null) {
+            write(record);
+            ++appended;
+        }
+    }
+
+    /**
+     *  <p>Returns null for incomplete records.</p>
+     */
+    private static Pending toRecord(FileOperation operation, PoolInfoMap map) {
+        Integer parent = operation.getParent();
+        Integer source = operation.getSource();
+        String pool = parent == null ?
+                        (source == null ? null : map.getPool(source)) :
+                        map.getPool(parent);
+        String group = map.getGroup(operation.getPoolGroup());
+        if (pool == null || group == null) {
+            return null;
+        }
+
+        return new Pending(ADD, operation.getPnfsId(), operation.getOpCount(),
+                           group, pool);
+    }
+
+    private void write(Pending record) throws IOException {
+        out.writeByte(record.type);
+        out.writeUTF(record.pnfsId.toString());
+        if (record.type == ADD) {
+            out.writeInt(record.opCount);
+            out.writeUTF(record.group);
+            out.writeUTF(record.pool);
+        }
+        ++written;
+    }
+}
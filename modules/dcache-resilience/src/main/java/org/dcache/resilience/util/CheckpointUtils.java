@@ -73,12 +73,11 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.Map;
-import java.util.concurrent.atomic.AtomicLong;
 
 import diskCacheV111.util.CacheException;
 import diskCacheV111.util.PnfsId;
-import org.dcache.resilience.data.FileOperation;
 import org.dcache.resilience.data.FileOperationMap;
 import org.dcache.resilience.data.FileUpdate;
 import org.dcache.resilience.data.MessageType;
@@ -87,13 +86,10 @@ import org.dcache.resilience.data.PoolOperation;
 import org.dcache.resilience.handlers.FileOperationHandler;
 
 /**
- * <p>Static methods for writing and reading data for checkpointing purposes.</p>
+ * <p>Static methods for reading data for checkpointing purposes.</p>
  *
- * <p>Experimentation with NIO showed that serialization using ByteBuffer
- *      is not efficient, with large writes (of 1M records or more) taking
- *      on the order of 45 minutes to an hour to complete.</p>
- *
- * <p>This implementation writes out a simple CDL to a text file.</p>
+ * <p>File operations are written to an append-only binary journal
+ *      by {@link CheckpointJournal}.  This class replays it.</p>
  *
  * <p>Also includes load and save methods for recording excluded pools.</p>
  *
@@ -115,15 +111,17 @@ public final class CheckpointUtils {
                     = LoggerFactory.getLogger(CheckpointUtils.class);
 
     /**
-     * <p>Read back in from the checkpoint file operation records.
+     * <p>Read back in from the checkpoint journal operation records.
      *    These are converted to {@link FileUpdate} objects and passed
-     *    to {@link FileOperationHandler#handleLocationUpdate(FileUpdate)}(PnfsId, String)}
+     *    to {@link FileOperationHandler#handleLocationUpdate(FileUpdate)}
      *    for registration.</p>
      *
-     * <p>The file to be reloaded is renamed, so that any checkpointing
-     *    begun while the reload is in progress does not overwrite the file.
-     *    In the case of a failed reload, the reload file should be
-     *    manually merged into the current checkpoint file before restart.</p>
+     * <p>The files to be reloaded are renamed, so that any checkpointing
+     *    begun while the reload is in progress does not overwrite them.
+     *    This includes the file of an interrupted compaction, which holds
+     *    the records journaled after those in the checkpoint file.
+     *    In the case of a failed reload, the reload files should be
+     *    manually restored before restart.</p>
      *
      * @param checkpointFilePath to read
      * @param poolInfoMap for translating names to indices
@@ -133,37 +131,47 @@ public final class CheckpointUtils {
                     PoolInfoMap poolInfoMap,
                     FileOperationMap pnfsMap,
                     FileOperationHandler handler) {
-        if (!new File(checkpointFilePath).exists()) {
-            return;
-        }
-
         File current = new File(checkpointFilePath);
+        File compact = new File(checkpointFilePath + "-compact");
         File reload = new File(checkpointFilePath + "-reload");
-        current.renameTo(reload);
+        File reloadCompact = new File(checkpointFilePath + "-reload-compact");
 
-        try (BufferedReader fr = new BufferedReader(new FileReader(reload))) {
-            while (pnfsMap.isRunning()) {
-                String line = fr.readLine();
-                if (line == null) {
-                    break;
-                }
-                try {
-                    FileUpdate update = fromString(line, poolInfoMap);
-                    if (update != null) {
-                        handler.handleLocationUpdate(update);
-                    }
-                } catch (CacheException e) {
-                    LOGGER.debug("Unable to reload operation for {}; {}",
-                                    line, e.getMessage());
+        if (current.exists()) {
+            current.renameTo(reload);
+        }
+
+        if (compact.exists()) {
+            compact.renameTo(reloadCompact);
+        }
+
+        Map<PnfsId, CheckpointJournal.Record> records = new LinkedHashMap<>();
+
+        try {
+            for (File file : new File[]{reload, reloadCompact}) {
+                if (file.exists() && !CheckpointJournal.replay(file, records)) {
+                    LOGGER.warn("{} is not a checkpoint journal; skipping.",
+                                file);
                 }
             }
-            reload.delete();
-        } catch (FileNotFoundException e) {
-            LOGGER.error("Unable to reload checkpoint file: {}", e.getMessage());
         } catch (IOException e) {
             LOGGER.error("Unrecoverable error during reload checkpoint file: {}",
                             e.getMessage());
+            return;
+        }
+
+        Iterator<CheckpointJournal.Record> iterator = records.values().iterator();
+        while (pnfsMap.isRunning() && iterator.hasNext()) {
+            CheckpointJournal.Record record = iterator.next();
+            try {
+                handler.handleLocationUpdate(toUpdate(record, poolInfoMap));
+            } catch (CacheException e) {
+                LOGGER.debug("Unable to reload operation for {}; {}",
+                                record.getPnfsId(), e.getMessage());
+            }
         }
+
+        reload.delete();
+        reloadCompact.delete();
     }
 
     /**
@@ -200,46 +208,6 @@ public final class CheckpointUtils {
         return excluded;
     }
 
-    /**
-     * <p>Since we use checkpointing as an approximation,
-     *      the fact that the ConcurrentMap (internal to the deque class)
-     *      may be dirty and that it is not locked should not matter greatly.</p>
-     *
-     * @param checkpointFilePath where to write.
-     * @param poolInfoMap for translation of indices to names.
-     * @param iterator from a ConcurrentHashMap implementation of the index.
-     * @return number of records written
-     */
-    public static long save(String checkpointFilePath, PoolInfoMap poolInfoMap,
-                            Iterator<FileOperation> iterator) {
-        File current = new File(checkpointFilePath);
-        File old = new File(checkpointFilePath + "-old");
-        if (current.exists()) {
-            current.renameTo(old);
-        }
-
-        AtomicLong count = new AtomicLong(0);
-        StringBuilder builder = new StringBuilder();
-
-        try (PrintWriter fw = new PrintWriter(new FileWriter(checkpointFilePath, false))) {
-            while (iterator.hasNext()) {
-                FileOperation operation = iterator.next();
-                if (toString(operation, builder, poolInfoMap)) {
-                    fw.println(builder.toString());
-                    count.incrementAndGet();
-                    builder.setLength(0);
-                }
-            }
-        } catch (FileNotFoundException e) {
-            LOGGER.error("Unable to save checkpoint file: {}", e.getMessage());
-        } catch (IOException e) {
-            LOGGER.error("Unrecoverable error during save of checkpoint file: {}",
-                            e.getMessage());
-        }
-
-        return count.get();
-    }
-
     /**
      * <p>Save the excluded pool names to a file.</p>
      *
@@ -267,54 +235,19 @@ public final class CheckpointUtils {
         }
     }
 
-    /**
-     *  <p>Write out the operation's relevant fields to the buffer.</p>
-     *
-     *  <p>See the comments to the class for explanation of why checkpointed
-     *          operations are "orphaned".</p>
-     */
-    private static boolean toString(FileOperation operation,
-                                    StringBuilder builder,
-                                    PoolInfoMap map) {
-        Integer parent = operation.getParent();
-        Integer source = operation.getSource();
-        String pool = parent == null ?
-                        (source == null ? null : map.getPool(source)):
-                        map.getPool(parent);
-        if (pool == null) {
-            /*
-             *  Incomplete record.  Skip.
-             */
-            return false;
-        }
-
-        builder.append(operation.getPnfsId()).append(",");
-        builder.append(operation.getOpCount()).append(",");
-        builder.append(map.getGroup(operation.getPoolGroup())).append(",");
-        builder.append(pool);
-
-        return true;
-    }
-
     /**
      * <p>See the comments to the class for explanation of why checkpointed
      *          operations are "orphaned".</p>
      *
-     * @return update object constructed from the parsed line.
+     * @return update object constructed from the journal record.
      */
-    private static FileUpdate fromString(String line, PoolInfoMap map) {
-        String[] parts = line.split("[,]");
-        if (parts.length != 5) {
-            return null;
-        }
-        PnfsId pnfsId = new PnfsId(parts[0]);
-        boolean newPool = Boolean.valueOf(parts[1]);
-        int opCount = Integer.parseInt(parts[2]);
-        Integer gindex = map.getGroupIndex(parts[3]);
-        FileUpdate update = new FileUpdate(pnfsId, parts[4],
+    private static FileUpdate toUpdate(CheckpointJournal.Record record,
+                                       PoolInfoMap map) {
+        Integer gindex = map.getGroupIndex(record.getGroup());
+        FileUpdate update = new FileUpdate(record.getPnfsId(), record.getPool(),
                                            MessageType.ADD_CACHE_LOCATION,
-                                           newPool, gindex, true);
-        update.setCount(opCount);
+                                           false, gindex, true);
+        update.setCount(record.getOpCount());
         update.setFromReload(true);
         return update;
     }
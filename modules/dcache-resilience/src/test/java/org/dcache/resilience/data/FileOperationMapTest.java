@@ -71,9 +71,11 @@ import diskCacheV111.util.PnfsId;
 import org.dcache.resilience.TestBase;
 import org.dcache.resilience.TestSynchronousExecutor.Mode;
 import org.dcache.resilience.handlers.PoolTaskCompletionHandler;
+import org.dcache.resilience.util.CheckpointJournal;
 import org.dcache.vehicles.FileAttributes;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
@@ -332,8 +334,40 @@ public final class FileOperationMapTest extends TestBase {
         assertNotNull(fileOperationMap.getOperation(operation.getPnfsId()));
     }
 
+    @Test
+    public void shouldJournalRemovalOfOperation()
+                    throws CacheException, IOException {
+        givenANewPnfsId();
+        afterOperationAdded(3);
+        whenSaveIsCalled();
+        assertEquals(3, CheckpointJournal.replay(checkpoint)
+                                         .get(operation.getPnfsId())
+                                         .getOpCount());
+        whenScanIsRun();
+        whenOperationIsVoided();
+        whenScanIsRun();
+        whenSaveIsCalled();
+        assertFalse(CheckpointJournal.replay(checkpoint)
+                                     .containsKey(operation.getPnfsId()));
+    }
+
+    @Test
+    public void shouldJournalOperationAddedAfterCheckpointOnNextCheckpoint()
+                    throws CacheException, IOException {
+        givenANewPnfsId();
+        whenSaveIsCalled();
+        afterOperationAdded(2);
+        assertFalse(CheckpointJournal.replay(checkpoint)
+                                     .containsKey(operation.getPnfsId()));
+        whenSaveIsCalled();
+        assertEquals(2, CheckpointJournal.replay(checkpoint)
+                                         .get(operation.getPnfsId())
+                                         .getOpCount());
+    }
+
     @After
     public void tearDown() {
+        fileOperationMap.journal.close();
         if (checkpoint.exists()) {
             checkpoint.delete();
         }
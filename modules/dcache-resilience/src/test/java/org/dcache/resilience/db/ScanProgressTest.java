@@ -0,0 +1,124 @@
+/*
+COPYRIGHT STATUS:
+Dec 1st 2001, Fermi National Accelerator Laboratory (FNAL) documents and
+software are sponsored by the U.S. Department of Energy under Contract No.
+DE-AC02-76CH03000. Therefore, the U.S. Government retains a  world-wide
+non-exclusive, royalty-free license to publish or reproduce these documents
+and software for U.S. Government purposes.  All documents and software
+available from this server are protected under the U.S. and Foreign
+Copyright Laws, and FNAL reserves all rights.
+
+Distribution of the software available from this server is free of
+charge subject to the user following the terms of the Fermitools
+Software Legal Information.
+
+Redistribution and/or modification of the software shall be accompanied
+by the Fermitools Software Legal Information  (including the copyright
+notice).
+
+The user is asked to feed back problems, benefits, and/or suggestions
+about the software to the Fermilab Software Providers.
+
+Neither the name of Fermilab, the  URA, nor the names of the contributors
+may be used to endorse or promote products derived from this software
+without specific prior written permission.
+
+DISCLAIMER OF LIABILITY (BSD):
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+"AS IS" AND ANY EXPRESS OR IMPLIED  WARRANTIES, INCLUDING, BUT NOT
+LIMITED TO, THE IMPLIED  WARRANTIES OF MERCHANTABILITY AND FITNESS
+FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL FERMILAB,
+OR THE URA, OR THE U.S. DEPARTMENT of ENERGY, OR CONTRIBUTORS BE LIABLE
+FOR  ANY  DIRECT, INDIRECT,  INCIDENTAL, SPECIAL, EXEMPLARY, OR
+CONSEQUENTIAL DAMAGES  (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT
+OF SUBSTITUTE  GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR
+BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY  OF
+LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT  OF THE USE OF THIS
+SOFTWARE, EVEN IF ADVISED OF THE  POSSIBILITY OF SUCH DAMAGE.
+
+Liabilities of the Government:
+
+This software is provided by URA, independent from its Prime Contract
+with the U.S. Department of Energy. URA is acting independently from
+the Government and in its own private capacity and is not acting on
+behalf of the U.S. Government, nor as its contractor nor its agent.
+Correspondingly, it is understood and agreed that the U.S. Government
+has no connection to this software and in no manner whatsoever shall
+be liable for nor assume any responsibility or obligation for any claim,
+cost, or damages arising out of or resulting from the use of the software
+available from this server.
+
+Export Control:
+
+All documents and software available from this server are subject to U.S.
+export control laws.  Anyone downloading information from this server is
+obligated to secure any necessary Government licenses before exporting
+documents or software obtained from this server.
+ */
+package org.dcache.resilience.db;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import org.dcache.resilience.data.MessageType;
+import org.dcache.resilience.db.LocalNamespaceAccess.ScanProgress;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public final class ScanProgressTest {
+    ScanProgress progress;
+
+    @Test
+    public void shouldCoverEntireRangeWithoutOverlap() {
+        givenProgress(100, 1099, 8);
+        assertEquals(8, progress.upper.length);
+        assertEquals(100, progress.next.get(0));
+        for (int i = 1; i < progress.upper.length; i++) {
+            assertEquals(progress.upper[i - 1] + 1, progress.next.get(i));
+        }
+        assertEquals(1099, progress.upper[7]);
+    }
+
+    @Test
+    public void shouldNotCreateMoreRangesThanInumbers() {
+        givenProgress(5, 7, 32);
+        assertEquals(3, progress.upper.length);
+    }
+
+    @Test
+    public void shouldOnlyReturnUnfinishedRangesAsPending() {
+        givenProgress(0, 99, 4);
+        progress.next.set(1, progress.upper[1] + 1);
+        progress.next.set(2, 60);
+        assertEquals(Arrays.asList(0, 2, 3), progress.pending());
+        assertFalse(progress.isComplete());
+    }
+
+    @Test
+    public void shouldBeCompleteWhenAllRangesAreFinished() {
+        givenProgress(0, 99, 4);
+        for (int i = 0; i < progress.upper.length; i++) {
+            progress.next.set(i, progress.upper[i] + 1);
+        }
+        assertTrue(progress.isComplete());
+    }
+
+    @Test
+    public void shouldIncludeNewLocationsWhenExtended() {
+        givenProgress(0, 99, 4);
+        progress.next.set(3, progress.upper[3] + 1);
+        progress.extendTo(150);
+        assertEquals(Arrays.asList(0, 1, 2, 3), progress.pending());
+        assertEquals(150, progress.upper[3]);
+    }
+
+    private void givenProgress(long min, long max, int ranges) {
+        progress = new ScanProgress(MessageType.POOL_STATUS_DOWN, min, max,
+                                    ranges);
+    }
+}
@@ -0,0 +1,55 @@
+package diskCacheV111.vehicles;
+
+import javax.security.auth.Subject;
+
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.io.Serializable;
+
+import dmg.cells.nucleus.CompactCodec;
+
+import org.dcache.auth.Subjects;
+
+/**
+ * Base class for compact codecs of Message subclasses. Provides encoding
+ * of the state common to all messages. Since messages have to be
+ * constructed before that state can be restored, subclasses write it
+ * after their own fields.
+ */
+public abstract class AbstractMessageCodec<T extends Message> implements CompactCodec<T>
+{
+    protected static void writeMessage(ObjectOutput out, Message message) throws IOException
+    {
+        out.writeBoolean(message.getReplyRequired());
+        out.writeLong(message.getId());
+        out.writeBoolean(message.isReply());
+        if (message.isReply()) {
+            out.writeInt(message.getReturnCode());
+            out.writeObject(message.getErrorObject());
+        }
+        Subject subject = message.getSubject();
+        out.writeObject(subject == Subjects.ROOT ? null : subject);
+    }
+
+    protected static void readMessage(ObjectInput in, Message message) throws IOException, ClassNotFoundException
+    {
+        message.setReplyRequired(in.readBoolean());
+        message.setId(in.readLong());
+        if (in.readBoolean()) {
+            int returnCode = in.readInt();
+            message.setReply(returnCode, (Serializable) in.readObject());
+        } else {
+            message.clearReply();
+        }
+        Subject subject = (Subject) in.readObject();
+        if (subject != null) {
+            message.setSubject(subject);
+        }
+    }
+
+    protected static String readString(ObjectInput in) throws IOException, ClassNotFoundException
+    {
+        return (String) in.readObject();
+    }
+}
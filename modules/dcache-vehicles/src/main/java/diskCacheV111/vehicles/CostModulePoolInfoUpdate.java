@@ -0,0 +1,69 @@
+package diskCacheV111.vehicles;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * The changes to the pool cost information held by PoolManager.  An update
+ * contains the cost information of the pools that changed since the
+ * previous update and the names of the pools that were removed.  A full
+ * update contains the cost information of all pools; pools that are not
+ * included in a full update were removed.
+ * <p>
+ * Unchanged cost information is published again with the next full
+ * update, which follows within the resync period.
+ */
+public class CostModulePoolInfoUpdate extends CostModulePoolInfoTable
+{
+    private static final long serialVersionUID = 4052370541213087421L;
+
+    private final boolean _isFullUpdate;
+    private final long _resyncPeriod;
+    private final HashSet<String> _removedPools = new HashSet<>();
+
+    /**
+     * @param isFullUpdate whether the update contains all pools
+     * @param resyncPeriod the maximum time, in milliseconds, until the
+     * next full update
+     */
+    public CostModulePoolInfoUpdate(boolean isFullUpdate, long resyncPeriod)
+    {
+        _isFullUpdate = isFullUpdate;
+        _resyncPeriod = resyncPeriod;
+    }
+
+    public boolean isFullUpdate()
+    {
+        return _isFullUpdate;
+    }
+
+    public long getResyncPeriod()
+    {
+        return _resyncPeriod;
+    }
+
+    public void addRemovedPools(Collection<String> pools)
+    {
+        _removedPools.addAll(pools);
+    }
+
+    public Set<String> getRemovedPools()
+    {
+        return Collections.unmodifiableSet(_removedPools);
+    }
+
+    public boolean isEmpty()
+    {
+        return poolInfos().isEmpty() && _removedPools.isEmpty();
+    }
+
+    @Override
+    public String toString()
+    {
+        return (_isFullUpdate ? "Full pool cost update: " : "Pool cost update: ") +
+               poolInfos().size() + " pools, " + _removedPools.size() +
+               " removed, " + getTimestamp();
+    }
+}
@@ -0,0 +1,60 @@
+package diskCacheV111.vehicles;
+
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.util.Map;
+import java.util.Set;
+
+import diskCacheV111.pools.PoolCostInfo;
+import diskCacheV111.pools.PoolV2Mode;
+
+/**
+ * Compact encoding of the pool heartbeat sent to PoolManager.
+ */
+public class PoolManagerPoolUpMessageCodec extends AbstractMessageCodec<PoolManagerPoolUpMessage>
+{
+    @Override
+    public Class<PoolManagerPoolUpMessage> getType()
+    {
+        return PoolManagerPoolUpMessage.class;
+    }
+
+    @Override
+    public void write(ObjectOutput out, PoolManagerPoolUpMessage message) throws IOException
+    {
+        out.writeUTF(message.getPoolName());
+        out.writeLong(message.getSerialId());
+        out.writeObject(message.getPoolMode());
+        out.writeObject(message.getPoolCostInfo());
+        out.writeObject(message.getTagMap());
+        out.writeObject(message.getHsmInstances());
+        out.writeObject(message.getMessage());
+        out.writeInt(message.getCode());
+        writeMessage(out, message);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public PoolManagerPoolUpMessage read(ObjectInput in) throws IOException, ClassNotFoundException
+    {
+        String poolName = in.readUTF();
+        long serialId = in.readLong();
+        PoolV2Mode mode = (PoolV2Mode) in.readObject();
+        PoolCostInfo costInfo = (PoolCostInfo) in.readObject();
+
+        PoolManagerPoolUpMessage message = new PoolManagerPoolUpMessage(poolName, serialId, mode, costInfo);
+        message.setTagMap((Map<String, String>) in.readObject());
+        Set<String> hsmInstances = (Set<String>) in.readObject();
+        if (hsmInstances != null) {
+            message.setHsmInstances(hsmInstances);
+        }
+        String status = readString(in);
+        if (status != null) {
+            message.setMessage(status);
+        }
+        message.setCode(in.readInt());
+        readMessage(in, message);
+        return message;
+    }
+}
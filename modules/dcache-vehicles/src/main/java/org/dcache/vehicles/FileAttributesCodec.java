@@ -0,0 +1,241 @@
+package org.dcache.vehicles;
+
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import diskCacheV111.util.AccessLatency;
+import diskCacheV111.util.PnfsId;
+import diskCacheV111.util.RetentionPolicy;
+import diskCacheV111.vehicles.StorageInfo;
+
+import dmg.cells.nucleus.CompactCodec;
+
+import org.dcache.acl.ACL;
+import org.dcache.namespace.FileAttribute;
+import org.dcache.namespace.FileType;
+import org.dcache.util.Checksum;
+import org.dcache.util.ChecksumType;
+
+/**
+ * Compact encoding of FileAttributes. The set of defined attributes is
+ * written as a bit mask followed by the values of the defined attributes
+ * in ordinal order.
+ */
+public class FileAttributesCodec implements CompactCodec<FileAttributes>
+{
+    private static final FileAttribute[] ATTRIBUTES = FileAttribute.values();
+    private static final ChecksumType[] CHECKSUM_TYPES = ChecksumType.values();
+    private static final FileType[] FILE_TYPES = FileType.values();
+
+    static {
+        assert ATTRIBUTES.length <= Integer.SIZE;
+    }
+
+    @Override
+    public Class<FileAttributes> getType()
+    {
+        return FileAttributes.class;
+    }
+
+    @Override
+    public void write(ObjectOutput out, FileAttributes attributes) throws IOException
+    {
+        int mask = 0;
+        for (FileAttribute attribute : attributes.getDefinedAttributes()) {
+            mask |= 1 << attribute.ordinal();
+        }
+        out.writeInt(mask);
+
+        for (FileAttribute attribute : attributes.getDefinedAttributes()) {
+            switch (attribute) {
+            case ACCESS_LATENCY:
+                out.writeByte(attributes.getAccessLatency().getId());
+                break;
+            case ACCESS_TIME:
+                out.writeLong(attributes.getAccessTime());
+                break;
+            case ACL:
+                out.writeObject(attributes.getAcl());
+                break;
+            case CACHECLASS:
+                out.writeObject(attributes.getCacheClass());
+                break;
+            case CHECKSUM:
+                Set<Checksum> checksums = attributes.getChecksums();
+                out.writeInt(checksums.size());
+                for (Checksum checksum : checksums) {
+                    out.writeByte(checksum.getType().ordinal());
+                    out.writeUTF(checksum.getValue());
+                }
+                break;
+            case CHANGE_TIME:
+                out.writeLong(attributes.getChangeTime());
+                break;
+            case CREATION_TIME:
+                out.writeLong(attributes.getCreationTime());
+                break;
+            case FLAGS:
+                Map<String, String> flags = attributes.getFlags();
+                out.writeInt(flags.size());
+                for (Map.Entry<String, String> flag : flags.entrySet()) {
+                    out.writeUTF(flag.getKey());
+                    out.writeUTF(flag.getValue());
+                }
+                break;
+            case HSM:
+                out.writeObject(attributes.getHsm());
+                break;
+            case LOCATIONS:
+                Collection<String> locations = attributes.getLocations();
+                out.writeInt(locations.size());
+                for (String location : locations) {
+                    out.writeUTF(location);
+                }
+                break;
+            case MODE:
+                out.writeInt(attributes.getMode());
+                break;
+            case MODIFICATION_TIME:
+                out.writeLong(attributes.getModificationTime());
+                break;
+            case OWNER:
+                out.writeInt(attributes.getOwner());
+                break;
+            case OWNER_GROUP:
+                out.writeInt(attributes.getGroup());
+                break;
+            case RETENTION_POLICY:
+                out.writeByte(attributes.getRetentionPolicy().getId());
+                break;
+            case SIZE:
+                out.writeLong(attributes.getSize());
+                break;
+            case STORAGECLASS:
+                out.writeObject(attributes.getStorageClass());
+                break;
+            case STORAGEINFO:
+                out.writeObject(attributes.getStorageInfo());
+                break;
+            case TYPE:
+                out.writeByte(attributes.getFileType().ordinal());
+                break;
+            case PNFSID:
+                out.writeUTF(attributes.getPnfsId().toString());
+                break;
+            case NLINK:
+                out.writeInt(attributes.getNlink());
+                break;
+            default:
+                throw new IOException("Unsupported attribute " + attribute);
+            }
+        }
+    }
+
+    @Override
+    public FileAttributes read(ObjectInput in) throws IOException, ClassNotFoundException
+    {
+        FileAttributes attributes = new FileAttributes();
+        int mask = in.readInt();
+        for (FileAttribute attribute : ATTRIBUTES) {
+            if ((mask & (1 << attribute.ordinal())) == 0) {
+                continue;
+            }
+            switch (attribute) {
+            case ACCESS_LATENCY:
+                attributes.setAccessLatency(AccessLatency.getAccessLatency(in.readByte()));
+                break;
+            case ACCESS_TIME:
+                attributes.setAccessTime(in.readLong());
+                break;
+            case ACL:
+                attributes.setAcl((ACL) in.readObject());
+                break;
+            case CACHECLASS:
+                attributes.setCacheClass(intern((String) in.readObject()));
+                break;
+            case CHECKSUM:
+                int checksumCount = in.readInt();
+                Set<Checksum> checksums = new HashSet<>();
+                for (int i = 0; i < checksumCount; i++) {
+                    ChecksumType type = CHECKSUM_TYPES[in.readByte()];
+                    checksums.add(new Checksum(type, in.readUTF()));
+                }
+                attributes.setChecksums(checksums);
+                break;
+            case CHANGE_TIME:
+                attributes.setChangeTime(in.readLong());
+                break;
+            case CREATION_TIME:
+                attributes.setCreationTime(in.readLong());
+                break;
+            case FLAGS:
+                int flagCount = in.readInt();
+                Map<String, String> flags = new HashMap<>();
+                for (int i = 0; i < flagCount; i++) {
+                    flags.put(in.readUTF().intern(), in.readUTF());
+                }
+                attributes.setFlags(flags);
+                break;
+            case HSM:
+                attributes.setHsm(intern((String) in.readObject()));
+                break;
+            case LOCATIONS:
+                int locationCount = in.readInt();
+                Collection<String> locations = new ArrayList<>(locationCount);
+                for (int i = 0; i < locationCount; i++) {
+                    locations.add(in.readUTF());
+                }
+                attributes.setLocations(locations);
+                break;
+            case MODE:
+                attributes.setMode(in.readInt());
+                break;
+            case MODIFICATION_TIME:
+                attributes.setModificationTime(in.readLong());
+                break;
+            case OWNER:
+                attributes.setOwner(in.readInt());
+                break;
+            case OWNER_GROUP:
+                attributes.setGroup(in.readInt());
+                break;
+            case RETENTION_POLICY:
+                attributes.setRetentionPolicy(RetentionPolicy.getRetentionPolicy(in.readByte()));
+                break;
+            case SIZE:
+                attributes.setSize(in.readLong());
+                break;
+            case STORAGECLASS:
+                attributes.setStorageClass(intern((String) in.readObject()));
+                break;
+            case STORAGEINFO:
+                attributes.setStorageInfo((StorageInfo) in.readObject());
+                break;
+            case TYPE:
+                attributes.setFileType(FILE_TYPES[in.readByte()]);
+                break;
+            case PNFSID:
+                attributes.setPnfsId(new PnfsId(in.readUTF()));
+                break;
+            case NLINK:
+                attributes.setNlink(in.readInt());
+                break;
+            default:
+                throw new IOException("Unsupported attribute " + attribute);
+            }
+        }
+        return attributes;
+    }
+
+    private static String intern(String s)
+    {
+        return (s == null) ? null : s.intern();
+    }
+}
@@ -0,0 +1,70 @@
+package org.dcache.vehicles;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import diskCacheV111.util.PnfsId;
+import diskCacheV111.vehicles.Message;
+import diskCacheV111.vehicles.PnfsMessage;
+
+import org.dcache.namespace.FileAttribute;
+
+/**
+ * Vehicle for getting the attributes of several files at once.
+ *
+ * PnfsManager fetches the attributes with a small number of bulk queries,
+ * which is considerably cheaper than sending one PnfsGetFileAttributes per
+ * file. Files that do not exist are absent from the reply.
+ */
+public class PnfsBulkGetFileAttributes extends PnfsMessage {
+
+    private static final long serialVersionUID = 3598208465264451312L;
+
+    private final List<PnfsId> _pnfsIds;
+    private final Set<FileAttribute> _attributes;
+    private Map<PnfsId, FileAttributes> _fileAttributes;
+
+    public PnfsBulkGetFileAttributes(Collection<PnfsId> pnfsIds, Set<FileAttribute> attr) {
+        _pnfsIds = new ArrayList<>(pnfsIds);
+        _attributes = attr;
+        setReplyRequired(true);
+    }
+
+    public List<PnfsId> getPnfsIds() {
+        return _pnfsIds;
+    }
+
+    /**
+     * Get set of requested {@link FileAttributes}.
+     */
+    public Set<FileAttribute> getRequestedAttributes() {
+        return _attributes;
+    }
+
+    public void setFileAttributes(Map<PnfsId, FileAttributes> fileAttributes) {
+        _fileAttributes = fileAttributes;
+    }
+
+    /**
+     * Returns the attributes of the files that exist. Note that PnfsManager
+     * may return less attributes than requested.
+     */
+    public Map<PnfsId, FileAttributes> getFileAttributes() {
+        return _fileAttributes;
+    }
+
+    @Override
+    public boolean invalidates(Message message)
+    {
+        return false;
+    }
+
+    @Override
+    public String toString()
+    {
+        return super.toString() + ";files=" + _pnfsIds.size() + ";" + _attributes;
+    }
+}
@@ -0,0 +1,105 @@
+package org.dcache.vehicles;
+
+import com.google.common.collect.ImmutableMap;
+import org.junit.Test;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Collections;
+
+import diskCacheV111.pools.PoolCostInfo;
+import diskCacheV111.pools.PoolV2Mode;
+import diskCacheV111.util.AccessLatency;
+import diskCacheV111.util.CacheException;
+import diskCacheV111.util.PnfsId;
+import diskCacheV111.util.RetentionPolicy;
+import diskCacheV111.vehicles.GenericStorageInfo;
+import diskCacheV111.vehicles.PoolManagerPoolUpMessage;
+
+import dmg.cells.nucleus.CellMessage;
+import dmg.cells.nucleus.CellPath;
+import dmg.cells.nucleus.SerializationFormat;
+
+import org.dcache.namespace.FileType;
+import org.dcache.util.Checksum;
+import org.dcache.util.ChecksumType;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+
+public class FileAttributesCodecTest
+{
+    @SuppressWarnings("unchecked")
+    private static <T extends Serializable> T roundTrip(T object)
+    {
+        CellMessage message = new CellMessage(new CellPath("foo"), object);
+        return (T) message.encode(SerializationFormat.COMPACT).decode().getMessageObject();
+    }
+
+    @Test
+    public void shouldPreserveAllAttributes()
+    {
+        FileAttributes attributes = FileAttributes.of()
+                .pnfsId(new PnfsId("0000D7F4E04B4ACF4C5CA6B2A3F5E1A0A0E4"))
+                .storageInfo(new GenericStorageInfo("osm", "exp:raw"))
+                .storageClass("exp:raw")
+                .hsm("osm")
+                .size(2_147_483_648L)
+                .accessLatency(AccessLatency.NEARLINE)
+                .retentionPolicy(RetentionPolicy.CUSTODIAL)
+                .checksum(new Checksum(ChecksumType.ADLER32, "6bbe0e54"))
+                .locations(Arrays.asList("pool1", "pool2"))
+                .flags(ImmutableMap.of("a", "b"))
+                .uid(1000)
+                .gid(1001)
+                .mode(0644)
+                .fileType(FileType.REGULAR)
+                .creationTime(1_500_000_000_000L)
+                .modificationTime(1_500_000_001_000L)
+                .accessTime(1_500_000_002_000L)
+                .build();
+        attributes.setCacheClass(null);
+        attributes.setNlink(1);
+
+        FileAttributes decoded = roundTrip(attributes);
+
+        assertThat(decoded.getDefinedAttributes(), is(attributes.getDefinedAttributes()));
+        assertThat(decoded.toString(), is(attributes.toString()));
+        assertThat(decoded.getCacheClass(), is(nullValue()));
+    }
+
+    @Test
+    public void shouldPreserveUndefinedAttributes()
+    {
+        FileAttributes decoded = roundTrip(FileAttributes.ofSize(42));
+
+        assertThat(decoded.getSize(), is(42L));
+        assertThat(decoded.isUndefined(org.dcache.namespace.FileAttribute.PNFSID), is(true));
+    }
+
+    @Test
+    public void shouldEncodePoolUpMessage()
+    {
+        PoolCostInfo cost = new PoolCostInfo("pool1", "regular");
+        cost.setSpaceUsage(1000, 300, 100, 200);
+        PoolManagerPoolUpMessage message =
+                new PoolManagerPoolUpMessage("pool1", 17, new PoolV2Mode(PoolV2Mode.ENABLED), cost);
+        message.setTagMap(Collections.singletonMap("hostname", "node1"));
+        message.setCode(3);
+        message.setFailed(CacheException.PANIC, "broken");
+
+        PoolManagerPoolUpMessage decoded = roundTrip(message);
+
+        assertThat(decoded.getPoolName(), is("pool1"));
+        assertThat(decoded.getSerialId(), is(17L));
+        assertThat(decoded.getPoolMode().getMode(), is(PoolV2Mode.ENABLED));
+        assertThat(decoded.getPoolCostInfo().getSpaceInfo().getTotalSpace(), is(1000L));
+        assertThat(decoded.getTagMap(), hasEntry("hostname", "node1"));
+        assertThat(decoded.getHsmInstances(), is(nullValue()));
+        assertThat(decoded.getMessage(), is(""));
+        assertThat(decoded.getCode(), is(3));
+        assertThat(decoded.getReplyRequired(), is(false));
+        assertThat(decoded.getReturnCode(), is(CacheException.PANIC));
+        assertThat(decoded.getErrorObject(), is((Serializable) "broken"));
+    }
+}
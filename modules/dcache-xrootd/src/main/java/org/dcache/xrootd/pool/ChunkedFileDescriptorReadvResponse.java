@@ -6,54 +6,296 @@ import io.netty.util.ReferenceCountUtil;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.dcache.xrootd.core.XrootdException;
+import org.dcache.xrootd.protocol.messages.GenericReadRequestMessage.EmbeddedReadRequest;
 import org.dcache.xrootd.protocol.messages.ReadVRequest;
+import org.dcache.xrootd.protocol.messages.ReadVResponse;
 import org.dcache.xrootd.stream.AbstractChunkedReadvResponse;
 
 import static org.dcache.xrootd.protocol.XrootdProtocol.kXR_FileNotOpen;
 
+/**
+ * Vector read response that coalesces the segments of the request.
+ *
+ * Segments are read one frame at a time. When the first segment of a
+ * frame is requested, the segments of that frame are sorted by file and
+ * offset. Adjacent, overlapping and nearby segments are merged into
+ * aligned extents, and the extents are read in parallel. The segments are
+ * then served as slices of the extents, i.e. without copying the data.
+ *
+ * The calling disk IO thread reads the first extent and hands the others
+ * to the dedicated vector read executor of the xrootd transfer service,
+ * whose size is pool.mover.xrootd.readv-threads. The calling thread then
+ * reads any extent that the executor has not started to read, including
+ * extents the executor rejected, before waiting for the rest.
+ *
+ * Segments not requested in the order of the request are read
+ * individually.
+ */
 public class ChunkedFileDescriptorReadvResponse extends AbstractChunkedReadvResponse
 {
     private final List<FileDescriptor> descriptors;
+    private final int[] fds;
+    private final long[] offsets;
+    private final int[] requestedLengths;
+    private final int maxFrameSize;
+    private final Executor executor;
+
+    /**
+     * Slices of segments read ahead of being requested. Each holds a
+     * reference to the buffer of its extent, and is released when
+     * returned by read or when the response is closed.
+     */
+    private final ByteBuf[] prefetched;
+
+    /**
+     * Index of the segment expected to be requested next.
+     */
+    private int next;
 
     public ChunkedFileDescriptorReadvResponse(ReadVRequest request,
                                               int maxFrameSize,
-                                              List<FileDescriptor> descriptors)
+                                              List<FileDescriptor> descriptors,
+                                              Executor executor)
     {
         super(request, maxFrameSize);
         this.descriptors = descriptors;
+        this.maxFrameSize = maxFrameSize;
+        this.executor = executor;
+
+        EmbeddedReadRequest[] segments = request.getReadRequestList();
+        this.fds = new int[segments.length];
+        this.offsets = new long[segments.length];
+        this.requestedLengths = new int[segments.length];
+        for (int i = 0; i < segments.length; i++) {
+            fds[i] = segments[i].getFileHandle();
+            offsets[i] = segments[i].getOffset();
+            requestedLengths[i] = segments[i].BytesToRead();
+        }
+        this.prefetched = new ByteBuf[segments.length];
     }
 
-    @Override
-    protected long getSize(int fd) throws IOException, XrootdException
+    private FileDescriptor getDescriptor(int fd) throws XrootdException
     {
         if (fd < 0 || fd >= descriptors.size() || descriptors.get(fd) == null) {
             throw new XrootdException(kXR_FileNotOpen, "Invalid file descriptor");
         }
-        return descriptors.get(fd).getChannel().size();
+        return descriptors.get(fd);
+    }
+
+    @Override
+    protected long getSize(int fd) throws IOException, XrootdException
+    {
+        return getDescriptor(fd).getChannel().size();
     }
 
     @Override
     protected ByteBuf read(ByteBufAllocator alloc, int fd, long position, int length)
             throws IOException, XrootdException
     {
-        if (fd < 0 || fd >= descriptors.size() || descriptors.get(fd) == null) {
-            throw new XrootdException(kXR_FileNotOpen, "Invalid file descriptor");
+        try {
+            FileDescriptor descriptor = getDescriptor(fd);
+
+            int index = next;
+            if (index < fds.length && fds[index] == fd && offsets[index] == position) {
+                if (prefetched[index] == null) {
+                    prefetch(alloc, index);
+                }
+                next = index + 1;
+                ByteBuf chunk = prefetched[index];
+                prefetched[index] = null;
+                if (chunk.readableBytes() > length) {
+                    chunk.writerIndex(chunk.readerIndex() + length);
+                }
+                return chunk;
+            }
+
+            ByteBuf chunk = alloc.ioBuffer(length);
+            try {
+                ByteBuffer buffer = chunk.nioBuffer(0, length);
+                descriptor.read(buffer, position);
+                chunk.writerIndex(buffer.position());
+                descriptor.getReadvStatistics().record(1, 1, length, buffer.position());
+                return chunk;
+            } catch (RuntimeException | IOException e) {
+                ReferenceCountUtil.release(chunk);
+                throw e;
+            }
+        } catch (RuntimeException | IOException | XrootdException e) {
+            releasePrefetched();
+            throw e;
+        }
+    }
+
+    @Override
+    public void close() throws Exception
+    {
+        releasePrefetched();
+        super.close();
+    }
+
+    /**
+     * Releases all segments read ahead of being requested.
+     */
+    private void releasePrefetched()
+    {
+        for (int i = 0; i < prefetched.length; i++) {
+            if (prefetched[i] != null) {
+                ReferenceCountUtil.release(prefetched[i]);
+                prefetched[i] = null;
+            }
+        }
+    }
+
+    /**
+     * Returns the number of bytes of a segment that are within the file.
+     */
+    private int getLength(int index) throws IOException, XrootdException
+    {
+        long available = getSize(fds[index]) - offsets[index];
+        return (int) Math.max(0, Math.min(requestedLengths[index], available));
+    }
+
+    /**
+     * Reads the segments starting at {@code from} that fit into the frame
+     * starting with that segment.
+     */
+    private void prefetch(ByteBufAllocator alloc, int from) throws IOException, XrootdException
+    {
+        int[] lengths = new int[fds.length];
+        long frameSize = 0;
+        int to = from;
+        while (to < fds.length) {
+            int length = getLength(to);
+            frameSize += ReadVResponse.READ_LIST_HEADER_SIZE + length;
+            if (to > from && frameSize > maxFrameSize) {
+                break;
+            }
+            lengths[to++] = length;
         }
 
-        FileDescriptor descriptor = descriptors.get(fd);
+        List<ReadvExtent> extents = ReadvExtent.plan(fds, offsets, lengths, from, to);
+        for (ReadvExtent extent : extents) {
+            extent.align(getSize(extent.getFileHandle()));
+        }
 
-        ByteBuf chunk = alloc.ioBuffer(length);
+        ByteBuf[] buffers = new ByteBuf[extents.size()];
         try {
-            ByteBuffer buffer = chunk.nioBuffer(0, length);
-            descriptor.read(buffer, position);
-            chunk.writerIndex(buffer.position());
-            return chunk;
-        } catch (RuntimeException | IOException e) {
-            ReferenceCountUtil.release(chunk);
-            throw e;
+            for (int i = 0; i < buffers.length; i++) {
+                buffers[i] = alloc.ioBuffer(extents.get(i).getLength());
+            }
+            readAll(extents, buffers);
+            for (int i = 0; i < buffers.length; i++) {
+                extents.get(i).slice(buffers[i], offsets, lengths, prefetched);
+            }
+        } finally {
+            for (ByteBuf buffer : buffers) {
+                ReferenceCountUtil.release(buffer);
+            }
+        }
+    }
+
+    /**
+     * Reads the extents into the buffers. All but the first extent are
+     * offered to the executor, while the first one is read by the calling
+     * thread. Extents not yet started by the executor are then read by the
+     * calling thread too. Returns only once all reads have completed.
+     */
+    private void readAll(List<ReadvExtent> extents, ByteBuf[] buffers)
+            throws IOException, XrootdException
+    {
+        CountDownLatch done = new CountDownLatch(extents.size());
+        List<ExtentRead> reads = new ArrayList<>(extents.size());
+        for (int i = 0; i < extents.size(); i++) {
+            ReadvExtent extent = extents.get(i);
+            reads.add(new ExtentRead(extent, getDescriptor(extent.getFileHandle()), buffers[i], done));
+        }
+        for (ExtentRead read : reads.subList(1, reads.size())) {
+            try {
+                executor.execute(read);
+            } catch (RejectedExecutionException ignored) {
+                // The calling thread reads the extent below
+            }
+        }
+        for (ExtentRead read : reads) {
+            read.run();
+        }
+
+        boolean interrupted = false;
+        while (true) {
+            try {
+                done.await();
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+
+        IOException failure = null;
+        for (ExtentRead read : reads) {
+            IOException e = read.failure;
+            if (e != null) {
+                if (failure == null) {
+                    failure = e;
+                } else {
+                    failure.addSuppressed(e);
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * Read of a single extent that is executed exactly once, by either the
+     * executor or the calling thread.
+     */
+    private static class ExtentRead implements Runnable
+    {
+        private final AtomicBoolean claimed = new AtomicBoolean();
+        private final ReadvExtent extent;
+        private final FileDescriptor descriptor;
+        private final ByteBuf buffer;
+        private final CountDownLatch done;
+        private volatile IOException failure;
+
+        ExtentRead(ReadvExtent extent, FileDescriptor descriptor, ByteBuf buffer, CountDownLatch done)
+        {
+            this.extent = extent;
+            this.descriptor = descriptor;
+            this.buffer = buffer;
+            this.done = done;
+        }
+
+        @Override
+        public void run()
+        {
+            if (claimed.compareAndSet(false, true)) {
+                try {
+                    ByteBuffer nio = buffer.nioBuffer(0, extent.getLength());
+                    descriptor.read(nio, extent.getOffset());
+                    buffer.writerIndex(nio.position());
+                    descriptor.getReadvStatistics().record(extent.getSegments().size(), 1,
+                                                           extent.getRequested(), nio.position());
+                } catch (IOException e) {
+                    failure = e;
+                } catch (RuntimeException e) {
+                    failure = new IOException(e);
+                } finally {
+                    done.countDown();
+                }
+            }
         }
     }
 }
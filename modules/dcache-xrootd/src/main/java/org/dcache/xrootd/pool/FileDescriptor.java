@@ -52,4 +52,10 @@ public interface FileDescriptor
      * Whether the file was opened with kXR_posc.
      */
     boolean isPersistOnSuccessfulClose();
+
+    /**
+     * Returns the statistics to which vector reads of this file are
+     * reported.
+     */
+    ReadvStatistics getReadvStatistics();
 }
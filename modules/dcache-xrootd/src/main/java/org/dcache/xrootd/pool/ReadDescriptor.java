@@ -20,9 +20,18 @@ public class ReadDescriptor implements FileDescriptor
      */
     protected NettyTransferService<XrootdProtocolInfo>.NettyMoverChannel _channel;
 
+    private final ReadvStatistics _readvStatistics;
+
     public ReadDescriptor(NettyTransferService<XrootdProtocolInfo>.NettyMoverChannel channel)
+    {
+        this(channel, new ReadvStatistics());
+    }
+
+    public ReadDescriptor(NettyTransferService<XrootdProtocolInfo>.NettyMoverChannel channel,
+                          ReadvStatistics readvStatistics)
     {
         _channel = channel;
+        _readvStatistics = readvStatistics;
     }
 
     @Override
@@ -66,5 +75,11 @@ public class ReadDescriptor implements FileDescriptor
     {
         return false;
     }
+
+    @Override
+    public ReadvStatistics getReadvStatistics()
+    {
+        return _readvStatistics;
+    }
 }
 
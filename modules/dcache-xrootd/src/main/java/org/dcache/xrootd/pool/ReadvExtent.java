@@ -0,0 +1,148 @@
+package org.dcache.xrootd.pool;
+
+import io.netty.buffer.ByteBuf;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.dcache.util.ByteUnit.KiB;
+import static org.dcache.util.ByteUnit.MiB;
+
+/**
+ * A range of a file covering one or more segments of a vector read.
+ *
+ * Segments are identified by their index in the vector read and are
+ * described by three parallel arrays holding the file handle, offset and
+ * length of each segment.
+ */
+class ReadvExtent
+{
+    /**
+     * Segments separated by gaps up to this size are read as one extent.
+     */
+    static final int MAX_GAP = KiB.toBytes(16);
+
+    /**
+     * Segments are not merged into extents larger than this.
+     */
+    static final int MAX_EXTENT = MiB.toBytes(1);
+
+    /**
+     * Extents are aligned to this boundary.
+     */
+    static final int ALIGNMENT = KiB.toBytes(4);
+
+    private final int fd;
+    private final List<Integer> indices = new ArrayList<>();
+    private long lower;
+    private long upper;
+    private long requested;
+
+    private ReadvExtent(int fd, long lower)
+    {
+        this.fd = fd;
+        this.lower = lower;
+        this.upper = lower;
+    }
+
+    /**
+     * Merges the segments in [from, to) into extents. The segments are
+     * sorted by file handle and offset, and overlapping, adjacent and
+     * nearby segments of the same file are merged. The extents are not
+     * aligned.
+     */
+    static List<ReadvExtent> plan(int[] fds, long[] offsets, int[] lengths, int from, int to)
+    {
+        Integer[] order = new Integer[to - from];
+        for (int i = from; i < to; i++) {
+            order[i - from] = i;
+        }
+        Arrays.sort(order, Comparator.<Integer>comparingInt(i -> fds[i])
+                .thenComparingLong(i -> offsets[i]));
+
+        List<ReadvExtent> extents = new ArrayList<>();
+        ReadvExtent extent = null;
+        for (int index : order) {
+            long lower = offsets[index];
+            long upper = lower + lengths[index];
+            if (extent == null || !extent.canMerge(fds[index], lower, upper)) {
+                extent = new ReadvExtent(fds[index], lower);
+                extents.add(extent);
+            }
+            extent.add(index, upper, lengths[index]);
+        }
+        return extents;
+    }
+
+    private boolean canMerge(int fd, long lower, long upper)
+    {
+        return this.fd == fd && lower <= this.upper + MAX_GAP
+               && Math.max(upper, this.upper) - this.lower <= MAX_EXTENT;
+    }
+
+    private void add(int index, long upper, int length)
+    {
+        indices.add(index);
+        this.upper = Math.max(this.upper, upper);
+        requested += length;
+    }
+
+    /**
+     * Extends the extent to the alignment boundaries, without extending
+     * it beyond the end of the file.
+     */
+    void align(long size)
+    {
+        lower -= lower % ALIGNMENT;
+        upper = Math.min(size, (upper + ALIGNMENT - 1) / ALIGNMENT * ALIGNMENT);
+    }
+
+    int getFileHandle()
+    {
+        return fd;
+    }
+
+    long getOffset()
+    {
+        return lower;
+    }
+
+    int getLength()
+    {
+        return (int) Math.max(0, upper - lower);
+    }
+
+    /**
+     * Returns the indices of the segments covered by this extent.
+     */
+    List<Integer> getSegments()
+    {
+        return indices;
+    }
+
+    /**
+     * Returns the number of bytes requested by the segments of this
+     * extent.
+     */
+    long getRequested()
+    {
+        return requested;
+    }
+
+    /**
+     * Stores a slice of the buffer for each segment of the extent in
+     * {@code slices}. The buffer holds the data read from the extent's
+     * offset. Each slice holds a reference to the buffer. A slice is
+     * shorter than the segment if less data was read than requested.
+     */
+    void slice(ByteBuf buffer, long[] offsets, int[] lengths, ByteBuf[] slices)
+    {
+        for (int index : indices) {
+            int offset = (int) (offsets[index] - lower);
+            int length = Math.max(0, Math.min(lengths[index], buffer.writerIndex() - offset));
+            slices[index] = buffer.retainedSlice(Math.min(offset, buffer.capacity()), length);
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package org.dcache.xrootd.pool;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters describing how well the segments of vector reads were
+ * coalesced into disk reads.
+ */
+public class ReadvStatistics
+{
+    private final LongAdder segments = new LongAdder();
+    private final LongAdder reads = new LongAdder();
+    private final LongAdder bytesRequested = new LongAdder();
+    private final LongAdder bytesRead = new LongAdder();
+
+    /**
+     * Records that {@code segments} segments with a total size of
+     * {@code bytesRequested} bytes were served by {@code reads} disk reads
+     * with a total size of {@code bytesRead} bytes.
+     */
+    public void record(int segments, int reads, long bytesRequested, long bytesRead)
+    {
+        this.segments.add(segments);
+        this.reads.add(reads);
+        this.bytesRequested.add(bytesRequested);
+        this.bytesRead.add(bytesRead);
+    }
+
+    public boolean isEmpty()
+    {
+        return reads.sum() == 0;
+    }
+
+    public long getSegments()
+    {
+        return segments.sum();
+    }
+
+    public long getReads()
+    {
+        return reads.sum();
+    }
+
+    /**
+     * Returns the average number of segments served by a single disk read.
+     */
+    public double getCoalescingRatio()
+    {
+        long reads = this.reads.sum();
+        return (reads == 0) ? 0 : (double) segments.sum() / reads;
+    }
+
+    /**
+     * Returns the fraction of the bytes read from disk that were not
+     * requested by the client, i.e. the cost of reading across the gaps
+     * between segments.
+     */
+    public double getOverread()
+    {
+        long read = bytesRead.sum();
+        return (read == 0) ? 0 : (double) (read - bytesRequested.sum()) / read;
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("readv[segments=%d,reads=%d,ratio=%.1f,overread=%.0f%%]",
+                             getSegments(), getReads(), getCoalescingRatio(), getOverread() * 100);
+    }
+}
@@ -0,0 +1,43 @@
+package org.dcache.xrootd.pool;
+
+import java.util.UUID;
+
+import diskCacheV111.vehicles.PoolIoFileMessage;
+
+import dmg.cells.nucleus.CellPath;
+
+import org.dcache.pool.classic.ChecksumModule;
+import org.dcache.pool.classic.TransferService;
+import org.dcache.pool.movers.NettyMover;
+import org.dcache.pool.repository.ReplicaDescriptor;
+import org.dcache.vehicles.XrootdProtocolInfo;
+
+/**
+ * A NettyMover that in addition reports vector read statistics.
+ */
+public class XrootdMover extends NettyMover<XrootdProtocolInfo>
+{
+    private final ReadvStatistics readvStatistics = new ReadvStatistics();
+
+    public XrootdMover(ReplicaDescriptor handle,
+                       PoolIoFileMessage message,
+                       CellPath pathToDoor,
+                       TransferService<NettyMover<XrootdProtocolInfo>> transferService,
+                       UUID uuid,
+                       ChecksumModule checksumModule)
+    {
+        super(handle, message, pathToDoor, transferService, uuid, checksumModule);
+    }
+
+    public ReadvStatistics getReadvStatistics()
+    {
+        return readvStatistics;
+    }
+
+    @Override
+    protected String getStatus()
+    {
+        String status = super.getStatus();
+        return readvStatistics.isEmpty() ? status : status + ":" + readvStatistics;
+    }
+}
@@ -297,7 +297,10 @@ public class XrootdPoolRequestHandler extends AbstractXrootdRequestHandler
                         descriptor = new WriteDescriptor(file, posc);
                     }
                 } else {
-                    descriptor = new ReadDescriptor(file);
+                    ReadvStatistics readvStatistics = _server.getReadvStatistics(uuid);
+                    descriptor = (readvStatistics == null)
+                            ? new ReadDescriptor(file)
+                            : new ReadDescriptor(file, readvStatistics);
                 }
 
                 FileStatus stat = msg.isRetStat() ? stat(file) : null;
@@ -535,7 +538,8 @@ public class XrootdPoolRequestHandler extends AbstractXrootdRequestHandler
             }
         }
 
-        return new ChunkedFileDescriptorReadvResponse(msg, _maxFrameSize, new ArrayList<>(_descriptors));
+        return new ChunkedFileDescriptorReadvResponse(msg, _maxFrameSize, new ArrayList<>(_descriptors),
+                                                      _server.getReadvExecutor());
     }
 
     /**
@@ -30,23 +30,35 @@ import org.springframework.beans.factory.annotation.Required;
 import javax.annotation.PostConstruct;
 import javax.annotation.PreDestroy;
 
+import java.io.IOException;
 import java.net.InetAddress;
 import java.net.InetSocketAddress;
 import java.net.SocketException;
+import java.nio.channels.CompletionHandler;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executor;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 
 import diskCacheV111.util.CacheException;
+import diskCacheV111.vehicles.PoolIoFileMessage;
 
 import dmg.cells.nucleus.CellPath;
+import dmg.cells.nucleus.NoRouteToCellException;
 
+import org.dcache.pool.classic.Cancellable;
+import org.dcache.pool.movers.Mover;
 import org.dcache.pool.movers.NettyMover;
 import org.dcache.pool.movers.NettyTransferService;
+import org.dcache.pool.repository.ReplicaDescriptor;
 import org.dcache.util.CDCThreadFactory;
 import org.dcache.util.NetworkUtils;
 import org.dcache.vehicles.XrootdDoorAdressInfoMessage;
@@ -106,6 +118,12 @@ public class XrootdTransferService extends NettyTransferService<XrootdProtocolIn
     private Map<String, String>               queryConfig;
     private NioEventLoopGroup                 thirdPartyClientGroup;
     private ScheduledExecutorService          thirdPartyShutdownExecutor;
+    private int                               readvThreads;
+    private ThreadPoolExecutor                readvExecutor;
+
+    /** Vector read statistics of running movers. */
+    private final ConcurrentMap<UUID, ReadvStatistics> readvStatistics =
+            new ConcurrentHashMap<>();
 
     public XrootdTransferService()
     {
@@ -130,6 +148,47 @@ public class XrootdTransferService extends NettyTransferService<XrootdProtocolIn
                         .setNameFormat("xrootd-tpc-client-%d")
                         .build();
         thirdPartyClientGroup = new NioEventLoopGroup(0, new CDCThreadFactory(factory));
+
+        /* Reads queued beyond the capacity of the executor are rejected
+         * and performed by the thread serving the request instead.
+         */
+        ThreadFactory readvFactory = new ThreadFactoryBuilder()
+                        .setNameFormat("xrootd-readv-%d")
+                        .build();
+        readvExecutor = new ThreadPoolExecutor(readvThreads, readvThreads,
+                                               60, TimeUnit.SECONDS,
+                                               new ArrayBlockingQueue<>(readvThreads * 16),
+                                               new CDCThreadFactory(readvFactory));
+        readvExecutor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Returns the executor used to read the segments of a vector read in
+     * parallel. The executor is bounded and may reject reads.
+     */
+    public Executor getReadvExecutor()
+    {
+        return readvExecutor;
+    }
+
+    @Required
+    public void setReadvThreads(int readvThreads)
+    {
+        this.readvThreads = readvThreads;
+    }
+
+    public int getReadvThreads()
+    {
+        return readvThreads;
+    }
+
+    /**
+     * Returns the vector read statistics of the mover with the given UUID,
+     * or null if no such mover is running.
+     */
+    public ReadvStatistics getReadvStatistics(UUID uuid)
+    {
+        return readvStatistics.get(uuid);
     }
 
     @Required
@@ -189,6 +248,34 @@ public class XrootdTransferService extends NettyTransferService<XrootdProtocolIn
         this.queryConfig = queryConfig;
     }
 
+    @Override
+    public Mover<?> createMover(ReplicaDescriptor handle, PoolIoFileMessage message,
+                                CellPath pathToDoor) throws CacheException
+    {
+        return new XrootdMover(handle, message, pathToDoor, this,
+                               createUuid((XrootdProtocolInfo) message.getProtocolInfo()),
+                               checksumModule);
+    }
+
+    @Override
+    public Cancellable executeMover(NettyMover<XrootdProtocolInfo> mover,
+                                    CompletionHandler<Void, Void> completionHandler)
+            throws IOException, CacheException, NoRouteToCellException
+    {
+        if (mover instanceof XrootdMover) {
+            readvStatistics.put(mover.getUuid(), ((XrootdMover) mover).getReadvStatistics());
+        }
+        return super.executeMover(mover, completionHandler);
+    }
+
+    @Override
+    public void closeMover(NettyMover<XrootdProtocolInfo> mover,
+                           CompletionHandler<Void, Void> completionHandler)
+    {
+        readvStatistics.remove(mover.getUuid());
+        super.closeMover(mover, completionHandler);
+    }
+
     @Override
     protected UUID createUuid(XrootdProtocolInfo protocolInfo)
     {
@@ -254,6 +341,7 @@ public class XrootdTransferService extends NettyTransferService<XrootdProtocolIn
     @Override
     public synchronized void shutdown() {
         super.shutdown();
+        readvExecutor.shutdown();
         thirdPartyClientGroup.shutdownGracefully(1, 3, TimeUnit.SECONDS);
         try {
             thirdPartyClientGroup.terminationFuture().sync();
@@ -0,0 +1,167 @@
+package org.dcache.xrootd.pool;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+
+public class ReadvExtentTest
+{
+    private static final long FILE_SIZE = 100_000_000;
+
+    @Test
+    public void shouldMergeOverlappingAndAdjacentSegments()
+    {
+        int[] fds = {0, 0, 0};
+        long[] offsets = {8192, 0, 4000};
+        int[] lengths = {100, 4096, 4192};
+
+        List<ReadvExtent> extents = ReadvExtent.plan(fds, offsets, lengths, 0, 3);
+
+        assertThat(extents, hasSize(1));
+        assertThat(extents.get(0).getSegments(), contains(1, 2, 0));
+        assertThat(extents.get(0).getOffset(), is(0L));
+        assertThat(extents.get(0).getLength(), is(8292));
+        assertThat(extents.get(0).getRequested(), is(8388L));
+    }
+
+    @Test
+    public void shouldMergeSegmentsSeparatedBySmallGaps()
+    {
+        int[] fds = {0, 0};
+        long[] offsets = {0, 100 + ReadvExtent.MAX_GAP};
+        int[] lengths = {100, 100};
+
+        List<ReadvExtent> extents = ReadvExtent.plan(fds, offsets, lengths, 0, 2);
+
+        assertThat(extents, hasSize(1));
+    }
+
+    @Test
+    public void shouldNotMergeSegmentsSeparatedByLargeGaps()
+    {
+        int[] fds = {0, 0};
+        long[] offsets = {0, 101 + ReadvExtent.MAX_GAP};
+        int[] lengths = {100, 100};
+
+        List<ReadvExtent> extents = ReadvExtent.plan(fds, offsets, lengths, 0, 2);
+
+        assertThat(extents, hasSize(2));
+    }
+
+    @Test
+    public void shouldNotMergeSegmentsOfDifferentFiles()
+    {
+        int[] fds = {1, 0, 1};
+        long[] offsets = {0, 0, 100};
+        int[] lengths = {100, 100, 100};
+
+        List<ReadvExtent> extents = ReadvExtent.plan(fds, offsets, lengths, 0, 3);
+
+        assertThat(extents, hasSize(2));
+        assertThat(extents.get(0).getFileHandle(), is(0));
+        assertThat(extents.get(0).getSegments(), contains(1));
+        assertThat(extents.get(1).getFileHandle(), is(1));
+        assertThat(extents.get(1).getSegments(), contains(0, 2));
+    }
+
+    @Test
+    public void shouldLimitExtentSize()
+    {
+        int[] fds = {0, 0, 0};
+        long[] offsets = {0, ReadvExtent.MAX_EXTENT / 2, ReadvExtent.MAX_EXTENT};
+        int[] lengths = {ReadvExtent.MAX_EXTENT / 2, ReadvExtent.MAX_EXTENT / 2, 1};
+
+        List<ReadvExtent> extents = ReadvExtent.plan(fds, offsets, lengths, 0, 3);
+
+        assertThat(extents, hasSize(2));
+        assertThat(extents.get(0).getLength(), is(ReadvExtent.MAX_EXTENT));
+        assertThat(extents.get(1).getSegments(), contains(2));
+    }
+
+    @Test
+    public void shouldOnlyPlanSegmentsInRange()
+    {
+        int[] fds = {0, 0, 0, 0};
+        long[] offsets = {0, 100, 200, 300};
+        int[] lengths = {100, 100, 100, 100};
+
+        List<ReadvExtent> extents = ReadvExtent.plan(fds, offsets, lengths, 1, 3);
+
+        assertThat(extents, hasSize(1));
+        assertThat(extents.get(0).getSegments(), contains(1, 2));
+    }
+
+    @Test
+    public void shouldAlignExtentsWithinFile()
+    {
+        int[] fds = {0, 0};
+        long[] offsets = {5000, 30000};
+        int[] lengths = {100, 100};
+
+        List<ReadvExtent> extents = ReadvExtent.plan(fds, offsets, lengths, 0, 2);
+        extents.get(0).align(FILE_SIZE);
+        extents.get(1).align(30050);
+
+        assertThat(extents.get(0).getOffset(), is(4096L));
+        assertThat(extents.get(0).getLength(), is(4096));
+        assertThat(extents.get(1).getOffset(), is(28672L));
+        assertThat(extents.get(1).getLength(), is(30050 - 28672));
+    }
+
+    @Test
+    public void shouldSliceSegmentsFromExtent()
+    {
+        int[] fds = {0, 0};
+        long[] offsets = {5000, 5050};
+        int[] lengths = {100, 100};
+        List<ReadvExtent> extents = ReadvExtent.plan(fds, offsets, lengths, 0, 2);
+        ReadvExtent extent = extents.get(0);
+        extent.align(FILE_SIZE);
+
+        ByteBuf buffer = Unpooled.buffer(extent.getLength());
+        for (int i = 0; i < extent.getLength(); i++) {
+            buffer.writeByte((int) (extent.getOffset() + i));
+        }
+
+        ByteBuf[] slices = new ByteBuf[2];
+        extent.slice(buffer, offsets, lengths, slices);
+        buffer.release();
+
+        assertThat(buffer.refCnt(), is(2));
+        for (int i = 0; i < 2; i++) {
+            assertThat(slices[i].readableBytes(), is(100));
+            assertThat(slices[i].getByte(0), is((byte) offsets[i]));
+            assertThat(slices[i].getByte(99), is((byte) (offsets[i] + 99)));
+        }
+        slices[0].release();
+        slices[1].release();
+        assertThat(buffer.refCnt(), is(0));
+    }
+
+    @Test
+    public void shouldTruncateSlicesOfShortReads()
+    {
+        int[] fds = {0, 0};
+        long[] offsets = {0, 8000};
+        int[] lengths = {100, 1000};
+        ReadvExtent extent = ReadvExtent.plan(fds, offsets, lengths, 0, 2).get(0);
+        extent.align(FILE_SIZE);
+
+        ByteBuf buffer = Unpooled.buffer(extent.getLength());
+        buffer.writerIndex(8500);
+
+        ByteBuf[] slices = new ByteBuf[2];
+        extent.slice(buffer, offsets, lengths, slices);
+        buffer.release();
+
+        assertThat(slices[0].readableBytes(), is(100));
+        assertThat(slices[1].readableBytes(), is(500));
+        slices[0].release();
+        slices[1].release();
+    }
+}
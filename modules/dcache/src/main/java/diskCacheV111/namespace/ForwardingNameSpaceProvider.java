@@ -24,6 +24,7 @@ import javax.security.auth.Subject;
 
 import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import diskCacheV111.util.AccessLatency;
@@ -163,6 +164,13 @@ public abstract class ForwardingNameSpaceProvider implements NameSpaceProvider
         return delegate().getFileAttributes(subject, pnfsId, attr);
     }
 
+    @Override
+    public Map<PnfsId, FileAttributes> getFileAttributes(Subject subject, Collection<PnfsId> pnfsIds,
+            Set<FileAttribute> attr) throws CacheException
+    {
+        return delegate().getFileAttributes(subject, pnfsIds, attr);
+    }
+
     @Override
     public FileAttributes setFileAttributes(Subject subject, PnfsId pnfsId,
             FileAttributes attr, Set<FileAttribute> fetch) throws CacheException
@@ -7,6 +7,7 @@ import javax.security.auth.Subject;
 
 import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import diskCacheV111.util.AccessLatency;
@@ -232,6 +233,21 @@ public interface NameSpaceProvider
                                      Set<FileAttribute> attr)
         throws CacheException;
 
+    /**
+     * Get attributes of several files at once. Implementations are expected
+     * to fetch the attributes with a small number of bulk operations rather
+     * than one lookup per file. Files that do not exist or whose attributes
+     * the subject is not allowed to read are absent from the result.
+     *
+     * @param subject Subject of user who invoked this method.
+     * @param pnfsIds of the files
+     * @param attr array of requested attributes
+     * @return map from PNFS ID to attributes
+     */
+    Map<PnfsId, FileAttributes> getFileAttributes(Subject subject, Collection<PnfsId> pnfsIds,
+                                                  Set<FileAttribute> attr)
+        throws CacheException;
+
     /**
      * Set files attributes defined by <code>attr</code>.
      *
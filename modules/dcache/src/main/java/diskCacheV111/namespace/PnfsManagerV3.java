@@ -21,13 +21,14 @@ import java.io.PrintWriter;
 import java.security.NoSuchAlgorithmException;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.EnumSet;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Random;
 import java.util.Set;
 import java.util.concurrent.BlockingQueue;
@@ -85,8 +86,10 @@ import org.dcache.acl.enums.AccessType;
 import org.dcache.auth.Subjects;
 import org.dcache.auth.attributes.Activity;
 import org.dcache.auth.attributes.Restriction;
+import org.dcache.auth.attributes.Restrictions;
 import org.dcache.cells.CellStub;
 import org.dcache.chimera.UnixPermission;
+import org.dcache.commons.stats.LatencyHistograms;
 import org.dcache.commons.stats.RequestCounters;
 import org.dcache.commons.stats.RequestExecutionTimeGauges;
 import org.dcache.namespace.FileAttribute;
@@ -99,6 +102,7 @@ import org.dcache.util.ChecksumType;
 import org.dcache.util.ColumnWriter;
 import org.dcache.vehicles.FileAttributes;
 import org.dcache.vehicles.PnfsCreateSymLinkMessage;
+import org.dcache.vehicles.PnfsBulkGetFileAttributes;
 import org.dcache.vehicles.PnfsGetFileAttributes;
 import org.dcache.vehicles.PnfsListDirectoryMessage;
 import org.dcache.vehicles.PnfsRemoveChecksumMessage;
@@ -130,6 +134,30 @@ public class PnfsManagerV3
         new RequestExecutionTimeGauges<>("PnfsManagerV3");
     private final RequestCounters<Class<?>> _foldedCounters =
         new RequestCounters<>("PnfsManagerV3.Folded");
+    private final RequestCounters<Class<?>> _batchedCounters =
+        new RequestCounters<>("PnfsManagerV3.Batched");
+    private final LatencyHistograms<Class<? extends PnfsMessage>> _queueTimes =
+        new LatencyHistograms<>("PnfsManagerV3.QueueTime");
+    private final LatencyHistograms<Class<? extends PnfsMessage>> _serviceTimes =
+        new LatencyHistograms<>("PnfsManagerV3.ServiceTime");
+
+    /**
+     * Number of stripes per processing thread. Messages on different
+     * stripes are processed independently of each other.
+     */
+    private static final int STRIPES_PER_THREAD = 16;
+
+    /**
+     * Number of messages processed from a stripe before a thread moves
+     * on to other stripes.
+     */
+    private static final int STRIPE_BATCH_SIZE = 16;
+
+    /**
+     * Maximum number of queued attribute lookups of a stripe that are
+     * resolved with a single bulk lookup.
+     */
+    private static final int ATTRIBUTE_BATCH_SIZE = 100;
 
     /**
      * These messages are subject to being discarded if their time to
@@ -142,6 +170,7 @@ public class PnfsManagerV3
         PnfsCreateEntryMessage.class,
         PnfsCreateUploadPath.class,
         PnfsGetFileAttributes.class,
+        PnfsBulkGetFileAttributes.class,
         PnfsListDirectoryMessage.class
     };
 
@@ -157,19 +186,18 @@ public class PnfsManagerV3
     private boolean _canFold;
 
     /**
-     * Queues for list operations. There is one queue per thread
-     * group.
+     * Queue for list operations.
      */
     private BlockingQueue<CellMessage> _listQueue;
 
     /**
-     * Tasks queues used for messages that do not operate on cache
-     * locations.
+     * Dispatcher for all other messages. Messages for the same PNFS ID
+     * or path are processed in order.
      */
-    private BlockingQueue<CellMessage>[] _fifos;
+    private StripedDispatcher _dispatcher;
 
     /**
-     * Executor for ProcessThread instances.
+     * Executor for the processing threads.
      */
     private final ExecutorService executor =
             Executors.newCachedThreadPool(new ThreadFactoryBuilder().setNameFormat("proc-%d").build());
@@ -204,6 +232,7 @@ public class PnfsManagerV3
         _gauges.addGauge(PnfsGetParentMessage.class);
         _gauges.addGauge(PnfsSetFileAttributes.class);
         _gauges.addGauge(PnfsGetFileAttributes.class);
+        _gauges.addGauge(PnfsBulkGetFileAttributes.class);
         _gauges.addGauge(PnfsListDirectoryMessage.class);
         _gauges.addGauge(PnfsRemoveChecksumMessage.class);
         _gauges.addGauge(PnfsCreateSymLinkMessage.class);
@@ -305,22 +334,18 @@ public class PnfsManagerV3
     {
         _stub = new CellStub(getCellEndpoint());
 
-        _fifos = new BlockingQueue[_threads];
-        LOGGER.info("Starting {} threads", _fifos.length);
-        for (int i = 0; i < _fifos.length; i++) {
-            if (_queueMaxSize > 0) {
-                _fifos[i] = new LinkedBlockingQueue<>(_queueMaxSize);
-            } else {
-                _fifos[i] = new LinkedBlockingQueue<>();
-            }
-            executor.execute(new ProcessThread(_fifos[i]));
-        }
+        LOGGER.info("Starting {} threads", _threads);
+        _dispatcher = new StripedDispatcher(_threads * STRIPES_PER_THREAD, _threads,
+                                            _queueMaxSize * _threads, STRIPE_BATCH_SIZE);
+        _dispatcher.start(executor, this::processStripe);
 
         /* Start a seperate queue for list operations.  We use a shared queue,
          * as list operations are read only and thus there is no need
          * to serialize the operations.
          */
-        _listQueue = new LinkedBlockingQueue<>();
+        _listQueue = (_queueMaxSize > 0)
+                     ? new LinkedBlockingQueue<>(_queueMaxSize * _listThreads)
+                     : new LinkedBlockingQueue<>();
         for (int j = 0; j < _listThreads; j++) {
             executor.execute(new ProcessThread(_listQueue));
         }
@@ -328,32 +353,29 @@ public class PnfsManagerV3
 
     public void shutdown() throws InterruptedException
     {
-        drainQueues(_fifos);
+        _dispatcher.shutdown(this::rejectOnShutdown);
         drainQueue(_listQueue);
         MoreExecutors.shutdownAndAwaitTermination(executor, 1, TimeUnit.SECONDS);
     }
 
-    private void drainQueues(BlockingQueue<CellMessage>[] queues)
-    {
-        Arrays.stream(queues).forEach(this::drainQueue);
-    }
-
     private void drainQueue(BlockingQueue<CellMessage> queue)
     {
-        String error = "Name space is shutting down.";
         ArrayList<CellMessage> drained = new ArrayList<>();
         queue.drainTo(drained);
-        for (CellMessage envelope : drained) {
-            Message msg = (Message) envelope.getMessageObject();
-            if (msg.getReplyRequired()) {
-                envelope.setMessageObject(new NoRouteToCellException(envelope, error));
-                envelope.revertDirection();
-                sendMessage(envelope);
-            }
-        }
+        drained.forEach(this::rejectOnShutdown);
         queue.offer(SHUTDOWN_SENTINEL);
     }
 
+    private void rejectOnShutdown(CellMessage envelope)
+    {
+        Message msg = (Message) envelope.getMessageObject();
+        if (msg.getReplyRequired()) {
+            envelope.setMessageObject(new NoRouteToCellException(envelope, "Name space is shutting down."));
+            envelope.revertDirection();
+            sendMessage(envelope);
+        }
+    }
+
     @Override
     public void getInfo( PrintWriter pw ){
         pw.print("atime precision: ");
@@ -365,18 +387,22 @@ public class PnfsManagerV3
         pw.println();
         pw.println("List queue: " + _listQueue.size());
         pw.println();
-        pw.println("Threads (" + _fifos.length + ") Queue");
-        for (int i = 0; i < _fifos.length; i++) {
-            pw.println( "    ["+i+"] "+_fifos[i].size() ) ;
+        pw.println("Threads (" + _dispatcher.getWorkerCount() + ") Busy: " + _dispatcher.getBusyWorkers());
+        pw.println("Stripes (" + _dispatcher.getStripeCount() + ") Queued: " + _dispatcher.size());
+        for (int i = 0; i < _dispatcher.getStripeCount(); i++) {
+            int size = _dispatcher.getStripe(i).size();
+            if (size > 0) {
+                pw.println( "    ["+i+"] "+size ) ;
+            }
         }
         pw.println();
-        pw.println("Threads: "
-                + Arrays.stream(_fifos).mapToInt(BlockingQueue::size).sum());
-        pw.println();
 
         pw.println( "Statistics:" ) ;
         pw.println(_gauges.toString());
         pw.println(_foldedCounters.toString());
+        pw.println(_batchedCounters.toString());
+        pw.println(_queueTimes.toString());
+        pw.println(_serviceTimes.toString());
     }
 
     @Command(name = "pnfsidof",
@@ -712,21 +738,23 @@ public class PnfsManagerV3
             return sb.toString();
         }
     }
-    public static final String fh_dumpthreadqueues = "   dumpthreadqueues [<threadId>]\n"
+    public static final String fh_dumpthreadqueues = "   dumpthreadqueues [<queueId>]\n"
         + "        dumthreadqueus prints the context of\n"
-        + "        thread[s] queue[s] into the error log file";
+        + "        the non-empty queue[s] into the error log file";
 
-    public static final String hh_dumpthreadqueues = "[<threadId>]";
+    public static final String hh_dumpthreadqueues = "[<queueId>]";
 
     public String ac_dumpthreadqueues_$_0_1(Args args)
     {
         if (args.argc() > 0) {
-            int threadId = Integer.parseInt(args.argv(0));
-            dumpThreadQueue(threadId);
+            int queueId = Integer.parseInt(args.argv(0));
+            dumpThreadQueue(queueId);
             return "dumped";
         }
-        for (int threadId = 0; threadId < _fifos.length; ++threadId) {
-            dumpThreadQueue(threadId);
+        for (int queueId = 0; queueId < _dispatcher.getStripeCount(); ++queueId) {
+            if (_dispatcher.getStripe(queueId).size() > 0) {
+                dumpThreadQueue(queueId);
+            }
         }
         return "dumped";
     }
@@ -970,11 +998,10 @@ public class PnfsManagerV3
     }
 
     private void dumpThreadQueue(int queueId) {
-        if (queueId < 0 || queueId >= _fifos.length) {
+        if (queueId < 0 || queueId >= _dispatcher.getStripeCount()) {
             throw new IllegalArgumentException(" illegal queue #" + queueId);
         }
-        BlockingQueue<CellMessage> fifo = _fifos[queueId];
-        Object[] fifoContent = fifo.toArray();
+        Object[] fifoContent = _dispatcher.getStripe(queueId).toArray();
 
         LOGGER.warn("PnfsManager thread #{} queue dump ({}):", queueId, fifoContent.length);
 
@@ -1565,6 +1592,167 @@ public class PnfsManagerV3
         }
     }
 
+    /**
+     * Processes a message taken from a queue.
+     *
+     * @return the message if it was processed, or null if it was discarded
+     */
+    private PnfsMessage processQueued(CellMessage message)
+    {
+        PnfsMessage pnfs = (PnfsMessage) message.getMessageObject();
+        if (!dequeue(message, pnfs)) {
+            return null;
+        }
+
+        processPnfsMessage(message, pnfs);
+        return pnfs;
+    }
+
+    /**
+     * Records the time a message spent queued and discards it if we are
+     * close to its timeout (within 10% of the TTL or 10 seconds, whatever
+     * is smaller).
+     *
+     * @return false if the message was discarded
+     */
+    private boolean dequeue(CellMessage message, PnfsMessage pnfs)
+    {
+        long age = message.getLocalAge();
+        _queueTimes.update(pnfs.getClass(), age);
+        if (age > message.getAdjustedTtl() && useEarlyDiscard(pnfs)) {
+            LOGGER.warn("Discarding {} because its time to live has been exceeded.",
+                      pnfs.getClass().getSimpleName());
+            sendTimeout(message, "TTL exceeded");
+            return false;
+        }
+        return true;
+    }
+
+    private void processStripe(StripedDispatcher.Stripe stripe, CellMessage message)
+    {
+        CDC.setMessageContext(message);
+        try {
+            if (isBatchable(message.getMessageObject())) {
+                PnfsGetFileAttributes first = (PnfsGetFileAttributes) message.getMessageObject();
+                int[] size = { 1 };
+                List<CellMessage> batch = new ArrayList<>();
+                batch.add(message);
+                batch.addAll(_dispatcher.fold(stripe, envelope -> {
+                    Object other = envelope.getMessageObject();
+                    if (!(other instanceof PnfsGetFileAttributes) || size[0] == ATTRIBUTE_BATCH_SIZE) {
+                        /* Lookups must not be moved past updates. */
+                        return StripedDispatcher.Fold.STOP;
+                    }
+                    if (isBatchable(other) && isCompatible(first, (PnfsGetFileAttributes) other)) {
+                        size[0]++;
+                        return StripedDispatcher.Fold.REMOVE;
+                    }
+                    return StripedDispatcher.Fold.KEEP;
+                }));
+                if (batch.size() > 1) {
+                    processBatch(batch);
+                    return;
+                }
+            }
+
+            PnfsMessage pnfs = processQueued(message);
+            if (pnfs != null && _canFold && pnfs.getReturnCode() == 0) {
+                List<CellMessage> folded = _dispatcher.fold(stripe, envelope -> {
+                    PnfsMessage other = (PnfsMessage) envelope.getMessageObject();
+                    if (other.invalidates(pnfs)) {
+                        return StripedDispatcher.Fold.STOP;
+                    }
+                    return other.fold(pnfs) ? StripedDispatcher.Fold.REMOVE : StripedDispatcher.Fold.KEEP;
+                });
+                for (CellMessage envelope : folded) {
+                    LOGGER.info("Folded {}", envelope.getMessageObject().getClass().getSimpleName());
+                    _foldedCounters.incrementRequests(pnfs.getClass());
+                    envelope.revertDirection();
+                    sendMessage(envelope);
+                }
+            }
+        } catch (Throwable e) {
+            LOGGER.warn("processPnfsMessage: {} : {}", Thread.currentThread().getName(), e);
+        } finally {
+            CDC.clearMessageContext();
+        }
+    }
+
+    /**
+     * Whether a message may be resolved as part of a bulk lookup. Since
+     * restrictions are path based, only lookups by PNFS ID of
+     * unrestricted users qualify.
+     */
+    private boolean isBatchable(Object message)
+    {
+        if (message.getClass() != PnfsGetFileAttributes.class) {
+            return false;
+        }
+        PnfsGetFileAttributes lookup = (PnfsGetFileAttributes) message;
+        return lookup.getPnfsId() != null && lookup.getPnfsPath() == null &&
+               lookup.getAccessMask().isEmpty() &&
+               (!lookup.getUpdateAtime() || _atimeGap < 0) &&
+               (Subjects.isRoot(lookup.getSubject()) ||
+                lookup.getRestriction().equals(Restrictions.none()));
+    }
+
+    private static boolean isCompatible(PnfsGetFileAttributes first, PnfsGetFileAttributes other)
+    {
+        return Objects.equals(first.getSubject(), other.getSubject()) &&
+               first.getRequestedAttributes().equals(other.getRequestedAttributes());
+    }
+
+    /**
+     * Resolves compatible attribute lookups with a single bulk lookup.
+     * Files missing from the result, such as files that do not exist or
+     * may not be read, are looked up individually to report the error.
+     */
+    private void processBatch(List<CellMessage> batch)
+    {
+        List<CellMessage> live = new ArrayList<>(batch.size());
+        Set<PnfsId> pnfsIds = new HashSet<>();
+        for (CellMessage envelope : batch) {
+            PnfsMessage message = (PnfsMessage) envelope.getMessageObject();
+            if (dequeue(envelope, message)) {
+                live.add(envelope);
+                pnfsIds.add(message.getPnfsId());
+            }
+        }
+        if (live.isEmpty()) {
+            return;
+        }
+
+        PnfsGetFileAttributes first = (PnfsGetFileAttributes) live.get(0).getMessageObject();
+        long ctime = System.currentTimeMillis();
+        Map<PnfsId, FileAttributes> attributes;
+        try {
+            attributes = _nameSpaceProvider.getFileAttributes(first.getSubject(), pnfsIds,
+                                                              getRequestedAttributes(first));
+        } catch (CacheException | RuntimeException e) {
+            LOGGER.warn("Bulk retrieval of file attributes failed: {}", e.toString());
+            attributes = Collections.emptyMap();
+        }
+        /* The bulk lookup served all messages of the batch, so each is
+         * recorded with its share of the time.
+         */
+        long duration = (System.currentTimeMillis() - ctime) / live.size();
+
+        for (CellMessage envelope : live) {
+            PnfsGetFileAttributes message = (PnfsGetFileAttributes) envelope.getMessageObject();
+            FileAttributes attrs = attributes.get(message.getPnfsId());
+            if (attrs == null) {
+                processPnfsMessage(envelope, message);
+            } else {
+                _batchedCounters.incrementRequests(message.getClass());
+                setFileAttributes(message, attrs);
+                message.setSucceeded();
+                _gauges.update(message.getClass(), duration);
+                _serviceTimes.update(message.getClass(), duration);
+                postProcessMessage(envelope, message);
+            }
+        }
+    }
+
     private class ProcessThread implements Runnable
     {
         private final BlockingQueue<CellMessage> _fifo ;
@@ -1581,20 +1769,10 @@ public class PnfsManagerV3
                 for (CellMessage message = _fifo.take(); message != SHUTDOWN_SENTINEL; message = _fifo.take()) {
                     CDC.setMessageContext(message);
                     try {
-                        /* Discard messages if we are close to their
-                         * timeout (within 10% of the TTL or 10 seconds,
-                         * whatever is smaller)
-                         */
-                        PnfsMessage pnfs = (PnfsMessage) message.getMessageObject();
-                        if (message.getLocalAge() > message.getAdjustedTtl() && useEarlyDiscard(pnfs)) {
-                            LOGGER.warn("Discarding {} because its time to live has been exceeded.",
-                                      pnfs.getClass().getSimpleName());
-                            sendTimeout(message, "TTL exceeded");
-                            continue;
+                        PnfsMessage pnfs = processQueued(message);
+                        if (pnfs != null) {
+                            fold(pnfs);
                         }
-
-                        processPnfsMessage(message, pnfs);
-                        fold(pnfs);
                     } catch (Throwable e) {
                         LOGGER.warn("processPnfsMessage: {} : {}", Thread.currentThread().getName(), e);
                     } finally {
@@ -1653,21 +1831,21 @@ public class PnfsManagerV3
 
         int index;
         if (pnfsId != null) {
-            index = (int) (Math.abs((long) pnfsId.hashCode()) % _threads);
-            LOGGER.info("Using thread [{}] {}", pnfsId, index);
+            index = _dispatcher.indexOf(pnfsId.hashCode());
+            LOGGER.info("Using stripe [{}] {}", pnfsId, index);
         } else if (path != null) {
-            index = (int) (Math.abs((long) path.hashCode()) % _threads);
-            LOGGER.info("Using thread [{}] {}", path, index);
+            index = _dispatcher.indexOf(path.hashCode());
+            LOGGER.info("Using stripe [{}] {}", path, index);
         } else {
-            index = _random.nextInt(_fifos.length);
-            LOGGER.info("Using random thread {}", index);
+            index = _random.nextInt(_dispatcher.getStripeCount());
+            LOGGER.info("Using random stripe {}", index);
         }
 
         /*
          * try to add a message into queue.
          * tell requester, that queue is full
          */
-        if (!_fifos[index].offer(envelope)) {
+        if (!_dispatcher.offer(index, envelope)) {
             throw new MissingResourceCacheException("PnfsManager queue limit exceeded");
         }
     }
@@ -1694,6 +1872,7 @@ public class PnfsManagerV3
 
         long duration = System.currentTimeMillis() - ctime;
         _gauges.update(pnfsMessage.getClass(), duration);
+        _serviceTimes.update(pnfsMessage.getClass(), duration);
         if (_logSlowThreshold != THRESHOLD_DISABLED && duration > _logSlowThreshold) {
             LOGGER.warn("{} processed in {} ms", pnfsMessage.getClass(), duration);
         } else {
@@ -1736,6 +1915,8 @@ public class PnfsManagerV3
             listDirectory(message, (PnfsListDirectoryMessage) pnfsMessage);
         } else if (pnfsMessage instanceof PnfsGetFileAttributes) {
             getFileAttributes((PnfsGetFileAttributes) pnfsMessage);
+        } else if (pnfsMessage instanceof PnfsBulkGetFileAttributes) {
+            getFileAttributes((PnfsBulkGetFileAttributes) pnfsMessage);
         } else if (pnfsMessage instanceof PnfsSetFileAttributes) {
             setFileAttributes((PnfsSetFileAttributes) pnfsMessage);
         } else if (pnfsMessage instanceof PnfsRemoveChecksumMessage) {
@@ -1895,41 +2076,11 @@ public class PnfsManagerV3
             PnfsId pnfsId = populatePnfsId(message);
             checkMask(message);
             checkRestriction(message, READ_METADATA);
-            Set<FileAttribute> requested = message.getRequestedAttributes();
-            if (message.getUpdateAtime() && _atimeGap >= 0) {
-                requested.add(ACCESS_TIME);
-            }
-            if(requested.contains(FileAttribute.STORAGEINFO)) {
-                /*
-                 * TODO: The 'classic' result of getFileAttributes was a
-                 * cobination of fileMetadata + storageInfo. This was
-                 * used to add the owner and group information into
-                 * storageInfo's internal Map. Uid and Gid are used by the
-                 * HSM flush scripts.
-                 *
-                 * This atavism will have to be cut out when HSM
-                 * interface will undestand Subject or FileAttributes
-                 * will be passed to HSM interface.
-                 */
-                requested = EnumSet.copyOf(requested);
-                requested.add(FileAttribute.OWNER);
-                requested.add(FileAttribute.OWNER_GROUP);
-            }
             FileAttributes attrs =
                 _nameSpaceProvider.getFileAttributes(subject,
                                                      pnfsId,
-                                                     requested);
-
-            if (attrs.isDefined(FileAttribute.STORAGEINFO)) {
-                StorageInfo storageInfo = attrs.getStorageInfo();
-                if (storageInfo.getKey("path") == null) {
-                    storageInfo.setKey("path", message.getPnfsPath());
-                }
-                storageInfo.setKey("uid", Integer.toString(attrs.getOwner()));
-                storageInfo.setKey("gid", Integer.toString(attrs.getGroup()));
-            }
-
-            message.setFileAttributes(attrs);
+                                                     getRequestedAttributes(message));
+            setFileAttributes(message, attrs);
             message.setSucceeded();
             if (message.getUpdateAtime() && _atimeGap >= 0) {
                 long now = System.currentTimeMillis();
@@ -1949,6 +2100,70 @@ public class PnfsManagerV3
         }
     }
 
+    private Set<FileAttribute> getRequestedAttributes(PnfsGetFileAttributes message)
+    {
+        Set<FileAttribute> requested = message.getRequestedAttributes();
+        if (message.getUpdateAtime() && _atimeGap >= 0) {
+            requested.add(ACCESS_TIME);
+        }
+        if(requested.contains(FileAttribute.STORAGEINFO)) {
+            /*
+             * TODO: The 'classic' result of getFileAttributes was a
+             * cobination of fileMetadata + storageInfo. This was
+             * used to add the owner and group information into
+             * storageInfo's internal Map. Uid and Gid are used by the
+             * HSM flush scripts.
+             *
+             * This atavism will have to be cut out when HSM
+             * interface will undestand Subject or FileAttributes
+             * will be passed to HSM interface.
+             */
+            requested = EnumSet.copyOf(requested);
+            requested.add(FileAttribute.OWNER);
+            requested.add(FileAttribute.OWNER_GROUP);
+        }
+        return requested;
+    }
+
+    private static void setFileAttributes(PnfsGetFileAttributes message, FileAttributes attrs)
+    {
+        if (attrs.isDefined(FileAttribute.STORAGEINFO)) {
+            StorageInfo storageInfo = attrs.getStorageInfo();
+            if (storageInfo.getKey("path") == null) {
+                storageInfo.setKey("path", message.getPnfsPath());
+            }
+            storageInfo.setKey("uid", Integer.toString(attrs.getOwner()));
+            storageInfo.setKey("gid", Integer.toString(attrs.getGroup()));
+        }
+        message.setFileAttributes(attrs);
+    }
+
+    public void getFileAttributes(PnfsBulkGetFileAttributes message)
+    {
+        try {
+            /* Restrictions are path based, but the files of a bulk request
+             * are only identified by PNFS ID.
+             */
+            if (!Subjects.isRoot(message.getSubject()) &&
+                    !message.getRestriction().equals(Restrictions.none())) {
+                throw new PermissionDeniedCacheException("Bulk requests are not supported for restricted users");
+            }
+            if (!message.getAccessMask().isEmpty()) {
+                throw new InvalidMessageCacheException("Bulk requests do not support access masks");
+            }
+            message.setFileAttributes(_nameSpaceProvider.getFileAttributes(message.getSubject(),
+                                                                           message.getPnfsIds(),
+                                                                           message.getRequestedAttributes()));
+            message.setSucceeded();
+        } catch (CacheException e) {
+            LOGGER.warn("Error while retrieving file attributes: {}", e.getMessage());
+            message.setFailed(e.getRc(), e);
+        } catch (RuntimeException e) {
+            LOGGER.error("Error while retrieving file attributes: " + e.getMessage(), e);
+            message.setFailed(CacheException.UNEXPECTED_SYSTEM_EXCEPTION, e);
+        }
+    }
+
     public void setFileAttributes(PnfsSetFileAttributes message)
     {
         try {
@@ -0,0 +1,249 @@
+package diskCacheV111.namespace;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import dmg.cells.nucleus.CellMessage;
+
+/**
+ * Dispatches messages to a pool of worker threads while preserving the
+ * order of messages that share a stripe.
+ *
+ * Messages are hashed onto a number of stripes that is considerably larger
+ * than the number of workers. A stripe is processed by at most one worker
+ * at a time, but any idle worker picks up the next stripe with pending
+ * messages. Thus a slow request only delays messages hashed to the same
+ * stripe rather than every message behind it in a per-thread queue.
+ *
+ * To avoid a hot stripe starving the others, a worker returns a stripe to
+ * the ready queue after processing a bounded batch of its messages.
+ */
+class StripedDispatcher
+{
+    /**
+     * Decision of a fold visitor for a queued message.
+     */
+    enum Fold
+    {
+        /** Leave the message queued and continue. */
+        KEEP,
+        /** Remove the message from the queue and continue. */
+        REMOVE,
+        /** Leave the message queued and stop visiting. */
+        STOP
+    }
+
+    private static final Stripe SHUTDOWN_SENTINEL = new Stripe();
+
+    /**
+     * Messages hashed to the same stripe. Guarded by the stripe monitor.
+     */
+    static class Stripe
+    {
+        private final Deque<CellMessage> queue = new ArrayDeque<>();
+
+        /**
+         * Whether the stripe is in the ready queue or being processed.
+         */
+        private boolean scheduled;
+
+        synchronized int size()
+        {
+            return queue.size();
+        }
+
+        synchronized Object[] toArray()
+        {
+            return queue.toArray();
+        }
+    }
+
+    /**
+     * Processes a message taken from a stripe.
+     */
+    interface Handler
+    {
+        void handle(Stripe stripe, CellMessage envelope);
+    }
+
+    private final Stripe[] _stripes;
+    private final BlockingQueue<Stripe> _ready = new LinkedBlockingQueue<>();
+    private final AtomicInteger _size = new AtomicInteger();
+    private final AtomicInteger _busy = new AtomicInteger();
+    private final int _capacity;
+    private final int _batchSize;
+    private final int _workers;
+
+    /**
+     * @param stripes number of stripes
+     * @param workers number of worker threads
+     * @param capacity maximum number of queued messages, or zero for no limit
+     * @param batchSize number of messages a worker processes from a stripe
+     *                  before giving other stripes a chance
+     */
+    StripedDispatcher(int stripes, int workers, int capacity, int batchSize)
+    {
+        _stripes = new Stripe[stripes];
+        for (int i = 0; i < stripes; i++) {
+            _stripes[i] = new Stripe();
+        }
+        _workers = workers;
+        _capacity = capacity;
+        _batchSize = batchSize;
+    }
+
+    void start(Executor executor, Handler handler)
+    {
+        for (int i = 0; i < _workers; i++) {
+            executor.execute(() -> run(handler));
+        }
+    }
+
+    int getStripeCount()
+    {
+        return _stripes.length;
+    }
+
+    int getWorkerCount()
+    {
+        return _workers;
+    }
+
+    Stripe getStripe(int index)
+    {
+        return _stripes[index];
+    }
+
+    /**
+     * Returns the stripe of the given hash code.
+     */
+    int indexOf(int hashCode)
+    {
+        return (int) (Math.abs((long) hashCode) % _stripes.length);
+    }
+
+    /**
+     * Returns the number of queued messages.
+     */
+    int size()
+    {
+        return _size.get();
+    }
+
+    /**
+     * Returns the number of workers currently processing a message.
+     */
+    int getBusyWorkers()
+    {
+        return _busy.get();
+    }
+
+    /**
+     * Enqueues a message on the given stripe.
+     *
+     * @return false if the capacity of the dispatcher has been reached
+     */
+    boolean offer(int index, CellMessage envelope)
+    {
+        if (_size.incrementAndGet() > _capacity && _capacity > 0) {
+            _size.decrementAndGet();
+            return false;
+        }
+        Stripe stripe = _stripes[index];
+        synchronized (stripe) {
+            stripe.queue.add(envelope);
+            if (!stripe.scheduled) {
+                stripe.scheduled = true;
+                _ready.add(stripe);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Visits the messages queued on a stripe in order, removing those for
+     * which the visitor returns REMOVE.
+     *
+     * @return the removed messages
+     */
+    List<CellMessage> fold(Stripe stripe, Function<CellMessage, Fold> visitor)
+    {
+        List<CellMessage> removed = new ArrayList<>();
+        synchronized (stripe) {
+            Iterator<CellMessage> i = stripe.queue.iterator();
+            while (i.hasNext()) {
+                CellMessage envelope = i.next();
+                Fold fold = visitor.apply(envelope);
+                if (fold == Fold.STOP) {
+                    break;
+                }
+                if (fold == Fold.REMOVE) {
+                    i.remove();
+                    removed.add(envelope);
+                }
+            }
+        }
+        _size.addAndGet(-removed.size());
+        return removed;
+    }
+
+    /**
+     * Removes all queued messages and stops the workers once they have
+     * completed the message they are processing.
+     */
+    void shutdown(Consumer<CellMessage> drained)
+    {
+        for (Stripe stripe : _stripes) {
+            List<CellMessage> messages;
+            synchronized (stripe) {
+                messages = new ArrayList<>(stripe.queue);
+                stripe.queue.clear();
+            }
+            _size.addAndGet(-messages.size());
+            messages.forEach(drained);
+        }
+        for (int i = 0; i < _workers; i++) {
+            _ready.add(SHUTDOWN_SENTINEL);
+        }
+    }
+
+    private void run(Handler handler)
+    {
+        try {
+            for (Stripe stripe = _ready.take(); stripe != SHUTDOWN_SENTINEL; stripe = _ready.take()) {
+                for (int i = 0; ; i++) {
+                    CellMessage envelope;
+                    synchronized (stripe) {
+                        if (i == _batchSize && !stripe.queue.isEmpty()) {
+                            _ready.add(stripe);
+                            break;
+                        }
+                        envelope = stripe.queue.poll();
+                        if (envelope == null) {
+                            stripe.scheduled = false;
+                            break;
+                        }
+                    }
+                    _size.decrementAndGet();
+                    _busy.incrementAndGet();
+                    try {
+                        handler.handle(stripe, envelope);
+                    } finally {
+                        _busy.decrementAndGet();
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,216 @@
+/* dCache - http://www.dcache.org/
+ *
+ * Copyright (C) 2018 Deutsches Elektronen-Synchrotron
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package diskCacheV111.poolManager;
+
+import com.google.common.collect.Sets;
+import org.springframework.beans.factory.annotation.Required;
+
+import java.io.PrintWriter;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import diskCacheV111.pools.PoolCostInfo;
+import diskCacheV111.pools.PoolCostInfo.NamedPoolQueueInfo;
+import diskCacheV111.pools.PoolCostInfo.PoolQueueInfo;
+import diskCacheV111.pools.PoolCostInfo.PoolSpaceInfo;
+import diskCacheV111.vehicles.CostModulePoolInfoUpdate;
+
+import dmg.cells.nucleus.CellInfoProvider;
+import dmg.cells.nucleus.CellLifeCycleAware;
+
+import org.dcache.cells.CellStub;
+import org.dcache.util.FireAndForgetTask;
+
+/**
+ * Periodically publishes the changes to the cost information of the pools
+ * on the pool cost topic.  Only pools whose cost information changed since
+ * the previous publication are included, and nothing is published if no
+ * pool changed.  Once per resync period the cost information of all pools
+ * is published, so subscribers that missed an update or that just started
+ * catch up.
+ * <p>
+ * Only pools with a recent heartbeat are published; a pool whose
+ * heartbeats stop is published as removed.  The LRU age of a pool's space
+ * is not compared, as it grows with every heartbeat.  It is published
+ * whenever some other cost information of the pool changes, and with every
+ * full update.
+ */
+public final class PoolCostNotifier implements Runnable, CellLifeCycleAware,
+        CellInfoProvider
+{
+    private CostModule costModule;
+    private ScheduledExecutorService executorService;
+    private CellStub poolCostTopic;
+    private long updatePeriod = 5;
+    private TimeUnit updatePeriodUnit = TimeUnit.MINUTES;
+    private long resyncPeriod = 15;
+    private TimeUnit resyncPeriodUnit = TimeUnit.MINUTES;
+
+    /** The cost information last published, by pool name. */
+    private Map<String, PoolCostInfo> published = new HashMap<>();
+    private long nextResync;
+
+    private long updates;
+    private long fullUpdates;
+    private long poolsPublished;
+    private long poolsRemoved;
+
+    @Override
+    public void afterStart()
+    {
+        executorService.scheduleWithFixedDelay(new FireAndForgetTask(this),
+                                               0, updatePeriod, updatePeriodUnit);
+    }
+
+    @Override
+    public synchronized void run()
+    {
+        long now = System.currentTimeMillis();
+        boolean isFullUpdate = now >= nextResync;
+
+        CostModulePoolInfoUpdate update =
+                new CostModulePoolInfoUpdate(isFullUpdate, resyncPeriodUnit.toMillis(resyncPeriod));
+        Map<String, PoolCostInfo> current = new HashMap<>();
+        for (PoolCostInfo info : costModule.getPoolCostInfos()) {
+            String pool = info.getPoolName();
+            PoolCostInfo previous = published.get(pool);
+            if (isFullUpdate || previous == null || isChanged(previous, info)) {
+                update.addPoolCostInfo(pool, info);
+            }
+            current.put(pool, info);
+        }
+        if (!isFullUpdate) {
+            update.addRemovedPools(Sets.difference(published.keySet(), current.keySet()));
+        }
+        published = current;
+
+        if (isFullUpdate || !update.isEmpty()) {
+            poolCostTopic.notify(update);
+            updates++;
+            if (isFullUpdate) {
+                fullUpdates++;
+                nextResync = now + resyncPeriodUnit.toMillis(resyncPeriod);
+            }
+            poolsPublished += update.poolInfos().size();
+            poolsRemoved += update.getRemovedPools().size();
+        }
+    }
+
+    private static boolean isChanged(PoolCostInfo previous, PoolCostInfo current)
+    {
+        return !isSameQueue(previous.getStoreQueue(), current.getStoreQueue()) ||
+               !isSameQueue(previous.getRestoreQueue(), current.getRestoreQueue()) ||
+               !isSameQueue(previous.getP2pQueue(), current.getP2pQueue()) ||
+               !isSameQueue(previous.getP2pClientQueue(), current.getP2pClientQueue()) ||
+               !isSameQueues(previous.getExtendedMoverHash(), current.getExtendedMoverHash()) ||
+               !isSameSpace(previous.getSpaceInfo(), current.getSpaceInfo()) ||
+               !previous.getDefaultQueueName().equals(current.getDefaultQueueName()) ||
+               Double.compare(previous.getMoverCostFactor(), current.getMoverCostFactor()) != 0;
+    }
+
+    private static boolean isSameQueue(PoolQueueInfo previous, PoolQueueInfo current)
+    {
+        if (previous == null || current == null) {
+            return previous == current;
+        }
+        return previous.getActive() == current.getActive() &&
+               previous.getMaxActive() == current.getMaxActive() &&
+               previous.getQueued() == current.getQueued() &&
+               previous.getReaders() == current.getReaders() &&
+               previous.getWriters() == current.getWriters();
+    }
+
+    private static boolean isSameQueues(Map<String, NamedPoolQueueInfo> previous,
+                                        Map<String, NamedPoolQueueInfo> current)
+    {
+        if (!previous.keySet().equals(current.keySet())) {
+            return false;
+        }
+        for (Map.Entry<String, NamedPoolQueueInfo> entry : previous.entrySet()) {
+            if (!isSameQueue(entry.getValue(), current.get(entry.getKey()))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isSameSpace(PoolSpaceInfo previous, PoolSpaceInfo current)
+    {
+        return previous.getTotalSpace() == current.getTotalSpace() &&
+               previous.getFreeSpace() == current.getFreeSpace() &&
+               previous.getPreciousSpace() == current.getPreciousSpace() &&
+               previous.getRemovableSpace() == current.getRemovableSpace() &&
+               previous.getGap() == current.getGap() &&
+               Double.compare(previous.getBreakEven(), current.getBreakEven()) == 0;
+    }
+
+    @Override
+    public synchronized void getInfo(PrintWriter pw)
+    {
+        pw.println("Pool cost publication:");
+        pw.println("    Update period    : " + updatePeriod + " " + updatePeriodUnit);
+        pw.println("    Resync period    : " + resyncPeriod + " " + resyncPeriodUnit);
+        pw.println("    Updates          : " + updates + " (" + fullUpdates + " full)");
+        pw.println("    Pools published  : " + poolsPublished);
+        pw.println("    Pools removed    : " + poolsRemoved);
+    }
+
+    @Required
+    public void setCostModule(CostModule costModule)
+    {
+        this.costModule = costModule;
+    }
+
+    @Required
+    public void setExecutorService(ScheduledExecutorService executorService)
+    {
+        this.executorService = executorService;
+    }
+
+    @Required
+    public void setPoolCostTopic(CellStub poolCostTopic)
+    {
+        this.poolCostTopic = poolCostTopic;
+    }
+
+    @Required
+    public void setUpdatePeriod(long updatePeriod)
+    {
+        this.updatePeriod = updatePeriod;
+    }
+
+    @Required
+    public void setUpdatePeriodUnit(TimeUnit updatePeriodUnit)
+    {
+        this.updatePeriodUnit = updatePeriodUnit;
+    }
+
+    @Required
+    public void setResyncPeriod(long resyncPeriod)
+    {
+        this.resyncPeriod = resyncPeriod;
+    }
+
+    @Required
+    public void setResyncPeriodUnit(TimeUnit resyncPeriodUnit)
+    {
+        this.resyncPeriodUnit = resyncPeriodUnit;
+    }
+}
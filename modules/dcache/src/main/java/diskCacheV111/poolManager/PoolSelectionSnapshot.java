@@ -0,0 +1,472 @@
+package diskCacheV111.poolManager;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.net.URI;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+
+import diskCacheV111.poolManager.PoolSelectionUnit.DirectionType;
+import diskCacheV111.poolManager.PoolSelectionUnit.SelectionLink;
+import diskCacheV111.vehicles.StorageInfo;
+
+import org.dcache.vehicles.FileAttributes;
+
+import static diskCacheV111.poolManager.PoolSelectionUnit.UnitType.NET;
+import static diskCacheV111.poolManager.PoolSelectionUnit.UnitType.STORE;
+
+/**
+ * Immutable, precompiled view of the pool selection setup.
+ *
+ * PoolSelectionUnitV2 publishes a new snapshot whenever the setup or the
+ * state of a pool changes. Matching a request against a snapshot does not
+ * require any locking: the links reachable from a unit are resolved when
+ * the snapshot is built, as are the link preferences for each direction
+ * and the pools behind each link. Since pools may be modified through the
+ * SelectionPool interface, their capabilities and heartbeat are still
+ * evaluated at match time.
+ *
+ * The preference levels of recent matches are cached in a bounded cache
+ * owned by the snapshot. Publishing a new snapshot thus invalidates the
+ * cache.
+ */
+class PoolSelectionSnapshot {
+    private static final Logger LOGGER = LoggerFactory.getLogger(PoolSelectionSnapshot.class);
+
+    private static final DirectionType[] DIRECTIONS = DirectionType.values();
+
+    private final boolean _useRegex;
+    private final boolean _allPoolsActive;
+    private final ImmutableMap<String, UnitEntry> _units;
+    private final ImmutableList<UnitEntry> _storeUnits;
+    private final NetHandler _netHandler = new NetHandler();
+    private final Map<Unit, UnitEntry> _netUnits = new IdentityHashMap<>();
+    private final ImmutableMap<String, ImmutableSet<String>> _linkGroups;
+    private final Cache<MatchKey, List<Level>> _matchCache;
+
+    private static class LinkEntry {
+        private final Link _link;
+        private final String _name;
+        private final int _uGroupCount;
+        private final int[] _prefs = new int[DIRECTIONS.length];
+        private final String _tag;
+        private final boolean _inLinkGroup;
+        private final ImmutableList<Pool> _pools;
+
+        private LinkEntry(Link link) {
+            _link = link;
+            _name = link.getName();
+            _uGroupCount = link._uGroupList.size();
+            _prefs[DirectionType.READ.ordinal()] = link.getReadPref();
+            _prefs[DirectionType.WRITE.ordinal()] = link.getWritePref();
+            _prefs[DirectionType.CACHE.ordinal()] = link.getCachePref();
+            _prefs[DirectionType.P2P.ordinal()] =
+                    link.getP2pPref() < 0 ? link.getReadPref() : link.getP2pPref();
+            _tag = link.getTag();
+            _inLinkGroup = link.getLinkGroup() != null;
+
+            ImmutableList.Builder<Pool> builder = ImmutableList.builder();
+            for (PoolCore poolCore : link._poolList.values()) {
+                if (poolCore instanceof Pool) {
+                    builder.add((Pool) poolCore);
+                } else {
+                    builder.addAll(((PGroup) poolCore)._poolList.values());
+                }
+            }
+            _pools = builder.build();
+        }
+
+        private int getPref(DirectionType type) {
+            if (type == DirectionType.ANY) {
+                throw new IllegalArgumentException("Wrong comparator mode");
+            }
+            return _prefs[type.ordinal()];
+        }
+    }
+
+    /**
+     * A unit together with the links reachable through its unit groups.
+     */
+    private static class UnitEntry {
+        private final Unit _unit;
+        private final ImmutableList<LinkEntry> _links;
+
+        private UnitEntry(Unit unit, Function<Link, LinkEntry> links) {
+            _unit = unit;
+            Map<String, LinkEntry> byName = new LinkedHashMap<>();
+            for (UGroup uGroup : unit._uGroupList.values()) {
+                for (Link link : uGroup._linkList.values()) {
+                    byName.computeIfAbsent(link.getName(), name -> links.apply(link));
+                }
+            }
+            _links = ImmutableList.copyOf(byName.values());
+        }
+    }
+
+    /**
+     * A preference level of a match before the pools are filtered by their
+     * current state.
+     */
+    private static class Level {
+        private final ImmutableList<Pool> _pools;
+        private final String _tag;
+
+        private Level(ImmutableList<Pool> pools, String tag) {
+            _pools = pools;
+            _tag = tag;
+        }
+    }
+
+    /**
+     * Key of the match cache. The link variable map is not part of the key
+     * as links do not evaluate it.
+     */
+    private static class MatchKey {
+        private final DirectionType _type;
+        private final String _storeUnit;
+        private final String _protocolUnit;
+        private final String _dCacheUnit;
+        private final UnitEntry _netUnit;
+        private final String _linkGroup;
+
+        private MatchKey(DirectionType type, String storeUnit, String protocolUnit,
+                         String dCacheUnit, UnitEntry netUnit, String linkGroup) {
+            _type = type;
+            _storeUnit = storeUnit;
+            _protocolUnit = protocolUnit;
+            _dCacheUnit = dCacheUnit;
+            _netUnit = netUnit;
+            _linkGroup = linkGroup;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof MatchKey)) {
+                return false;
+            }
+            MatchKey other = (MatchKey) o;
+            return _type == other._type
+                    && _storeUnit.equals(other._storeUnit)
+                    && Objects.equals(_protocolUnit, other._protocolUnit)
+                    && Objects.equals(_dCacheUnit, other._dCacheUnit)
+                    && _netUnit == other._netUnit
+                    && Objects.equals(_linkGroup, other._linkGroup);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(_type, _storeUnit, _protocolUnit, _dCacheUnit,
+                                System.identityHashCode(_netUnit), _linkGroup);
+        }
+    }
+
+    PoolSelectionSnapshot(boolean useRegex, boolean allPoolsActive, int matchCacheSize,
+                          Map<String, Unit> units, Map<String, LinkGroup> linkGroups) {
+        _useRegex = useRegex;
+        _allPoolsActive = allPoolsActive;
+        _matchCache = CacheBuilder.newBuilder()
+                .maximumSize(matchCacheSize)
+                .recordStats()
+                .build();
+
+        Map<Link, LinkEntry> linkEntries = new IdentityHashMap<>();
+        Function<Link, LinkEntry> toLinkEntry =
+                link -> linkEntries.computeIfAbsent(link, LinkEntry::new);
+
+        ImmutableMap.Builder<String, UnitEntry> unitEntries = ImmutableMap.builder();
+        ImmutableList.Builder<UnitEntry> storeUnits = ImmutableList.builder();
+        for (Map.Entry<String, Unit> e : units.entrySet()) {
+            Unit unit = e.getValue();
+            UnitEntry entry = new UnitEntry(unit, toLinkEntry);
+            unitEntries.put(e.getKey(), entry);
+            if (unit.getType() == STORE) {
+                storeUnits.add(entry);
+            } else if (unit.getType() == NET) {
+                _netHandler.add((NetUnit) unit);
+                _netUnits.put(unit, entry);
+            }
+        }
+        _units = unitEntries.build();
+        _storeUnits = storeUnits.build();
+
+        ImmutableMap.Builder<String, ImmutableSet<String>> groups = ImmutableMap.builder();
+        for (Map.Entry<String, LinkGroup> e : linkGroups.entrySet()) {
+            ImmutableSet.Builder<String> names = ImmutableSet.builder();
+            for (SelectionLink link : e.getValue().getAllLinks()) {
+                names.add(link.getName());
+            }
+            groups.put(e.getKey(), names.build());
+        }
+        _linkGroups = groups.build();
+    }
+
+    PoolPreferenceLevel[] match(DirectionType type, String netUnitName, String protocolUnitName,
+                                FileAttributes fileAttributes, String linkGroupName) {
+        StorageInfo storageInfo = fileAttributes.getStorageInfo();
+        String storeUnitName = storageInfo.getStorageClass() + "@" + storageInfo.getHsm();
+        String dCacheUnitName = storageInfo.getCacheClass();
+
+        /* The net unit is resolved before consulting the cache, as keying
+         * on client addresses would make the cache useless.
+         */
+        UnitEntry net = (netUnitName == null) ? null : findNetUnit(netUnitName);
+        MatchKey key = new MatchKey(type, storeUnitName, protocolUnitName, dCacheUnitName, net, linkGroupName);
+        List<Level> levels = _matchCache.getIfPresent(key);
+        if (levels == null) {
+            levels = matchLinks(type, storeUnitName, protocolUnitName, dCacheUnitName, net,
+                                linkGroupName, storageInfo.getMap());
+            _matchCache.put(key, levels);
+        }
+
+        PoolPreferenceLevel[] result = new PoolPreferenceLevel[levels.size()];
+        for (int i = 0; i < result.length; i++) {
+            Level level = levels.get(i);
+            List<String> pools = new ArrayList<>();
+            for (Pool pool : level._pools) {
+                if (isSelectable(type, pool, fileAttributes)) {
+                    pools.add(pool.getName());
+                }
+            }
+            result[i] = new PoolPreferenceLevel(pools, level._tag);
+        }
+        return result;
+    }
+
+    CacheStats getMatchCacheStats() {
+        return _matchCache.stats();
+    }
+
+    long getMatchCacheSize() {
+        return _matchCache.size();
+    }
+
+    /**
+     * Returns the preference levels of the links matching the given units,
+     * without regard to the current state of the pools.
+     */
+    private List<Level> matchLinks(DirectionType type, String storeUnitName, String protocolUnitName,
+                                   String dCacheUnitName, UnitEntry net, String linkGroupName,
+                                   Map<String, String> variableMap) {
+        List<UnitEntry> list = new ArrayList<>();
+        list.add(findStoreUnit(storeUnitName));
+        if (protocolUnitName != null) {
+            UnitEntry unit = findProtocolUnit(protocolUnitName);
+            if (unit == null) {
+                LOGGER.debug("no matching protocol unit found for: {}", protocolUnitName);
+                throw new IllegalArgumentException("Unit not found : " + protocolUnitName);
+            }
+            LOGGER.debug("matching protocol unit found: {}", unit._unit);
+            list.add(unit);
+        }
+        if (dCacheUnitName != null) {
+            UnitEntry unit = _units.get(dCacheUnitName);
+            if (unit == null) {
+                LOGGER.debug("no matching dCache unit found for: {}", dCacheUnitName);
+                throw new IllegalArgumentException("Unit not found : " + dCacheUnitName);
+            }
+            LOGGER.debug("matching dCache unit found: {}", unit._unit);
+            list.add(unit);
+        }
+        if (net != null) {
+            list.add(net);
+        }
+
+        ImmutableSet<String> linkGroup = null;
+        if (linkGroupName != null) {
+            linkGroup = _linkGroups.get(linkGroupName);
+            if (linkGroup == null) {
+                LOGGER.debug("LinkGroup not found : {}", linkGroupName);
+                throw new IllegalArgumentException("LinkGroup not found : " + linkGroupName);
+            }
+        }
+
+        /* A link matches if every one of its unit groups is hit by at least
+         * one of the units (logical AND). Each unit counts at most once per
+         * link.
+         */
+        Map<LinkEntry, Integer> hits = new HashMap<>();
+        for (UnitEntry unit : list) {
+            for (LinkEntry link : unit._links) {
+                if (linkGroup == null
+                        ? type == DirectionType.READ || !link._inLinkGroup
+                        : linkGroup.contains(link._name)) {
+                    LOGGER.debug("link {} matching to unit {}", link._name, unit._unit);
+                    hits.merge(link, 1, Integer::sum);
+                }
+            }
+        }
+
+        int fitCount = list.size();
+        List<LinkEntry> matching = new ArrayList<>();
+        for (Map.Entry<LinkEntry, Integer> e : hits.entrySet()) {
+            LinkEntry link = e.getKey();
+            if (e.getValue() >= link._uGroupCount && link._uGroupCount <= fitCount
+                    && (variableMap == null || link._link.exec(variableMap))) {
+                matching.add(link);
+            }
+        }
+        matching.sort(Comparator.comparingInt((LinkEntry link) -> -link.getPref(type))
+                              .thenComparing(link -> link._name));
+
+        ImmutableList.Builder<Level> levels = ImmutableList.builder();
+        int i = 0;
+        while (i < matching.size()) {
+            int pref = matching.get(i).getPref(type);
+            if (pref < 1) {
+                break;
+            }
+            ImmutableList.Builder<Pool> pools = ImmutableList.builder();
+            String tag = null;
+            for (; i < matching.size() && matching.get(i).getPref(type) == pref; i++) {
+                LinkEntry link = matching.get(i);
+                if (tag == null) {
+                    tag = link._tag;
+                }
+                pools.addAll(link._pools);
+            }
+            levels.add(new Level(pools.build(), tag));
+        }
+        return levels.build();
+    }
+
+    private UnitEntry findNetUnit(String netUnitName) {
+        try {
+            NetUnit net = _netHandler.match(netUnitName);
+            if (net == null) {
+                LOGGER.debug("no matching net unit found for: {}", netUnitName);
+                throw new IllegalArgumentException("Unit not matched : " + netUnitName);
+            }
+            LOGGER.debug("matching net unit found: {}", net);
+            return _netUnits.get(net);
+        } catch (UnknownHostException uhe) {
+            throw new IllegalArgumentException("NetUnit not resolved : " + netUnitName);
+        }
+    }
+
+    private UnitEntry findStoreUnit(String storeUnitName) {
+        if (_useRegex) {
+            UnitEntry universalCoverage = null;
+            UnitEntry classCoverage = null;
+
+            for (UnitEntry unit : _storeUnits) {
+                String name = unit._unit.getName();
+                if (name.equals("*@*")) {
+                    universalCoverage = unit;
+                } else if (name.equals("*@" + storeUnitName)) {
+                    classCoverage = unit;
+                } else if (Pattern.matches(name, storeUnitName)) {
+                    return unit;
+                }
+            }
+            if (classCoverage != null) {
+                return classCoverage;
+            }
+            if (universalCoverage != null) {
+                return universalCoverage;
+            }
+            throw new IllegalArgumentException("Unit not found : " + storeUnitName);
+        }
+
+        UnitEntry unit = _units.get(storeUnitName);
+        if (unit == null) {
+            int ind = storeUnitName.lastIndexOf('@');
+            if ((ind <= 0) || (ind == storeUnitName.length() - 1)) {
+                throw new IllegalArgumentException("IllegalUnitFormat : " + storeUnitName);
+            }
+            unit = _units.get("*@" + storeUnitName.substring(ind + 1));
+            if (unit == null) {
+                unit = _units.get("*@*");
+                if (unit == null) {
+                    LOGGER.debug("no matching storage unit found for: {}", storeUnitName);
+                    throw new IllegalArgumentException("Unit not found : " + storeUnitName);
+                }
+            }
+        }
+        LOGGER.debug("matching storage unit found for: {}", storeUnitName);
+        return unit;
+    }
+
+    private UnitEntry findProtocolUnit(String protocolUnitName) {
+        if (protocolUnitName.isEmpty()) {
+            return null;
+        }
+        int position = protocolUnitName.indexOf('/');
+        if ((position <= 0) || (position == protocolUnitName.length() - 1)) {
+            throw new IllegalArgumentException(
+                    "Not a valid protocol specification : " + protocolUnitName);
+        }
+        UnitEntry unit = _units.get(protocolUnitName);
+        if (unit == null) {
+            unit = _units.get(protocolUnitName.substring(0, position) + "/*");
+            if (unit == null) {
+                unit = _units.get("*/*");
+            }
+        }
+        return unit;
+    }
+
+    private boolean isSelectable(DirectionType type, Pool pool, FileAttributes fileAttributes) {
+        boolean capable;
+        switch (type) {
+        case READ:
+            capable = pool.canRead();
+            break;
+        case CACHE:
+            LOGGER.debug("Pool: {} can read from tape? : {}", pool, pool.canReadFromTape());
+            capable = pool.canReadFromTape() && canStageFile(pool, fileAttributes);
+            break;
+        case WRITE:
+            capable = pool.canWrite();
+            break;
+        case P2P:
+            capable = pool.canWriteForP2P();
+            break;
+        default:
+            capable = false;
+            break;
+        }
+        return capable && (_allPoolsActive || pool.isActive());
+    }
+
+    /**
+     * Returns true if and only if the pool can stage the given file. That is
+     * the only case if the file is located on an HSM connected to the pool.
+     */
+    private static boolean canStageFile(Pool pool, FileAttributes file) {
+        boolean rc = false;
+        Collection<URI> locations = file.getStorageInfo().locations();
+        if (locations.isEmpty() && pool.getHsmInstances().contains(file.getHsm())) {
+            // This is for backwards compatibility until all info
+            // extractors support URIs.
+            rc = true;
+        } else {
+            for (URI uri : locations) {
+                if (pool.getHsmInstances().contains(uri.getAuthority())) {
+                    rc = true;
+                }
+            }
+        }
+        LOGGER.debug("{}: matching hsm ({}) found?: {}", pool.getName(), file.getHsm(), rc);
+        return rc;
+    }
+}
@@ -3,6 +3,7 @@ package diskCacheV111.poolManager;
 import com.google.common.base.Joiner;
 import com.google.common.base.Preconditions;
 import com.google.common.base.Predicates;
+import com.google.common.cache.CacheStats;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
@@ -10,11 +11,11 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.io.PrintWriter;
 import java.io.Serializable;
 import java.io.StringWriter;
-import java.net.URI;
 import java.net.UnknownHostException;
 import java.util.ArrayList;
 import java.util.Collection;
@@ -25,7 +26,6 @@ import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Objects;
 import java.util.Set;
-import java.util.TreeSet;
 import java.util.concurrent.Callable;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
@@ -39,6 +39,7 @@ import diskCacheV111.vehicles.StorageInfo;
 
 import dmg.cells.nucleus.CellAddressCore;
 import dmg.cells.nucleus.CellCommandListener;
+import dmg.cells.nucleus.CellInfoProvider;
 import dmg.cells.nucleus.CellLifeCycleAware;
 import dmg.cells.nucleus.CellSetupProvider;
 import dmg.util.CommandException;
@@ -57,7 +58,7 @@ import static java.util.Comparator.comparing;
 
 public class PoolSelectionUnitV2
         implements Serializable, PoolSelectionUnit, PoolSelectionUnitAccess, CellSetupProvider,
-        CellCommandListener, CellLifeCycleAware
+        CellCommandListener, CellLifeCycleAware, CellInfoProvider
 {
     private static final String __version = "$Id: PoolSelectionUnitV2.java,v 1.42 2007-10-25 14:03:54 tigran Exp $";
     private static final Logger LOGGER = LoggerFactory.getLogger(PoolSelectionUnitV2.class);
@@ -79,6 +80,7 @@ public class PoolSelectionUnitV2
     private final Map<String, Unit> _units = new HashMap<>();
     private boolean _useRegex;
     private boolean _allPoolsActive;
+    private int _matchCacheSize = 1024;
 
     /**
      * Ok, this is the critical part of PoolManager, but (!!!) the whole select
@@ -92,6 +94,17 @@ public class PoolSelectionUnitV2
 
     private final NetHandler _netHandler = new NetHandler();
 
+    /**
+     * Immutable view of the setup used by match. Rebuilt whenever the
+     * outermost write lock is released.
+     */
+    private transient volatile PoolSelectionSnapshot _snapshot = buildSnapshot();
+
+    /**
+     * Match cache statistics of snapshots that have been replaced.
+     */
+    private transient volatile CacheStats _retiredMatchCacheStats = new CacheStats(0, 0, 0, 0, 0, 0);
+
     @Override
     public Map<String, SelectionLink> getLinks() {
         rlock();
@@ -548,296 +561,24 @@ public class PoolSelectionUnitV2
         return resultMap;
     }
 
-    private LinkMap match(LinkMap linkMap, Unit unit, LinkGroup linkGroup,
-                    DirectionType ioType) {
-        Map<String, Link> map = match(unit, linkGroup, ioType);
-        for (Link link : map.values()) {
-            linkMap.addLink(link);
-        }
-        return linkMap;
-    }
-
     @Override
     public PoolPreferenceLevel[] match(DirectionType type,  String netUnitName, String protocolUnitName,
                     FileAttributes fileAttributes, String linkGroupName) {
 
-        StorageInfo storageInfo = fileAttributes.getStorageInfo();
-        String storeUnitName = storageInfo.getStorageClass()+"@"+storageInfo.getHsm();
-        String dCacheUnitName = storageInfo.getCacheClass();
-
-        Map<String, String> variableMap = storageInfo.getMap();
-
-        LOGGER.debug("running match: type={} store={} dCacheUnit={} net={} protocol={} keys={} locations={} linkGroup={}",
-                        type, storeUnitName, dCacheUnitName, netUnitName, protocolUnitName,
-                        variableMap, storageInfo.locations(), linkGroupName);
-
-
-        PoolPreferenceLevel[] result = null;
-        rlock();
-        try {
-            //
-            // resolve the unit from the unitname (or net unit mask)
-            //
-            // regexp code added by rw2 12/5/02
-            // original code is in the else
-            //
-            List<Unit> list = new ArrayList<>();
-            if (_useRegex) {
-                Unit universalCoverage = null;
-                Unit classCoverage = null;
-
-                for (Unit unit : _units.values()) {
-                    if (unit.getType() != STORE) {
-                        continue;
-                    }
-
-                    if (unit.getName().equals("*@*")) {
-                        universalCoverage = unit;
-                    } else if (unit.getName().equals("*@" + storeUnitName)) {
-                        classCoverage = unit;
-                    } else {
-                        if (Pattern.matches(unit.getName(), storeUnitName)) {
-                            list.add(unit);
-                            break;
-                        }
-                    }
-                }
-                //
-                // If a pattern matches then use it, fail over to a class,
-                // then universal. If nothing, throw exception
-                //
-                if (list.isEmpty()) {
-                    if (classCoverage != null) {
-                        list.add(classCoverage);
-                    } else if (universalCoverage != null) {
-                        list.add(universalCoverage);
-                    } else {
-                        throw new IllegalArgumentException(
-                                        "Unit not found : " + storeUnitName);
-                    }
-                }
-
-            } else {
-                Unit unit = _units.get(storeUnitName);
-                if (unit == null) {
-                    int ind = storeUnitName.lastIndexOf('@');
-                    if ((ind > 0) && (ind < (storeUnitName.length() - 1))) {
-                        String template = "*@"
-                                        + storeUnitName.substring(ind + 1);
-                        if ((unit = _units.get(template)) == null) {
-
-                            if ((unit = _units.get("*@*")) == null) {
-                                LOGGER.debug("no matching storage unit found for: {}", storeUnitName);
-                                throw new IllegalArgumentException(
-                                                "Unit not found : " + storeUnitName);
-                            }
-                        }
-                    } else {
-                        throw new IllegalArgumentException(
-                                        "IllegalUnitFormat : " + storeUnitName);
-                    }
-                }
-                LOGGER.debug("matching storage unit found for: {}", storeUnitName);
-                list.add(unit);
-            }
-            if (protocolUnitName != null) {
-
-                Unit unit = findProtocolUnit(protocolUnitName);
-                //
-                if (unit == null){
-                    LOGGER.debug("no matching protocol unit found for: {}", protocolUnitName);
-                    throw new IllegalArgumentException("Unit not found : "
-                                    + protocolUnitName);
-                }
-                LOGGER.debug("matching protocol unit found: {}", unit);
-                list.add(unit);
-            }
-            if (dCacheUnitName != null) {
-                Unit unit = _units.get(dCacheUnitName);
-                if (unit == null) {
-                    LOGGER.debug("no matching dCache unit found for: {}", dCacheUnitName);
-                    throw new IllegalArgumentException("Unit not found : "
-                                    + dCacheUnitName);
-                }
-                LOGGER.debug("matching dCache unit found: {}", unit);
-                list.add(unit);
-            }
-            if (netUnitName != null) {
-                try {
-                    Unit unit = _netHandler.match(netUnitName);
-                    if (unit == null) {
-                        LOGGER.debug("no matching net unit found for: {}", netUnitName);
-                        throw new IllegalArgumentException(
-                                        "Unit not matched : " + netUnitName);
-                    }
-                    LOGGER.debug("matching net unit found: {}", unit);
-                    list.add(unit);
-                } catch (UnknownHostException uhe) {
-                    throw new IllegalArgumentException(
-                                    "NetUnit not resolved : " + netUnitName);
-                }
-            }
-            //
-            // match the requests ( logical AND )
-            //
-            //
-            // Map map = null ;
-            // while( units.hasNext() )map = match( map , (Unit)units.next() ) ;
-            // Iterator links = map.values().iterator() ;
-            //
-
-            //
-            // i) sort according to the type (read,write,cache)
-            // ii) the and is only OK if we have at least as many
-            // units (from the arguments) as required by the
-            // number of uGroupList(s).
-            // iii) check for the hashtable if required.
-            //
-            int fitCount = list.size();
-            Set<Link> sortedSet = new TreeSet<>(new LinkComparator(type));
-
-            //
-            // use subset on links if it's defined
-            //
-
-            LinkGroup linkGroup = null;
-            if (linkGroupName != null) {
-                linkGroup = _linkGroups.get(linkGroupName);
-                if (linkGroup == null) {
-                    LOGGER.debug("LinkGroup not found : {}", linkGroupName );
-                    throw new IllegalArgumentException("LinkGroup not found : "
-                                    + linkGroupName);
-                }
-            }
-
-            //
-            // find all links that matches the specified list of units
-            //
-
-            LinkMap matchingLinks = new LinkMap();
-            for (Unit unit : list) {
-                matchingLinks = match(matchingLinks, unit, linkGroup, type);
-            }
-
-            Iterator<Link> linkIterator = matchingLinks.iterator();
-            while (linkIterator.hasNext()) {
-
-                Link link = linkIterator.next();
-                if ((link._uGroupList.size() <= fitCount)
-                                && ((variableMap == null) || link.exec(variableMap))) {
-
-                    sortedSet.add(link);
-                }
-            }
-            int pref = -1;
-            List<List<Link>> listList = new ArrayList<>();
-            List<Link> current = null;
-
-            switch (type) {
-
-                case READ:
-                    for (Link link : sortedSet) {
-                        if (link.getReadPref() < 1) {
-                            continue;
-                        }
-                        if (link.getReadPref() != pref) {
-                            listList.add(current = new ArrayList<>());
-                            pref = link.getReadPref();
-                        }
-                        current.add(link);
-                    }
-                    break;
-                case CACHE:
-                    for (Link link : sortedSet) {
-                        if (link.getCachePref() < 1) {
-                            continue;
-                        }
-                        if (link.getCachePref() != pref) {
-                            listList.add(current = new ArrayList<>());
-                            pref = link.getCachePref();
-                        }
-                        current.add(link);
-                    }
-                    break;
-                case P2P:
-                    for (Link link : sortedSet) {
-                        int tmpPref = link.getP2pPref() < 0 ? link.getReadPref()
-                                        : link.getP2pPref();
-                        if (tmpPref < 1) {
-                            continue;
-                        }
-                        if (tmpPref != pref) {
-                            listList.add(current = new ArrayList<>());
-                            pref = tmpPref;
-                        }
-                        current.add(link);
-                    }
-                    break;
-                case WRITE:
-                    for (Link link : sortedSet) {
-                        if (link.getWritePref() < 1) {
-                            continue;
-                        }
-                        if (link.getWritePref() != pref) {
-                            listList.add(current = new ArrayList<>());
-                            pref = link.getWritePref();
-                        }
-                        current.add(link);
-                    }
-            }
-            List<Link>[] x = listList.toArray(new List[listList.size()]);
-            result = new PoolPreferenceLevel[x.length];
-            //
-            // resolve the links to the pools
-            //
-            for (int i = 0; i < x.length; i++) {
-
-                List<Link> linkList = x[i];
-                List<String> resultList = new ArrayList<>();
-                String tag = null;
-
-                for (Link link : linkList) {
-                    //
-                    // get the link if available
-                    //
-                    if ((tag == null) && (link.getTag() != null)) {
-                        tag = link.getTag();
-                    }
-
-                    for (PoolCore poolCore : link._poolList.values()) {
-                        if (poolCore instanceof Pool) {
-                            Pool pool = (Pool) poolCore;
-                            LOGGER.debug("Pool: {} can read from tape? : {}", pool, pool.canReadFromTape());
-                            if (((type == DirectionType.READ && pool.canRead())
-                                            || (type == DirectionType.CACHE && pool.canReadFromTape()
-                                            && poolCanStageFile(pool, fileAttributes))
-                                            || (type == DirectionType.WRITE && pool.canWrite())
-                                            || (type == DirectionType.P2P && pool.canWriteForP2P()))
-                                            && (_allPoolsActive || pool.isActive())) {
-                                resultList.add(pool.getName());
-                            }
-                        } else {
-                            for (Pool pool : ((PGroup)poolCore)._poolList.values()) {
-                                LOGGER.debug("Pool: {} can read from tape? : {}", pool, pool.canReadFromTape());
-                                if (((type == DirectionType.READ && pool.canRead())
-                                                || (type == DirectionType.CACHE && pool.canReadFromTape()
-                                                && poolCanStageFile(pool, fileAttributes))
-                                                || (type == DirectionType.WRITE && pool.canWrite())
-                                                || (type == DirectionType.P2P && pool.canWriteForP2P()))
-                                                && (_allPoolsActive || pool.isActive())) {
-                                    resultList.add(pool.getName());
-                                }
-                            }
-                        }
-                    }
-                }
-                result[i] = new PoolPreferenceLevel(resultList, tag);
-            }
-
-        } finally {
-            runlock();
+        if (LOGGER.isDebugEnabled()) {
+            StorageInfo storageInfo = fileAttributes.getStorageInfo();
+            LOGGER.debug("running match: type={} store={} dCacheUnit={} net={} protocol={} keys={} locations={} linkGroup={}",
+                            type, storageInfo.getStorageClass() + "@" + storageInfo.getHsm(),
+                            storageInfo.getCacheClass(), netUnitName, protocolUnitName,
+                            storageInfo.getMap(), storageInfo.locations(), linkGroupName);
         }
 
+        /* The selection runs against the latest published snapshot and
+         * thus does not need to acquire the setup lock.
+         */
+        PoolPreferenceLevel[] result =
+                _snapshot.match(type, netUnitName, protocolUnitName, fileAttributes, linkGroupName);
+
         if( LOGGER.isDebugEnabled() ) {
 
             StringBuilder sb = new StringBuilder("match done: ");
@@ -1117,6 +858,30 @@ public class PoolSelectionUnitV2
         }
     }
 
+    /**
+     * Sets the maximum number of match results cached per setup snapshot.
+     */
+    public void setMatchCacheSize(int size) {
+        Preconditions.checkArgument(size >= 0, "Match cache size must not be negative");
+        wlock();
+        try {
+            _matchCacheSize = size;
+        } finally {
+            wunlock();
+        }
+    }
+
+    @Override
+    public void getInfo(PrintWriter pw) {
+        PoolSelectionSnapshot snapshot = _snapshot;
+        CacheStats stats = _retiredMatchCacheStats.plus(snapshot.getMatchCacheStats());
+        pw.println("Match cache");
+        pw.println("         Size : " + snapshot.getMatchCacheSize() + "/" + _matchCacheSize);
+        pw.println("         Hits : " + stats.hitCount());
+        pw.println("       Misses : " + stats.missCount());
+        pw.println("     Hit rate : " + String.format("%.1f%%", stats.hitRate() * 100));
+    }
+
     @Override
     public boolean isEnabledRegex() {
         return _useRegex;
@@ -1124,18 +889,23 @@ public class PoolSelectionUnitV2
 
     public String setRegex(String onOff) {
         String retVal;
-        switch (onOff) {
-            case "on":
-                _useRegex = true;
-                retVal = "regex turned on";
-                break;
-            case "off":
-                _useRegex = false;
-                retVal = "regex turned off";
-                break;
-            default:
-                throw new IllegalArgumentException(
-                                "please set regex either on or off");
+        wlock();
+        try {
+            switch (onOff) {
+                case "on":
+                    _useRegex = true;
+                    retVal = "regex turned on";
+                    break;
+                case "off":
+                    _useRegex = false;
+                    retVal = "regex turned off";
+                    break;
+                default:
+                    throw new IllegalArgumentException(
+                                    "please set regex either on or off");
+            }
+        } finally {
+            wunlock();
         }
         return retVal;
     }
@@ -2370,28 +2140,6 @@ public class PoolSelectionUnitV2
         }
     }
 
-    /**
-     * Returns true if and only if the pool can stage the given file. That is
-     * the only case if the file is located on an HSM connected to the pool.
-     */
-    private boolean poolCanStageFile(Pool pool, FileAttributes file) {
-        boolean rc  = false;
-        if (file.getStorageInfo().locations().isEmpty()
-                        && pool.getHsmInstances().contains(file.getHsm())) {
-            // This is for backwards compatibility until all info
-            // extractors support URIs.
-            rc = true;
-        } else {
-            for (URI uri : file.getStorageInfo().locations()) {
-                if (pool.getHsmInstances().contains(uri.getAuthority())) {
-                    rc = true;
-                }
-            }
-        }
-        LOGGER.debug("{}: matching hsm ({}) found?: {}", pool.getName(), file.getHsm(), rc);
-        return rc;
-    }
-
     @Override
     public Collection<SelectionPool> getPoolsByPoolGroup(String poolGroup)
                     throws NoSuchElementException {
@@ -2444,7 +2192,20 @@ public class PoolSelectionUnitV2
 
     protected void wunlock()
     {
-        _psuWriteLock.unlock();
+        try {
+            if (_psuReadWriteLock.getWriteHoldCount() == 1) {
+                PoolSelectionSnapshot retired = _snapshot;
+                _snapshot = buildSnapshot();
+                _retiredMatchCacheStats = _retiredMatchCacheStats.plus(retired.getMatchCacheStats());
+            }
+        } finally {
+            _psuWriteLock.unlock();
+        }
+    }
+
+    private PoolSelectionSnapshot buildSnapshot()
+    {
+        return new PoolSelectionSnapshot(_useRegex, _allPoolsActive, _matchCacheSize, _units, _linkGroups);
     }
 
     protected void rlock()
@@ -3046,4 +2807,11 @@ public class PoolSelectionUnitV2
             runlock();
         }
     }
+
+    private void readObject(ObjectInputStream stream) throws IOException, ClassNotFoundException
+    {
+        stream.defaultReadObject();
+        _snapshot = buildSnapshot();
+        _retiredMatchCacheStats = new CacheStats(0, 0, 0, 0, 0, 0);
+    }
 }
@@ -28,21 +28,33 @@ import dmg.cells.nucleus.CellSetupProvider;
 import dmg.util.command.Argument;
 import dmg.util.command.Command;
 
+/**
+ * Executor running the state engines of the request container.
+ *
+ * The number of threads is bounded. State engines do not block, so
+ * additional engines are queued rather than served by additional
+ * threads. This keeps the number of threads constant during stage
+ * storms with many pending requests.
+ */
 public class RequestContainerExecutor
         extends ThreadPoolExecutor
         implements CellCommandListener, CellSetupProvider
 {
+    private static final int DEFAULT_THREADS = 2 * Runtime.getRuntime().availableProcessors();
+
     public RequestContainerExecutor()
     {
-        super(Runtime.getRuntime().availableProcessors(), Integer.MAX_VALUE,
+        super(DEFAULT_THREADS, DEFAULT_THREADS,
               60L, TimeUnit.SECONDS,
-              new LinkedBlockingQueue<>(128));
+              new LinkedBlockingQueue<>());
+        allowCoreThreadTimeOut(true);
     }
 
     @AffectsSetup
     @Command(name = "rc set max threads", hint = "set request container thread limit",
-             description = "Sets the maximum number of requests allocated for " +
-                     "processing read requests.")
+             description = "Sets the maximum number of threads allocated for " +
+                     "processing read requests. A value of 0 restores the default " +
+                     "of twice the number of cores.")
     class SetMaxThreadsCommand implements Callable<String>
     {
         @Argument
@@ -51,10 +63,24 @@ public class RequestContainerExecutor
         @Override
         public String call()
         {
-            if (count == 0) {
-                count = Integer.MAX_VALUE;
+            /* Earlier versions used 0 and Integer.MAX_VALUE to mean no
+             * limit. Since the executor starts as many threads as the
+             * limit, such setups get the default instead.
+             */
+            if (count == 0 || count == Integer.MAX_VALUE) {
+                count = DEFAULT_THREADS;
+            }
+            /* Core and maximum pool size are the same, as the queue is
+             * unbounded. Update them in an order that keeps the core
+             * size from exceeding the maximum size.
+             */
+            if (count > getMaximumPoolSize()) {
+                setMaximumPoolSize(count);
+                setCorePoolSize(count);
+            } else {
+                setCorePoolSize(count);
+                setMaximumPoolSize(count);
             }
-            setMaximumPoolSize(count);
             return "New max thread count : " + count;
         }
     }
@@ -16,15 +16,14 @@ import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Deque;
 import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.Iterator;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
-import java.util.Objects;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.Executor;
 import java.util.regex.Pattern;
 import java.util.regex.PatternSyntaxException;
@@ -66,6 +65,7 @@ import dmg.cells.nucleus.NoRouteToCellException;
 import dmg.cells.nucleus.UOID;
 
 import org.dcache.cells.CellStub;
+import org.dcache.commons.stats.LatencyHistograms;
 import org.dcache.poolmanager.Partition;
 import org.dcache.poolmanager.PartitionManager;
 import org.dcache.poolmanager.PoolInfo;
@@ -100,8 +100,27 @@ public class RequestContainerV5
 
     private static final DateTimeFormatter DATE_TIME_FORMAT = DateTimeFormatter.ofPattern("MM.dd HH:mm:ss");
 
-    private final Map<UOID, PoolRequestHandler>     _messageHash   = new HashMap<>() ;
-    private final Map<String, PoolRequestHandler>   _handlerHash   = new HashMap<>() ;
+    /**
+     * Stands in for null input to a state engine, as the input queue
+     * does not accept null.
+     */
+    private static final Object NO_INPUT = new Object();
+
+    private final ConcurrentMap<UOID, PoolRequestHandler>     _messageHash   = new ConcurrentHashMap<>() ;
+    private final ConcurrentMap<String, PoolRequestHandler>   _handlerHash   = new ConcurrentHashMap<>() ;
+
+    /**
+     * Serializes checking the restore limit with registering the
+     * corresponding fetch request in _messageHash.
+     */
+    private final Object _restoreLimitLock = new Object();
+
+    /**
+     * Time requests spend in each state, and the total time until a
+     * request is answered.
+     */
+    private final LatencyHistograms<String> _stateLatencies =
+            new LatencyHistograms<>("Time in state");
 
     private CellStub _billing;
     private CellStub _poolStub;
@@ -127,7 +146,7 @@ public class RequestContainerV5
     private PnfsHandler        _pnfsHandler;
 
     private Executor _executor;
-    private final Map<PnfsId, CacheException>            _selections       = new HashMap<>() ;
+    private final Map<PnfsId, CacheException>            _selections       = new ConcurrentHashMap<>() ;
     private PartitionManager   _partitionManager ;
     private volatile long               _checkFilePingTimer = 10 * 60 * 1000 ;
     /** value in milliseconds */
@@ -240,16 +259,10 @@ public class RequestContainerV5
     public void messageArrived(CellMessage envelope, Object message)
     {
         UOID uoid = envelope.getLastUOID();
-        PoolRequestHandler handler;
-
-        synchronized (_messageHash) {
-            handler = _messageHash.remove(uoid);
-            if (handler == null) {
-                return;
-            }
+        PoolRequestHandler handler = _messageHash.remove(uoid);
+        if (handler != null) {
+            handler.mailForYou(message);
         }
-
-        handler.mailForYou(message);
     }
 
     @Override
@@ -259,14 +272,8 @@ public class RequestContainerV5
             try {
                 Thread.sleep(_ticketInterval) ;
 
-                List<PoolRequestHandler> list;
-                synchronized (_handlerHash) {
-                    list = new ArrayList<>(_handlerHash.values());
-                }
-                for (PoolRequestHandler handler: list) {
-                    if (handler != null) {
-                        handler.alive();
-                    }
+                for (PoolRequestHandler handler: _handlerHash.values()) {
+                    handler.alive();
                 }
             } catch (InterruptedException e) {
                 break;
@@ -283,17 +290,7 @@ public class RequestContainerV5
     public void poolStatusChanged(String poolName, int poolStatus) {
         LOGGER.info("Restore Manager : got 'poolRestarted' for {}", poolName);
         try {
-            List<PoolRequestHandler> list;
-            synchronized (_handlerHash) {
-                list = new ArrayList<>(_handlerHash.values());
-            }
-
-            for (PoolRequestHandler rph : list) {
-
-                if (rph == null) {
-                    continue;
-                }
-
+            for (PoolRequestHandler rph : _handlerHash.values()) {
 
                 switch( poolStatus ) {
                     case PoolStatusChangedMessage.UP:
@@ -346,6 +343,9 @@ public class RequestContainerV5
        if( _suspendStaging ) {
            pw.println("   Suspend Staging  : on (not persistent)");
        }
+       pw.println( "   Pending Requests : "+_handlerHash.size() ) ;
+       pw.println();
+       pw.println(_stateLatencies);
     }
 
     @Override
@@ -401,30 +401,28 @@ public class RequestContainerV5
     public static final String hh_rc_select = "[<pnfsId> [<errorNumber> [<errorMessage>]] [-remove]]" ;
     public String ac_rc_select_$_0_3( Args args ){
 
-       synchronized( _selections ){
-          if( args.argc() == 0 ){
-             StringBuilder sb = new StringBuilder() ;
-             for( Map.Entry<PnfsId, CacheException > entry: _selections.entrySet() ){
-
-                sb.append(entry.getKey().toString()).
-                   append("  ").
-                   append(entry.getValue().toString()).
-                   append("\n");
-             }
-             return sb.toString() ;
-          }
-          boolean remove = args.hasOption("remove") ;
-          PnfsId  pnfsId = new PnfsId(args.argv(0));
+       if( args.argc() == 0 ){
+          StringBuilder sb = new StringBuilder() ;
+          for( Map.Entry<PnfsId, CacheException > entry: _selections.entrySet() ){
 
-          if( remove ){
-             _selections.remove( pnfsId ) ;
-             return "" ;
+             sb.append(entry.getKey().toString()).
+                append("  ").
+                append(entry.getValue().toString()).
+                append("\n");
           }
-          int    errorNumber  = args.argc() > 1 ? Integer.parseInt(args.argv(1)) : 1 ;
-          String errorMessage = args.argc() > 2 ? args.argv(2) : ("Failed-"+errorNumber);
+          return sb.toString() ;
+       }
+       boolean remove = args.hasOption("remove") ;
+       PnfsId  pnfsId = new PnfsId(args.argv(0));
 
-          _selections.put( pnfsId , new CacheException(errorNumber,errorMessage) ) ;
+       if( remove ){
+          _selections.remove( pnfsId ) ;
+          return "" ;
        }
+       int    errorNumber  = args.argc() > 1 ? Integer.parseInt(args.argv(1)) : 1 ;
+       String errorMessage = args.argc() > 2 ? args.argv(2) : ("Failed-"+errorNumber);
+
+       _selections.put( pnfsId , new CacheException(errorNumber,errorMessage) ) ;
        return "" ;
     }
     public static final String hh_rc_set_warning_path = " # obsolete";
@@ -525,28 +523,17 @@ public class RequestContainerV5
     {
        boolean forceAll = args.hasOption("force-all") ;
        if( args.argv(0).equals("*") ){
-          List<PoolRequestHandler> all;
-          //
-          // Remember : we are not allowed to call 'retry' as long
-          // as we  are holding the _handlerHash lock.
-          //
-          synchronized( _handlerHash ){
-             all = new ArrayList<>( _handlerHash.values() ) ;
-          }
-          for (PoolRequestHandler rph : all) {
+          for (PoolRequestHandler rph : _handlerHash.values()) {
               if( forceAll || ( rph._currentRc != 0 ) ) {
                   rph.retry();
               }
           }
        }else{
-          PoolRequestHandler rph;
-          synchronized( _handlerHash ){
-             rph = _handlerHash.get(args.argv(0));
-             if( rph == null ) {
-                 throw new
-                         IllegalArgumentException("Not found : " + args
-                         .argv(0));
-             }
+          PoolRequestHandler rph = _handlerHash.get(args.argv(0));
+          if( rph == null ) {
+              throw new
+                      IllegalArgumentException("Not found : " + args
+                      .argv(0));
           }
           rph.retry() ;
        }
@@ -558,14 +545,10 @@ public class RequestContainerV5
        int    errorNumber = args.argc() > 1 ? Integer.parseInt(args.argv(1)) : 1;
        String errorString = args.argc() > 2 ? args.argv(2) : "Operator Intervention" ;
 
-       PoolRequestHandler rph;
-
-       synchronized( _handlerHash ){
-          rph = _handlerHash.get(args.argv(0));
-          if( rph == null ) {
-              throw new
-                      IllegalArgumentException("Not found : " + args.argv(0));
-          }
+       PoolRequestHandler rph = _handlerHash.get(args.argv(0));
+       if( rph == null ) {
+           throw new
+                   IllegalArgumentException("Not found : " + args.argv(0));
        }
        rph.failed(errorNumber,errorString) ;
        return "" ;
@@ -579,16 +562,8 @@ public class RequestContainerV5
        boolean isLongListing = args.hasOption("l");
 
        if( !args.hasOption("w") ){
-          List<PoolRequestHandler>    allRequestHandlers;
-          synchronized( _handlerHash ){
-              allRequestHandlers = new ArrayList<>( _handlerHash.values() ) ;
-          }
+          for( PoolRequestHandler h : _handlerHash.values() ){
 
-          for( PoolRequestHandler h : allRequestHandlers ){
-
-              if( h == null ) {
-                  continue;
-              }
               String line = h.toString() ;
               if( ( pattern == null ) || pattern.matcher(line).matches() ) {
                   sb.append(line).append("\n");
@@ -603,12 +578,7 @@ public class RequestContainerV5
           }
        }else{
 
-           Map<UOID, PoolRequestHandler>  allPendingRequestHandlers   = new HashMap<>() ;
-          synchronized(_messageHash){
-              allPendingRequestHandlers.putAll( _messageHash ) ;
-          }
-
-          for (Map.Entry<UOID, PoolRequestHandler> requestHandler : allPendingRequestHandlers.entrySet()) {
+          for (Map.Entry<UOID, PoolRequestHandler> requestHandler : _messageHash.entrySet()) {
 
                 UOID uoid = requestHandler.getKey();
                 PoolRequestHandler h = requestHandler.getValue();
@@ -632,28 +602,16 @@ public class RequestContainerV5
     }
 
     public List<RestoreHandlerInfo> getRestoreHandlerInfo() {
-        List<RestoreHandlerInfo> requests;
-        synchronized (_handlerHash) {
-            requests = _handlerHash.values().stream().filter(Objects::nonNull).map(
-                            PoolRequestHandler::getRestoreHandlerInfo).collect(toList());
-        }
-        return requests;
+        return _handlerHash.values().stream().map(
+                PoolRequestHandler::getRestoreHandlerInfo).collect(toList());
     }
 
     public static final String hh_xrc_ls = " # lists pending requests (binary)" ;
     public Object ac_xrc_ls( Args args ){
 
-       List<PoolRequestHandler> all;
-       synchronized( _handlerHash ){
-          all = new ArrayList<>( _handlerHash.values() ) ;
-       }
-
        List<RestoreHandlerInfo>          list = new ArrayList<>() ;
 
-       for( PoolRequestHandler h: all  ){
-          if( h  == null ) {
-              continue;
-          }
+       for( PoolRequestHandler h: _handlerHash.values() ){
           list.add( h.getRestoreHandlerInfo() ) ;
        }
        return list.toArray( new RestoreHandlerInfo[list.size()] ) ;
@@ -699,17 +657,22 @@ public class RequestContainerV5
         String canonicalName = pnfsId +"@"+netName+"-"+protocolName+(enforceP2P?"-p2p":"")
                         +(poolGroup == null ? "" : ("-pg-" + poolGroup));
 
-        PoolRequestHandler handler;
-
         LOGGER.info( "Adding request for : {}", canonicalName ) ;
-        synchronized( _handlerHash ){
-           handler = _handlerHash.computeIfAbsent(canonicalName, n ->
-                           new PoolRequestHandler(pnfsId,
-                                                  poolGroup,
-                                                  n,
-                                                  allowedStates));
+
+        /* The request is added while holding the lock of the map entry.
+         * This guarantees that the request is not added to a handler
+         * that has already been removed from the map.
+         */
+        _handlerHash.compute(canonicalName, (n, handler) -> {
+           if (handler == null) {
+               handler = new PoolRequestHandler(pnfsId,
+                                                poolGroup,
+                                                n,
+                                                allowedStates);
+           }
            handler.addRequest(envelope) ;
-        }
+           return handler;
+        });
     }
 
     // replicate a file
@@ -773,6 +736,7 @@ public class RequestContainerV5
         private   String       _status        = "[<idle>]";
         private   volatile RequestState _state         = RequestState.ST_INIT;
         private   final Collection<RequestState> _allowedStates;
+        /* Guarded by _messages. */
         private   boolean      _stagingDenied;
         private   int          _currentRc;
         private   String       _currentRm     = "" ;
@@ -832,7 +796,7 @@ public class RequestContainerV5
 
         /**
          * Indicates the next time a TTL of a request message will be
-         * exceeded.
+         * exceeded. Guarded by _messages.
          */
         private long _nextTtlTimeout = Long.MAX_VALUE;
 
@@ -852,7 +816,9 @@ public class RequestContainerV5
         // at any time.
         //...........................................................
         //
-        // add request is assumed to be synchronized by a higher level.
+        // add request is assumed to be synchronized by a higher level,
+        // i.e. it is called while holding the lock of the entry of this
+        // handler in _handlerHash.
         //
         public void addRequest( CellMessage message ){
 
@@ -868,13 +834,15 @@ public class RequestContainerV5
                 return;
             }
 
-           _messages.add(message);
-           _stagingDenied = false;
+           synchronized (_messages) {
+               _messages.add(message);
+               _stagingDenied = false;
 
-           long ttl = message.getTtl();
-           if (ttl < Long.MAX_VALUE) {
-               long timeout = System.currentTimeMillis() + ttl;
-               _nextTtlTimeout = Math.min(_nextTtlTimeout, timeout);
+               long ttl = message.getTtl();
+               if (ttl < Long.MAX_VALUE) {
+                   long timeout = System.currentTimeMillis() + ttl;
+                   _nextTtlTimeout = Math.min(_nextTtlTimeout, timeout);
+               }
            }
 
            if (_poolSelector != null) {
@@ -907,7 +875,7 @@ public class RequestContainerV5
         }
 
         public List<CellMessage> getMessages() {
-            synchronized( _handlerHash ){
+            synchronized (_messages) {
                 return new ArrayList<>(_messages);
             }
         }
@@ -1006,9 +974,7 @@ public class RequestContainerV5
         //
         private void clearSteering() {
             if (_waitingFor != null) {
-                synchronized (_messageHash) {
-                  _messageHash.remove(_waitingFor);
-                }
+                _messageHash.remove(_waitingFor);
                 _waitingFor = null;
             }
         }
@@ -1024,7 +990,7 @@ public class RequestContainerV5
                     new CellPath(pool.address()),
                     new PoolFetchFileMessage(pool.name(), _fileAttributes)
             );
-            synchronized (_messageHash) {
+            synchronized (_restoreLimitLock) {
                 if (_maxRestore >= 0 && _messageHash.size() >= _maxRestore) {
                     return false;
                 }
@@ -1033,9 +999,9 @@ public class RequestContainerV5
                 }
                 _waitingFor = cellMessage.getUOID();
                 _messageHash.put(_waitingFor, this);
-                sendMessage(cellMessage);
-                _status = "Staging " + LocalDateTime.now().format(DATE_TIME_FORMAT);
             }
+            sendMessage(cellMessage);
+            _status = "Staging " + LocalDateTime.now().format(DATE_TIME_FORMAT);
             return true;
         }
 
@@ -1049,30 +1015,28 @@ public class RequestContainerV5
             CellMessage cellMessage =
                     new CellMessage(new CellPath(destPool.address()), pool2pool);
 
-            synchronized (_messageHash) {
-                if (_waitingFor != null) {
-                    _messageHash.remove(_waitingFor);
-                }
-                _waitingFor = cellMessage.getUOID();
-                _messageHash.put(_waitingFor, this);
-                sendMessage(cellMessage);
-                _status = "[P2P " + LocalDateTime.now().format(DATE_TIME_FORMAT) + "]";
+            if (_waitingFor != null) {
+                _messageHash.remove(_waitingFor);
             }
+            _waitingFor = cellMessage.getUOID();
+            _messageHash.put(_waitingFor, this);
+            sendMessage(cellMessage);
+            _status = "[P2P " + LocalDateTime.now().format(DATE_TIME_FORMAT) + "]";
         }
 
         /**
          * Removes request messages who's time to live has been
-         * exceeded. Messages are dropped; no reply is sent to the
+         * exceeded, if any. Messages are dropped; no reply is sent to the
          * requestor, as we assume it is no longer waiting for the
          * reply.
          */
         private void expireRequests()
         {
-            /* Access to _messages is controlled by a lock on
-             * _handlerHash.
-             */
-            synchronized (_handlerHash) {
+            synchronized (_messages) {
                 long now = System.currentTimeMillis();
+                if (now <= _nextTtlTimeout) {
+                    return;
+                }
                 _nextTtlTimeout = Long.MAX_VALUE;
 
                 Iterator<CellMessage> i = _messages.iterator();
@@ -1098,23 +1062,28 @@ public class RequestContainerV5
             }
             //
 
-            Iterator<CellMessage> messages = _messages.iterator();
-            for (int i = 0; (i < count) && messages.hasNext(); i++) {
-                CellMessage m =  messages.next();
-                PoolMgrSelectReadPoolMsg rpm =
-                    (PoolMgrSelectReadPoolMsg) m.getMessageObject();
-                rpm.setContext(_retryCounter + 1, _stageCandidate.orElse(null));
-                if (_currentRc == 0) {
-                    rpm.setPool( new diskCacheV111.vehicles.Pool(_poolCandidate.name(), _poolCandidate.info().getAddress(), _poolCandidate.assumption()));
-                    rpm.setSucceeded();
-                } else {
-                    rpm.setFailed(_currentRc, _currentRm);
+            /* Called once the handler has been removed from
+             * _handlerHash, so no requests are added concurrently.
+             */
+            synchronized (_messages) {
+                Iterator<CellMessage> messages = _messages.iterator();
+                for (int i = 0; (i < count) && messages.hasNext(); i++) {
+                    CellMessage m =  messages.next();
+                    PoolMgrSelectReadPoolMsg rpm =
+                        (PoolMgrSelectReadPoolMsg) m.getMessageObject();
+                    rpm.setContext(_retryCounter + 1, _stageCandidate.orElse(null));
+                    if (_currentRc == 0) {
+                        rpm.setPool( new diskCacheV111.vehicles.Pool(_poolCandidate.name(), _poolCandidate.info().getAddress(), _poolCandidate.assumption()));
+                        rpm.setSucceeded();
+                    } else {
+                        rpm.setFailed(_currentRc, _currentRm);
+                    }
+                    m.revertDirection();
+                    sendMessage(m);
+                    messages.remove();
                 }
-                m.revertDirection();
-                sendMessage(m);
-                messages.remove();
+                return messages.hasNext();
             }
-            return messages.hasNext();
         }
         //
         // and the heart ...
@@ -1124,28 +1093,36 @@ public class RequestContainerV5
         private static final int CONTINUE        = 0 ;
         private static final int WAIT            = 1 ;
 
-        private final Deque<Object> _fifo              = new LinkedList<>() ;
-        private boolean    _stateEngineActive;
+        /**
+         * Input to the state engine. At most one thread runs the state
+         * engine at a time.
+         */
+        private final StateEngineInput<Object> _fifo = new StateEngineInput<>();
         private boolean    _forceContinue;
         private boolean    _overwriteCost;
 
+        /**
+         * Time at which the handler entered its current state.
+         */
+        private long _stateEntered = _started;
+
         public class RunEngine implements ExtendedRunnable {
            @Override
            public void run(){
+              boolean done = false;
               try (CDC ignored = _cdc.restore()) {
                  stateLoop() ;
+                 done = true;
               }finally{
-                 synchronized( _fifo ){
-                   _stateEngineActive = false ;
+                 if (!done) {
+                     _fifo.stop();
                  }
               }
            }
 
            @Override
            public void runFailed(){
-              synchronized( _fifo ){
-                   _stateEngineActive = false ;
-              }
+              _fifo.stop();
            }
 
            @Override
@@ -1154,20 +1131,16 @@ public class RequestContainerV5
            }
         }
         private void add( Object obj ){
-           synchronized( _fifo ){
-               LOGGER.info( "Adding Object : {}", obj ) ;
-               _fifo.addFirst(obj) ;
-               if( _stateEngineActive ) {
-                   return;
-               }
-               LOGGER.info( "Starting Engine" ) ;
-               _stateEngineActive = true ;
-               try {
-                   _executor.execute(new FireAndForgetTask(new RunEngine()));
-               } catch (RuntimeException e) {
-                   _stateEngineActive = false;
-                   throw e;
-               }
+           LOGGER.info( "Adding Object : {}", obj ) ;
+           if( !_fifo.add(obj == null ? NO_INPUT : obj) ) {
+               return;
+           }
+           LOGGER.info( "Starting Engine" ) ;
+           try {
+               _executor.execute(new FireAndForgetTask(new RunEngine()));
+           } catch (RuntimeException e) {
+               _fifo.stop();
+               throw e;
            }
         }
         private void stateLoop(){
@@ -1179,12 +1152,12 @@ public class RequestContainerV5
 
               if( ! _forceContinue ){
 
-                 synchronized( _fifo ){
-                    if(_fifo.isEmpty()){
-                       _stateEngineActive = false ;
-                       return ;
-                    }
-                    inputObject = _fifo.removeLast() ;
+                 inputObject = _fifo.next() ;
+                 if( inputObject == null ){
+                    return ;
+                 }
+                 if( inputObject == NO_INPUT ){
+                    inputObject = null ;
                  }
               }else{
                  inputObject = null ;
@@ -1210,6 +1183,7 @@ public class RequestContainerV5
                   LOGGER.error("Unexpected Exception in state loop for " + _pnfsId, e);
               }
            }
+           _fifo.stop();
         }
 
         private boolean canStage()
@@ -1217,14 +1191,19 @@ public class RequestContainerV5
             /* If the result is cached or the door disabled staging,
              * then we don't check the permissions.
              */
-            if (_stagingDenied || !_allowedStates.contains(RequestState.ST_STAGE)) {
+            if (!_allowedStates.contains(RequestState.ST_STAGE)) {
                 return false;
             }
+            synchronized (_messages) {
+                if (_stagingDenied) {
+                    return false;
+                }
+            }
 
             /* Staging is allowed if just one of the requests has
              * permission to stage.
              */
-            for (CellMessage envelope: _messages) {
+            for (CellMessage envelope: getMessages()) {
                 try {
                     PoolMgrSelectReadPoolMsg msg =
                         (PoolMgrSelectReadPoolMsg) envelope.getMessageObject();
@@ -1241,21 +1220,40 @@ public class RequestContainerV5
             /* None of the requests had the necessary credentials to
              * stage. This result is cached.
              */
-            _stagingDenied = true;
+            synchronized (_messages) {
+                _stagingDenied = true;
+            }
             return false;
         }
 
+        /**
+         * Moves the handler to a new state, recording the time spent in
+         * the previous state.
+         */
+        private void setState(RequestState state)
+        {
+            long now = System.currentTimeMillis();
+            if (state != _state) {
+                _stateLatencies.update(_state.name(), now - _stateEntered);
+                _stateEntered = now;
+                if (state == RequestState.ST_DONE) {
+                    _stateLatencies.update("total", now - _started);
+                }
+            }
+            _state = state;
+        }
+
         private void nextStep(RequestState state, int shouldContinue ){
             if (_currentRc == CacheException.NOT_IN_TRASH ||
                 _currentRc == CacheException.FILE_NOT_FOUND) {
-                _state = RequestState.ST_DONE;
+                setState(RequestState.ST_DONE);
                 _forceContinue = true;
                 _status = "Failed";
                 sendInfoMessage(
                         _currentRc , "Failed "+_currentRm);
             } else {
                 if (state == RequestState.ST_STAGE && !canStage()) {
-                    _state = RequestState.ST_DONE;
+                    setState(RequestState.ST_DONE);
                     _forceContinue = true;
                     _status = "Failed";
                     LOGGER.debug("Subject is not authorized to stage");
@@ -1264,7 +1262,7 @@ public class RequestContainerV5
                     sendInfoMessage(
                             _currentRc , "Permission denied." + _currentRm);
                 } else if (!_allowedStates.contains(state)) {
-                    _state = RequestState.ST_DONE;
+                    setState(RequestState.ST_DONE);
                     _forceContinue = true;
                     _status = "Failed";
                     LOGGER.debug("No permission to perform {}", state);
@@ -1273,7 +1271,7 @@ public class RequestContainerV5
                     sendInfoMessage(_currentRc,
                                     "Permission denied for " + state);
                 } else {
-                    _state = state;
+                    setState(state);
                     _forceContinue = shouldContinue == CONTINUE ;
                     if( _state != RequestState.ST_DONE ){
                         _currentRc = 0 ;
@@ -1398,15 +1396,11 @@ public class RequestContainerV5
 
               case ST_INIT :
                  LOGGER.debug( "stateEngine: case ST_INIT");
-                 synchronized( _selections ){
-
-                    CacheException ce = _selections.get(_pnfsId) ;
-                    if( ce != null ){
-                       setError(ce.getRc(),ce.getMessage());
-                       nextStep(RequestState.ST_DONE , CONTINUE ) ;
-                       return ;
-                    }
-
+                 CacheException ce = _selections.get(_pnfsId) ;
+                 if( ce != null ){
+                    setError(ce.getRc(),ce.getMessage());
+                    nextStep(RequestState.ST_DONE , CONTINUE ) ;
+                    return ;
                  }
 
 
@@ -1717,11 +1711,10 @@ public class RequestContainerV5
                     clearSteering();
                     //
                     // it is essential that we are not within any other
-                    // lock when trying to get the handlerHash lock.
+                    // lock when removing the handler, as requests are
+                    // added while holding the lock of the map entry.
                     //
-                    synchronized (_handlerHash) {
-                        _handlerHash.remove(_name);
-                    }
+                    _handlerHash.remove(_name, this);
                     while (answerRequest(MAX_REQUEST_CLUMPING)) {
                         setError(CacheException.OUT_OF_DATE,
                                  "Request clumping limit reached");
@@ -1751,10 +1744,7 @@ public class RequestContainerV5
                 break;
 
             case "alive":
-                long now = System.currentTimeMillis();
-                if (now > _nextTtlTimeout) {
-                    expireRequests();
-                }
+                expireRequests();
                 break;
             }
 
@@ -2148,13 +2138,9 @@ public class RequestContainerV5
                         long now = System.currentTimeMillis();
 
                         // Determine which pools to query
-                        List<PoolRequestHandler> list;
-                        synchronized (_handlerHash) {
-                            list = new ArrayList<>(_handlerHash.values());
-                        }
                         Multimap<CellAddressCore, PoolRequestHandler> p2pRequests = ArrayListMultimap.create();
                         Multimap<CellAddressCore, PoolRequestHandler> stageRequests = ArrayListMultimap.create();
-                        for (PoolRequestHandler handler : list) {
+                        for (PoolRequestHandler handler : _handlerHash.values()) {
                             if (handler._started < now - _checkFilePingTimer) {
                                 SelectedPool pool;
                                 switch (handler._state) {
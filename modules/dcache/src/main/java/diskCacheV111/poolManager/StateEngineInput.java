@@ -0,0 +1,86 @@
+/* dCache - http://www.dcache.org/
+ *
+ * Copyright (C) 2018 Deutsches Elektronen-Synchrotron
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package diskCacheV111.poolManager;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Input queue of a state engine that is run by at most one thread at a
+ * time.
+ *
+ * The thread adding input to an inactive engine is told to start the
+ * engine. The engine consumes input until the queue is empty, at which
+ * point it becomes inactive. Input added while the engine is about to
+ * become inactive is not lost: either the engine consumes it, or the
+ * thread adding it starts the engine again.
+ */
+class StateEngineInput<T>
+{
+    private final Queue<T> _queue = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean _active = new AtomicBoolean();
+
+    /**
+     * Adds input to the queue. The input must not be null.
+     *
+     * @return true if the engine was inactive and must be started by
+     * the caller, false otherwise
+     */
+    boolean add(T input)
+    {
+        _queue.add(input);
+        return _active.compareAndSet(false, true);
+    }
+
+    /**
+     * Returns the next input for the engine. If the queue is empty, the
+     * engine becomes inactive and null is returned, in which case the
+     * engine must terminate.
+     */
+    T next()
+    {
+        while (true) {
+            T input = _queue.poll();
+            if (input != null) {
+                return input;
+            }
+            _active.set(false);
+            /* Input added after the poll, but before the flag was
+             * cleared, did not start the engine.
+             */
+            if (_queue.isEmpty() || !_active.compareAndSet(false, true)) {
+                return null;
+            }
+        }
+    }
+
+    /**
+     * Marks the engine as inactive without consuming the queue, such as
+     * when the engine failed to start or terminated abnormally.
+     */
+    void stop()
+    {
+        _active.set(false);
+    }
+
+    boolean isActive()
+    {
+        return _active.get();
+    }
+}
@@ -11,6 +11,7 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.EnumSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.TimeUnit;
 
@@ -39,6 +40,7 @@ import org.dcache.namespace.FileAttribute;
 import org.dcache.namespace.FileType;
 import org.dcache.util.ChecksumType;
 import org.dcache.vehicles.FileAttributes;
+import org.dcache.vehicles.PnfsBulkGetFileAttributes;
 import org.dcache.vehicles.PnfsCreateSymLinkMessage;
 import org.dcache.vehicles.PnfsGetFileAttributes;
 import org.dcache.vehicles.PnfsRemoveChecksumMessage;
@@ -509,6 +511,21 @@ public class PnfsHandler implements CellMessageSender
         return request(new PnfsGetFileAttributes(pnfsid, attr)).getFileAttributes();
     }
 
+    /**
+     * Get the attributes of several files with a single request. The
+     * PnfsManager is free to return fewer attributes than requested.
+     * Files that do not exist are absent from the result.
+     *
+     * @param pnfsids
+     * @param attr array of requested attributes.
+     * @return map from PNFS ID to requested attributes
+     */
+    public Map<PnfsId, FileAttributes> getFileAttributes(Collection<PnfsId> pnfsids, Set<FileAttribute> attr)
+        throws CacheException
+    {
+        return request(new PnfsBulkGetFileAttributes(pnfsids, attr)).getFileAttributes();
+    }
+
     /**
      * Get file attributes. The PnfsManager is free to return fewer attributes
      * than requested. If <code>attr</code> is an empty array, file existence
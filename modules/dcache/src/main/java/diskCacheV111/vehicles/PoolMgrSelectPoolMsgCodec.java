@@ -0,0 +1,79 @@
+package diskCacheV111.vehicles;
+
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.util.EnumSet;
+import java.util.Objects;
+
+import diskCacheV111.poolManager.RequestContainerV5.RequestState;
+
+import org.dcache.vehicles.FileAttributes;
+
+/**
+ * Base class for compact codecs of pool selection requests.
+ *
+ * The constructor arguments of a request are written first, followed by
+ * subclass specific constructor arguments, the optional properties of the
+ * request and finally the common message state.
+ */
+public abstract class PoolMgrSelectPoolMsgCodec<T extends PoolMgrSelectPoolMsg> extends AbstractMessageCodec<T>
+{
+    private static final RequestState[] STATES = RequestState.values();
+
+    protected static void writeRequest(ObjectOutput out, PoolMgrSelectPoolMsg msg) throws IOException
+    {
+        out.writeObject(msg.getFileAttributes());
+        out.writeObject(msg.getProtocolInfo());
+    }
+
+    protected static void writeAllowedStates(ObjectOutput out, EnumSet<RequestState> allowedStates) throws IOException
+    {
+        int states = 0;
+        for (RequestState state : allowedStates) {
+            states |= 1 << state.ordinal();
+        }
+        out.writeInt(states);
+    }
+
+    protected static FileAttributes readFileAttributes(ObjectInput in) throws IOException, ClassNotFoundException
+    {
+        return (FileAttributes) in.readObject();
+    }
+
+    protected static ProtocolInfo readProtocolInfo(ObjectInput in) throws IOException, ClassNotFoundException
+    {
+        return (ProtocolInfo) in.readObject();
+    }
+
+    protected static EnumSet<RequestState> readAllowedStates(ObjectInput in) throws IOException
+    {
+        int states = in.readInt();
+        EnumSet<RequestState> allowedStates = EnumSet.noneOf(RequestState.class);
+        for (RequestState state : STATES) {
+            if ((states & (1 << state.ordinal())) != 0) {
+                allowedStates.add(state);
+            }
+        }
+        return allowedStates;
+    }
+
+    protected static void writeProperties(ObjectOutput out, PoolMgrSelectPoolMsg msg) throws IOException
+    {
+        out.writeObject(msg.getIoQueueName());
+        out.writeObject(msg.getBillingPath());
+        String transferPath = msg.getTransferPath();
+        out.writeObject(Objects.equals(transferPath, msg.getBillingPath()) ? null : transferPath);
+        out.writeObject(msg.getLinkGroup());
+        out.writeObject(msg.getPool());
+    }
+
+    protected static void readProperties(ObjectInput in, PoolMgrSelectPoolMsg msg) throws IOException, ClassNotFoundException
+    {
+        msg.setIoQueueName(readString(in));
+        msg.setBillingPath(readString(in));
+        msg.setTransferPath(readString(in));
+        msg.setLinkGroup(readString(in));
+        msg.setPool((Pool) in.readObject());
+    }
+}
@@ -0,0 +1,40 @@
+package diskCacheV111.vehicles;
+
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+
+/**
+ * Compact encoding of read pool selection requests.
+ */
+public class PoolMgrSelectReadPoolMsgCodec extends PoolMgrSelectPoolMsgCodec<PoolMgrSelectReadPoolMsg>
+{
+    @Override
+    public Class<PoolMgrSelectReadPoolMsg> getType()
+    {
+        return PoolMgrSelectReadPoolMsg.class;
+    }
+
+    @Override
+    public void write(ObjectOutput out, PoolMgrSelectReadPoolMsg msg) throws IOException
+    {
+        writeRequest(out, msg);
+        writeAllowedStates(out, msg.getAllowedStates());
+        out.writeObject(msg.getContext());
+        writeProperties(out, msg);
+        out.writeObject(msg.getPoolGroup());
+        writeMessage(out, msg);
+    }
+
+    @Override
+    public PoolMgrSelectReadPoolMsg read(ObjectInput in) throws IOException, ClassNotFoundException
+    {
+        PoolMgrSelectReadPoolMsg msg =
+                new PoolMgrSelectReadPoolMsg(readFileAttributes(in), readProtocolInfo(in), null, readAllowedStates(in));
+        msg.setContext((PoolMgrSelectReadPoolMsg.Context) in.readObject());
+        readProperties(in, msg);
+        msg.setPoolGroup(readString(in));
+        readMessage(in, msg);
+        return msg;
+    }
+}
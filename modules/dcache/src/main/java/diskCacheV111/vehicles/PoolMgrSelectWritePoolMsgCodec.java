@@ -0,0 +1,36 @@
+package diskCacheV111.vehicles;
+
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+
+/**
+ * Compact encoding of write pool selection requests.
+ */
+public class PoolMgrSelectWritePoolMsgCodec extends PoolMgrSelectPoolMsgCodec<PoolMgrSelectWritePoolMsg>
+{
+    @Override
+    public Class<PoolMgrSelectWritePoolMsg> getType()
+    {
+        return PoolMgrSelectWritePoolMsg.class;
+    }
+
+    @Override
+    public void write(ObjectOutput out, PoolMgrSelectWritePoolMsg msg) throws IOException
+    {
+        writeRequest(out, msg);
+        out.writeLong(msg.getPreallocated());
+        writeProperties(out, msg);
+        writeMessage(out, msg);
+    }
+
+    @Override
+    public PoolMgrSelectWritePoolMsg read(ObjectInput in) throws IOException, ClassNotFoundException
+    {
+        PoolMgrSelectWritePoolMsg msg =
+                new PoolMgrSelectWritePoolMsg(readFileAttributes(in), readProtocolInfo(in), in.readLong());
+        readProperties(in, msg);
+        readMessage(in, msg);
+        return msg;
+    }
+}
@@ -6,6 +6,7 @@ import javax.security.auth.Subject;
 
 import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import diskCacheV111.namespace.NameSpaceProvider;
@@ -195,6 +196,14 @@ public class RemoteNameSpaceProvider implements NameSpaceProvider
         return pnfs.getFileAttributes(id, attr);
     }
 
+    @Override
+    public Map<PnfsId, FileAttributes> getFileAttributes(Subject subject, Collection<PnfsId> ids,
+            Set<FileAttribute> attr) throws CacheException
+    {
+        PnfsHandler pnfs = new PnfsHandler(_pnfs, subject, Restrictions.none());
+        return pnfs.getFileAttributes(ids, attr);
+    }
+
     @Override
     public FileAttributes setFileAttributes(Subject subject, PnfsId id,
             FileAttributes attr, Set<FileAttribute> acquire) throws CacheException
@@ -30,7 +30,9 @@ import java.util.Map;
 import java.util.concurrent.TimeUnit;
 
 import dmg.cells.nucleus.CDC;
+import dmg.cells.nucleus.CellMessage;
 import dmg.cells.nucleus.CellShell;
+import dmg.cells.nucleus.SerializationFormat;
 import dmg.cells.nucleus.SystemCell;
 import dmg.util.CommandException;
 
@@ -128,6 +130,8 @@ public class Domain
 
         String domainName = getName();
         CDC.reset(SYSTEM_CELL_NAME, domainName);
+        CellMessage.setDefaultSerializationFormat(
+                SerializationFormat.fromString(_properties.getValue(PROPERTY_SERIALIZATION_FORMAT)));
         SystemCell systemCell = SystemCell.create(domainName, createCuratorFramework());
         systemCell.start().get();
         LOGGER.info("Starting {}", domainName);
@@ -33,6 +33,8 @@ public class Properties
     public static final String PROPERTY_ZOOKEPER_SESSION_TIMEOUT = "dcache.zookeeper.session-timeout";
     public static final String PROPERTY_ZOOKEPER_SESSION_TIMEOUT_UNIT = "dcache.zookeeper.session-timeout.unit";
 
+    public static final String PROPERTY_SERIALIZATION_FORMAT = "dcache.broker.serialization-format";
+
     public static final String PROPERTY_DOMAINS = "dcache.domains";
     public static final String PROPERTY_PLUGIN_PATH = "dcache.paths.plugins";
     public static final String PROPERTY_DEFAULTS_PATH = "dcache.paths.defaults";
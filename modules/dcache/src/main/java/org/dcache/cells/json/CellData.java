@@ -78,6 +78,8 @@ public class CellData implements Serializable {
     private Integer eventQueueSize;
     private Integer threadCount;
     private Long    expectedQueueTime;
+    private Integer messageThreads;
+    private Long    queueTimeP99;
     private String  version;
     private String  release;
     private String  revision;
@@ -121,6 +123,14 @@ public class CellData implements Serializable {
         return expectedQueueTime;
     }
 
+    public Integer getMessageThreads() {
+        return messageThreads;
+    }
+
+    public Long getQueueTimeP99() {
+        return queueTimeP99;
+    }
+
     public String getLabel() {
         return label;
     }
@@ -177,6 +187,14 @@ public class CellData implements Serializable {
         this.expectedQueueTime = expectedQueueTime;
     }
 
+    public void setMessageThreads(Integer messageThreads) {
+        this.messageThreads = messageThreads;
+    }
+
+    public void setQueueTimeP99(Long queueTimeP99) {
+        this.queueTimeP99 = queueTimeP99;
+    }
+
     public void setLabel(String label) {
         this.label = label;
     }
@@ -21,6 +21,7 @@ import io.netty.handler.codec.http.HttpRequest;
 import io.netty.handler.codec.http.HttpResponseStatus;
 import io.netty.handler.codec.http.LastHttpContent;
 import io.netty.handler.codec.http.QueryStringDecoder;
+import io.netty.handler.ssl.SslHandler;
 import io.netty.handler.stream.ChunkedInput;
 import io.netty.handler.timeout.IdleState;
 import io.netty.handler.timeout.IdleStateEvent;
@@ -294,8 +295,10 @@ public class HttpPoolRequestHandler extends HttpRequestHandler
      * Single GET operation.
      *
      * Finds the correct mover channel using the UUID in the
-     * GET. Range queries are supported. The file will be sent to the
-     * remote peer in chunks to avoid server side memory issues.
+     * GET. Range queries are supported. Unless the connection is
+     * encrypted, whole files and single ranges are sent with zero-copy
+     * transfers. Otherwise the file will be sent to the remote peer in
+     * chunks to avoid server side memory issues.
      */
     @Override
     protected ChannelFuture doOnGet(ChannelHandlerContext context,
@@ -334,7 +337,7 @@ public class HttpPoolRequestHandler extends HttpRequestHandler
              */
             context.write(new HttpGetResponse(fileSize, file, digest))
                     .addListener(ChannelFutureListener.FIRE_EXCEPTION_ON_FAILURE);
-            context.write(read(file, 0, fileSize - 1))
+            context.write(send(context, file, 0, fileSize - 1))
                     .addListener(ChannelFutureListener.FIRE_EXCEPTION_ON_FAILURE);
             return context.writeAndFlush(LastHttpContent.EMPTY_LAST_CONTENT);
         } else if (ranges.size() == 1) {
@@ -345,7 +348,7 @@ public class HttpPoolRequestHandler extends HttpRequestHandler
             context.write(new HttpPartialContentResponse(range.getLower(), range.getUpper(),
                                                          fileSize, digest))
                     .addListener(ChannelFutureListener.FIRE_EXCEPTION_ON_FAILURE);
-            context.write(read(file, range.getLower(), range.getUpper()))
+            context.write(send(context, file, range.getLower(), range.getUpper()))
                     .addListener(ChannelFutureListener.FIRE_EXCEPTION_ON_FAILURE);
             return context.writeAndFlush(LastHttpContent.EMPTY_LAST_CONTENT);
         } else {
@@ -616,6 +619,36 @@ public class HttpPoolRequestHandler extends HttpRequestHandler
         return new ReusableChunkedNioFile(file, lowerRange, length, _chunkSize);
     }
 
+    /**
+     * Like {@link #read}, but if the connection is not encrypted then a
+     * FileRegion is returned instead. Netty sends a FileRegion using
+     * RepositoryChannel#transferTo, thus the data is not copied through
+     * user space. With TLS the data has to pass through the SslHandler,
+     * so the chunked path is used.
+     *
+     * @param context the context of the connection to send the data on
+     * @param file the mover channel to read from
+     * @param lowerRange The lower delimiter of the requested byte range of the
+     *                   file
+     * @param upperRange The upper delimiter of the requested byte range of the
+     *                   file
+     * @return Message suitable for sending with netty and representing the
+     *         requested parts.
+     */
+    private Object send(ChannelHandlerContext context,
+                        NettyTransferService<HttpProtocolInfo>.NettyMoverChannel file,
+                        long lowerRange, long upperRange)
+    {
+        if (context.pipeline().get(SslHandler.class) != null) {
+            return read(file, lowerRange, upperRange);
+        }
+
+        /* need to count position 0 as well */
+        long length = (upperRange - lowerRange) + 1;
+
+        return new RepositoryFileRegion(file, lowerRange, length);
+    }
+
     private static String buildDigest(NettyTransferService<HttpProtocolInfo>.NettyMoverChannel file)
     {
         FileAttributes attributes = file.getFileAttributes();
@@ -0,0 +1,141 @@
+package org.dcache.http;
+
+import io.netty.channel.FileRegion;
+import io.netty.util.AbstractReferenceCounted;
+
+import java.io.IOException;
+import java.nio.channels.WritableByteChannel;
+
+import org.dcache.pool.repository.RepositoryChannel;
+
+/**
+ * A FileRegion backed by a RepositoryChannel.
+ *
+ * Unlike Netty's DefaultFileRegion, this region does not require a
+ * FileChannel. Data is sent using {@link RepositoryChannel#transferTo},
+ * which for a file backed channel lets the kernel copy the data directly
+ * from the page cache to the socket. Since the transfer goes through the
+ * mover channel, the mover's transfer statistics stay accurate.
+ *
+ * Like ReusableChunkedNioFile, releasing the region does not close the
+ * channel, as the channel may be reused for subsequent requests on a
+ * keep-alive connection.
+ */
+public class RepositoryFileRegion extends AbstractReferenceCounted implements FileRegion
+{
+    private final RepositoryChannel _channel;
+    private final long _position;
+    private final long _count;
+    private long _transferred;
+
+    public RepositoryFileRegion(RepositoryChannel channel, long position, long count)
+    {
+        if (channel == null) {
+            throw new NullPointerException("Channel must not be null");
+        }
+
+        if (position < 0) {
+            throw new IllegalArgumentException("position: " + position +
+                                               " (expected: 0 or greater)");
+        }
+
+        if (count < 0) {
+            throw new IllegalArgumentException("count: " + count +
+                                               " (expected: 0 or greater)");
+        }
+
+        _channel = channel;
+        _position = position;
+        _count = count;
+    }
+
+    @Override
+    public long position()
+    {
+        return _position;
+    }
+
+    @Override
+    @Deprecated
+    public long transfered()
+    {
+        return _transferred;
+    }
+
+    @Override
+    public long transferred()
+    {
+        return _transferred;
+    }
+
+    @Override
+    public long count()
+    {
+        return _count;
+    }
+
+    @Override
+    public long transferTo(WritableByteChannel target, long position) throws IOException
+    {
+        long count = _count - position;
+        if (count < 0 || position < 0) {
+            throw new IllegalArgumentException("position out of range: " + position +
+                                               " (expected: 0 - " + (_count - 1) + ')');
+        }
+        if (count == 0) {
+            return 0L;
+        }
+
+        long written = _channel.transferTo(_position + position, count, target);
+        if (written > 0) {
+            _transferred += written;
+        } else if (written == 0 && _channel.size() < _position + _count) {
+            /* The file was truncated while being sent. Without this check
+             * the transfer would spin forever.
+             */
+            throw new IOException("Underlying file size " + _channel.size() +
+                                  " smaller than requested count " + _count);
+        }
+        return written;
+    }
+
+    @Override
+    protected void deallocate()
+    {
+        /* make sure to close the backing channel yourself */
+    }
+
+    @Override
+    public RepositoryFileRegion retain()
+    {
+        super.retain();
+        return this;
+    }
+
+    @Override
+    public RepositoryFileRegion retain(int increment)
+    {
+        super.retain(increment);
+        return this;
+    }
+
+    @Override
+    public RepositoryFileRegion touch()
+    {
+        return this;
+    }
+
+    @Override
+    public RepositoryFileRegion touch(Object hint)
+    {
+        return this;
+    }
+
+    /**
+     * Returns the repository channel. Used for unit testing.
+     */
+    RepositoryChannel getChannel()
+    {
+        return _channel;
+    }
+}
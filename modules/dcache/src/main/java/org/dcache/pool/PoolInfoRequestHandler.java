@@ -561,6 +561,8 @@ public final class PoolInfoRequestHandler implements CellMessageReceiver,
         request.setCellClass(info.getCellClass());
         request.setEventQueueSize(info.getEventQueueSize());
         request.setExpectedQueueTime(info.getExpectedQueueTime());
+        request.setMessageThreads(info.getMessageThreads());
+        request.setQueueTimeP99(info.getQueueTimeP99());
         request.setLabel("Cell Info");
         CellVersion version = info.getCellVersion();
         request.setRelease(version.getRelease());
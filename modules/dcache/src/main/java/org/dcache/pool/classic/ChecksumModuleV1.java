@@ -22,6 +22,7 @@ import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.MoreExecutors;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -43,6 +44,7 @@ import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.Callable;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 import java.util.stream.StreamSupport;
@@ -63,6 +65,7 @@ import org.dcache.pool.repository.ReplicaDescriptor;
 import org.dcache.pool.repository.RepositoryChannel;
 import org.dcache.util.Checksum;
 import org.dcache.util.ChecksumType;
+import org.dcache.util.MultiDigest;
 import org.dcache.pool.classic.json.ChecksumModuleData;
 import org.dcache.pool.repository.FileStore;
 import org.dcache.pool.repository.ReplicaRecord;
@@ -117,6 +120,7 @@ public class ChecksumModuleV1
     private double _throughputLimit = Double.POSITIVE_INFINITY;
     private long _scrubPeriod = TimeUnit.HOURS.toMillis(24L);
     private EnumSet<ChecksumType> _defaultChecksumType = EnumSet.of(ADLER32);
+    private Executor _digestExecutor = MoreExecutors.directExecutor();
 
     private final CopyOnWriteArrayList<Runnable> listeners = new CopyOnWriteArrayList<>();
 
@@ -130,6 +134,20 @@ public class ChecksumModuleV1
         listeners.remove(listener);
     }
 
+    /**
+     * Sets the worker pool used to update several digests of the same
+     * data concurrently.
+     */
+    public void setDigestExecutor(Executor executor)
+    {
+        _digestExecutor = executor;
+    }
+
+    public Executor getDigestExecutor()
+    {
+        return _digestExecutor;
+    }
+
     public synchronized long getScrubPeriod()
     {
         return _scrubPeriod;
@@ -577,13 +595,14 @@ public class ChecksumModuleV1
     {
         long start = System.currentTimeMillis();
         long pos = 0L;
-        ByteBuffer buffer = ByteBuffer.allocate(KiB.toBytes(64));
+        ByteBuffer buffer = ByteBuffer.allocate(KiB.toBytes(256));
+        MultiDigest digest = new MultiDigest(digests, _digestExecutor);
 
         int rc;
         while ((rc = channel.read(buffer, pos)) > 0) {
             pos += rc;
             buffer.flip();
-            digests.forEach(d -> d.update(buffer.asReadOnlyBuffer()));
+            digest.update(buffer);
             buffer.clear();
             if (Thread.interrupted()) {
                 throw new InterruptedException();
@@ -597,9 +616,7 @@ public class ChecksumModuleV1
             }
         }
 
-        Set<Checksum> checksums = digests.stream()
-                .map(d -> new Checksum(ChecksumType.getChecksumType(d.getAlgorithm()), d.digest()))
-                .collect(Collectors.toSet());
+        Set<Checksum> checksums = digest.digest();
 
         LOGGER.debug("Computed checksum, length {}, checksum {} in {} ms{}", pos, checksums.toString(),
                    System.currentTimeMillis() - start, pos == 0 ? ""
@@ -0,0 +1,321 @@
+package org.dcache.pool.classic;
+
+import com.google.common.collect.Iterators;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import static java.util.Comparator.naturalOrder;
+
+/**
+ * Concurrent index of removable replicas ordered by eviction priority.
+ *
+ * The index is split into segments by the hash of the key. Each segment
+ * has its own lock, so updates for different keys, such as access time
+ * changes caused by reads, rarely contend with each other or with the
+ * sweeper. Operations spanning all segments, like selecting eviction
+ * candidates, lock one segment at a time and merge the results.
+ *
+ * Entries with the lowest priority are evicted first. How the priority
+ * is derived is defined by the {@link Policy}.
+ */
+class EvictionQueue<T extends Comparable<T>>
+{
+    private static final int SEGMENTS = 16;
+
+    private static final double MIB = 1 << 20;
+
+    enum Policy
+    {
+        /**
+         * Least recently used entries are evicted first.
+         */
+        LRU {
+            @Override
+            double priority(double inflation, long accessTime, int frequency, long size)
+            {
+                return accessTime;
+            }
+        },
+
+        /**
+         * Greedy-Dual-Size-Frequency. Entries with few accesses relative
+         * to their size in MiB are evicted first. The priority of new and
+         * accessed entries is offset by the priority of the most
+         * recently evicted entry, which ages entries that are no longer
+         * accessed.
+         */
+        GDSF {
+            @Override
+            double priority(double inflation, long accessTime, int frequency, long size)
+            {
+                return inflation + frequency / (Math.max(size, 1) / MIB);
+            }
+        };
+
+        abstract double priority(double inflation, long accessTime, int frequency, long size);
+    }
+
+    /**
+     * An entry of the queue. Entries are immutable; updating an entry
+     * replaces it.
+     */
+    static class Entry<T>
+    {
+        private final T key;
+        private final long size;
+        private final long accessTime;
+        private final int frequency;
+        private final double priority;
+
+        Entry(T key, long size, long accessTime, int frequency, double priority)
+        {
+            this.key = key;
+            this.size = size;
+            this.accessTime = accessTime;
+            this.frequency = frequency;
+            this.priority = priority;
+        }
+
+        T getKey()
+        {
+            return key;
+        }
+
+        long getSize()
+        {
+            return size;
+        }
+
+        long getAccessTime()
+        {
+            return accessTime;
+        }
+    }
+
+    private static class Segment<T extends Comparable<T>>
+    {
+        private final Map<T, Entry<T>> entries = new HashMap<>();
+        private final NavigableSet<Entry<T>> queue;
+
+        Segment(Comparator<Entry<T>> comparator)
+        {
+            queue = new TreeSet<>(comparator);
+        }
+    }
+
+    private final Policy policy;
+    private final Comparator<Entry<T>> comparator;
+    private final List<Segment<T>> segments = new ArrayList<>(SEGMENTS);
+
+    /**
+     * Priority of the most recently evicted entry, stored as the bits of
+     * a double.
+     */
+    private final AtomicLong inflation = new AtomicLong(Double.doubleToLongBits(0));
+
+    private final LongAdder accessUpdates = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder evictedBytes = new LongAdder();
+
+    EvictionQueue(Policy policy)
+    {
+        this.policy = policy;
+        this.comparator = Comparator.<Entry<T>>comparingDouble(e -> e.priority)
+                .thenComparing(e -> e.key, naturalOrder());
+        for (int i = 0; i < SEGMENTS; i++) {
+            segments.add(new Segment<>(comparator));
+        }
+    }
+
+    Policy getPolicy()
+    {
+        return policy;
+    }
+
+    private Segment<T> segmentFor(T key)
+    {
+        int h = key.hashCode();
+        return segments.get((h ^ (h >>> 16)) & (SEGMENTS - 1));
+    }
+
+    private double getInflation()
+    {
+        return Double.longBitsToDouble(inflation.get());
+    }
+
+    /**
+     * Adds a key unless it is already in the queue. Returns true if the
+     * key was added.
+     */
+    boolean add(T key, long accessTime, long size)
+    {
+        Entry<T> entry = new Entry<>(key, size, accessTime, 1,
+                                     policy.priority(getInflation(), accessTime, 1, size));
+        Segment<T> segment = segmentFor(key);
+        synchronized (segment) {
+            if (segment.entries.putIfAbsent(key, entry) != null) {
+                return false;
+            }
+            segment.queue.add(entry);
+            return true;
+        }
+    }
+
+    /**
+     * Removes a key. Returns true if the key was in the queue.
+     */
+    boolean remove(T key)
+    {
+        Segment<T> segment = segmentFor(key);
+        synchronized (segment) {
+            Entry<T> entry = segment.entries.remove(key);
+            if (entry == null) {
+                return false;
+            }
+            segment.queue.remove(entry);
+            return true;
+        }
+    }
+
+    /**
+     * Records an access of a key in the queue. Returns false if the key
+     * is not in the queue.
+     */
+    boolean touch(T key, long accessTime)
+    {
+        Segment<T> segment = segmentFor(key);
+        synchronized (segment) {
+            Entry<T> entry = segment.entries.get(key);
+            if (entry == null) {
+                return false;
+            }
+            int frequency = entry.frequency + 1;
+            Entry<T> updated = new Entry<>(key, entry.size, accessTime, frequency,
+                                           policy.priority(getInflation(), accessTime, frequency, entry.size));
+            segment.queue.remove(entry);
+            segment.entries.put(key, updated);
+            segment.queue.add(updated);
+        }
+        accessUpdates.increment();
+        return true;
+    }
+
+    /**
+     * Returns the entries to evict, in eviction order, to free at least
+     * {@code bytes} bytes. Fewer entries are returned if the queue does
+     * not hold that much.
+     */
+    List<Entry<T>> candidates(long bytes)
+    {
+        List<Iterator<Entry<T>>> prefixes = new ArrayList<>(SEGMENTS);
+        for (Segment<T> segment : segments) {
+            /* Any entry among the first entries of the whole queue summing
+             * up to bytes is among the first entries of its segment summing
+             * up to bytes.
+             */
+            List<Entry<T>> prefix = new ArrayList<>();
+            synchronized (segment) {
+                long total = 0;
+                for (Entry<T> entry : segment.queue) {
+                    if (total >= bytes) {
+                        break;
+                    }
+                    prefix.add(entry);
+                    total += entry.size;
+                }
+            }
+            prefixes.add(prefix.iterator());
+        }
+
+        List<Entry<T>> candidates = new ArrayList<>();
+        long total = 0;
+        Iterator<Entry<T>> merged = Iterators.mergeSorted(prefixes, comparator);
+        while (total < bytes && merged.hasNext()) {
+            Entry<T> entry = merged.next();
+            candidates.add(entry);
+            total += entry.size;
+        }
+        return candidates;
+    }
+
+    /**
+     * Records that an entry returned by {@link #candidates} was evicted.
+     */
+    void evicted(Entry<T> entry)
+    {
+        evictions.increment();
+        evictedBytes.add(entry.size);
+        inflation.accumulateAndGet(Double.doubleToLongBits(entry.priority),
+                                   (a, b) -> Double.longBitsToDouble(a) >= Double.longBitsToDouble(b) ? a : b);
+    }
+
+    /**
+     * Returns the entry to be evicted next, or null if the queue is empty.
+     */
+    Entry<T> head()
+    {
+        Entry<T> head = null;
+        for (Segment<T> segment : segments) {
+            synchronized (segment) {
+                if (!segment.queue.isEmpty()) {
+                    Entry<T> first = segment.queue.first();
+                    if (head == null || comparator.compare(first, head) < 0) {
+                        head = first;
+                    }
+                }
+            }
+        }
+        return head;
+    }
+
+    /**
+     * Returns all keys in eviction order.
+     */
+    List<T> values()
+    {
+        List<Iterator<Entry<T>>> copies = new ArrayList<>(SEGMENTS);
+        for (Segment<T> segment : segments) {
+            synchronized (segment) {
+                copies.add(new ArrayList<>(segment.queue).iterator());
+            }
+        }
+        List<T> values = new ArrayList<>();
+        Iterators.mergeSorted(copies, comparator).forEachRemaining(e -> values.add(e.key));
+        return values;
+    }
+
+    int size()
+    {
+        int size = 0;
+        for (Segment<T> segment : segments) {
+            synchronized (segment) {
+                size += segment.entries.size();
+            }
+        }
+        return size;
+    }
+
+    long getAccessUpdates()
+    {
+        return accessUpdates.sum();
+    }
+
+    long getEvictions()
+    {
+        return evictions.sum();
+    }
+
+    long getEvictedBytes()
+    {
+        return evictedBytes.sum();
+    }
+}
@@ -0,0 +1,17 @@
+package org.dcache.pool.classic;
+
+/**
+ * Space sweeper using the Greedy-Dual-Size-Frequency policy.
+ *
+ * Rather than removing the least recently used replicas first, replicas
+ * that have been accessed few times relative to their size are removed
+ * first. This keeps small, popular replicas on the pool at the expense of
+ * large replicas read only once.
+ */
+public class GdsfSpaceSweeper extends SpaceSweeper2
+{
+    public GdsfSpaceSweeper()
+    {
+        super(EvictionQueue.Policy.GDSF);
+    }
+}
@@ -7,12 +7,9 @@ import java.time.Instant;
 import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
-import java.util.Comparator;
-import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
-import java.util.Map;
-import java.util.SortedSet;
-import java.util.TreeSet;
+import java.util.Set;
 import java.util.concurrent.Callable;
 
 import diskCacheV111.util.CacheException;
@@ -41,8 +38,14 @@ import org.dcache.pool.repository.StickyChangeEvent;
 import org.dcache.util.histograms.CountingHistogram;
 import org.dcache.vehicles.FileAttributes;
 
-import static java.util.Comparator.naturalOrder;
+import static com.google.common.math.LongMath.saturatedAdd;
 
+/**
+ * Space sweeper that removes cached replicas when space is requested.
+ *
+ * Removable replicas are kept in an {@link EvictionQueue}. By default the
+ * least recently used replicas are removed first.
+ */
 public class SpaceSweeper2
     implements Runnable, CellCommandListener, StateChangeListener,
                SpaceSweeperPolicy, PoolDataBeanProvider<SweeperData>
@@ -52,7 +55,7 @@ public class SpaceSweeper2
     private static final DateTimeFormatter ISO8601_FORMAT =
             DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss").withZone(ZoneId.systemDefault());
 
-    private final LruQueue<PnfsId> _queue = new LruQueue<>();
+    private final EvictionQueue<PnfsId> _queue;
 
     private Repository _repository;
 
@@ -61,6 +64,12 @@ public class SpaceSweeper2
 
     public SpaceSweeper2()
     {
+        this(EvictionQueue.Policy.LRU);
+    }
+
+    SpaceSweeper2(EvictionQueue.Policy policy)
+    {
+        _queue = new EvictionQueue<>(policy);
     }
 
     public void setRepository(Repository repository)
@@ -98,20 +107,14 @@ public class SpaceSweeper2
     }
 
     /**
-     * Returns the pnfsid of the eldest removable entry.
-     */
-    private synchronized PnfsId getEldest()
-    {
-        return _queue.getLeastRecentlyUsedElement();
-    }
-
-    /**
-     * Returns the last access time of the eldest removable entry.
+     * Returns the last access time of the removable entry to be removed
+     * next. With the default policy this is the eldest removable entry.
      */
     @Override
     public long getLru()
     {
-        return _queue.getTimeOfLeastRecentlyUsedElement();
+        EvictionQueue.Entry<PnfsId> head = _queue.head();
+        return (head == null) ? 0 : head.getAccessTime();
     }
 
     /**
@@ -126,7 +129,7 @@ public class SpaceSweeper2
         }
 
         PnfsId id = entry.getPnfsId();
-        if (_queue.add(id, entry.getLastAccessTime())) {
+        if (_queue.add(id, entry.getLastAccessTime(), entry.getReplicaSize())) {
             LOGGER.debug("Added {} to sweeper", id);
             /* The sweeper thread may be waiting for more files to
              * delete.
@@ -179,12 +182,10 @@ public class SpaceSweeper2
     }
 
     @Override
-    public synchronized void accessTimeChanged(EntryChangeEvent event)
+    public void accessTimeChanged(EntryChangeEvent event)
     {
         CacheEntry entry = event.getNewEntry();
-        if (remove(entry)) {
-            add(entry);
-        }
+        _queue.touch(entry.getPnfsId(), entry.getLastAccessTime());
     }
 
     @Command(name = "sweeper purge", hint = "Purges all removable files from pool",
@@ -253,10 +254,7 @@ public class SpaceSweeper2
                 throws CacheException, InterruptedException
         {
             StringBuilder sb = new StringBuilder();
-            List<PnfsId> list;
-            synchronized (SpaceSweeper2.this) {
-                list = _queue.values();
-            }
+            List<PnfsId> list = _queue.values();
             int i = 0;
             for (PnfsId id : list) {
                 try {
@@ -293,13 +291,13 @@ public class SpaceSweeper2
         SweeperData info = new SweeperData();
         info.setLabel("Space Sweeper v2");
 
-        List<PnfsId> list;
-
-        synchronized (this) {
-            list = _queue.values();
-            info.setLruQueueSize(_queue.values().size());
-            info.setLruTimestamp(System.currentTimeMillis() - getLru());
-        }
+        List<PnfsId> list = _queue.values();
+        info.setLruQueueSize(list.size());
+        info.setLruTimestamp(System.currentTimeMillis() - getLru());
+        info.setPolicy(_queue.getPolicy().name());
+        info.setAccessUpdates(_queue.getAccessUpdates());
+        info.setEvictions(_queue.getEvictions());
+        info.setEvictedBytes(_queue.getEvictedBytes());
 
         long now = System.currentTimeMillis();
 
@@ -367,41 +365,57 @@ public class SpaceSweeper2
     {
         LOGGER.debug("Sweeper tries to reclaim {} bytes.", amount);
 
-        /* We copy the entries into a tmp list to avoid
-         * ConcurrentModificationException.
-         */
-        List<PnfsId> tmpList = _queue.values();
-
-        /* Delete the files.
+        /* Entries are removed in batches just large enough to free the
+         * requested space. Entries that cannot be removed stay in the
+         * queue, so the next batch is enlarged by their size.
          */
+        Set<PnfsId> seen = new HashSet<>();
         long deleted = 0;
-        for (PnfsId id: tmpList) {
-            try {
-                CacheEntry entry = _repository.getEntry(id);
-
-                // Removing an open file will not free space until
-                // the file is closed, so we skip it this time around.
-                if (entry.getLinkCount() > 0) {
-                    LOGGER.debug("File skipped by sweeper (in use): {}", entry);
-                    continue;
-                }
-                if (!isRemovable(entry)) {
-                    LOGGER.debug("File skipped by sweeper (not removable): {}", entry);
+        long skipped = 0;
+        while (deleted < amount) {
+            List<EvictionQueue.Entry<PnfsId>> batch =
+                    _queue.candidates(saturatedAdd(amount - deleted, skipped));
+            boolean progress = false;
+            for (EvictionQueue.Entry<PnfsId> candidate : batch) {
+                PnfsId id = candidate.getKey();
+                if (!seen.add(id)) {
                     continue;
                 }
+                progress = true;
+                try {
+                    CacheEntry entry = _repository.getEntry(id);
 
-                long size = entry.getReplicaSize();
-                LOGGER.debug("Sweeper removes {}.", id);
-                _repository.setState(id, ReplicaState.REMOVED);
-                deleted += size;
-            } catch (IllegalTransitionException | FileNotInCacheException e) {
-                /* Normal if file got removed just as we wanted to
-                 * remove it ourselves.
-                 */
-            } catch (CacheException e) {
-                LOGGER.error(e.getMessage());
+                    // Removing an open file will not free space until
+                    // the file is closed, so we skip it this time around.
+                    if (entry.getLinkCount() > 0) {
+                        LOGGER.debug("File skipped by sweeper (in use): {}", entry);
+                        skipped += candidate.getSize();
+                        continue;
+                    }
+                    if (!isRemovable(entry)) {
+                        LOGGER.debug("File skipped by sweeper (not removable): {}", entry);
+                        skipped += candidate.getSize();
+                        continue;
+                    }
+
+                    long size = entry.getReplicaSize();
+                    LOGGER.debug("Sweeper removes {}.", id);
+                    _repository.setState(id, ReplicaState.REMOVED);
+                    _queue.evicted(candidate);
+                    deleted += size;
+                } catch (IllegalTransitionException | FileNotInCacheException e) {
+                    /* Normal if file got removed just as we wanted to
+                     * remove it ourselves.
+                     */
+                } catch (CacheException e) {
+                    LOGGER.error(e.getMessage());
+                    skipped += candidate.getSize();
+                }
+                if (deleted >= amount) {
+                    break;
+                }
             }
-            if (deleted >= amount) {
+            if (!progress) {
                 break;
             }
         }
@@ -456,67 +470,4 @@ public class SpaceSweeper2
             _repository.removeListener(this);
         }
     }
-
-    /**
-     * Queue of keys ordered by a timestamp.
-     */
-    private static class LruQueue<T extends Comparable<T>>
-    {
-        /**
-         * Tracks the time stamp of each element in the queue.
-         */
-        private final Map<T, Long> timeStamps = new HashMap<>();
-
-        /**
-         * Elements sorted by access time and value.
-         * <p>
-         * The comparator uses {@code timeStamps} to look up the time of keys. A compound comparator is used
-         * to ensure consistency with equals (otherwise two keys with the same time would be collapsed to
-         * a single element in the set).
-         * <p>
-         * Any element inserted into this set must have its access time recorded in {@code timeStamps}
-         * before being inserted into the set. The time must not change while the key is in the set.
-         */
-        private final SortedSet<T> queue =
-                new TreeSet<>(Comparator.<T, Long>comparing(k -> timeStamps.getOrDefault(k, 0L)).thenComparing(naturalOrder()));
-
-        public synchronized boolean add(T key, long time)
-        {
-            if (timeStamps.putIfAbsent(key, time) == null) {
-                queue.add(key);
-                return true;
-            }
-            return false;
-        }
-
-        public synchronized boolean remove(T key)
-        {
-            if (queue.remove(key)) {
-                timeStamps.remove(key);
-                return true;
-            }
-            return false;
-        }
-
-        public synchronized T getLeastRecentlyUsedElement()
-        {
-            if (queue.isEmpty()) {
-                return null;
-            }
-            return queue.first();
-        }
-
-        public synchronized long getTimeOfLeastRecentlyUsedElement()
-        {
-            if (queue.isEmpty()) {
-                return 0;
-            }
-            return timeStamps.get(queue.first());
-        }
-
-        public synchronized List<T> values()
-        {
-            return new ArrayList<>(queue);
-        }
-    }
 }
@@ -82,6 +82,10 @@ public class SweeperData implements Serializable {
     private String label;
     private Integer    lruQueueSize;
     private Long       lruTimestamp;
+    private String     policy;
+    private Long       accessUpdates;
+    private Long       evictions;
+    private Long       evictedBytes;
 
     public String getLabel() {
         return label;
@@ -99,6 +103,22 @@ public class SweeperData implements Serializable {
         return lastAccess;
     }
 
+    public String getPolicy() {
+        return policy;
+    }
+
+    public Long getAccessUpdates() {
+        return accessUpdates;
+    }
+
+    public Long getEvictions() {
+        return evictions;
+    }
+
+    public Long getEvictedBytes() {
+        return evictedBytes;
+    }
+
     public void setLabel(String label) {
         this.label = label;
     }
@@ -115,6 +135,22 @@ public class SweeperData implements Serializable {
         this.lastAccess = lastAccess;
     }
 
+    public void setPolicy(String policy) {
+        this.policy = policy;
+    }
+
+    public void setAccessUpdates(Long accessUpdates) {
+        this.accessUpdates = accessUpdates;
+    }
+
+    public void setEvictions(Long evictions) {
+        this.evictions = evictions;
+    }
+
+    public void setEvictedBytes(Long evictedBytes) {
+        this.evictedBytes = evictedBytes;
+    }
+
     public static CountingHistogram createLastAccessHistogram() {
         CountingHistogram histogram = new CountingHistogram();
         histogram.setDataUnitLabel(SweeperData.DATA_UNIT_LABEL);
@@ -1,10 +1,6 @@
 package org.dcache.pool.movers;
 
 import com.google.common.annotations.VisibleForTesting;
-import com.google.common.collect.DiscreteDomain;
-import com.google.common.collect.Range;
-import com.google.common.collect.RangeSet;
-import com.google.common.collect.TreeRangeSet;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -15,11 +11,9 @@ import java.io.InterruptedIOException;
 import java.nio.ByteBuffer;
 import java.nio.channels.ReadableByteChannel;
 import java.security.MessageDigest;
-import java.util.ArrayList;
-import java.util.Collection;
 import java.util.Collections;
-import java.util.List;
 import java.util.Set;
+import java.util.concurrent.Executor;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.stream.Collectors;
@@ -28,9 +22,9 @@ import org.dcache.pool.repository.ForwardingRepositoryChannel;
 import org.dcache.pool.repository.RepositoryChannel;
 import org.dcache.util.Checksum;
 import org.dcache.util.ChecksumType;
+import org.dcache.util.MultiDigest;
 
 import static com.google.common.base.Preconditions.checkState;
-import static com.google.common.collect.Lists.newArrayList;
 import static org.dcache.util.ByteUnit.KiB;
 import static org.dcache.util.Exceptions.messageOrClassName;
 
@@ -38,6 +32,9 @@ import static org.dcache.util.Exceptions.messageOrClassName;
  * A wrapper for RepositoryChannel that computes a digest
  * on the fly during write as long as all writes are
  * sequential.
+ *
+ * If several digests are computed, they are updated concurrently
+ * by a MultiDigest.
  */
 public class ChecksumChannel extends ForwardingRepositoryChannel
 {
@@ -51,9 +48,9 @@ public class ChecksumChannel extends ForwardingRepositoryChannel
     RepositoryChannel _channel;
 
     /**
-     * Digest used for computing the checksum during write.
+     * Digests used for computing the checksums during write.
      */
-    private final List<MessageDigest> _digests;
+    private final MultiDigest _digests;
 
     /**
      * Cached checksum after getChecksums is called the first time.
@@ -63,7 +60,7 @@ public class ChecksumChannel extends ForwardingRepositoryChannel
     /**
      * RangeSet to keep track of written bytes
      */
-    private final RangeSet<Long> _dataRangeSet = TreeRangeSet.create();
+    private final LongRangeSet _dataRangeSet = new LongRangeSet();
 
     /**
      * The offset where the checksum was calculated.
@@ -115,9 +112,17 @@ public class ChecksumChannel extends ForwardingRepositoryChannel
     public ChecksumChannel(RepositoryChannel inner, Set<ChecksumType> types)
     {
         _channel = inner;
-        _digests = types.stream()
-                .map(t -> t.createMessageDigest())
-                .collect(Collectors.toList());
+        _digests = MultiDigest.of(types);
+    }
+
+    /**
+     * @param executor worker pool used to update several digests concurrently
+     */
+    public ChecksumChannel(RepositoryChannel inner, Set<ChecksumType> types,
+            Executor executor)
+    {
+        _channel = inner;
+        _digests = MultiDigest.of(types, executor);
     }
 
     /**
@@ -133,14 +138,14 @@ public class ChecksumChannel extends ForwardingRepositoryChannel
     public void addType(ChecksumType type) throws IOException
     {
         synchronized (_digests) {
-            if (_digests.stream()
+            if (_digests.getDigests().stream()
                     .map(MessageDigest::getAlgorithm)
                     .noneMatch(t -> t.equals(type.getName()))) {
                 MessageDigest digest = type.createMessageDigest();
 
                 if (_isChecksumViable) {
                     try {
-                        updateFromChannel(Collections.singleton(digest), 0L, _nextChecksumOffset);
+                        updateFromChannel(new MultiDigest(Collections.singleton(digest)), 0L, _nextChecksumOffset);
                     } catch (IOException e) {
                         throw new IOException("Failed when reading received data: "
                                 + messageOrClassName(e), e);
@@ -165,9 +170,9 @@ public class ChecksumChannel extends ForwardingRepositoryChannel
 
             int bytes;
             if (_isChecksumViable) {
-                ByteBuffer readOnly = buffer.asReadOnlyBuffer();
+                ByteBuffer data = buffer.duplicate();
                 bytes = _channel.write(buffer, position);
-                updateChecksum(readOnly, position, bytes);
+                updateChecksum(data, position, bytes);
             } else {
                 bytes = _channel.write(buffer, position);
             }
@@ -267,11 +272,11 @@ public class ChecksumChannel extends ForwardingRepositoryChannel
             synchronized (_digests) {
                 try {
 
-                    if (_dataRangeSet.asRanges().size() != 1 || _nextChecksumOffset == 0) {
+                    if (_dataRangeSet.size() != 1 || _nextChecksumOffset == 0) {
                         feedZerosToDigesterForRangeGaps();
                     }
 
-                    return _digests.stream()
+                    return _digests.getDigests().stream()
                             .map(Checksum::new)
                             .collect(Collectors.toSet());
                 } catch (IOException e) {
@@ -283,13 +288,12 @@ public class ChecksumChannel extends ForwardingRepositoryChannel
     }
 
     private void feedZerosToDigesterForRangeGaps() throws IOException {
-        ArrayList<Range<Long>> complement = newArrayList(_dataRangeSet.complement().subRangeSet(Range.closed(0L, size())).asRanges());
-        complement.sort((r1, r2) -> r1.lowerEndpoint().compareTo(r2.lowerEndpoint()));
+        long[] gaps = _dataRangeSet.gaps(0L, size());
 
-        for (Range<Long> range : complement) {
+        for (int i = 0; i < gaps.length; i += 2) {
 
-            long bytesToWrite = range.upperEndpoint() - range.lowerEndpoint();
-            long chunkOffset = range.lowerEndpoint();
+            long bytesToWrite = gaps[i + 1] - gaps[i];
+            long chunkOffset = gaps[i];
 
             while (bytesToWrite > 0) {
                 _zerosBuffer.clear();
@@ -307,10 +311,10 @@ public class ChecksumChannel extends ForwardingRepositoryChannel
     private int writeWithChecksumUpdate(ByteBuffer src) throws IOException
     {
         int writtenBytes;
-        ByteBuffer readOnly = src.asReadOnlyBuffer();
+        ByteBuffer data = src.duplicate();
         long updatePosition = position();
         writtenBytes = _channel.write(src);
-        updateChecksum(readOnly, updatePosition, writtenBytes);
+        updateChecksum(data, updatePosition, writtenBytes);
 
         return writtenBytes;
     }
@@ -332,28 +336,26 @@ public class ChecksumChannel extends ForwardingRepositoryChannel
             buffer.limit(buffer.position() + bytes);
         }
 
-        Range<Long> writeRange = Range.closed(position, position + buffer.remaining() - 1).canonical(DiscreteDomain.longs());
-        Range<Long> fileStartRange;
+        long writeEnd = position + buffer.remaining();
+        long fileStartRangeEnd;
 
         synchronized (_dataRangeSet) {
 
-            RangeSet<Long> overlappingRanges = _dataRangeSet.subRangeSet(writeRange);
-            if (!overlappingRanges.isEmpty()) {
+            if (_dataRangeSet.intersects(position, writeEnd)) {
                 _isChecksumViable = false;
                 LOGGER.info("On-transfer checksum aborted due to overlapping writes from client.");
                 return;
             }
 
-            fileStartRange = _dataRangeSet.rangeContaining(0L);
-            boolean canCalculateChecksum = position == 0 || (fileStartRange != null && fileStartRange.upperEndpoint() == position);
+            boolean canCalculateChecksum = position == 0 || _dataRangeSet.upperOfRangeContaining(0L) == position;
 
-            _dataRangeSet.add(writeRange);
+            _dataRangeSet.add(position, writeEnd);
             if (!canCalculateChecksum) {
                 return;
             }
 
             // get it again as we may have merged two segments
-            fileStartRange = _dataRangeSet.rangeContaining(0L);
+            fileStartRangeEnd = _dataRangeSet.upperOfRangeContaining(0L);
         }
 
         synchronized (_digests) {
@@ -370,14 +372,14 @@ public class ChecksumChannel extends ForwardingRepositoryChannel
                 }
             }
 
-            long bytesToRead = fileStartRange.upperEndpoint() - position;
+            long bytesToRead = fileStartRangeEnd - position;
 
             // update current buffer and then keep procesing following blocks, if any
             bytesToRead -= buffer.remaining();
             // update offset prior digest calculation as digests#update will update position in the buffer
             _nextChecksumOffset += buffer.remaining();
 
-            _digests.forEach(d -> d.update(buffer.duplicate()));
+            _digests.update(buffer.duplicate());
 
             long expectedOffsetAfterRead = _nextChecksumOffset + bytesToRead;
             try {
@@ -390,7 +392,7 @@ public class ChecksumChannel extends ForwardingRepositoryChannel
     }
 
     @GuardedBy("_digests")
-    private void updateFromChannel(Collection<MessageDigest> digests, long offset, long bytesToRead)
+    private void updateFromChannel(MultiDigest digests, long offset, long bytesToRead)
             throws IOException
     {
         try {
@@ -405,7 +407,7 @@ public class ChecksumChannel extends ForwardingRepositoryChannel
 
                 _readBackBuffer.flip();
 
-                digests.forEach(d -> d.update(_readBackBuffer.asReadOnlyBuffer()));
+                digests.update(_readBackBuffer);
 
                 bytesToRead -= bytesRead;
                 offset += bytesRead;
@@ -0,0 +1,74 @@
+package org.dcache.pool.movers;
+
+import java.nio.ByteBuffer;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A pool of direct byte buffers shared by movers.
+ *
+ * Direct buffers avoid copying data through the heap when reading from or
+ * writing to channels, but they are expensive to allocate and are only
+ * freed once garbage collected. Movers therefore return their buffer to
+ * this pool when done, and later movers asking for a buffer of the same
+ * size reuse it. At most maxRetained bytes are kept in the pool; any
+ * buffer released beyond that is left to the garbage collector.
+ */
+public class DirectBufferPool
+{
+    private final ConcurrentMap<Integer, Queue<ByteBuffer>> _buffers =
+            new ConcurrentHashMap<>();
+    private final AtomicLong _retained = new AtomicLong();
+    private final long _maxRetained;
+
+    public DirectBufferPool(long maxRetained)
+    {
+        _maxRetained = maxRetained;
+    }
+
+    /**
+     * Returns a cleared direct buffer with the given capacity.
+     *
+     * @throws OutOfMemoryError if no buffer is pooled and direct memory
+     *                          is exhausted
+     */
+    public ByteBuffer acquire(int capacity)
+    {
+        Queue<ByteBuffer> queue = _buffers.get(capacity);
+        ByteBuffer buffer = (queue == null) ? null : queue.poll();
+        if (buffer == null) {
+            return ByteBuffer.allocateDirect(capacity);
+        }
+        _retained.addAndGet(-capacity);
+        buffer.clear();
+        return buffer;
+    }
+
+    /**
+     * Returns a buffer to the pool. The caller must not use the buffer
+     * afterwards. Heap buffers are ignored.
+     */
+    public void release(ByteBuffer buffer)
+    {
+        if (!buffer.isDirect()) {
+            return;
+        }
+        int capacity = buffer.capacity();
+        if (_retained.addAndGet(capacity) > _maxRetained) {
+            _retained.addAndGet(-capacity);
+            return;
+        }
+        _buffers.computeIfAbsent(capacity, c -> new ConcurrentLinkedQueue<>()).offer(buffer);
+    }
+
+    /**
+     * Returns the number of bytes held by pooled buffers.
+     */
+    public long getRetained()
+    {
+        return _retained.get();
+    }
+}
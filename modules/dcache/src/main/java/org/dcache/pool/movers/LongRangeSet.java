@@ -0,0 +1,129 @@
+package org.dcache.pool.movers;
+
+import java.util.Arrays;
+
+/**
+ * A set of disjoint half-open ranges of longs stored in sorted primitive
+ * arrays. Adjacent and overlapping ranges are coalesced.
+ *
+ * Used to keep track of written regions of a file. In the common case of
+ * sequential writes, the set consists of a single range and all
+ * operations are constant time. This class is not thread safe.
+ */
+class LongRangeSet
+{
+    private long[] _lower = new long[4];
+    private long[] _upper = new long[4];
+    private int _count;
+
+    /**
+     * Returns the index of the first range with an upper bound greater
+     * than or equal to the value, or _count if there is none.
+     */
+    private int indexOfUpper(long value)
+    {
+        if (_count > 0 && _upper[_count - 1] < value) {
+            return _count;
+        }
+        int low = 0;
+        int high = _count;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (_upper[mid] < value) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Returns the number of disjoint ranges.
+     */
+    int size()
+    {
+        return _count;
+    }
+
+    boolean isEmpty()
+    {
+        return _count == 0;
+    }
+
+    /**
+     * Returns whether any value in [lower, upper) is in the set.
+     */
+    boolean intersects(long lower, long upper)
+    {
+        int i = indexOfUpper(lower + 1);
+        return i < _count && _lower[i] < upper;
+    }
+
+    /**
+     * Adds the range [lower, upper).
+     */
+    void add(long lower, long upper)
+    {
+        if (lower >= upper) {
+            return;
+        }
+
+        int i = indexOfUpper(lower);
+        int j = i;
+        while (j < _count && _lower[j] <= upper) {
+            j++;
+        }
+
+        if (i == j) {
+            if (_count == _lower.length) {
+                _lower = Arrays.copyOf(_lower, _count * 2);
+                _upper = Arrays.copyOf(_upper, _count * 2);
+            }
+            System.arraycopy(_lower, i, _lower, i + 1, _count - i);
+            System.arraycopy(_upper, i, _upper, i + 1, _count - i);
+            _lower[i] = lower;
+            _upper[i] = upper;
+            _count++;
+        } else {
+            _lower[i] = Math.min(lower, _lower[i]);
+            _upper[i] = Math.max(upper, _upper[j - 1]);
+            System.arraycopy(_lower, j, _lower, i + 1, _count - j);
+            System.arraycopy(_upper, j, _upper, i + 1, _count - j);
+            _count -= j - i - 1;
+        }
+    }
+
+    /**
+     * Returns the upper bound of the range containing the value, or -1 if
+     * the value is not in the set.
+     */
+    long upperOfRangeContaining(long value)
+    {
+        int i = indexOfUpper(value + 1);
+        return (i < _count && _lower[i] <= value) ? _upper[i] : -1;
+    }
+
+    /**
+     * Returns the ranges within [lower, upper) that are not in the set, as
+     * an array of alternating lower and upper bounds.
+     */
+    long[] gaps(long lower, long upper)
+    {
+        long[] gaps = new long[2 * (_count + 1)];
+        int n = 0;
+        long position = lower;
+        for (int i = indexOfUpper(lower + 1); i < _count && position < upper; i++) {
+            if (_lower[i] > position) {
+                gaps[n++] = position;
+                gaps[n++] = Math.min(_lower[i], upper);
+            }
+            position = _upper[i];
+        }
+        if (position < upper) {
+            gaps[n++] = position;
+            gaps[n++] = upper;
+        }
+        return Arrays.copyOf(gaps, n);
+    }
+}
@@ -220,6 +220,15 @@ public class MoverChannel<T extends ProtocolInfo> extends ForwardingRepositoryCh
         }
     }
 
+    /**
+     * Accounts for bytes transferred without going through this channel,
+     * e.g. from a memory mapping of the underlying file.
+     */
+    public void recordTransferred(long bytes) {
+        _bytesTransferred.getAndAdd(bytes);
+        _lastTransferred.set(System.currentTimeMillis());
+    }
+
     public Set<? extends OpenOption> getIoMode() {
         return _mode;
     }
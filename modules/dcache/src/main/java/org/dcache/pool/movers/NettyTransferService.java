@@ -323,6 +323,15 @@ public abstract class NettyTransferService<P extends ProtocolInfo>
         }
     }
 
+    /**
+     * Returns the event loop of the child channels. Its threads also do
+     * the disk IO of the movers.
+     */
+    protected synchronized NioEventLoopGroup getSocketGroup()
+    {
+        return socketGroup;
+    }
+
     /**
      * Start server if there are any registered channels.
      */
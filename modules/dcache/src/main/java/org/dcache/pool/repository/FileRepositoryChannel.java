@@ -5,6 +5,7 @@ import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.SyncFailedException;
 import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
 import java.nio.channels.FileChannel;
 import java.nio.channels.ReadableByteChannel;
 import java.nio.channels.WritableByteChannel;
@@ -134,4 +135,13 @@ public class FileRepositoryChannel implements RepositoryChannel {
     public long transferFrom(ReadableByteChannel src, long position, long count) throws IOException {
         return _fileChannel.transferFrom(src, position, count);
     }
+
+    /**
+     * Maps a region of the file into memory for reading. The mapping stays
+     * valid until the returned buffer is garbage collected, even if the
+     * channel is closed or the file is deleted.
+     */
+    public MappedByteBuffer map(long position, long size) throws IOException {
+        return _fileChannel.map(FileChannel.MapMode.READ_ONLY, position, size);
+    }
 }
@@ -0,0 +1,597 @@
+package org.dcache.pool.repository;
+
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.locks.StampedLock;
+
+import diskCacheV111.util.PnfsId;
+
+/**
+ * Compact in-memory index of the frequently consulted fields of every
+ * replica in a pool: state, size, last access time, link count, the
+ * earliest expiration time of any sticky flag, and whether the replica
+ * is removable.
+ *
+ * The index is an open addressing hash table with one slot per replica.
+ * Apart from the PNFS ID key, all fields are kept in primitive arrays.
+ * Thus a replica costs a few dozen bytes and no objects besides the key,
+ * and the bulk of the index consists of arrays the garbage collector
+ * does not have to trace.
+ *
+ * Replicas with expiring sticky flags are additionally queued by
+ * expiration time, so that expired sticky flags are found without
+ * scanning the table.
+ *
+ * The index is not persistent. It is populated from the ReplicaStore it
+ * describes, initially with the IDs only and subsequently with the
+ * remaining fields as the records are read. This class is thread safe.
+ */
+public class ReplicaIndex
+{
+    /**
+     * Expiration time recorded for replicas without expiring sticky flags.
+     */
+    public static final long NO_EXPIRATION = Long.MAX_VALUE;
+
+    private static final int MIN_CAPACITY = 1024;
+    private static final Object TOMBSTONE = new Object();
+    private static final ReplicaState[] STATES = ReplicaState.values();
+
+    private static final byte LOADED = 1;
+    private static final byte REMOVABLE = 2;
+
+    private final StampedLock _lock = new StampedLock();
+
+    /* The key of a slot is null if the slot is free, TOMBSTONE if the
+     * entry was removed, and the PNFS ID otherwise. Entries never move
+     * within a key array; the array is replaced when rehashing. This
+     * allows iterators to scan it without holding the lock.
+     */
+    private volatile Object[] _keys;
+    private byte[] _states;
+    private byte[] _flags;
+    private int[] _linkCounts;
+    private long[] _sizes;
+    private long[] _accessTimes;
+    private long[] _stickyExpirations;
+
+    private int _size;
+    private int _tombstones;
+
+    /* Sticky expiration times of entries, earliest first. An element is
+     * stale if the entry no longer exists or its expiration time has
+     * changed since the element was queued. Stale elements are dropped
+     * once they reach the head of the queue.
+     */
+    private final PriorityQueue<Expiration> _expirations =
+            new PriorityQueue<>(Comparator.comparingLong(e -> e._time));
+
+    public ReplicaIndex()
+    {
+        allocate(MIN_CAPACITY);
+    }
+
+    private void allocate(int capacity)
+    {
+        _states = new byte[capacity];
+        _flags = new byte[capacity];
+        _linkCounts = new int[capacity];
+        _sizes = new long[capacity];
+        _accessTimes = new long[capacity];
+        _stickyExpirations = new long[capacity];
+        _tombstones = 0;
+        _keys = new Object[capacity];
+    }
+
+    private static int hash(PnfsId id, int capacity)
+    {
+        int h = id.hashCode();
+        h ^= (h >>> 16);
+        return (h * 0x9E3779B9) & (capacity - 1);
+    }
+
+    /**
+     * Returns the slot of the entry, or -1 if the entry does not exist.
+     */
+    private int find(PnfsId id)
+    {
+        Object[] keys = _keys;
+        int mask = keys.length - 1;
+        for (int i = hash(id, keys.length); ; i = (i + 1) & mask) {
+            Object key = keys[i];
+            if (key == null) {
+                return -1;
+            }
+            if (key != TOMBSTONE && key.equals(id)) {
+                return i;
+            }
+        }
+    }
+
+    /**
+     * Returns the slot of the entry, adding it if necessary.
+     */
+    private int findOrAdd(PnfsId id)
+    {
+        int slot = find(id);
+        if (slot >= 0) {
+            return slot;
+        }
+        if ((_size + _tombstones + 1) * 4L > _keys.length * 3L) {
+            rehash();
+        }
+        Object[] keys = _keys;
+        int mask = keys.length - 1;
+        int i = hash(id, keys.length);
+        while (keys[i] != null && keys[i] != TOMBSTONE) {
+            i = (i + 1) & mask;
+        }
+        if (keys[i] == TOMBSTONE) {
+            _tombstones--;
+        }
+        _states[i] = (byte) ReplicaState.NEW.ordinal();
+        _flags[i] = 0;
+        _linkCounts[i] = 0;
+        _sizes[i] = 0;
+        _accessTimes[i] = 0;
+        _stickyExpirations[i] = NO_EXPIRATION;
+        keys[i] = id;
+        _size++;
+        return i;
+    }
+
+    /**
+     * Copies all entries to new arrays. The new key array is only
+     * published once it is complete, so iterators created concurrently
+     * see either the old or the new array, but never a partially filled
+     * one.
+     */
+    private void rehash()
+    {
+        int capacity = MIN_CAPACITY;
+        while ((_size + 1) * 2L > capacity) {
+            capacity <<= 1;
+        }
+
+        Object[] keys = new Object[capacity];
+        byte[] states = new byte[capacity];
+        byte[] flags = new byte[capacity];
+        int[] linkCounts = new int[capacity];
+        long[] sizes = new long[capacity];
+        long[] accessTimes = new long[capacity];
+        long[] stickyExpirations = new long[capacity];
+
+        Object[] oldKeys = _keys;
+        int mask = capacity - 1;
+        for (int j = 0; j < oldKeys.length; j++) {
+            Object key = oldKeys[j];
+            if (key != null && key != TOMBSTONE) {
+                int i = hash((PnfsId) key, capacity);
+                while (keys[i] != null) {
+                    i = (i + 1) & mask;
+                }
+                keys[i] = key;
+                states[i] = _states[j];
+                flags[i] = _flags[j];
+                linkCounts[i] = _linkCounts[j];
+                sizes[i] = _sizes[j];
+                accessTimes[i] = _accessTimes[j];
+                stickyExpirations[i] = _stickyExpirations[j];
+            }
+        }
+
+        _states = states;
+        _flags = flags;
+        _linkCounts = linkCounts;
+        _sizes = sizes;
+        _accessTimes = accessTimes;
+        _stickyExpirations = stickyExpirations;
+        _tombstones = 0;
+        _keys = keys;
+    }
+
+    /**
+     * Adds an entry for a replica whose record has not been read yet. Does
+     * nothing if the entry already exists.
+     */
+    public void add(PnfsId id)
+    {
+        long stamp = _lock.writeLock();
+        try {
+            findOrAdd(id);
+        } finally {
+            _lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Adds or updates the entry of a replica from its record. The caller
+     * must prevent concurrent modification of the record.
+     *
+     * @return true if the entry had not been populated from the replica
+     *         record before
+     */
+    public boolean update(ReplicaRecord record)
+    {
+        ReplicaState state = record.getState();
+        long size = record.getReplicaSize();
+        long accessTime = record.getLastAccessTime();
+        int linkCount = record.getLinkCount();
+        long expiration = NO_EXPIRATION;
+        for (StickyRecord sticky : record.stickyRecords()) {
+            if (!sticky.isNonExpiring()) {
+                expiration = Math.min(expiration, sticky.expire());
+            }
+        }
+
+        long stamp = _lock.writeLock();
+        try {
+            PnfsId id = record.getPnfsId();
+            int i = findOrAdd(id);
+            boolean wasLoaded = (_flags[i] & LOADED) != 0;
+            _states[i] = (byte) state.ordinal();
+            _flags[i] |= LOADED;
+            _sizes[i] = size;
+            _accessTimes[i] = accessTime;
+            _linkCounts[i] = linkCount;
+            if (_stickyExpirations[i] != expiration) {
+                _stickyExpirations[i] = expiration;
+                if (expiration != NO_EXPIRATION) {
+                    _expirations.add(new Expiration(id, expiration));
+                }
+            }
+            return !wasLoaded;
+        } finally {
+            _lock.unlockWrite(stamp);
+        }
+    }
+
+    public void setLastAccessTime(PnfsId id, long time)
+    {
+        long stamp = _lock.writeLock();
+        try {
+            int i = find(id);
+            if (i >= 0) {
+                _accessTimes[i] = time;
+            }
+        } finally {
+            _lock.unlockWrite(stamp);
+        }
+    }
+
+    public void setLinkCount(PnfsId id, int count)
+    {
+        long stamp = _lock.writeLock();
+        try {
+            int i = find(id);
+            if (i >= 0) {
+                _linkCounts[i] = count;
+            }
+        } finally {
+            _lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Sets whether the replica is removable.
+     *
+     * @return true if the flag changed, false if it already had the given
+     *         value or if the entry does not exist
+     */
+    public boolean setRemovable(PnfsId id, boolean removable)
+    {
+        long stamp = _lock.writeLock();
+        try {
+            int i = find(id);
+            if (i < 0 || ((_flags[i] & REMOVABLE) != 0) == removable) {
+                return false;
+            }
+            _flags[i] ^= REMOVABLE;
+            return true;
+        } finally {
+            _lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Removes the entry of a replica.
+     *
+     * @return false if the entry did not exist
+     */
+    public boolean remove(PnfsId id)
+    {
+        long stamp = _lock.writeLock();
+        try {
+            int i = find(id);
+            if (i < 0) {
+                return false;
+            }
+            _keys[i] = TOMBSTONE;
+            _size--;
+            _tombstones++;
+            return true;
+        } finally {
+            _lock.unlockWrite(stamp);
+        }
+    }
+
+    public boolean contains(PnfsId id)
+    {
+        long stamp = _lock.readLock();
+        try {
+            return find(id) >= 0;
+        } finally {
+            _lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Returns whether the entry has been populated from the replica record.
+     */
+    public boolean isLoaded(PnfsId id)
+    {
+        long stamp = _lock.readLock();
+        try {
+            int i = find(id);
+            return i >= 0 && (_flags[i] & LOADED) != 0;
+        } finally {
+            _lock.unlockRead(stamp);
+        }
+    }
+
+    public boolean isRemovable(PnfsId id)
+    {
+        long stamp = _lock.readLock();
+        try {
+            int i = find(id);
+            return i >= 0 && (_flags[i] & REMOVABLE) != 0;
+        } finally {
+            _lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Returns the state of a replica, or null if the entry does not exist.
+     */
+    public ReplicaState getState(PnfsId id)
+    {
+        long stamp = _lock.readLock();
+        try {
+            int i = find(id);
+            return (i < 0) ? null : STATES[_states[i]];
+        } finally {
+            _lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Returns the size of a replica as of its last state change, or -1 if
+     * the entry does not exist.
+     */
+    public long getReplicaSize(PnfsId id)
+    {
+        long stamp = _lock.readLock();
+        try {
+            int i = find(id);
+            return (i < 0) ? -1 : _sizes[i];
+        } finally {
+            _lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Returns the last access time of a replica, or -1 if the entry does
+     * not exist.
+     */
+    public long getLastAccessTime(PnfsId id)
+    {
+        long stamp = _lock.readLock();
+        try {
+            int i = find(id);
+            return (i < 0) ? -1 : _accessTimes[i];
+        } finally {
+            _lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Returns the link count of a replica, or -1 if the entry does not
+     * exist.
+     */
+    public int getLinkCount(PnfsId id)
+    {
+        long stamp = _lock.readLock();
+        try {
+            int i = find(id);
+            return (i < 0) ? -1 : _linkCounts[i];
+        } finally {
+            _lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Returns the earliest expiration time of the sticky flags of a
+     * replica, or NO_EXPIRATION if it has no expiring sticky flags or the
+     * entry does not exist.
+     */
+    public long getStickyExpiration(PnfsId id)
+    {
+        long stamp = _lock.readLock();
+        try {
+            int i = find(id);
+            return (i < 0) ? NO_EXPIRATION : _stickyExpirations[i];
+        } finally {
+            _lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Returns the replicas with sticky flags that expired at or before the
+     * given time. Replicas that have been removed are ignored.
+     *
+     * A replica is returned again by subsequent calls until its entry is
+     * updated with a different expiration time, thus allowing the caller
+     * to retry if removing the sticky flags failed. The cost is
+     * proportional to the number of expired entries rather than to the
+     * size of the index.
+     */
+    public List<PnfsId> getExpiredSticky(long time)
+    {
+        Set<PnfsId> expired = new LinkedHashSet<>();
+        List<Expiration> retained = new ArrayList<>();
+        long stamp = _lock.writeLock();
+        try {
+            Expiration head;
+            while ((head = _expirations.peek()) != null && head._time <= time) {
+                _expirations.poll();
+                int i = find(head._id);
+                if (i < 0 || _stickyExpirations[i] != head._time) {
+                    continue;
+                }
+                ReplicaState state = STATES[_states[i]];
+                if (state == ReplicaState.REMOVED || state == ReplicaState.DESTROYED) {
+                    continue;
+                }
+                if (expired.add(head._id)) {
+                    retained.add(head);
+                }
+            }
+            _expirations.addAll(retained);
+        } finally {
+            _lock.unlockWrite(stamp);
+        }
+        return new ArrayList<>(expired);
+    }
+
+    /**
+     * Returns the number of entries.
+     */
+    public int size()
+    {
+        long stamp = _lock.readLock();
+        try {
+            return _size;
+        } finally {
+            _lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Removes all entries.
+     */
+    public void clear()
+    {
+        long stamp = _lock.writeLock();
+        try {
+            allocate(MIN_CAPACITY);
+            _size = 0;
+            _expirations.clear();
+        } finally {
+            _lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Returns an unmodifiable view of the IDs in the index. The iterator
+     * of the view is weakly consistent: It never throws a
+     * ConcurrentModificationException and reflects some, but not
+     * necessarily all, modifications made after its creation.
+     */
+    public Set<PnfsId> keySet()
+    {
+        return new AbstractSet<PnfsId>()
+        {
+            @Override
+            public Iterator<PnfsId> iterator()
+            {
+                return new KeyIterator(_keys);
+            }
+
+            @Override
+            public int size()
+            {
+                return ReplicaIndex.this.size();
+            }
+
+            @Override
+            public boolean contains(Object o)
+            {
+                return (o instanceof PnfsId) && ReplicaIndex.this.contains((PnfsId) o);
+            }
+        };
+    }
+
+    @Override
+    public String toString()
+    {
+        long stamp = _lock.readLock();
+        try {
+            return "ReplicaIndex[size=" + _size + ", capacity=" + _keys.length + ']';
+        } finally {
+            _lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Element of the expiration queue.
+     */
+    private static class Expiration
+    {
+        private final PnfsId _id;
+        private final long _time;
+
+        Expiration(PnfsId id, long time)
+        {
+            _id = id;
+            _time = time;
+        }
+    }
+
+    private static class KeyIterator implements Iterator<PnfsId>
+    {
+        private final Object[] _keys;
+        private int _position;
+        private PnfsId _next;
+
+        KeyIterator(Object[] keys)
+        {
+            _keys = keys;
+            advance();
+        }
+
+        private void advance()
+        {
+            _next = null;
+            while (_next == null && _position < _keys.length) {
+                Object key = _keys[_position++];
+                if (key != null && key != TOMBSTONE) {
+                    _next = (PnfsId) key;
+                }
+            }
+        }
+
+        @Override
+        public boolean hasNext()
+        {
+            return _next != null;
+        }
+
+        @Override
+        public PnfsId next()
+        {
+            if (_next == null) {
+                throw new NoSuchElementException();
+            }
+            PnfsId id = _next;
+            advance();
+            return id;
+        }
+    }
+}
@@ -1,12 +1,13 @@
 package org.dcache.pool.repository;
 
+import com.google.common.collect.MapMaker;
+
 import javax.annotation.concurrent.GuardedBy;
 
 import java.io.IOException;
 import java.net.URI;
 import java.nio.file.OpenOption;
 import java.util.Collection;
-import java.util.Collections;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
@@ -24,6 +25,7 @@ import org.dcache.vehicles.FileAttributes;
 import static com.google.common.base.Preconditions.checkState;
 import static org.dcache.pool.repository.ReplicaState.DESTROYED;
 import static org.dcache.pool.repository.ReplicaState.NEW;
+import static org.dcache.pool.repository.ReplicaState.REMOVED;
 
 /**
  * Cache of ReplicaRecords.
@@ -34,27 +36,54 @@ import static org.dcache.pool.repository.ReplicaState.NEW;
  * concurrently invoke several methods of the inner ReplicaStore
  * using the same PNFS ID.
  *
- * The cache guarantees that it always returns the same ReplicaStore
- * instance for a given entry.
+ * The cache guarantees that it always returns the same ReplicaRecord
+ * instance for a given entry for as long as that instance is referenced.
+ * Records of CACHED and PRECIOUS replicas are only weakly referenced by
+ * the cache, so such records are dropped once no longer in use and are
+ * read again from the inner store when next accessed. Records in any
+ * other state are retained, as the inner store may attempt to recover
+ * such replicas when reading them.
  *
  * The cache submits state change events to a StateChangeListener. The
  * listener is called from the thread making the modification and with
  * the ReplicaRecord locked. Care must be taken in the listener to
  * not cause deadlocks or slow down the store.
+ *
+ * The cache maintains a ReplicaIndex of all entries in the store. The
+ * index is the only state kept for idle CACHED and PRECIOUS replicas.
+ * Records are only instantiated when accessed, and the index is consulted
+ * to answer lookups of entries that do not exist. The index is updated
+ * before change events are submitted to the StateChangeListener. The
+ * state change from NEW is only submitted the first time the record of
+ * an entry is read. If the record of an entry that was read before can
+ * no longer be read, the changes to REMOVED and DESTROYED are submitted,
+ * using the fields recorded in the index.
  */
 public class ReplicaStoreCache
     implements ReplicaStore
 {
-    /** Map of cached ReplicaRecords.
+    /** Map of cached ReplicaRecords. Values are weakly referenced.
      */
     private final ConcurrentMap<PnfsId,Monitor> _entries;
 
+    /** Cached ReplicaRecords that are neither CACHED nor PRECIOUS.
+     */
+    private final ConcurrentMap<PnfsId,Monitor> _retained = new ConcurrentHashMap<>();
+
+    /** Index of all entries in the store.
+     */
+    private final ReplicaIndex _index = new ReplicaIndex();
+
     private final ReplicaStore _inner;
     private final StateChangeListener _stateChangeListener;
     private final FaultListener _faultListener;
 
     private volatile boolean _isClosed;
 
+    /** Whether the index has been populated from the inner store.
+     */
+    private volatile boolean _isIndexed;
+
     /**
      * Constructs a new cache.
      */
@@ -63,7 +92,7 @@ public class ReplicaStoreCache
         _inner = inner;
         _stateChangeListener = stateChangeListener;
         _faultListener = faultListener;
-        _entries = new ConcurrentHashMap<>();
+        _entries = new MapMaker().weakValues().makeMap();
     }
 
     /**
@@ -90,7 +119,9 @@ public class ReplicaStoreCache
      *    or until the Monitor removes itself from _entries.
      *
      * The point from which the condition in item 1 is true is marked by
-     * assertions in the code.
+     * assertions in the code. The garbage collector only removes a Monitor
+     * from _entries once the Monitor is unreachable, that is, once no
+     * thread can invoke it anymore.
      */
     private class Monitor implements ReplicaRecord
     {
@@ -112,16 +143,62 @@ public class ReplicaStoreCache
             if (_record == null) {
                 _record = _inner.get(_id);
                 if (_record == null) {
+                    vanished();
                     _entries.remove(_id, this);
                     return null;
                 }
-                CacheEntry entry = new CacheEntryImpl(_record);
-                _stateChangeListener.stateChanged(
-                        new StateChangeEvent(entry, entry, NEW, _record.getState()));
+                if (_index.update(_record)) {
+                    CacheEntry entry = new CacheEntryImpl(_record);
+                    _stateChangeListener.stateChanged(
+                            new StateChangeEvent(entry, entry, NEW, _record.getState()));
+                }
+                updateRetention();
             }
             return this;
         }
 
+        /**
+         * Removes the entry of a replica that the inner store no longer
+         * has. If its record was read before, listeners have accounted for
+         * the replica, so the changes to REMOVED and DESTROYED are
+         * submitted for them to release it.
+         */
+        @GuardedBy("this")
+        private void vanished()
+        {
+            if (!_index.isLoaded(_id)) {
+                _index.remove(_id);
+                return;
+            }
+            ReplicaState state = _index.getState(_id);
+            CacheEntry removed = indexedEntry(_id, REMOVED);
+            if (state != REMOVED) {
+                _stateChangeListener.stateChanged(
+                        new StateChangeEvent(indexedEntry(_id, state), removed, state, REMOVED));
+            }
+            _index.remove(_id);
+            _stateChangeListener.stateChanged(new StateChangeEvent(removed, removed, REMOVED, DESTROYED));
+        }
+
+        /**
+         * Retains this Monitor unless the replica is CACHED or PRECIOUS.
+         */
+        @GuardedBy("this")
+        private void updateRetention()
+        {
+            switch (_record.getState()) {
+            case CACHED:
+            case PRECIOUS:
+                _retained.remove(_id, this);
+                break;
+            case DESTROYED:
+                break;
+            default:
+                _retained.put(_id, this);
+                break;
+            }
+        }
+
         private synchronized ReplicaRecord create(Set<? extends OpenOption> flags)
                 throws CacheException
         {
@@ -132,6 +209,8 @@ public class ReplicaStoreCache
             try {
                 checkState(!_isClosed);
                 _record = _inner.create(_id, flags);
+                _index.update(_record);
+                updateRetention();
             } catch (DuplicateEntryException e) {
                 throw e;
             } catch (RuntimeException | CacheException e) {
@@ -149,7 +228,9 @@ public class ReplicaStoreCache
                 CacheEntry entry = new CacheEntryImpl(_record);
                 _record.update(r -> r.setState(DESTROYED));
                 _inner.remove(_id);
+                _index.remove(_id);
                 _entries.remove(_id);
+                _retained.remove(_id, this);
                 _stateChangeListener.stateChanged(
                         new StateChangeEvent(entry, entry, entry.getState(), DESTROYED));
             } catch (DiskErrorCacheException | RuntimeException e) {
@@ -164,6 +245,7 @@ public class ReplicaStoreCache
         private synchronized void close()
         {
             _entries.remove(_id, this);
+            _retained.remove(_id, this);
         }
 
         @Override
@@ -255,6 +337,7 @@ public class ReplicaStoreCache
         {
             try {
                 _record.setLastAccessTime(time);
+                _index.setLastAccessTime(_id, time);
             } catch (IllegalArgumentException e) {
                 throw e;
             } catch (RuntimeException | DiskErrorCacheException e) {
@@ -268,6 +351,7 @@ public class ReplicaStoreCache
         public synchronized int decrementLinkCount()
         {
             int cnt = _record.decrementLinkCount();
+            _index.setLinkCount(_id, cnt);
             if (cnt == 0 && _record.getState() == ReplicaState.REMOVED) {
                 destroy();
             }
@@ -275,10 +359,12 @@ public class ReplicaStoreCache
         }
 
         @Override
-        public int incrementLinkCount()
+        public synchronized int incrementLinkCount()
         {
             try {
-                return _record.incrementLinkCount();
+                int cnt = _record.incrementLinkCount();
+                _index.setLinkCount(_id, cnt);
+                return cnt;
             } catch (RuntimeException e) {
                 _faultListener.faultOccurred(
                         new FaultEvent("repository", FaultAction.DEAD, "Internal repository error", e));
@@ -317,6 +403,7 @@ public class ReplicaStoreCache
                 CacheEntry oldEntry = new CacheEntryImpl(_record);
                 Collection<StickyRecord> removed = _record.removeExpiredStickyFlags();
                 if (!removed.isEmpty()) {
+                    _index.update(_record);
                     CacheEntryImpl newEntry = new CacheEntryImpl(_record);
                     _stateChangeListener.stickyChanged(new StickyChangeEvent(oldEntry, newEntry));
                 }
@@ -355,6 +442,7 @@ public class ReplicaStoreCache
                                         CacheEntry oldEntry = new CacheEntryImpl(_record);
                                         boolean changed = r.setSticky(owner, validTill, overwrite);
                                         if (changed) {
+                                            _index.update(_record);
                                             CacheEntryImpl newEntry = new CacheEntryImpl(_record);
                                             _stateChangeListener.stickyChanged(
                                                     new StickyChangeEvent(oldEntry, newEntry));
@@ -368,6 +456,8 @@ public class ReplicaStoreCache
                                         if (r.getState() != state) {
                                             CacheEntry oldEntry = new CacheEntryImpl(_record);
                                             r.setState(state);
+                                            _index.update(_record);
+                                            updateRetention();
                                             CacheEntry newEntry = new CacheEntryImpl(_record);
                                             _stateChangeListener.stateChanged(
                                                     new StateChangeEvent(oldEntry, newEntry, oldEntry.getState(),
@@ -414,11 +504,29 @@ public class ReplicaStoreCache
         }
     }
 
+    /**
+     * Returns an entry describing a replica as recorded in the index, but
+     * in the given state.
+     */
+    private CacheEntry indexedEntry(PnfsId id, ReplicaState state)
+    {
+        return new CacheEntryImpl(id, state, _index.getReplicaSize(id),
+                                  _index.getLastAccessTime(id), _index.getLinkCount(id));
+    }
+
+    @Override
     public ReplicaRecord get(PnfsId id)
             throws CacheException
     {
         try {
-            return _entries.computeIfAbsent(id, Monitor::new).get();
+            Monitor monitor = _entries.get(id);
+            if (monitor == null) {
+                if (_isIndexed && !_index.contains(id)) {
+                    return null;
+                }
+                monitor = _entries.computeIfAbsent(id, Monitor::new);
+            }
+            return monitor.get();
         } catch (RuntimeException | DiskErrorCacheException e) {
             _faultListener.faultOccurred(
                     new FaultEvent("repository", FaultAction.DEAD, "Internal repository error", e));
@@ -446,19 +554,32 @@ public class ReplicaStoreCache
 
     /**
      * The operation may be slow as the {@code index} method of {@code inner} is called.
+     *
+     * Rebuilds the index from the inner store. Records are not read; the
+     * index is populated with the remaining fields as records are accessed.
      */
     @Override
     public void init() throws CacheException
     {
         for (PnfsId id: _inner.index(IndexOption.ALLOW_REPAIR)) {
-            _entries.putIfAbsent(id, new Monitor(id));
+            _index.add(id);
         }
+        _isIndexed = true;
     }
 
     @Override
     public Set<PnfsId> index(IndexOption... options)
     {
-        return Collections.unmodifiableSet(_entries.keySet());
+        return _index.keySet();
+    }
+
+    /**
+     * Returns the index of all entries. The index reflects the state of
+     * records that have been accessed at least once.
+     */
+    public ReplicaIndex getIndex()
+    {
+        return _index;
     }
 
     @Override
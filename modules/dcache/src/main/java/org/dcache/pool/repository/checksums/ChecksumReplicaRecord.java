@@ -23,6 +23,7 @@ import java.io.IOException;
 import java.nio.file.OpenOption;
 import java.util.HashSet;
 import java.util.Set;
+import java.util.concurrent.Executor;
 
 import org.dcache.pool.repository.ForwardingReplicaRecord;
 import org.dcache.pool.repository.ReplicaRecord;
@@ -37,6 +38,7 @@ public class ChecksumReplicaRecord extends ForwardingReplicaRecord
 {
     private final ReplicaRecord inner;
     private final Set<ChecksumType> defaultTypes;
+    private final Executor digestExecutor;
 
     public enum OpenFlags implements OpenOption
     {
@@ -48,10 +50,12 @@ public class ChecksumReplicaRecord extends ForwardingReplicaRecord
         ENABLE_CHECKSUM_CALCULATION;
     }
 
-    public ChecksumReplicaRecord(ReplicaRecord inner, Set<ChecksumType> defaultTypes)
+    public ChecksumReplicaRecord(ReplicaRecord inner, Set<ChecksumType> defaultTypes,
+            Executor digestExecutor)
     {
         this.inner = inner;
         this.defaultTypes = defaultTypes;
+        this.digestExecutor = digestExecutor;
     }
 
     @Override
@@ -67,7 +71,7 @@ public class ChecksumReplicaRecord extends ForwardingReplicaRecord
         if (mode.contains(OpenFlags.ENABLE_CHECKSUM_CALCULATION)) {
             Set<? extends OpenOption> innerMode = new HashSet<>(mode);
             innerMode.remove(OpenFlags.ENABLE_CHECKSUM_CALCULATION);
-            return new ChecksumChannel(super.openChannel(innerMode), defaultTypes);
+            return new ChecksumChannel(super.openChannel(innerMode), defaultTypes, digestExecutor);
         } else {
             return super.openChannel(mode);
         }
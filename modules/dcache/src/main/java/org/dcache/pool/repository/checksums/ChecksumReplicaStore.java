@@ -54,6 +54,7 @@ public class ChecksumReplicaStore extends ForwardingReplicaStore
     public ReplicaRecord create(PnfsId id, Set<? extends OpenOption> flags)
             throws DuplicateEntryException, CacheException
     {
-        return new ChecksumReplicaRecord(super.create(id, flags), csm.getDefaultChecksumTypes());
+        return new ChecksumReplicaRecord(super.create(id, flags), csm.getDefaultChecksumTypes(),
+                                         csm.getDigestExecutor());
     }
 }
@@ -1,6 +1,7 @@
 package org.dcache.pool.repository.v5;
 
 import java.util.Collection;
+import java.util.Collections;
 
 import diskCacheV111.util.CacheException;
 import diskCacheV111.util.PnfsId;
@@ -37,6 +38,23 @@ public class CacheEntryImpl implements CacheEntry
         }
     }
 
+    /**
+     * Creates an entry for a replica of which only the given fields are
+     * known. The replica has no sticky flags and its file attributes only
+     * define the PNFS ID and the size.
+     */
+    public CacheEntryImpl(PnfsId id, ReplicaState state, long size, long accessTime, int linkCount)
+    {
+        _size = size;
+        _created_at = 0;
+        _accessed_at = accessTime;
+        _linkCount = linkCount;
+        _isSticky = false;
+        _sticky = Collections.emptyList();
+        _state = state;
+        _fileAttributes = FileAttributes.of().pnfsId(id).size(size).build();
+    }
+
     /**
      * @see CacheEntry#getPnfsId()
      */
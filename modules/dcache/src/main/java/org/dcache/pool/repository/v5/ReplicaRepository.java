@@ -1,5 +1,7 @@
 package org.dcache.pool.repository.v5;
 
+import com.google.common.base.Throwables;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -12,15 +14,19 @@ import java.util.Collections;
 import java.util.EnumSet;
 import java.util.Iterator;
 import java.util.List;
-import java.util.Map;
 import java.util.OptionalLong;
 import java.util.Set;
 import java.util.concurrent.Callable;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CompletionService;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
@@ -58,6 +64,7 @@ import org.dcache.pool.repository.EntryChangeEvent;
 import org.dcache.pool.repository.IllegalTransitionException;
 import org.dcache.pool.repository.LimitedAllocator;
 import org.dcache.pool.repository.ReplicaDescriptor;
+import org.dcache.pool.repository.ReplicaIndex;
 import org.dcache.pool.repository.ReplicaRecord;
 import org.dcache.pool.repository.ReplicaState;
 import org.dcache.pool.repository.ReplicaStore;
@@ -88,7 +95,9 @@ import static org.dcache.util.ByteUnit.GiB;
  *
  * Allows openEntry, getEntry, getState and setSticky to be called
  * before the load method finishes. Other methods of the Repository
- * interface will fail until load has completed.
+ * interface will fail until load has completed. Entries accessed
+ * during load are read and checked on demand, independently of the
+ * threads checking the remaining entries.
  */
 public class ReplicaRepository
     implements Repository, CellCommandListener, CellSetupProvider, CellInfoProvider, CellIdentityAware,
@@ -125,16 +134,10 @@ public class ReplicaRepository
         new StateChangeListeners();
 
     /**
-     * Sticky bit expiration tasks.
+     * Periodic task removing expired sticky flags.
      */
-    private final Map<PnfsId,ScheduledFuture<?>> _tasks =
-        new ConcurrentHashMap<>();
-
-    /**
-     * Collection of removable entries.
-     */
-    private final Set<PnfsId> _removable =
-        Collections.newSetFromMap(new ConcurrentHashMap<>());
+    @GuardedBy("_stateLock")
+    private ScheduledFuture<?> _expirationTask;
 
     /** Executor for periodic tasks. */
     @GuardedBy("_stateLock")
@@ -146,6 +149,12 @@ public class ReplicaRepository
     @GuardedBy("_stateLock")
     private ReplicaStore _store;
 
+    /**
+     * Index of the hot fields of all entries in the store.
+     */
+    @GuardedBy("_stateLock")
+    private ReplicaIndex _index;
+
     @GuardedBy("_stateLock")
     private String _poolName;
 
@@ -169,6 +178,12 @@ public class ReplicaRepository
      */
     private final ReadWriteLock _stateLock = new ReentrantReadWriteLock();
 
+    /**
+     * Number of threads used to load the repository.
+     */
+    @GuardedBy("_stateLock")
+    private int _loadThreads = 1;
+
     /**
      * Initialization progress between 0 and 1.
      */
@@ -288,6 +303,22 @@ public class ReplicaRepository
         }
     }
 
+    /**
+     * Sets the number of threads used to read the meta data of all
+     * replicas when the repository is loaded.
+     */
+    public void setLoadThreads(int threads)
+    {
+        checkArgument(threads > 0, "Number of threads must be positive");
+        _stateLock.readLock().lock();
+        try {
+            checkUninitialized();
+            _loadThreads = threads;
+        } finally {
+            _stateLock.readLock().unlock();
+        }
+    }
+
     /**
      * Sets the handler for talking to the PNFS manager.
      */
@@ -347,7 +378,7 @@ public class ReplicaRepository
         _stateLock.readLock().lock();
         try {
             checkUninitialized();
-            _store = new ReplicaStoreCache(store, new StateChangeListener()
+            ReplicaStoreCache cache = new ReplicaStoreCache(store, new StateChangeListener()
 
             {
                 @Override
@@ -364,7 +395,6 @@ public class ReplicaRepository
                             if (size > 0) {
                                 _account.growTotalAndUsed(size);
                             }
-                            scheduleExpirationTask(event.getNewEntry());
                         }
 
                         updateRemovable(event.getNewEntry());
@@ -385,11 +415,6 @@ public class ReplicaRepository
                         }
 
                         _pnfs.clearCacheLocation(id, _volatile);
-
-                        ScheduledFuture<?> oldTask = _tasks.remove(id);
-                        if (oldTask != null) {
-                            oldTask.cancel(false);
-                        }
                         break;
                     case DESTROYED:
                         /* It is essential to free after we removed the file: This is the opposite
@@ -414,7 +439,6 @@ public class ReplicaRepository
                 {
                     updateRemovable(event.getNewEntry());
                     _stateChangeListeners.stickyChanged(event);
-                    scheduleExpirationTask(event.getNewEntry());
                 }
             }, new FaultListener()
             {
@@ -426,6 +450,8 @@ public class ReplicaRepository
                     }
                 }
             });
+            _store = cache;
+            _index = cache.getIndex();
         } finally {
             _stateLock.readLock().unlock();
         }
@@ -508,24 +534,28 @@ public class ReplicaRepository
             LOGGER.warn("Reading inventory from {}.", _store);
             _store.init();
 
+            _stateLock.writeLock().lock();
+            try {
+                _expirationTask =
+                        _executor.scheduleWithFixedDelay(new ExpirationTask(),
+                                                         EXPIRATION_CLOCKSHIFT_EXTRA_TIME,
+                                                         EXPIRATION_CLOCKSHIFT_EXTRA_TIME,
+                                                         TimeUnit.MILLISECONDS);
+            } finally {
+                _stateLock.writeLock().unlock();
+            }
+
             Collection<PnfsId> ids = _store.index();
 
             int fileCount = ids.size();
-            LOGGER.info("Checking meta data for {} files.", fileCount);
-            int cnt = 0;
-            for (PnfsId id: ids) {
-                ReplicaRecord entry = readReplicaRecord(id);
-                if (entry != null)  {
-                    ReplicaState state = entry.getState();
-                    LOGGER.debug("{} {}", id, state);
-                }
-                _initializationProgress = ((float) cnt) / fileCount;
-                cnt++;
-
-                // Lazily check if repository was closed
-                if (_state != State.LOADING) {
-                    throw new IllegalStateException("Repository was closed during loading.");
-                }
+            int threads = Math.max(1, Math.min(_loadThreads, fileCount));
+            LOGGER.info("Checking meta data for {} files using {} threads.", fileCount, threads);
+            Iterator<PnfsId> iterator = ids.iterator();
+            AtomicInteger cnt = new AtomicInteger();
+            if (threads == 1) {
+                loadRecords(iterator, cnt, fileCount);
+            } else {
+                loadRecordsInParallel(iterator, cnt, fileCount, threads);
             }
 
             _stateLock.writeLock().lock();
@@ -544,6 +574,70 @@ public class ReplicaRepository
         LOGGER.info("Done generating inventory.");
     }
 
+    /**
+     * Reads the records returned by an iterator until it is exhausted. May
+     * be called concurrently by several threads sharing the iterator.
+     *
+     * Reading a record checks the replica, accounts for it and fills its
+     * entry in the replica index. The records themselves are not kept, so
+     * the replica store cache may drop them again.
+     */
+    private void loadRecords(Iterator<PnfsId> ids, AtomicInteger cnt, int fileCount)
+            throws CacheException, InterruptedException
+    {
+        while (true) {
+            PnfsId id;
+            synchronized (ids) {
+                if (!ids.hasNext()) {
+                    break;
+                }
+                id = ids.next();
+            }
+
+            if (readReplicaRecord(id) != null) {
+                LOGGER.debug("{} {}", id, _index.getState(id));
+            }
+            _initializationProgress = ((float) cnt.incrementAndGet()) / fileCount;
+
+            // Lazily check if repository was closed
+            if (_state != State.LOADING) {
+                throw new IllegalStateException("Repository was closed during loading.");
+            }
+        }
+    }
+
+    /**
+     * Reads the records returned by an iterator using several threads. The
+     * first failure aborts the remaining threads and is rethrown.
+     */
+    private void loadRecordsInParallel(Iterator<PnfsId> ids, AtomicInteger cnt, int fileCount,
+                                       int threads)
+            throws CacheException, InterruptedException
+    {
+        ExecutorService executor = Executors.newFixedThreadPool(
+                threads, new ThreadFactoryBuilder().setNameFormat("repository-load-%d").build());
+        try {
+            CompletionService<Void> completionService = new ExecutorCompletionService<>(executor);
+            for (int i = 0; i < threads; i++) {
+                completionService.submit(() -> {
+                    loadRecords(ids, cnt, fileCount);
+                    return null;
+                });
+            }
+            for (int i = 0; i < threads; i++) {
+                try {
+                    completionService.take().get();
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    Throwables.propagateIfPossible(cause, CacheException.class, InterruptedException.class);
+                    throw new RuntimeException(cause);
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
     @Override
     public Iterator<PnfsId> iterator()
     {
@@ -951,6 +1045,9 @@ public class ReplicaRepository
         try {
             _stateChangeListeners.stop();
             _state = State.CLOSED;
+            if (_expirationTask != null) {
+                _expirationTask.cancel(false);
+            }
             _store.close();
         } finally {
             _stateLock.writeLock().unlock();
@@ -962,11 +1059,11 @@ public class ReplicaRepository
     {
         PnfsId id = entry.getPnfsId();
         if (_sweeper.isRemovable(entry)) {
-            if (_removable.add(id)) {
+            if (_index.setRemovable(id, true)) {
                 _account.adjustRemovable(entry.getReplicaSize());
             }
         } else {
-            if (_removable.remove(id)) {
+            if (_index.setRemovable(id, false)) {
                 _account.adjustRemovable(-entry.getReplicaSize());
             }
         }
@@ -1014,41 +1111,6 @@ public class ReplicaRepository
         throw new InterruptedException();
     }
 
-    /**
-     * Schedules an expiration task for a sticky entry.
-     */
-    @GuardedBy("entry")
-    private void scheduleExpirationTask(CacheEntry entry)
-    {
-        /* Cancel previous task.
-         */
-        PnfsId pnfsId = entry.getPnfsId();
-        ScheduledFuture<?> future = _tasks.remove(pnfsId);
-        if (future != null) {
-            future.cancel(false);
-        }
-
-        /* Find next sticky flag to expire.
-         */
-        long expire = Long.MAX_VALUE;
-        for (StickyRecord record: entry.getStickyRecords()) {
-            if (record.expire() > -1) {
-                expire = Math.min(expire, record.expire());
-            }
-        }
-
-        /* Schedule a new task. Notice that we schedule an expiration
-         * task even if expire is in the past. This guarantees that we
-         * also remove records that already have expired.
-         */
-        if (expire != Long.MAX_VALUE) {
-            ExpirationTask task = new ExpirationTask(entry.getPnfsId());
-            future = _executor.schedule(task, expire - System.currentTimeMillis()
-                                        + EXPIRATION_CLOCKSHIFT_EXTRA_TIME, TimeUnit.MILLISECONDS);
-            _tasks.put(pnfsId, future);
-        }
-    }
-
     /**
      * Reports a fault to all fault listeners.
      */
@@ -1063,43 +1125,28 @@ public class ReplicaRepository
 
     /**
      * Runnable for removing expired sticky flags.
+     *
+     * Rather than scheduling a task per sticky flag, the task periodically
+     * consults the replica index for entries with expired sticky flags.
+     * Entries for which removal fails are retried on the next run.
      */
     class ExpirationTask implements Runnable
     {
-        private final PnfsId _id;
-
-        public ExpirationTask(PnfsId id)
-        {
-            _id = id;
-        }
-
         @Override
         public void run()
         {
-            try {
-                _tasks.remove(_id);
-                ReplicaRecord entry = _store.get(_id);
-                if (entry != null) {
-                    Collection<StickyRecord> removed = entry.removeExpiredStickyFlags();
-                    if (removed.isEmpty()) {
-                        /* If for some reason we didn't expire anything, we reschedule
-                         * the expiration to be on the safe side (could be a timing
-                         * issue).
-                         */
-                        synchronized (entry) {
-                            scheduleExpirationTask(new CacheEntryImpl(entry));
-                        }
+            for (PnfsId id : _index.getExpiredSticky(System.currentTimeMillis())) {
+                try {
+                    ReplicaRecord entry = _store.get(id);
+                    if (entry != null) {
+                        entry.removeExpiredStickyFlags();
                     }
+                } catch (DiskErrorCacheException ignored) {
+                    // MetaDataCache will already have disabled the pool if this happens
+                } catch (CacheException e) {
+                    // This ought to be a transient error, so we retry on the next run
+                    LOGGER.warn("Failed to clear sticky flags for {}: {}", id, e.getMessage());
                 }
-            } catch (DiskErrorCacheException ignored) {
-                // MetaDataCache will already have disabled the pool if this happens
-            } catch (CacheException e) {
-                // This ought to be a transient error, so reschedule
-                LOGGER.warn("Failed to clear sticky flags for {}: {}", _id, e.getMessage());
-                ScheduledFuture<?> future =
-                        _executor.schedule(this, EXPIRATION_CLOCKSHIFT_EXTRA_TIME,
-                                           TimeUnit.MILLISECONDS);
-                _tasks.put(_id, future);
             }
         }
     }
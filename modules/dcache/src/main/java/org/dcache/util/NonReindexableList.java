@@ -197,6 +197,14 @@ public final class NonReindexableList<E> implements List<E> {
         return list.isEmpty();
     }
 
+    /**
+     * @return the index which will be assigned to the next element
+     *         appended; all lower indices have been assigned.
+     */
+    public int nextIndex() {
+        return counter;
+    }
+
     public boolean isIncludeNulls() {
         return includeNulls;
     }
@@ -0,0 +1,188 @@
+package diskCacheV111.namespace;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import javax.security.auth.Subject;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+
+import diskCacheV111.util.CacheException;
+import diskCacheV111.util.FileNotFoundCacheException;
+import diskCacheV111.util.PnfsId;
+
+import dmg.cells.nucleus.CellEndpoint;
+import dmg.cells.nucleus.CellMessage;
+import dmg.cells.nucleus.CellPath;
+
+import org.dcache.namespace.FileAttribute;
+import org.dcache.vehicles.FileAttributes;
+import org.dcache.vehicles.PnfsGetFileAttributes;
+
+import static java.util.stream.Collectors.toMap;
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyCollectionOf;
+import static org.mockito.Matchers.anySetOf;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.*;
+
+public class PnfsManagerV3Test
+{
+    private static final PnfsId BLOCKING = new PnfsId("000000000000000000000000000000000001");
+    private static final int FILES = 64;
+
+    private final CountDownLatch blocked = new CountDownLatch(1);
+    private final List<Collection<PnfsId>> bulkLookups = new ArrayList<>();
+
+    private NameSpaceProvider provider;
+    private CellEndpoint endpoint;
+    private PnfsManagerV3 pnfsManager;
+
+    @Before
+    public void setUp() throws CacheException
+    {
+        provider = mock(NameSpaceProvider.class);
+        endpoint = mock(CellEndpoint.class);
+
+        when(provider.getFileAttributes(any(Subject.class), any(PnfsId.class), anySetOf(FileAttribute.class)))
+                .thenAnswer(invocation -> {
+                    if (invocation.getArgumentAt(1, PnfsId.class).equals(BLOCKING)) {
+                        blocked.await();
+                        return new FileAttributes();
+                    }
+                    throw new FileNotFoundCacheException("No such file");
+                });
+
+        pnfsManager = new PnfsManagerV3();
+        pnfsManager.setThreads(1);
+        pnfsManager.setListThreads(1);
+        pnfsManager.setCacheModificationRelay(null);
+        pnfsManager.setLogSlowThreshold(0);
+        pnfsManager.setNameSpaceProvider(provider);
+        pnfsManager.setQueueMaxSize(0);
+        pnfsManager.setFolding(false);
+        pnfsManager.setDirectoryListLimit(100);
+        pnfsManager.setCellEndpoint(endpoint);
+        pnfsManager.init();
+    }
+
+    @After
+    public void tearDown() throws InterruptedException
+    {
+        blocked.countDown();
+        pnfsManager.shutdown();
+    }
+
+    @Test
+    public void shouldResolveQueuedLookupsWithBulkLookup() throws Exception
+    {
+        givenBulkLookupReturnsAllFiles();
+
+        Set<PnfsId> files = whenLookupsAreQueuedBehindBlockingLookup();
+        List<PnfsGetFileAttributes> replies = replies();
+
+        assertThat(bulkLookups, is(not(empty())));
+        Set<PnfsId> bulkFiles = new HashSet<>();
+        bulkLookups.forEach(bulkFiles::addAll);
+        assertThat(files.containsAll(bulkFiles), is(true));
+        verify(provider, times(1 + FILES - bulkFiles.size()))
+                .getFileAttributes(any(Subject.class), any(PnfsId.class), anySetOf(FileAttribute.class));
+        for (PnfsGetFileAttributes reply : replies) {
+            if (!reply.getPnfsId().equals(BLOCKING) && !bulkFiles.contains(reply.getPnfsId())) {
+                assertThat(reply.getReturnCode(), is(CacheException.FILE_NOT_FOUND));
+            } else {
+                assertThat(reply.getReturnCode(), is(0));
+                assertThat(reply.getFileAttributes(), is(notNullValue()));
+            }
+        }
+    }
+
+    @Test
+    public void shouldLookUpFilesMissingFromBulkResultIndividually() throws Exception
+    {
+        givenBulkLookupReturnsNoFiles();
+
+        whenLookupsAreQueuedBehindBlockingLookup();
+        List<PnfsGetFileAttributes> replies = replies();
+
+        assertThat(bulkLookups, is(not(empty())));
+        for (PnfsGetFileAttributes reply : replies) {
+            if (!reply.getPnfsId().equals(BLOCKING)) {
+                assertThat(reply.getReturnCode(), is(CacheException.FILE_NOT_FOUND));
+            }
+        }
+    }
+
+    private void givenBulkLookupReturnsAllFiles() throws CacheException
+    {
+        when(provider.getFileAttributes(any(Subject.class), anyCollectionOf(PnfsId.class),
+                                        anySetOf(FileAttribute.class)))
+                .thenAnswer(invocation -> {
+                    Collection<PnfsId> ids = invocation.getArgumentAt(1, Collection.class);
+                    bulkLookups.add(new ArrayList<>(ids));
+                    return ids.stream().collect(toMap(id -> id, id -> new FileAttributes()));
+                });
+    }
+
+    private void givenBulkLookupReturnsNoFiles() throws CacheException
+    {
+        when(provider.getFileAttributes(any(Subject.class), anyCollectionOf(PnfsId.class),
+                                        anySetOf(FileAttribute.class)))
+                .thenAnswer(invocation -> {
+                    bulkLookups.add(new ArrayList<>(invocation.getArgumentAt(1, Collection.class)));
+                    return Collections.<PnfsId, FileAttributes>emptyMap();
+                });
+    }
+
+    /**
+     * Queues lookups of several files while the only processing thread is
+     * blocked. As there are fewer stripes than files, some lookups share a
+     * stripe and are eligible for batching.
+     */
+    private Set<PnfsId> whenLookupsAreQueuedBehindBlockingLookup() throws CacheException
+    {
+        send(BLOCKING);
+        verify(provider, timeout(5000))
+                .getFileAttributes(any(Subject.class), eq(BLOCKING), anySetOf(FileAttribute.class));
+
+        Set<PnfsId> files = new HashSet<>();
+        for (int i = 0; i < FILES; i++) {
+            PnfsId pnfsId = new PnfsId(String.format("0000%032X", i + 2));
+            files.add(pnfsId);
+            send(pnfsId);
+        }
+        blocked.countDown();
+        return files;
+    }
+
+    private void send(PnfsId pnfsId) throws CacheException
+    {
+        PnfsGetFileAttributes message =
+                new PnfsGetFileAttributes(pnfsId, EnumSet.of(FileAttribute.SIZE));
+        CellMessage envelope = new CellMessage(new CellPath("PnfsManager"), message);
+        envelope.getSourcePath().add(new CellPath("door", "dCacheDomain"));
+        pnfsManager.messageArrived(envelope, message);
+    }
+
+    private List<PnfsGetFileAttributes> replies()
+    {
+        ArgumentCaptor<CellMessage> captor = ArgumentCaptor.forClass(CellMessage.class);
+        verify(endpoint, timeout(5000).times(FILES + 1)).sendMessage(captor.capture());
+        List<PnfsGetFileAttributes> replies = new ArrayList<>();
+        for (CellMessage envelope : captor.getAllValues()) {
+            replies.add((PnfsGetFileAttributes) envelope.getMessageObject());
+        }
+        return replies;
+    }
+}
@@ -0,0 +1,115 @@
+package diskCacheV111.namespace;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import dmg.cells.nucleus.CellMessage;
+import dmg.cells.nucleus.CellPath;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public class StripedDispatcherTest
+{
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    @After
+    public void tearDown()
+    {
+        executor.shutdownNow();
+    }
+
+    private static CellMessage message(int value)
+    {
+        return new CellMessage(new CellPath("test"), value);
+    }
+
+    @Test
+    public void shouldPreserveOrderWithinStripe() throws Exception
+    {
+        StripedDispatcher dispatcher = new StripedDispatcher(4, 4, 0, 2);
+        List<Integer> processed = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch done = new CountDownLatch(100);
+        dispatcher.start(executor, (stripe, envelope) -> {
+            processed.add((Integer) envelope.getMessageObject());
+            done.countDown();
+        });
+
+        for (int i = 0; i < 100; i++) {
+            assertTrue(dispatcher.offer(1, message(i)));
+        }
+
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        for (int i = 0; i < 100; i++) {
+            assertThat(processed.get(i), is(i));
+        }
+    }
+
+    @Test
+    public void shouldNotBlockOtherStripes() throws Exception
+    {
+        StripedDispatcher dispatcher = new StripedDispatcher(4, 2, 0, 16);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(1);
+        dispatcher.start(executor, (stripe, envelope) -> {
+            try {
+                if (envelope.getMessageObject().equals(0)) {
+                    release.await();
+                } else {
+                    done.countDown();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+
+        dispatcher.offer(0, message(0));
+        dispatcher.offer(0, message(1));
+        dispatcher.offer(2, message(2));
+
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        assertThat(dispatcher.getStripe(0).size(), is(1));
+        release.countDown();
+    }
+
+    @Test
+    public void shouldRejectWhenFull()
+    {
+        StripedDispatcher dispatcher = new StripedDispatcher(4, 1, 2, 16);
+
+        assertTrue(dispatcher.offer(0, message(0)));
+        assertTrue(dispatcher.offer(1, message(1)));
+        assertThat(dispatcher.offer(2, message(2)), is(false));
+        assertThat(dispatcher.size(), is(2));
+    }
+
+    @Test
+    public void shouldFoldQueuedMessages()
+    {
+        StripedDispatcher dispatcher = new StripedDispatcher(1, 1, 0, 16);
+        for (int i = 0; i < 5; i++) {
+            dispatcher.offer(0, message(i));
+        }
+
+        List<CellMessage> folded = dispatcher.fold(dispatcher.getStripe(0), envelope -> {
+            int value = (Integer) envelope.getMessageObject();
+            if (value == 3) {
+                return StripedDispatcher.Fold.STOP;
+            }
+            return (value % 2 == 0) ? StripedDispatcher.Fold.REMOVE : StripedDispatcher.Fold.KEEP;
+        });
+
+        assertThat(folded.size(), is(2));
+        assertThat(dispatcher.size(), is(3));
+        assertThat(dispatcher.getStripe(0).toArray().length, is(3));
+    }
+}
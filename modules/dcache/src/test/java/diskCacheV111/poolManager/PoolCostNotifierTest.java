@@ -0,0 +1,158 @@
+package diskCacheV111.poolManager;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.util.Arrays;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import diskCacheV111.pools.PoolCostInfo;
+import diskCacheV111.vehicles.CostModulePoolInfoUpdate;
+
+import org.dcache.cells.CellStub;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.reset;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class PoolCostNotifierTest
+{
+    private final CostModule costModule = mock(CostModule.class);
+    private final CellStub topic = mock(CellStub.class);
+    private final PoolCostNotifier notifier = new PoolCostNotifier();
+
+    @Before
+    public void setUp()
+    {
+        notifier.setCostModule(costModule);
+        notifier.setExecutorService(mock(ScheduledExecutorService.class));
+        notifier.setPoolCostTopic(topic);
+        notifier.setUpdatePeriod(30);
+        notifier.setUpdatePeriodUnit(TimeUnit.SECONDS);
+        notifier.setResyncPeriod(5);
+        notifier.setResyncPeriodUnit(TimeUnit.MINUTES);
+    }
+
+    private static PoolCostInfo buildPoolCostInfo(String pool, long free, long lru)
+    {
+        PoolCostInfo cost = new PoolCostInfo(pool, "regular");
+        cost.setSpaceUsage(1000, free, 100, 200, lru);
+        cost.setQueueSizes(0, 100, 0, 0, 100, 0);
+        cost.setP2pServerQueueSizes(0, 10, 0);
+        cost.setP2pClientQueueSizes(0, 10, 0);
+        cost.addExtendedMoverQueueSizes("regular", 1, 100, 0, 1, 0);
+        return cost;
+    }
+
+    private void givenPools(PoolCostInfo... infos)
+    {
+        when(costModule.getPoolCostInfos()).thenReturn(Arrays.asList(infos));
+    }
+
+    private CostModulePoolInfoUpdate publishedUpdate()
+    {
+        ArgumentCaptor<CostModulePoolInfoUpdate> captor =
+                ArgumentCaptor.forClass(CostModulePoolInfoUpdate.class);
+        verify(topic).notify(captor.capture());
+        reset(topic);
+        return captor.getValue();
+    }
+
+    @Test
+    public void shouldPublishAllPoolsFirst()
+    {
+        givenPools(buildPoolCostInfo("pool1", 300, 10), buildPoolCostInfo("pool2", 300, 10));
+
+        notifier.run();
+
+        CostModulePoolInfoUpdate update = publishedUpdate();
+        assertThat(update.isFullUpdate(), is(true));
+        assertThat(update.poolInfos(), hasSize(2));
+        assertThat(update.getResyncPeriod(), is(TimeUnit.MINUTES.toMillis(5)));
+    }
+
+    @Test
+    public void shouldNotPublishWithoutChanges()
+    {
+        givenPools(buildPoolCostInfo("pool1", 300, 10), buildPoolCostInfo("pool2", 300, 10));
+        notifier.run();
+        publishedUpdate();
+
+        givenPools(buildPoolCostInfo("pool1", 300, 40), buildPoolCostInfo("pool2", 300, 40));
+        notifier.run();
+
+        verify(topic, never()).notify(any());
+    }
+
+    @Test
+    public void shouldOnlyPublishChangedPools()
+    {
+        givenPools(buildPoolCostInfo("pool1", 300, 10), buildPoolCostInfo("pool2", 300, 10));
+        notifier.run();
+        publishedUpdate();
+
+        PoolCostInfo changed = buildPoolCostInfo("pool1", 200, 40);
+        givenPools(changed, buildPoolCostInfo("pool2", 300, 40));
+        notifier.run();
+
+        CostModulePoolInfoUpdate update = publishedUpdate();
+        assertThat(update.isFullUpdate(), is(false));
+        assertThat(update.poolInfos(), contains(changed));
+        assertThat(update.getRemovedPools(), is(empty()));
+    }
+
+    @Test
+    public void shouldPublishChangedMoverQueue()
+    {
+        givenPools(buildPoolCostInfo("pool1", 300, 10));
+        notifier.run();
+        publishedUpdate();
+
+        PoolCostInfo changed = buildPoolCostInfo("pool1", 300, 10);
+        changed.addExtendedMoverQueueSizes("regular", 2, 100, 0, 2, 0);
+        givenPools(changed);
+        notifier.run();
+
+        assertThat(publishedUpdate().poolInfos(), contains(changed));
+    }
+
+    @Test
+    public void shouldPublishRemovedPools()
+    {
+        givenPools(buildPoolCostInfo("pool1", 300, 10), buildPoolCostInfo("pool2", 300, 10));
+        notifier.run();
+        publishedUpdate();
+
+        givenPools(buildPoolCostInfo("pool1", 300, 10));
+        notifier.run();
+
+        CostModulePoolInfoUpdate update = publishedUpdate();
+        assertThat(update.poolInfos(), is(empty()));
+        assertThat(update.getRemovedPools(), contains("pool2"));
+    }
+
+    @Test
+    public void shouldPublishAllPoolsEveryResyncPeriod()
+    {
+        notifier.setResyncPeriod(0);
+        givenPools(buildPoolCostInfo("pool1", 300, 10), buildPoolCostInfo("pool2", 300, 10));
+        notifier.run();
+        publishedUpdate();
+
+        notifier.run();
+
+        CostModulePoolInfoUpdate update = publishedUpdate();
+        assertThat(update.isFullUpdate(), is(true));
+        assertThat(update.poolInfos(), hasSize(2));
+    }
+}
@@ -0,0 +1,57 @@
+package diskCacheV111.poolManager;
+
+import org.junit.After;
+import org.junit.Test;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+
+public class RequestContainerExecutorTest
+{
+    private final RequestContainerExecutor executor = new RequestContainerExecutor();
+    private final int defaultThreads = executor.getMaximumPoolSize();
+
+    @After
+    public void tearDown()
+    {
+        executor.shutdownNow();
+    }
+
+    private void setMaxThreads(int count)
+    {
+        RequestContainerExecutor.SetMaxThreadsCommand command = executor.new SetMaxThreadsCommand();
+        command.count = count;
+        command.call();
+    }
+
+    @Test
+    public void shouldIncreaseAndDecreaseThreadLimit()
+    {
+        setMaxThreads(defaultThreads + 10);
+        assertThat(executor.getCorePoolSize(), is(defaultThreads + 10));
+        assertThat(executor.getMaximumPoolSize(), is(defaultThreads + 10));
+
+        setMaxThreads(1);
+        assertThat(executor.getCorePoolSize(), is(1));
+        assertThat(executor.getMaximumPoolSize(), is(1));
+    }
+
+    @Test
+    public void shouldTranslateZeroToDefault()
+    {
+        setMaxThreads(1);
+        setMaxThreads(0);
+
+        assertThat(executor.getCorePoolSize(), is(defaultThreads));
+        assertThat(executor.getMaximumPoolSize(), is(defaultThreads));
+    }
+
+    @Test
+    public void shouldTranslateUnlimitedSetupToDefault()
+    {
+        setMaxThreads(Integer.MAX_VALUE);
+
+        assertThat(executor.getCorePoolSize(), is(defaultThreads));
+        assertThat(executor.getMaximumPoolSize(), is(defaultThreads));
+    }
+}
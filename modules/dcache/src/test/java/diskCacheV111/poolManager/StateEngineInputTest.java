@@ -0,0 +1,100 @@
+package diskCacheV111.poolManager;
+
+import org.junit.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public class StateEngineInputTest
+{
+    private final StateEngineInput<Integer> input = new StateEngineInput<>();
+
+    @Test
+    public void shouldStartEngineOnFirstInput()
+    {
+        assertThat(input.add(1), is(true));
+        assertThat(input.add(2), is(false));
+        assertThat(input.isActive(), is(true));
+    }
+
+    @Test
+    public void shouldDeliverInputInOrder()
+    {
+        input.add(1);
+        input.add(2);
+
+        assertThat(input.next(), is(1));
+        assertThat(input.next(), is(2));
+        assertThat(input.next(), is(nullValue()));
+        assertThat(input.isActive(), is(false));
+    }
+
+    @Test
+    public void shouldStartEngineAgainAfterQueueWasDrained()
+    {
+        input.add(1);
+        input.next();
+        input.next();
+
+        assertThat(input.add(2), is(true));
+        assertThat(input.next(), is(2));
+    }
+
+    @Test
+    public void shouldStartEngineAgainAfterStop()
+    {
+        input.add(1);
+        input.stop();
+
+        assertThat(input.isActive(), is(false));
+        assertThat(input.add(2), is(true));
+        assertThat(input.next(), is(1));
+        assertThat(input.next(), is(2));
+    }
+
+    @Test
+    public void shouldProcessAllConcurrentInputWithOneEngineAtATime() throws Exception
+    {
+        int producers = 4;
+        int count = 10000;
+        AtomicInteger engines = new AtomicInteger();
+        AtomicInteger processed = new AtomicInteger();
+        AtomicInteger maxEngines = new AtomicInteger();
+        ExecutorService engineExecutor = Executors.newCachedThreadPool();
+        ExecutorService producerExecutor = Executors.newFixedThreadPool(producers);
+
+        Runnable engine = () -> {
+            maxEngines.accumulateAndGet(engines.incrementAndGet(), Math::max);
+            try {
+                while (input.next() != null) {
+                    processed.incrementAndGet();
+                }
+            } finally {
+                engines.decrementAndGet();
+            }
+        };
+        for (int p = 0; p < producers; p++) {
+            producerExecutor.execute(() -> {
+                for (int i = 0; i < count; i++) {
+                    if (input.add(i)) {
+                        engineExecutor.execute(engine);
+                    }
+                }
+            });
+        }
+        producerExecutor.shutdown();
+        assertTrue(producerExecutor.awaitTermination(10, TimeUnit.SECONDS));
+        engineExecutor.shutdown();
+        assertTrue(engineExecutor.awaitTermination(10, TimeUnit.SECONDS));
+
+        assertThat(processed.get(), is(producers * count));
+        assertThat(maxEngines.get(), is(1));
+        assertThat(input.isActive(), is(false));
+    }
+}
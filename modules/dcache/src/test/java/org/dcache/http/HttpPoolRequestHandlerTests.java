@@ -21,6 +21,7 @@ import io.netty.handler.codec.http.HttpRequest;
 import io.netty.handler.codec.http.HttpResponse;
 import io.netty.handler.codec.http.HttpVersion;
 import io.netty.handler.codec.http.LastHttpContent;
+import io.netty.handler.ssl.SslHandler;
 import io.netty.util.CharsetUtil;
 import org.hamcrest.BaseMatcher;
 import org.hamcrest.Description;
@@ -52,6 +53,9 @@ import java.util.Optional;
 import java.util.Set;
 import java.util.UUID;
 
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLEngine;
+
 import diskCacheV111.util.FsPath;
 import diskCacheV111.vehicles.HttpProtocolInfo;
 
@@ -169,6 +173,27 @@ public class HttpPoolRequestHandlerTests
 
         assertThat(_additionalWrites, hasSize(2));
         assertThat(_additionalWrites.get(0), isCompleteRead("/path/to/file"));
+        assertThat(_additionalWrites.get(0), instanceOf(RepositoryFileRegion.class));
+        assertThat(_additionalWrites.get(1), instanceOf(LastHttpContent.class));
+    }
+
+    @Test
+    public void shouldDeliverCompleteFileInChunksIfConnectionIsEncrypted()
+            throws Exception
+    {
+        givenConnectionIsEncrypted();
+        givenPoolHas(file("/path/to/file").withSize(100));
+        givenDoorHasOrganisedReadOf(file("/path/to/file").with(SOME_UUID));
+
+        whenClientMakes(a(GET).
+                forUri("/path/to/file?dcache-http-uuid="+SOME_UUID));
+
+        assertThat(_response.getStatus(), is(OK));
+        assertThat(_response, hasHeader(CONTENT_LENGTH, "100"));
+
+        assertThat(_additionalWrites, hasSize(2));
+        assertThat(_additionalWrites.get(0), isCompleteRead("/path/to/file"));
+        assertThat(_additionalWrites.get(0), instanceOf(ReusableChunkedNioFile.class));
         assertThat(_additionalWrites.get(1), instanceOf(LastHttpContent.class));
     }
 
@@ -378,6 +403,7 @@ public class HttpPoolRequestHandlerTests
                 emptyLine());
         assertThat(_additionalWrites.get(1),
                 isPartialRead("/path/to/file", 0, 0));
+        assertThat(_additionalWrites.get(1), instanceOf(ReusableChunkedNioFile.class));
         assertThat(_additionalWrites.get(2), isMultipart().
                 emptyLine().
                 line("--__AAAAAAAAAAAAAAAA__").
@@ -509,6 +535,16 @@ public class HttpPoolRequestHandlerTests
         assertThat(_response, hasHeader(CONTENT_LENGTH));
     }
 
+    private void givenConnectionIsEncrypted() throws Exception
+    {
+        /* Added behind the handler, so the SslHandler is visible in the
+         * pipeline without encrypting the messages written by the handler.
+         */
+        SSLEngine engine = SSLContext.getDefault().createSSLEngine();
+        engine.setUseClientMode(false);
+        _channel.pipeline().addLast(new SslHandler(engine));
+    }
+
     private void givenPoolHas(FileInfo file)
     {
         _files.put(file.getPath(), file);
@@ -883,20 +919,32 @@ public class HttpPoolRequestHandlerTests
         @Override
         public boolean matches(Object o)
         {
-            if(!(o instanceof ReusableChunkedNioFile)) {
+            RepositoryChannel file;
+            long offset;
+            long endOffset;
+
+            if (o instanceof ReusableChunkedNioFile) {
+                ReusableChunkedNioFile ci = (ReusableChunkedNioFile) o;
+                file = ci.getChannel();
+                offset = ci.getOffset();
+                endOffset = ci.getEndOffset();
+            } else if (o instanceof RepositoryFileRegion) {
+                RepositoryFileRegion region = (RepositoryFileRegion) o;
+                file = region.getChannel();
+                offset = region.position();
+                endOffset = region.position() + region.count();
+            } else {
                 return false;
             }
 
-            ReusableChunkedNioFile ci = (ReusableChunkedNioFile) o;
-
             NettyTransferService<HttpProtocolInfo>.NettyMoverChannel channel =
-                    (NettyTransferService<HttpProtocolInfo>.NettyMoverChannel) ci.getChannel();
+                    (NettyTransferService<HttpProtocolInfo>.NettyMoverChannel) file;
 
             if(!_path.equals(channel.getProtocolInfo().getPath())) {
                 return false;
             }
 
-            return ci.getOffset() == _lower && ci.getEndOffset() == _upper + 1;
+            return offset == _lower && endOffset == _upper + 1;
         }
 
         @Override
@@ -0,0 +1,145 @@
+package org.dcache.pool.classic;
+
+import org.junit.Test;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import diskCacheV111.util.PnfsId;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+
+public class EvictionQueueTest
+{
+    private static PnfsId id(int i)
+    {
+        return new PnfsId(String.format("0000%032X", i));
+    }
+
+    private static List<PnfsId> keys(List<EvictionQueue.Entry<PnfsId>> entries)
+    {
+        return entries.stream().map(EvictionQueue.Entry::getKey).collect(Collectors.toList());
+    }
+
+    @Test
+    public void shouldOrderByAccessTime()
+    {
+        EvictionQueue<PnfsId> queue = new EvictionQueue<>(EvictionQueue.Policy.LRU);
+        for (int i = 0; i < 100; i++) {
+            queue.add(id(i), 1000 - i, 10);
+        }
+
+        List<PnfsId> values = queue.values();
+
+        assertThat(values, hasSize(100));
+        assertThat(values.get(0), is(id(99)));
+        assertThat(values.get(99), is(id(0)));
+        assertThat(queue.head().getKey(), is(id(99)));
+        assertThat(queue.head().getAccessTime(), is(901L));
+    }
+
+    @Test
+    public void shouldNotAddTwice()
+    {
+        EvictionQueue<PnfsId> queue = new EvictionQueue<>(EvictionQueue.Policy.LRU);
+
+        assertThat(queue.add(id(1), 1000, 10), is(true));
+        assertThat(queue.add(id(1), 2000, 10), is(false));
+        assertThat(queue.size(), is(1));
+        assertThat(queue.head().getAccessTime(), is(1000L));
+    }
+
+    @Test
+    public void shouldRemove()
+    {
+        EvictionQueue<PnfsId> queue = new EvictionQueue<>(EvictionQueue.Policy.LRU);
+        queue.add(id(1), 1000, 10);
+        queue.add(id(2), 2000, 10);
+
+        assertThat(queue.remove(id(1)), is(true));
+        assertThat(queue.remove(id(1)), is(false));
+        assertThat(queue.values(), contains(id(2)));
+    }
+
+    @Test
+    public void shouldMoveTouchedEntryToTail()
+    {
+        EvictionQueue<PnfsId> queue = new EvictionQueue<>(EvictionQueue.Policy.LRU);
+        queue.add(id(1), 1000, 10);
+        queue.add(id(2), 2000, 10);
+
+        assertThat(queue.touch(id(1), 3000), is(true));
+        assertThat(queue.touch(id(3), 3000), is(false));
+        assertThat(queue.values(), contains(id(2), id(1)));
+        assertThat(queue.getAccessUpdates(), is(1L));
+    }
+
+    @Test
+    public void shouldReturnCandidatesCoveringRequestedBytes()
+    {
+        EvictionQueue<PnfsId> queue = new EvictionQueue<>(EvictionQueue.Policy.LRU);
+        for (int i = 0; i < 100; i++) {
+            queue.add(id(i), i, 10);
+        }
+
+        assertThat(keys(queue.candidates(25)), contains(id(0), id(1), id(2)));
+        assertThat(keys(queue.candidates(30)), contains(id(0), id(1), id(2)));
+        assertThat(queue.candidates(Long.MAX_VALUE), hasSize(100));
+        assertThat(queue.candidates(0), is(empty()));
+    }
+
+    @Test
+    public void shouldPreferEvictingLargeRarelyUsedEntriesWithGdsf()
+    {
+        EvictionQueue<PnfsId> queue = new EvictionQueue<>(EvictionQueue.Policy.GDSF);
+        queue.add(id(1), 1000, 100);
+        queue.add(id(2), 2000, 1000000);
+        queue.add(id(3), 3000, 100);
+        queue.touch(id(3), 4000);
+
+        assertThat(queue.values(), contains(id(2), id(1), id(3)));
+    }
+
+    @Test
+    public void shouldKeepSmallFrequentlyReadEntryOverLargeEntryReadOnceWithGdsf()
+    {
+        long mib = 1024 * 1024;
+        EvictionQueue<PnfsId> queue = new EvictionQueue<>(EvictionQueue.Policy.GDSF);
+        queue.add(id(1), 1000, mib);
+        for (int i = 0; i < 3; i++) {
+            queue.touch(id(1), 2000 + i);
+        }
+        for (int i = 10; i < 20; i++) {
+            queue.add(id(i), 3000 + i, 100 * mib);
+        }
+        for (int i = 10; i < 20; i++) {
+            EvictionQueue.Entry<PnfsId> head = queue.head();
+            assertThat(head.getKey(), is(id(i)));
+            queue.remove(head.getKey());
+            queue.evicted(head);
+        }
+        queue.add(id(2), 5000, 1024 * mib);
+
+        assertThat(queue.values(), contains(id(2), id(1)));
+        assertThat(keys(queue.candidates(1)), contains(id(2)));
+    }
+
+    @Test
+    public void shouldAgeEntriesWithGdsf()
+    {
+        EvictionQueue<PnfsId> queue = new EvictionQueue<>(EvictionQueue.Policy.GDSF);
+        queue.add(id(1), 1000, 100);
+        queue.add(id(2), 1000, 200);
+
+        EvictionQueue.Entry<PnfsId> head = queue.head();
+        assertThat(head.getKey(), is(id(2)));
+        queue.remove(id(2));
+        queue.evicted(head);
+        queue.add(id(3), 1000, 150);
+
+        assertThat(queue.values(), contains(id(1), id(3)));
+        assertThat(queue.getEvictions(), is(1L));
+        assertThat(queue.getEvictedBytes(), is(200L));
+    }
+}
@@ -0,0 +1,72 @@
+package org.dcache.pool.movers;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.assertThat;
+
+public class DirectBufferPoolTest
+{
+    private DirectBufferPool pool;
+
+    @Before
+    public void setUp()
+    {
+        pool = new DirectBufferPool(1024);
+    }
+
+    @Test
+    public void shouldAllocateDirectBuffer()
+    {
+        ByteBuffer buffer = pool.acquire(512);
+
+        assertThat(buffer.isDirect(), is(true));
+        assertThat(buffer.capacity(), is(512));
+    }
+
+    @Test
+    public void shouldReuseReleasedBuffer()
+    {
+        ByteBuffer buffer = pool.acquire(512);
+        buffer.put((byte) 1);
+        pool.release(buffer);
+
+        ByteBuffer reused = pool.acquire(512);
+
+        assertThat(reused, is(sameInstance(buffer)));
+        assertThat(reused.position(), is(0));
+        assertThat(reused.remaining(), is(512));
+        assertThat(pool.getRetained(), is(0L));
+    }
+
+    @Test
+    public void shouldNotReuseBufferOfDifferentSize()
+    {
+        ByteBuffer buffer = pool.acquire(512);
+        pool.release(buffer);
+
+        assertThat(pool.acquire(256), is(not(sameInstance(buffer))));
+        assertThat(pool.getRetained(), is(512L));
+    }
+
+    @Test
+    public void shouldNotRetainMoreThanLimit()
+    {
+        pool.release(ByteBuffer.allocateDirect(512));
+        pool.release(ByteBuffer.allocateDirect(512));
+        pool.release(ByteBuffer.allocateDirect(512));
+
+        assertThat(pool.getRetained(), is(1024L));
+    }
+
+    @Test
+    public void shouldIgnoreHeapBuffers()
+    {
+        pool.release(ByteBuffer.allocate(512));
+
+        assertThat(pool.getRetained(), is(0L));
+    }
+}
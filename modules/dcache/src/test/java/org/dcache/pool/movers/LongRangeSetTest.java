@@ -0,0 +1,93 @@
+package org.dcache.pool.movers;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertThat;
+
+public class LongRangeSetTest
+{
+    private LongRangeSet set;
+
+    @Before
+    public void setUp()
+    {
+        set = new LongRangeSet();
+    }
+
+    @Test
+    public void shouldCoalesceAdjacentRanges()
+    {
+        set.add(0, 10);
+        set.add(10, 20);
+
+        assertThat(set.size(), is(1));
+        assertThat(set.upperOfRangeContaining(0), is(20L));
+        assertThat(set.upperOfRangeContaining(19), is(20L));
+        assertThat(set.upperOfRangeContaining(20), is(-1L));
+    }
+
+    @Test
+    public void shouldMergeRangesBridgedByNewRange()
+    {
+        set.add(0, 10);
+        set.add(20, 30);
+        set.add(40, 50);
+        set.add(60, 70);
+        set.add(70, 80);
+
+        assertThat(set.size(), is(4));
+
+        set.add(10, 45);
+
+        assertThat(set.size(), is(2));
+        assertThat(set.upperOfRangeContaining(5), is(50L));
+        assertThat(set.upperOfRangeContaining(65), is(80L));
+    }
+
+    @Test
+    public void shouldDetectIntersection()
+    {
+        set.add(10, 20);
+
+        assertThat(set.intersects(0, 10), is(false));
+        assertThat(set.intersects(20, 30), is(false));
+        assertThat(set.intersects(0, 11), is(true));
+        assertThat(set.intersects(19, 30), is(true));
+        assertThat(set.intersects(12, 15), is(true));
+        assertThat(set.intersects(5, 25), is(true));
+    }
+
+    @Test
+    public void shouldReturnGaps()
+    {
+        assertArrayEquals(new long[] {0, 100}, set.gaps(0, 100));
+
+        set.add(10, 20);
+        set.add(30, 40);
+
+        assertArrayEquals(new long[] {0, 10, 20, 30, 40, 100}, set.gaps(0, 100));
+        assertArrayEquals(new long[] {0, 10, 20, 30}, set.gaps(0, 40));
+        assertArrayEquals(new long[] {20, 25}, set.gaps(15, 25));
+    }
+
+    @Test
+    public void shouldGrowBeyondInitialCapacity()
+    {
+        for (long i = 100; i > 0; i--) {
+            set.add(2 * i, 2 * i + 1);
+        }
+
+        assertThat(set.size(), is(100));
+
+        for (long i = 0; i <= 100; i++) {
+            set.add(2 * i + 1, 2 * i + 2);
+        }
+
+        assertThat(set.size(), is(1));
+        assertThat(set.upperOfRangeContaining(2), is(202L));
+        assertThat(set.upperOfRangeContaining(1), is(202L));
+    }
+}
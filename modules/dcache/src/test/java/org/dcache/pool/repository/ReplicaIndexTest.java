@@ -0,0 +1,201 @@
+package org.dcache.pool.repository;
+
+import com.google.common.collect.ImmutableList;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Set;
+
+import diskCacheV111.util.PnfsId;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class ReplicaIndexTest
+{
+    private ReplicaIndex index;
+
+    @Before
+    public void setUp()
+    {
+        index = new ReplicaIndex();
+    }
+
+    private static PnfsId id(int i)
+    {
+        return new PnfsId(String.format("0000%032X", i));
+    }
+
+    private static ReplicaRecord record(PnfsId id, ReplicaState state, long size,
+                                        Collection<StickyRecord> sticky)
+    {
+        ReplicaRecord record = mock(ReplicaRecord.class);
+        when(record.getPnfsId()).thenReturn(id);
+        when(record.getState()).thenReturn(state);
+        when(record.getReplicaSize()).thenReturn(size);
+        when(record.getLastAccessTime()).thenReturn(1000L);
+        when(record.getLinkCount()).thenReturn(0);
+        when(record.stickyRecords()).thenReturn(sticky);
+        return record;
+    }
+
+    @Test
+    public void shouldAddUnloadedEntries()
+    {
+        index.add(id(1));
+
+        assertThat(index.contains(id(1)), is(true));
+        assertThat(index.isLoaded(id(1)), is(false));
+        assertThat(index.getState(id(1)), is(ReplicaState.NEW));
+        assertThat(index.contains(id(2)), is(false));
+        assertThat(index.getState(id(2)), is(nullValue()));
+    }
+
+    @Test
+    public void shouldUpdateFromRecord()
+    {
+        index.add(id(1));
+        index.update(record(id(1), ReplicaState.CACHED, 42, ImmutableList.of()));
+
+        assertThat(index.isLoaded(id(1)), is(true));
+        assertThat(index.getState(id(1)), is(ReplicaState.CACHED));
+        assertThat(index.getReplicaSize(id(1)), is(42L));
+        assertThat(index.getLastAccessTime(id(1)), is(1000L));
+        assertThat(index.getLinkCount(id(1)), is(0));
+        assertThat(index.getStickyExpiration(id(1)), is(ReplicaIndex.NO_EXPIRATION));
+        assertThat(index.size(), is(1));
+    }
+
+    @Test
+    public void shouldReportFirstUpdateFromRecord()
+    {
+        index.add(id(1));
+
+        assertThat(index.update(record(id(1), ReplicaState.CACHED, 42, ImmutableList.of())), is(true));
+        assertThat(index.update(record(id(1), ReplicaState.PRECIOUS, 42, ImmutableList.of())), is(false));
+        assertThat(index.update(record(id(2), ReplicaState.NEW, 0, ImmutableList.of())), is(true));
+    }
+
+    @Test
+    public void shouldTrackRemovableFlag()
+    {
+        index.add(id(1));
+
+        assertThat(index.setRemovable(id(1), true), is(true));
+        assertThat(index.setRemovable(id(1), true), is(false));
+        assertThat(index.isRemovable(id(1)), is(true));
+        assertThat(index.setRemovable(id(1), false), is(true));
+        assertThat(index.setRemovable(id(2), true), is(false));
+    }
+
+    @Test
+    public void shouldSurviveRehashAndRemoval()
+    {
+        for (int i = 0; i < 10000; i++) {
+            index.add(id(i));
+        }
+        for (int i = 0; i < 10000; i += 2) {
+            assertThat(index.remove(id(i)), is(true));
+        }
+        for (int i = 10000; i < 15000; i++) {
+            index.add(id(i));
+        }
+
+        assertThat(index.size(), is(10000));
+        assertThat(index.contains(id(0)), is(false));
+        assertThat(index.contains(id(1)), is(true));
+        assertThat(index.contains(id(14999)), is(true));
+
+        Set<PnfsId> ids = new HashSet<>(index.keySet());
+        assertThat(ids.size(), is(10000));
+        assertThat(ids, hasItem(id(9999)));
+        assertThat(ids, not(hasItem(id(9998))));
+    }
+
+    @Test
+    public void shouldReturnExpiredStickyEntries()
+    {
+        index.update(record(id(1), ReplicaState.CACHED, 1,
+                            ImmutableList.of(new StickyRecord("a", 100), new StickyRecord("b", -1))));
+        index.update(record(id(2), ReplicaState.CACHED, 1,
+                            ImmutableList.of(new StickyRecord("a", 200))));
+        index.update(record(id(3), ReplicaState.REMOVED, 1,
+                            ImmutableList.of(new StickyRecord("a", 50))));
+        index.update(record(id(4), ReplicaState.CACHED, 1,
+                            ImmutableList.of(new StickyRecord("a", -1))));
+
+        assertThat(index.getStickyExpiration(id(1)), is(100L));
+        assertThat(index.getExpiredSticky(99), is(empty()));
+        assertThat(index.getExpiredSticky(150), contains(id(1)));
+        assertThat(index.getExpiredSticky(200), containsInAnyOrder(id(1), id(2)));
+
+        index.update(record(id(1), ReplicaState.CACHED, 1, ImmutableList.of()));
+        assertThat(index.getExpiredSticky(200), contains(id(2)));
+    }
+
+    @Test
+    public void shouldReturnExpiredStickyEntriesUntilUpdated()
+    {
+        index.update(record(id(1), ReplicaState.CACHED, 1,
+                            ImmutableList.of(new StickyRecord("a", 100))));
+
+        assertThat(index.getExpiredSticky(150), contains(id(1)));
+        assertThat(index.getExpiredSticky(150), contains(id(1)));
+
+        index.update(record(id(1), ReplicaState.CACHED, 1,
+                            ImmutableList.of(new StickyRecord("a", 300))));
+        assertThat(index.getExpiredSticky(150), is(empty()));
+        assertThat(index.getExpiredSticky(300), contains(id(1)));
+    }
+
+    @Test
+    public void shouldReturnExpiredStickyEntryOnce()
+    {
+        index.update(record(id(1), ReplicaState.CACHED, 1,
+                            ImmutableList.of(new StickyRecord("a", 100))));
+        index.update(record(id(1), ReplicaState.CACHED, 1,
+                            ImmutableList.of(new StickyRecord("a", 200))));
+        index.update(record(id(1), ReplicaState.CACHED, 1,
+                            ImmutableList.of(new StickyRecord("a", 100))));
+
+        assertThat(index.getExpiredSticky(300), contains(id(1)));
+    }
+
+    @Test
+    public void shouldNotReturnExpiredStickyOfRemovedEntries()
+    {
+        index.update(record(id(1), ReplicaState.CACHED, 1,
+                            ImmutableList.of(new StickyRecord("a", 100))));
+        index.update(record(id(2), ReplicaState.CACHED, 1,
+                            ImmutableList.of(new StickyRecord("a", 100))));
+        index.remove(id(1));
+        index.update(record(id(2), ReplicaState.REMOVED, 1,
+                            ImmutableList.of(new StickyRecord("a", 100))));
+
+        assertThat(index.getExpiredSticky(150), is(empty()));
+    }
+
+    @Test
+    public void shouldKeepExistingIteratorsIntactWhenRehashing()
+    {
+        for (int i = 0; i < 100; i++) {
+            index.add(id(i));
+        }
+        Iterator<PnfsId> iterator = index.keySet().iterator();
+        for (int i = 100; i < 10000; i++) {
+            index.add(id(i));
+        }
+
+        Set<PnfsId> ids = new HashSet<>();
+        iterator.forEachRemaining(ids::add);
+        for (int i = 0; i < 100; i++) {
+            assertThat(ids, hasItem(id(i)));
+        }
+        assertThat(new HashSet<>(index.keySet()).size(), is(10000));
+    }
+}
@@ -3,6 +3,8 @@ package org.dcache.tests.poolmanager;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.io.PrintWriter;
+import java.io.StringWriter;
 import java.net.URI;
 import java.util.ArrayList;
 import java.util.HashSet;
@@ -825,4 +827,44 @@ public class PoolSelectionUnitTest {
                       null); // linkGroup
         assertEquals(0, preference.length);
    }
+
+    @Test
+    public void testMatchCacheIsInvalidatedBySetupChange() throws CommandException {
+
+        _ci.command("psu set allpoolsactive on");
+        FileAttributes fileAttributes = new FileAttributes();
+        StorageInfos.injectInto(GenericStorageInfo.valueOf("h1:u1@osm", "*"), fileAttributes);
+
+        PoolPreferenceLevel[] preference = _psu.match(DirectionType.READ,
+                "131.169.214.149", null, fileAttributes, null);
+        assertEquals(2, preference.length);
+        assertEquals("h1-read", preference[0].getPoolList().get(0));
+
+        _ci.command(new Args("psu set link h1-read-link -readpref=0"));
+
+        preference = _psu.match(DirectionType.READ,
+                "131.169.214.149", null, fileAttributes, null);
+        assertEquals(1, preference.length);
+        assertEquals("default-read", preference[0].getPoolList().get(0));
+    }
+
+    @Test
+    public void testMatchCacheReflectsPoolState() throws CommandException {
+
+        _ci.command("psu set allpoolsactive on");
+        FileAttributes fileAttributes = new FileAttributes();
+        StorageInfos.injectInto(GenericStorageInfo.valueOf("h1:u1@osm", "*"), fileAttributes);
+
+        _psu.match(DirectionType.READ, "131.169.214.149", null, fileAttributes, null);
+        _psu.getPool("h1-read").setPoolMode(new PoolV2Mode(PoolV2Mode.DISABLED));
+        PoolPreferenceLevel[] preference = _psu.match(DirectionType.READ,
+                "131.169.214.149", null, fileAttributes, null);
+
+        assertTrue(preference[0].getPoolList().isEmpty());
+
+        StringWriter info = new StringWriter();
+        _psu.getInfo(new PrintWriter(info));
+        assertTrue(info.toString(), info.toString().contains("Hits : 1"));
+        assertTrue(info.toString(), info.toString().contains("Misses : 1"));
+    }
 }
@@ -0,0 +1,146 @@
+package org.dcache.tests.poolmanager;
+
+import com.google.common.collect.ImmutableMap;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import diskCacheV111.poolManager.CostModuleV1;
+import diskCacheV111.poolManager.PoolMonitorV5;
+import diskCacheV111.poolManager.PoolSelectionUnitV2;
+import diskCacheV111.poolManager.RequestContainerV5;
+import diskCacheV111.util.PnfsId;
+import diskCacheV111.vehicles.DCapProtocolInfo;
+import diskCacheV111.vehicles.OSMStorageInfo;
+import diskCacheV111.vehicles.PoolMgrSelectReadPoolMsg;
+import diskCacheV111.vehicles.ProtocolInfo;
+import diskCacheV111.vehicles.RestoreHandlerInfo;
+import diskCacheV111.vehicles.StorageInfo;
+import diskCacheV111.vehicles.StorageInfos;
+
+import dmg.cells.nucleus.CellAddressCore;
+import dmg.cells.nucleus.CellMessage;
+
+import org.dcache.poolmanager.PartitionManager;
+import org.dcache.vehicles.FileAttributes;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+
+public class RequestContainerV5Test
+{
+    private final List<Runnable> engines = new CopyOnWriteArrayList<>();
+
+    private RequestContainerV5 _rc;
+    private ProtocolInfo _protocolInfo;
+
+    @Before
+    public void setUp() throws Exception
+    {
+        _protocolInfo = new DCapProtocolInfo("DCap", 3, 0, new InetSocketAddress("127.0.0.1", 17));
+
+        PartitionManager partitionManager = new PartitionManager();
+        partitionManager.setProperties(null, ImmutableMap.of("stage-allowed", "yes"));
+        PoolSelectionUnitV2 psu = new PoolSelectionUnitV2();
+        PoolMonitorHelper.prepareSelectionUnit(psu, psu, Collections.singletonList("pool1"));
+        PoolMonitorV5 poolMonitor = new PoolMonitorV5();
+        poolMonitor.setPoolSelectionUnit(psu);
+        poolMonitor.setCostModule(new CostModuleV1());
+        poolMonitor.setPartitionManager(partitionManager);
+
+        /* State engines are recorded, but not run, so requests stay
+         * attached to their handler.
+         */
+        _rc = new RequestContainerV5();
+        _rc.setPoolSelectionUnit(psu);
+        _rc.setPoolMonitor(poolMonitor);
+        _rc.setPartitionManager(partitionManager);
+        _rc.setExecutor(engines::add);
+    }
+
+    private CellMessage request(PnfsId pnfsId)
+    {
+        StorageInfo storageInfo = new OSMStorageInfo("h1", "rawd");
+        FileAttributes attributes = new FileAttributes();
+        StorageInfos.injectInto(storageInfo, attributes);
+        attributes.setPnfsId(pnfsId);
+        attributes.setLocations(Collections.emptyList());
+        attributes.setSize(5);
+        attributes.setAccessLatency(StorageInfo.DEFAULT_ACCESS_LATENCY);
+        attributes.setRetentionPolicy(StorageInfo.DEFAULT_RETENTION_POLICY);
+        attributes.setChecksums(Collections.emptySet());
+        return new CellMessage(new CellAddressCore("PoolManager"),
+                               new PoolMgrSelectReadPoolMsg(attributes, _protocolInfo, null));
+    }
+
+    private void send(CellMessage envelope) throws Exception
+    {
+        _rc.messageArrived(envelope, (PoolMgrSelectReadPoolMsg) envelope.getMessageObject());
+    }
+
+    @Test
+    public void shouldAttachRequestsForSameFileToOneHandler() throws Exception
+    {
+        PnfsId pnfsId = new PnfsId("000000000000000000000000000000000001");
+
+        send(request(pnfsId));
+        send(request(pnfsId));
+
+        List<RestoreHandlerInfo> handlers = _rc.getRestoreHandlerInfo();
+        assertThat(handlers, hasSize(1));
+        assertThat(handlers.get(0).getClientCount(), is(2));
+        assertThat(engines, hasSize(1));
+    }
+
+    @Test
+    public void shouldCreateHandlerPerFile() throws Exception
+    {
+        send(request(new PnfsId("000000000000000000000000000000000001")));
+        send(request(new PnfsId("000000000000000000000000000000000002")));
+
+        assertThat(_rc.getRestoreHandlerInfo(), hasSize(2));
+        assertThat(engines, hasSize(2));
+    }
+
+    @Test
+    public void shouldAttachConcurrentRequestsToOneHandler() throws Exception
+    {
+        PnfsId pnfsId = new PnfsId("000000000000000000000000000000000001");
+        int threads = 8;
+        int requests = 200;
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < requests; i++) {
+                        send(request(pnfsId));
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        List<RestoreHandlerInfo> handlers = _rc.getRestoreHandlerInfo();
+        assertThat(handlers, hasSize(1));
+        assertThat(handlers.get(0).getClientCount(), is(threads * requests));
+        assertThat(engines, hasSize(1));
+    }
+}
@@ -420,6 +420,18 @@ public class RepositorySubsystemTest
         assertSpaceRecord(repoSize, repoSize - 2048 - 1024, 1024, 1024);
     }
 
+    @Test
+    public void testGetSpaceRecordAfterParallelLoad()
+        throws IOException, CacheException, InterruptedException
+    {
+        repository.setLoadThreads(3);
+        repository.init();
+        repository.load();
+        assertSpaceRecord(repoSize, repoSize - 2048 - 1024, 1024, 1024);
+        assertCanOpen(id1, size1, PRECIOUS);
+        assertCanOpen(id3, size3, CACHED);
+    }
+
     @Test
     public void testOpenEntryBeforeLoad()
         throws IOException, CacheException, InterruptedException
@@ -668,6 +680,51 @@ public class RepositorySubsystemTest
         };
     }
 
+    @Test
+    public void testVanishedEntryIsReleased()
+        throws Throwable
+    {
+        repository.init();
+        repository.load();
+        assertSpaceRecord(repoSize, repoSize - 2048 - 1024, 1024, 1024);
+        stateChangeEvents.clear();
+
+        Files.delete(dataDir.resolve(id2.toString()));
+
+        new CellStubHelper(cell) {
+            @Message(required=true,step=1,cell="pnfs")
+            public Object message(PnfsClearCacheLocationMessage msg)
+            {
+                msg.setSucceeded();
+                return msg;
+            }
+
+            @Override
+            protected void run()
+                throws CacheException, InterruptedException
+            {
+                /* The record of id2 is only read again once the garbage
+                 * collector has dropped the record read during load.
+                 */
+                boolean vanished = false;
+                for (int i = 0; i < 10 && !vanished; i++) {
+                    System.gc();
+                    try {
+                        repository.getEntry(id2);
+                    } catch (FileNotInCacheException e) {
+                        vanished = true;
+                    }
+                }
+                assertTrue("Record of deleted replica was not dropped", vanished);
+                expectStateChangeEvent(id2, CACHED, REMOVED);
+                expectStateChangeEvent(id2, REMOVED, DESTROYED);
+                assertNoStateChangeEvent();
+                assertStep("Cache location cleared", 1);
+                assertSpaceRecord(repoSize, repoSize - 2048, 1024, 0);
+            }
+        };
+    }
+
     @Test
     public void testRemoveWhileReading()
         throws Throwable